@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.endpoint;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.linecorp.armeria.client.ClientOptions;
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.DefaultClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.metric.NoopMeterRegistry;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * Microbenchmarks of {@link EndpointSelector#select(ClientRequestContext)} of
+ * {@link ConsistentHashingEndpointSelectionStrategy}, compared with {@link StickyEndpointSelectionStrategy},
+ * and of rebuilding the hash ring when an {@link EndpointGroup} is updated.
+ */
+@State(Scope.Thread)
+public class ConsistentHashingEndpointSelectionStrategyBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    private int numEndpoints;
+
+    private long key;
+
+    private ClientRequestContext ctx;
+    private List<Endpoint> endpoints;
+    private TestDynamicEndpointGroup group;
+    private EndpointSelector sticky;
+    private EndpointSelector consistentHashing;
+
+    @Setup
+    public void setup() {
+        ctx = new DefaultClientRequestContext(
+                new EmbeddedChannel().eventLoop(), NoopMeterRegistry.get(), SessionProtocol.H2C,
+                Endpoint.of("127.0.0.1", 8080), HttpMethod.GET, "/", null, null, ClientOptions.DEFAULT,
+                HttpRequest.of(HttpMethod.GET, "/"));
+        endpoints = IntStream.range(0, numEndpoints)
+                             .mapToObj(i -> Endpoint.of("10.0." + i / 256 + '.' + i % 256, 8080))
+                             .collect(Collectors.toList());
+        group = new TestDynamicEndpointGroup();
+        group.updateEndpoints(endpoints);
+
+        final ToLongFunction<ClientRequestContext> hasher = ctx -> key++;
+        sticky = new StickyEndpointSelectionStrategy(hasher).newSelector(group);
+        consistentHashing = new ConsistentHashingEndpointSelectionStrategy(hasher).newSelector(group);
+    }
+
+    @Benchmark
+    public Endpoint sticky() {
+        return sticky.select(ctx);
+    }
+
+    @Benchmark
+    public Endpoint consistentHashing() {
+        return consistentHashing.select(ctx);
+    }
+
+    /**
+     * Rebuilds the hash ring by removing an {@link Endpoint} and adding it back.
+     */
+    @Benchmark
+    public Endpoint rebuild() {
+        group.updateEndpoints(endpoints.subList(1, numEndpoints));
+        group.updateEndpoints(endpoints);
+        return consistentHashing.select(ctx);
+    }
+
+    private static final class TestDynamicEndpointGroup extends DynamicEndpointGroup {
+        void updateEndpoints(List<Endpoint> endpoints) {
+            setEndpoints(endpoints);
+        }
+    }
+}
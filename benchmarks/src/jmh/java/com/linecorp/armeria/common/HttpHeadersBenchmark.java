@@ -16,13 +16,51 @@
 
 package com.linecorp.armeria.common;
 
+import java.util.Map.Entry;
+
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.linecorp.armeria.internal.ArmeriaHttp2Headers;
+import com.linecorp.armeria.internal.ArmeriaHttpUtil;
+
+import io.netty.handler.codec.http2.DefaultHttp2Headers;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.util.AsciiString;
 
 /**
- * Microbenchmarks of {@link DefaultHttpHeaders} construction.
+ * Microbenchmarks of {@link DefaultHttpHeaders} construction and its conversion from and into
+ * {@link Http2Headers}.
  */
+@State(Scope.Thread)
 public class HttpHeadersBenchmark {
 
+    // The headers of a typical gRPC request, as produced by an HPACK decoder.
+    private static final AsciiString[] GRPC_REQUEST_HEADERS = {
+            AsciiString.of(":method"), AsciiString.of("POST"),
+            AsciiString.of(":scheme"), AsciiString.of("http"),
+            AsciiString.of(":path"), AsciiString.of("/armeria.grpc.testing.TestService/UnaryCall"),
+            AsciiString.of(":authority"), AsciiString.of("127.0.0.1:8080"),
+            AsciiString.of("content-type"), AsciiString.of("application/grpc+proto"),
+            AsciiString.of("te"), AsciiString.of("trailers"),
+            AsciiString.of("user-agent"), AsciiString.of("grpc-java-netty/1.11.0"),
+            AsciiString.of("grpc-accept-encoding"), AsciiString.of("gzip"),
+            AsciiString.of("grpc-timeout"), AsciiString.of("9999m")
+    };
+
+    private HttpHeaders responseHeaders;
+
+    @Setup
+    public void setup() {
+        responseHeaders = HttpHeaders.of(HttpStatus.OK)
+                                     .contentType(MediaType.parse("application/grpc+proto"))
+                                     .set(HttpHeaderNames.of("grpc-encoding"), "identity")
+                                     .set(HttpHeaderNames.of("grpc-accept-encoding"), "gzip");
+    }
+
     @Benchmark
     public MediaType parseKnown() {
         HttpHeaders headers = new DefaultHttpHeaders()
@@ -37,4 +75,42 @@ public class HttpHeadersBenchmark {
                 .set(HttpHeaderNames.CONTENT_TYPE, "application/grpc+oroto");
         return headers.contentType();
     }
+
+    @Benchmark
+    public HttpHeaders decodeViaNettyHttp2Headers() {
+        final Http2Headers headers = new DefaultHttp2Headers(false);
+        for (int i = 0; i < GRPC_REQUEST_HEADERS.length; i += 2) {
+            headers.add(GRPC_REQUEST_HEADERS[i], GRPC_REQUEST_HEADERS[i + 1]);
+        }
+        return ArmeriaHttpUtil.toArmeria(headers);
+    }
+
+    @Benchmark
+    public HttpHeaders decodeViaArmeriaHttp2Headers() {
+        final Http2Headers headers = new ArmeriaHttp2Headers(false, 16);
+        for (int i = 0; i < GRPC_REQUEST_HEADERS.length; i += 2) {
+            headers.add(GRPC_REQUEST_HEADERS[i], GRPC_REQUEST_HEADERS[i + 1]);
+        }
+        return ArmeriaHttpUtil.toArmeria(headers);
+    }
+
+    @Benchmark
+    public void encodeViaNettyHttp2Headers(Blackhole bh) {
+        final Http2Headers headers = new DefaultHttp2Headers(false, responseHeaders.size());
+        headers.set(responseHeaders);
+        consume(bh, headers);
+    }
+
+    @Benchmark
+    public void encodeViaArmeriaHttp2Headers(Blackhole bh) {
+        consume(bh, ArmeriaHttpUtil.toNettyHttp2(responseHeaders));
+    }
+
+    // Reads the headers as an HPACK encoder does.
+    private static void consume(Blackhole bh, Http2Headers headers) {
+        for (Entry<CharSequence, CharSequence> e : headers) {
+            bh.consume(e.getKey());
+            bh.consume(e.getValue());
+        }
+    }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.linecorp.armeria.client.ClientOptions;
+import com.linecorp.armeria.client.DefaultClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.common.metric.NoopMeterRegistry;
+import com.linecorp.armeria.common.util.SafeCloseable;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+/**
+ * Microbenchmarks of pushing and popping a {@link RequestContext} and of the callbacks made by
+ * {@link RequestContext#makeContextAware(Function)}.
+ */
+@State(Scope.Thread)
+public class RequestContextBenchmark {
+
+    private final Function<Integer, Integer> increment = i -> i + 1;
+
+    private RequestContext ctx1;
+    private RequestContext ctx2;
+
+    @Setup
+    public void setup() {
+        final EventLoop eventLoop = new EmbeddedChannel().eventLoop();
+        ctx1 = newContext(eventLoop);
+        ctx2 = newContext(eventLoop);
+        // Register the callbacks like the decorators such as tracing do.
+        ctx1.onEnter(ctx -> {});
+        ctx1.onExit(ctx -> {});
+    }
+
+    private static RequestContext newContext(EventLoop eventLoop) {
+        return new DefaultClientRequestContext(
+                eventLoop, NoopMeterRegistry.get(), SessionProtocol.H2C, Endpoint.of("127.0.0.1", 8080),
+                HttpMethod.GET, "/", null, null, ClientOptions.DEFAULT,
+                HttpRequest.of(HttpMethod.GET, "/"));
+    }
+
+    @Benchmark
+    public RequestContext pushAndPop() {
+        try (SafeCloseable ignored = RequestContext.push(ctx1)) {
+            return RequestContext.current();
+        }
+    }
+
+    @Benchmark
+    public RequestContext nestedPushAndPop() {
+        try (SafeCloseable ignored = RequestContext.push(ctx1)) {
+            try (SafeCloseable ignored2 = RequestContext.push(ctx2)) {
+                return RequestContext.current();
+            }
+        }
+    }
+
+    @Benchmark
+    public Integer completableFutureChain() {
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        final CompletableFuture<Integer> chain = ctx1.makeContextAware(future)
+                                                     .thenApply(ctx1.makeContextAware(increment))
+                                                     .thenApply(ctx1.makeContextAware(increment))
+                                                     .thenApply(ctx1.makeContextAware(increment));
+        future.complete(0);
+        return chain.join();
+    }
+}
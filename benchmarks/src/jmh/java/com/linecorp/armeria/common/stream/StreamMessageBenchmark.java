@@ -16,6 +16,7 @@
 
 package com.linecorp.armeria.common.stream;
 
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -156,6 +157,39 @@ public class StreamMessageBenchmark {
         return streamObjects.computedSum();
     }
 
+    // Measures the overhead of the fused operators, which do not change the computed sum.
+    @Benchmark
+    public long jmhEventLoopMapAndFilter(StreamObjects streamObjects) {
+        StreamMessage<Integer> stream = newStream(streamObjects);
+        stream.map(i -> i + 1)
+              .filter(i -> i > 0)
+              .map(i -> i - 1)
+              .subscribe(streamObjects.subscriber, EventLoopJmhExecutor.currentEventLoop());
+        streamObjects.writeAllValues(stream);
+        return streamObjects.computedSum();
+    }
+
+    @Benchmark
+    public long jmhEventLoopBuffer(StreamObjects streamObjects) {
+        StreamMessage<Integer> stream = newStream(streamObjects);
+        stream.buffer(10)
+              .subscribe(new FlatteningSubscriber(streamObjects.subscriber),
+                         EventLoopJmhExecutor.currentEventLoop());
+        streamObjects.writeAllValues(stream);
+        return streamObjects.computedSum();
+    }
+
+    @Benchmark
+    public long jmhEventLoopWindowByBytes(StreamObjects streamObjects) {
+        StreamMessage<Integer> stream = newStream(streamObjects);
+        // Every element is regarded as 4 bytes long, so each window contains 10 elements.
+        stream.windowByBytes(40, i -> Integer.BYTES)
+              .subscribe(new FlatteningSubscriber(streamObjects.subscriber),
+                         EventLoopJmhExecutor.currentEventLoop());
+        streamObjects.writeAllValues(stream);
+        return streamObjects.computedSum();
+    }
+
     private StreamMessage<Integer> newStream(StreamObjects streamObjects) {
         switch (streamObjects.streamType) {
             case EVENT_LOOP_MESSAGE:
@@ -283,6 +317,41 @@ public class StreamMessageBenchmark {
         }
     }
 
+    // Passes the elements of each window to the SummingSubscriber, which requests one window at a time
+    // when flow control is enabled.
+    private static final class FlatteningSubscriber implements Subscriber<List<Integer>> {
+
+        private final SummingSubscriber delegate;
+
+        private FlatteningSubscriber(SummingSubscriber delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<Integer> values) {
+            final int size = values.size();
+            for (int i = 0; i < size - 1; i++) {
+                delegate.sum += values.get(i);
+            }
+            delegate.onNext(values.get(size - 1));
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            delegate.onError(t);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+
     private static final class SummingSubscriber implements Subscriber<Integer> {
 
         private final CountDownLatch completedLatch;
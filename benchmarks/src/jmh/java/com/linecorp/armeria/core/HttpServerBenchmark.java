@@ -17,6 +17,7 @@
 package com.linecorp.armeria.core;
 
 import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
 
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Param;
@@ -26,7 +27,9 @@ import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.infra.Blackhole;
 
-import com.linecorp.armeria.client.Clients;
+import com.linecorp.armeria.client.ClientBuilder;
+import com.linecorp.armeria.client.ClientFactory;
+import com.linecorp.armeria.client.ClientFactoryBuilder;
 import com.linecorp.armeria.client.HttpClient;
 import com.linecorp.armeria.common.HttpResponse;
 import com.linecorp.armeria.common.HttpStatus;
@@ -57,15 +60,24 @@ public class HttpServerBenchmark {
     }
 
     private Server server;
+    private ClientFactory clientFactory;
     private HttpClient httpClient;
 
     @Param
     private Protocol protocol;
 
+    @Param({ "false", "true" })
+    private boolean consolidateFlushesWhenNoReadInProgress;
+
     @Setup
     public void startServer() throws Exception {
         server = new ServerBuilder()
                 .service("/empty", ((ctx, req) -> HttpResponse.of(HttpStatus.OK)))
+                // Responds outside of the read batch, which is when the flushes are not consolidated
+                // unless consolidateFlushesWhenNoReadInProgress is enabled.
+                .service("/delayed", ((ctx, req) -> HttpResponse.from(
+                        CompletableFuture.supplyAsync(() -> HttpResponse.of(HttpStatus.OK), ctx.eventLoop()))))
+                .consolidateFlushesWhenNoReadInProgress(consolidateFlushesWhenNoReadInProgress)
                 .defaultRequestTimeout(Duration.ZERO)
                 .meterRegistry(NoopMeterRegistry.get())
                 .build();
@@ -73,21 +85,35 @@ public class HttpServerBenchmark {
         ServerPort httpPort = server.activePorts().values().stream()
                                     .filter(ServerPort::hasHttp).findAny()
                                     .get();
-        httpClient = Clients.newClient("none+" + protocol.uriText() + "://127.0.0.1:" +
-                                       httpPort.localAddress().getPort() + "/",
-                                       HttpClient.class);
+        clientFactory = new ClientFactoryBuilder()
+                .consolidateFlushesWhenNoReadInProgress(consolidateFlushesWhenNoReadInProgress)
+                .build();
+        httpClient = new ClientBuilder("none+" + protocol.uriText() + "://127.0.0.1:" +
+                                       httpPort.localAddress().getPort() + "/")
+                .factory(clientFactory)
+                .build(HttpClient.class);
     }
 
     @TearDown
     public void stopServer() throws Exception {
         server.stop().join();
+        clientFactory.close();
     }
 
     @Benchmark
     public void empty(Blackhole bh, AsyncCounters counters) throws Exception {
+        get("/empty", bh, counters);
+    }
+
+    @Benchmark
+    public void delayed(Blackhole bh, AsyncCounters counters) throws Exception {
+        get("/delayed", bh, counters);
+    }
+
+    private void get(String path, Blackhole bh, AsyncCounters counters) {
         counters.incrementCurrentRequests();
         bh.consume(
-                httpClient.get("/empty")
+                httpClient.get(path)
                           .aggregate()
                           .whenComplete((msg, t) -> {
                               counters.decrementCurrentRequests();
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.internal;
+
+import java.net.URISyntaxException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.linecorp.armeria.common.HttpHeaders;
+
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpVersion;
+
+/**
+ * Microbenchmarks for converting a decoded HTTP/1 request into Armeria headers.
+ *
+ * <p>Run with {@code -prof gc} to compare the allocation rate as well as the throughput.
+ */
+@State(Scope.Thread)
+public class Http1HeadersConversionBenchmark {
+
+    private HttpRequest capitalized;
+    private HttpRequest lowerCased;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+        // Create new Strings every time, as Netty's HttpObjectDecoder does, to avoid constant folding.
+        capitalized = newRequest(new String[] {
+                "Host", "User-Agent", "Accept", "Accept-Language", "Accept-Encoding",
+                "Connection", "Cookie", "Cache-Control", "X-Forwarded-For"
+        });
+        lowerCased = newRequest(new String[] {
+                "host", "user-agent", "accept", "accept-language", "accept-encoding",
+                "connection", "cookie", "cache-control", "x-forwarded-for"
+        });
+    }
+
+    private static HttpRequest newRequest(String[] names) {
+        final HttpRequest req = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+                                                       new String("/armeria/services/hello-world?foo=bar"));
+        final String[] values = {
+                "example.com:8080", "Mozilla/5.0 (X11; Linux x86_64)", "*/*", "en-US,en;q=0.5",
+                "gzip, deflate", "keep-alive", "a=b; c=d", "no-cache", "192.168.0.1"
+        };
+        for (int i = 0; i < names.length; i++) {
+            req.headers().add(new String(names[i]), new String(values[i]));
+        }
+        return req;
+    }
+
+    @Benchmark
+    public HttpHeaders capitalizedNames() throws URISyntaxException {
+        return ArmeriaHttpUtil.toArmeria(capitalized, "http");
+    }
+
+    @Benchmark
+    public HttpHeaders lowerCasedNames() throws URISyntaxException {
+        return ArmeriaHttpUtil.toArmeria(lowerCased, "http");
+    }
+}
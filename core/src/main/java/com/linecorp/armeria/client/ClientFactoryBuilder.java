@@ -32,10 +32,12 @@ import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import com.google.common.base.Ascii;
 import com.google.common.base.MoreObjects;
 import com.google.common.base.MoreObjects.ToStringHelper;
 import com.google.common.collect.ImmutableSet;
 
+import com.linecorp.armeria.client.endpoint.EndpointGroup;
 import com.linecorp.armeria.client.pool.KeyedChannelPoolHandler;
 import com.linecorp.armeria.client.pool.PoolKey;
 import com.linecorp.armeria.common.CommonPools;
@@ -43,13 +45,19 @@ import com.linecorp.armeria.common.Flags;
 import com.linecorp.armeria.common.Request;
 import com.linecorp.armeria.internal.TransportType;
 
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.EpollChannelOption;
 import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.flush.FlushConsolidationHandler;
+import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
 import io.netty.resolver.AddressResolverGroup;
 import io.netty.resolver.dns.DnsAddressResolverGroup;
 import io.netty.resolver.dns.DnsServerAddressStreamProviders;
@@ -94,6 +102,10 @@ public final class ClientFactoryBuilder {
     private boolean shutdownWorkerGroupOnClose;
     private final Map<ChannelOption<?>, Object> socketOptions = new HashMap<>();
     private Consumer<? super SslContextBuilder> sslContextCustomizer = DEFAULT_SSL_CONTEXT_CUSTOMIZER;
+    private final Map<String, Consumer<? super SslContextBuilder>> endpointGroupSslContextCustomizers =
+            new HashMap<>();
+    private int tlsSessionCacheSize = -1;
+    private int tlsSessionTimeoutSeconds = -1;
     private Function<? super EventLoopGroup,
             ? extends AddressResolverGroup<? extends InetSocketAddress>> addressResolverGroupFactory =
             DEFAULT_ADDRESS_RESOLVER_GROUP_FACTORY;
@@ -103,6 +115,8 @@ public final class ClientFactoryBuilder {
     private int maxHttp1InitialLineLength = Flags.defaultMaxHttp1InitialLineLength();
     private int maxHttp1HeaderSize = Flags.defaultMaxHttp1HeaderSize();
     private int maxHttp1ChunkSize = Flags.defaultMaxHttp1ChunkSize();
+    private int maxConsolidatedFlushes = FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES;
+    private boolean consolidateFlushesWhenNoReadInProgress;
 
     // Armeria-related properties:
     private long idleTimeoutMillis = Flags.defaultClientIdleTimeoutMillis();
@@ -176,6 +190,59 @@ public final class ClientFactoryBuilder {
         return this;
     }
 
+    /**
+     * Sets the {@link Consumer} which configures the {@link SslContextBuilder} for the requests sent to
+     * the {@link EndpointGroup} with the specified case-insensitive name, i.e.
+     * {@code "group:<endpointGroupName>"}.
+     * It is applied after the {@link Consumer} specified with {@link #sslContextCustomizer(Consumer)}.
+     * For example, use this to present a different client certificate to each backend cluster.
+     * The connections to such an {@link EndpointGroup} are never shared with other requests, even if they
+     * are sent to the same host and port.
+     */
+    public ClientFactoryBuilder sslContextCustomizer(
+            String endpointGroupName, Consumer<? super SslContextBuilder> sslContextCustomizer) {
+        requireNonNull(endpointGroupName, "endpointGroupName");
+        requireNonNull(sslContextCustomizer, "sslContextCustomizer");
+        endpointGroupSslContextCustomizers.put(Ascii.toLowerCase(endpointGroupName), sslContextCustomizer);
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of TLS sessions cached for resumption. The sessions are cached per
+     * {@link SslContext} and looked up by the host name and port number of an {@link Endpoint}, so that
+     * reconnecting to the same server, e.g. after an idle timeout, does not need a full handshake.
+     * {@code 0} means unlimited. If not set, the default of the TLS provider is used.
+     *
+     * <p>Note that the OpenSSL client engine of Netty does not cache any TLS sessions, so sessions are
+     * resumed only with the JDK provider, i.e. when {@link Flags#useOpenSsl()} is {@code false} or
+     * {@link SslContextBuilder#sslProvider(SslProvider)} is set to {@link SslProvider#JDK} in
+     * {@link #sslContextCustomizer(Consumer)}.
+     *
+     * <p>The handshakes are recorded in the {@link MeterRegistry} as a {@link Timer} named
+     * {@code "armeria.client.tls.handshakeDuration"} with the {@code "resumed"} tag, whose counts give
+     * the ratio of the resumed sessions, and a {@link Counter} named
+     * {@code "armeria.client.tls.handshakeFailures"}. A session is considered as resumed if its ID is
+     * the same as that of a session established before.
+     */
+    public ClientFactoryBuilder tlsSessionCacheSize(int tlsSessionCacheSize) {
+        checkArgument(tlsSessionCacheSize >= 0,
+                      "tlsSessionCacheSize: %s (expected: >= 0)", tlsSessionCacheSize);
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+        return this;
+    }
+
+    /**
+     * Sets how long a cached TLS session can be resumed. {@link Duration#ZERO} means unlimited.
+     * If not set, the default of the TLS provider is used.
+     */
+    public ClientFactoryBuilder tlsSessionTimeout(Duration tlsSessionTimeout) {
+        requireNonNull(tlsSessionTimeout, "tlsSessionTimeout");
+        checkArgument(!tlsSessionTimeout.isNegative(),
+                      "tlsSessionTimeout: %s (expected: >= 0)", tlsSessionTimeout);
+        tlsSessionTimeoutSeconds = (int) Math.min(tlsSessionTimeout.getSeconds(), Integer.MAX_VALUE);
+        return this;
+    }
+
     /**
      * Sets the factory that creates a {@link AddressResolverGroup} which resolves remote addresses into
      * {@link InetSocketAddress}es.
@@ -268,6 +335,36 @@ public final class ClientFactoryBuilder {
         return this;
     }
 
+    /**
+     * Sets the maximum number of flushes to consolidate into a single flush, i.e. a single write system call,
+     * on a connection. The flushes issued while reading from a connection are held until the end of the read
+     * batch or until this many flushes are issued, whichever comes first. {@code 0} disables flush
+     * consolidation. The default value of this property is
+     * {@value FlushConsolidationHandler#DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES}.
+     */
+    public ClientFactoryBuilder maxConsolidatedFlushes(int maxConsolidatedFlushes) {
+        checkArgument(maxConsolidatedFlushes >= 0,
+                      "maxConsolidatedFlushes: %s (expected: >= 0)",
+                      maxConsolidatedFlushes);
+        this.maxConsolidatedFlushes = maxConsolidatedFlushes;
+        return this;
+    }
+
+    /**
+     * Sets whether the flushes issued while not reading from a connection, e.g. when a request is sent from
+     * a non-I/O thread, are also consolidated. When enabled, such a flush is deferred until the
+     * {@link EventLoop} finishes its current task, so that the requests of many concurrent streams
+     * multiplexed on an HTTP/2 connection are sent with fewer system calls at the cost of slightly higher
+     * latency. Every write, including the end of a stream, is still flushed before the {@link EventLoop}
+     * waits for the next I/O event. This option is disabled by default and has no effect if
+     * {@link #maxConsolidatedFlushes(int)} is {@code 0}.
+     */
+    public ClientFactoryBuilder consolidateFlushesWhenNoReadInProgress(
+            boolean consolidateFlushesWhenNoReadInProgress) {
+        this.consolidateFlushesWhenNoReadInProgress = consolidateFlushesWhenNoReadInProgress;
+        return this;
+    }
+
     /**
      * Sets the idle timeout of a socket connection. The connection is closed if there is no request in
      * progress for this amount of time.
@@ -329,18 +426,23 @@ public final class ClientFactoryBuilder {
     public ClientFactory build() {
         return new DefaultClientFactory(new HttpClientFactory(
                 workerGroup, shutdownWorkerGroupOnClose, socketOptions, sslContextCustomizer,
+                endpointGroupSslContextCustomizers, tlsSessionCacheSize, tlsSessionTimeoutSeconds,
                 addressResolverGroupFactory, initialHttp2ConnectionWindowSize, initialHttp2StreamWindowSize,
                 http2MaxFrameSize, maxHttp1InitialLineLength, maxHttp1HeaderSize,
-                maxHttp1ChunkSize, idleTimeoutMillis, useHttp2Preface,
-                useHttp1Pipelining, connectionPoolListener, meterRegistry));
+                maxHttp1ChunkSize, maxConsolidatedFlushes, consolidateFlushesWhenNoReadInProgress,
+                idleTimeoutMillis, useHttp2Preface, useHttp1Pipelining, connectionPoolListener,
+                meterRegistry));
     }
 
     @Override
     public String toString() {
         return toString(this, workerGroup, shutdownWorkerGroupOnClose, socketOptions,
-                        sslContextCustomizer, addressResolverGroupFactory, initialHttp2ConnectionWindowSize,
+                        sslContextCustomizer, endpointGroupSslContextCustomizers,
+                        tlsSessionCacheSize, tlsSessionTimeoutSeconds,
+                        addressResolverGroupFactory, initialHttp2ConnectionWindowSize,
                         initialHttp2StreamWindowSize, http2MaxFrameSize, maxHttp1InitialLineLength,
-                        maxHttp1HeaderSize, maxHttp1ChunkSize, idleTimeoutMillis,
+                        maxHttp1HeaderSize, maxHttp1ChunkSize, maxConsolidatedFlushes,
+                        consolidateFlushesWhenNoReadInProgress, idleTimeoutMillis,
                         useHttp2Preface, useHttp1Pipelining, connectionPoolListener, meterRegistry);
     }
 
@@ -349,10 +451,13 @@ public final class ClientFactoryBuilder {
             EventLoopGroup workerGroup, boolean shutdownWorkerGroupOnClose,
             Map<ChannelOption<?>, Object> socketOptions,
             Consumer<? super SslContextBuilder> sslContextCustomizer,
+            Map<String, Consumer<? super SslContextBuilder>> endpointGroupSslContextCustomizers,
+            int tlsSessionCacheSize, int tlsSessionTimeoutSeconds,
             Function<? super EventLoopGroup,
                      ? extends AddressResolverGroup<? extends InetSocketAddress>> addressResolverGroupFactory,
             int initialHttp2ConnectionWindowSize, int initialHttp2StreamWindowSize, int http2MaxFrameSize,
             int maxHttp1InitialLineLength, int maxHttp1HeaderSize, int maxHttp1ChunkSize,
+            int maxConsolidatedFlushes, boolean consolidateFlushesWhenNoReadInProgress,
             long idleTimeoutMillis, boolean useHttp2Preface,
             boolean useHttp1Pipelining, KeyedChannelPoolHandler<? super PoolKey> connectionPoolListener,
             MeterRegistry meterRegistry) {
@@ -366,6 +471,8 @@ public final class ClientFactoryBuilder {
               .add("maxHttp1InitialLineLength", maxHttp1InitialLineLength)
               .add("maxHttp1HeaderSize", maxHttp1HeaderSize)
               .add("maxHttp1ChunkSize", maxHttp1ChunkSize)
+              .add("maxConsolidatedFlushes", maxConsolidatedFlushes)
+              .add("consolidateFlushesWhenNoReadInProgress", consolidateFlushesWhenNoReadInProgress)
               .add("idleTimeoutMillis", idleTimeoutMillis)
               .add("useHttp2Preface", useHttp2Preface)
               .add("useHttp1Pipelining", useHttp1Pipelining);
@@ -378,6 +485,18 @@ public final class ClientFactoryBuilder {
             helper.add("sslContextCustomizer", sslContextCustomizer);
         }
 
+        if (!endpointGroupSslContextCustomizers.isEmpty()) {
+            helper.add("endpointGroupSslContextCustomizers", endpointGroupSslContextCustomizers);
+        }
+
+        if (tlsSessionCacheSize >= 0) {
+            helper.add("tlsSessionCacheSize", tlsSessionCacheSize);
+        }
+
+        if (tlsSessionTimeoutSeconds >= 0) {
+            helper.add("tlsSessionTimeoutSeconds", tlsSessionTimeoutSeconds);
+        }
+
         if (addressResolverGroupFactory != DEFAULT_ADDRESS_RESOLVER_GROUP_FACTORY) {
             helper.add("addressResolverGroupFactory", addressResolverGroupFactory);
         }
@@ -20,9 +20,14 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.concurrent.CompletableFuture;
 
+import javax.annotation.Nullable;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Ascii;
+
+import com.linecorp.armeria.client.endpoint.EndpointGroup;
 import com.linecorp.armeria.client.pool.KeyedChannelPool;
 import com.linecorp.armeria.client.pool.PoolKey;
 import com.linecorp.armeria.common.ClosedSessionException;
@@ -35,6 +40,7 @@ import com.linecorp.armeria.internal.PathAndQuery;
 
 import io.netty.channel.Channel;
 import io.netty.channel.EventLoop;
+import io.netty.handler.ssl.SslContext;
 import io.netty.util.AsciiString;
 import io.netty.util.concurrent.Future;
 
@@ -60,7 +66,8 @@ final class HttpClientDelegate implements Client<HttpRequest, HttpResponse> {
 
         final EventLoop eventLoop = ctx.eventLoop();
         final PoolKey poolKey = new PoolKey(endpoint.host(), endpoint.ipAddr(),
-                                            endpoint.port(), ctx.sessionProtocol());
+                                            endpoint.port(), ctx.sessionProtocol(),
+                                            endpointGroupName(ctx));
         final Future<Channel> channelFuture = factory.pool(eventLoop).acquire(poolKey);
         final DecodedHttpResponse res = new DecodedHttpResponse(eventLoop);
 
@@ -85,6 +92,20 @@ final class HttpClientDelegate implements Client<HttpRequest, HttpResponse> {
         return res;
     }
 
+    /**
+     * Returns the name of the {@link EndpointGroup} of the request if it has its own {@link SslContext}.
+     */
+    @Nullable
+    private String endpointGroupName(ClientRequestContext ctx) {
+        final Endpoint endpoint = ctx.endpoint();
+        if (!ctx.sessionProtocol().isTls() || !endpoint.isGroup()) {
+            return null;
+        }
+
+        final String groupName = Ascii.toLowerCase(endpoint.groupName());
+        return factory.hasSslContext(groupName) ? groupName : null;
+    }
+
     private static void autoFillHeaders(ClientRequestContext ctx, Endpoint endpoint, HttpRequest req) {
         requireNonNull(req, "req");
         final HttpHeaders headers = req.headers();
@@ -21,23 +21,37 @@ import static java.util.Objects.requireNonNull;
 
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.MapMaker;
 
+import com.linecorp.armeria.client.endpoint.EndpointGroup;
 import com.linecorp.armeria.client.pool.DefaultKeyedChannelPool;
 import com.linecorp.armeria.client.pool.KeyedChannelPool;
 import com.linecorp.armeria.client.pool.KeyedChannelPoolHandler;
 import com.linecorp.armeria.client.pool.PoolKey;
+import com.linecorp.armeria.common.Flags;
 import com.linecorp.armeria.common.HttpRequest;
 import com.linecorp.armeria.common.HttpResponse;
 import com.linecorp.armeria.common.RequestContext;
@@ -54,7 +68,13 @@ import io.netty.channel.ChannelFactory;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
 import io.netty.resolver.AddressResolverGroup;
 import io.netty.util.concurrent.Future;
 
@@ -71,22 +91,43 @@ final class HttpClientFactory extends AbstractClientFactory {
     private static final Predicate<Channel> POOL_HEALTH_CHECKER =
             ch -> ch.isActive() && HttpSession.get(ch).isActive();
 
+    // The defaults of the JDK, used to bound the tracked TLS session IDs when not configured.
+    private static final int DEFAULT_TLS_SESSION_CACHE_SIZE = 20480;
+    private static final int DEFAULT_TLS_SESSION_TIMEOUT = 86400;
+
     private final EventLoopGroup workerGroup;
     private final boolean shutdownWorkerGroupOnClose;
     private final Bootstrap baseBootstrap;
     private final Consumer<? super SslContextBuilder> sslContextCustomizer;
+    private final Map<String, Consumer<? super SslContextBuilder>> endpointGroupSslContextCustomizers;
+    private final int tlsSessionCacheSize;
+    private final int tlsSessionTimeoutSeconds;
     private final int initialHttp2ConnectionWindowSize;
     private final int initialHttp2StreamWindowSize;
     private final int http2MaxFrameSize;
     private final int maxHttp1InitialLineLength;
     private final int maxHttp1HeaderSize;
     private final int maxHttp1ChunkSize;
+    private final int maxConsolidatedFlushes;
+    private final boolean consolidateFlushesWhenNoReadInProgress;
     private final long idleTimeoutMillis;
     private final boolean useHttp2Preface;
     private final boolean useHttp1Pipelining;
     private final ConnectionPoolListenerImpl connectionPoolListener;
     private MeterRegistry meterRegistry;
 
+    /**
+     * The {@link SslContext}s shared by all connections, so that the TLS sessions cached in them can be
+     * resumed when reconnecting to the same host and port.
+     */
+    private final ConcurrentMap<SslContextKey, SslContext> sslContexts = new ConcurrentHashMap<>();
+
+    /**
+     * The IDs of the TLS sessions established so far, which tell whether a handshake resumed a session
+     * rather than establishing a new one.
+     */
+    private final Cache<ByteBuffer, Boolean> tlsSessionIds;
+
     private final ConcurrentMap<EventLoop, KeyedChannelPool<PoolKey>> pools = new MapMaker().weakKeys()
                                                                                             .makeMap();
     private final HttpClientDelegate clientDelegate;
@@ -99,10 +140,13 @@ final class HttpClientFactory extends AbstractClientFactory {
             EventLoopGroup workerGroup, boolean shutdownWorkerGroupOnClose,
             Map<ChannelOption<?>, Object> socketOptions,
             Consumer<? super SslContextBuilder> sslContextCustomizer,
+            Map<String, Consumer<? super SslContextBuilder>> endpointGroupSslContextCustomizers,
+            int tlsSessionCacheSize, int tlsSessionTimeoutSeconds,
             Function<? super EventLoopGroup,
                     ? extends AddressResolverGroup<? extends InetSocketAddress>> addressResolverGroupFactory,
             int initialHttp2ConnectionWindowSize, int initialHttp2StreamWindowSize, int http2MaxFrameSize,
             int maxHttp1InitialLineLength, int maxHttp1HeaderSize, int maxHttp1ChunkSize,
+            int maxConsolidatedFlushes, boolean consolidateFlushesWhenNoReadInProgress,
             long idleTimeoutMillis, boolean useHttp2Preface, boolean useHttp1Pipelining,
             KeyedChannelPoolHandler<? super PoolKey> connectionPoolListener, MeterRegistry meterRegistry) {
 
@@ -120,12 +164,24 @@ final class HttpClientFactory extends AbstractClientFactory {
         this.shutdownWorkerGroupOnClose = shutdownWorkerGroupOnClose;
         this.baseBootstrap = baseBootstrap;
         this.sslContextCustomizer = sslContextCustomizer;
+        this.endpointGroupSslContextCustomizers = ImmutableMap.copyOf(endpointGroupSslContextCustomizers);
+        this.tlsSessionCacheSize = tlsSessionCacheSize;
+        this.tlsSessionTimeoutSeconds = tlsSessionTimeoutSeconds;
+        tlsSessionIds = Caffeine.newBuilder()
+                                .maximumSize(tlsSessionCacheSize > 0 ? tlsSessionCacheSize
+                                                                     : DEFAULT_TLS_SESSION_CACHE_SIZE)
+                                .expireAfterWrite(tlsSessionTimeoutSeconds > 0 ? tlsSessionTimeoutSeconds
+                                                                               : DEFAULT_TLS_SESSION_TIMEOUT,
+                                                  TimeUnit.SECONDS)
+                                .build();
         this.initialHttp2ConnectionWindowSize = initialHttp2ConnectionWindowSize;
         this.initialHttp2StreamWindowSize = initialHttp2StreamWindowSize;
         this.http2MaxFrameSize = http2MaxFrameSize;
         this.maxHttp1InitialLineLength = maxHttp1InitialLineLength;
         this.maxHttp1HeaderSize = maxHttp1HeaderSize;
         this.maxHttp1ChunkSize = maxHttp1ChunkSize;
+        this.maxConsolidatedFlushes = maxConsolidatedFlushes;
+        this.consolidateFlushesWhenNoReadInProgress = consolidateFlushesWhenNoReadInProgress;
         this.idleTimeoutMillis = idleTimeoutMillis;
         this.useHttp2Preface = useHttp2Preface;
         this.useHttp1Pipelining = useHttp1Pipelining;
@@ -144,8 +200,75 @@ final class HttpClientFactory extends AbstractClientFactory {
         return baseBootstrap.clone();
     }
 
-    Consumer<? super SslContextBuilder> sslContextCustomizer() {
-        return sslContextCustomizer;
+    /**
+     * Returns whether the specified {@link EndpointGroup} has its own {@link SslContext}.
+     */
+    boolean hasSslContext(String endpointGroupName) {
+        return endpointGroupSslContextCustomizers.containsKey(endpointGroupName);
+    }
+
+    /**
+     * Returns the {@link SslContext} for the specified {@link SessionProtocol} and {@link EndpointGroup}.
+     *
+     * @param endpointGroupName the name of the {@link EndpointGroup} which has its own {@link SslContext},
+     *                          or {@code null} to get the default {@link SslContext}
+     */
+    SslContext sslContext(SessionProtocol sessionProtocol, @Nullable String endpointGroupName) {
+        assert sessionProtocol.isTls();
+        // Only HTTP/1 connections are created without ALPN.
+        final boolean http2 = sessionProtocol != SessionProtocol.H1;
+        return sslContexts.computeIfAbsent(new SslContextKey(http2, endpointGroupName), this::newSslContext);
+    }
+
+    private SslContext newSslContext(SslContextKey key) {
+        try {
+            final SslContextBuilder builder = SslContextBuilder.forClient();
+
+            builder.sslProvider(
+                    Flags.useOpenSsl() ? SslProvider.OPENSSL : SslProvider.JDK);
+            sslContextCustomizer.accept(builder);
+            if (key.endpointGroupName != null) {
+                endpointGroupSslContextCustomizers.get(key.endpointGroupName).accept(builder);
+            }
+
+            if (key.http2) {
+                builder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+                       .applicationProtocolConfig(new ApplicationProtocolConfig(
+                               ApplicationProtocolConfig.Protocol.ALPN,
+                               // NO_ADVERTISE is currently the only mode supported by both OpenSsl and
+                               // JDK providers.
+                               ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
+                               // ACCEPT is currently the only mode supported by both OpenSsl and JDK
+                               // providers.
+                               ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
+                               ApplicationProtocolNames.HTTP_2));
+            }
+
+            final SslContext sslCtx = builder.build();
+            final SSLSessionContext sessionCtx = sslCtx.sessionContext();
+            if (tlsSessionCacheSize >= 0) {
+                sessionCtx.setSessionCacheSize(tlsSessionCacheSize);
+            }
+            if (tlsSessionTimeoutSeconds >= 0) {
+                sessionCtx.setSessionTimeout(tlsSessionTimeoutSeconds);
+            }
+            return sslCtx;
+        } catch (SSLException e) {
+            throw new IllegalStateException("failed to create an SslContext", e);
+        }
+    }
+
+    /**
+     * Returns whether the specified {@link SSLSession} has been resumed rather than established by a full
+     * handshake, i.e. whether a session with the same ID has been established before. A session without
+     * an ID, e.g. one resumed from a session ticket, is never considered as resumed.
+     */
+    boolean isResumedTlsSession(SSLSession session) {
+        final byte[] id = session.getId();
+        if (id == null || id.length == 0) {
+            return false;
+        }
+        return tlsSessionIds.asMap().putIfAbsent(ByteBuffer.wrap(id), Boolean.TRUE) != null;
     }
 
     int initialHttp2ConnectionWindowSize() {
@@ -172,6 +295,14 @@ final class HttpClientFactory extends AbstractClientFactory {
         return maxHttp1ChunkSize;
     }
 
+    int maxConsolidatedFlushes() {
+        return maxConsolidatedFlushes;
+    }
+
+    boolean consolidateFlushesWhenNoReadInProgress() {
+        return consolidateFlushesWhenNoReadInProgress;
+    }
+
     long idleTimeoutMillis() {
         return idleTimeoutMillis;
     }
@@ -300,6 +431,36 @@ final class HttpClientFactory extends AbstractClientFactory {
         });
     }
 
+    private static final class SslContextKey {
+        final boolean http2;
+        @Nullable
+        final String endpointGroupName;
+
+        SslContextKey(boolean http2, @Nullable String endpointGroupName) {
+            this.http2 = http2;
+            this.endpointGroupName = endpointGroupName;
+        }
+
+        @Override
+        public int hashCode() {
+            return Boolean.hashCode(http2) * 31 + Objects.hashCode(endpointGroupName);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof SslContextKey)) {
+                return false;
+            }
+
+            final SslContextKey that = (SslContextKey) obj;
+            return http2 == that.http2 && Objects.equals(endpointGroupName, that.endpointGroupName);
+        }
+    }
+
     private static final class ConnectionPoolListenerImpl implements KeyedChannelPoolHandler<PoolKey> {
 
         private final KeyedChannelPoolHandler<? super PoolKey> connectionPoolListener;
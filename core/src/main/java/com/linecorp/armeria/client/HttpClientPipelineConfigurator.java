@@ -29,9 +29,9 @@ import static io.netty.handler.codec.http2.Http2CodecUtil.DEFAULT_WINDOW_SIZE;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
-import javax.net.ssl.SSLException;
 
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
@@ -40,16 +40,17 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Ascii;
 
-import com.linecorp.armeria.common.Flags;
 import com.linecorp.armeria.common.HttpObject;
 import com.linecorp.armeria.common.SessionProtocol;
 import com.linecorp.armeria.common.logging.RequestLogBuilder;
 import com.linecorp.armeria.common.util.Exceptions;
+import com.linecorp.armeria.internal.ArmeriaHttp2HeadersDecoder;
 import com.linecorp.armeria.internal.Http1ClientCodec;
 import com.linecorp.armeria.internal.Http2GoAwayListener;
 import com.linecorp.armeria.internal.ReadSuppressingHandler;
 import com.linecorp.armeria.internal.TrafficLoggingHandler;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
@@ -84,17 +85,12 @@ import io.netty.handler.codec.http2.Http2ConnectionEncoder;
 import io.netty.handler.codec.http2.Http2Exception;
 import io.netty.handler.codec.http2.Http2FrameReader;
 import io.netty.handler.codec.http2.Http2FrameWriter;
-import io.netty.handler.codec.http2.Http2SecurityUtil;
 import io.netty.handler.codec.http2.Http2Settings;
 import io.netty.handler.flush.FlushConsolidationHandler;
-import io.netty.handler.ssl.ApplicationProtocolConfig;
 import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.ssl.SslHandshakeCompletionEvent;
-import io.netty.handler.ssl.SslProvider;
-import io.netty.handler.ssl.SupportedCipherSuiteFilter;
 import io.netty.util.AsciiString;
 import io.netty.util.ReferenceCountUtil;
 
@@ -107,6 +103,9 @@ final class HttpClientPipelineConfigurator extends ChannelDuplexHandler {
      */
     private static final long UPGRADE_RESPONSE_MAX_LENGTH = 16384;
 
+    private static final String TLS_HANDSHAKE_DURATION_METER_NAME = "armeria.client.tls.handshakeDuration";
+    private static final String TLS_HANDSHAKE_FAILURES_METER_NAME = "armeria.client.tls.handshakeFailures";
+
     private enum HttpPreference {
         HTTP1_REQUIRED,
         HTTP2_PREFERRED,
@@ -120,7 +119,8 @@ final class HttpClientPipelineConfigurator extends ChannelDuplexHandler {
     @Nullable
     private InetSocketAddress remoteAddress;
 
-    HttpClientPipelineConfigurator(HttpClientFactory clientFactory, SessionProtocol sessionProtocol) {
+    HttpClientPipelineConfigurator(HttpClientFactory clientFactory, SessionProtocol sessionProtocol,
+                                   @Nullable String endpointGroupName) {
         this.clientFactory = clientFactory;
 
         if (sessionProtocol == HTTP || sessionProtocol == HTTPS) {
@@ -135,31 +135,7 @@ final class HttpClientPipelineConfigurator extends ChannelDuplexHandler {
         }
 
         if (sessionProtocol.isTls()) {
-            try {
-                final SslContextBuilder builder = SslContextBuilder.forClient();
-
-                builder.sslProvider(
-                        Flags.useOpenSsl() ? SslProvider.OPENSSL : SslProvider.JDK);
-                clientFactory.sslContextCustomizer().accept(builder);
-
-                if (httpPreference == HttpPreference.HTTP2_REQUIRED ||
-                    httpPreference == HttpPreference.HTTP2_PREFERRED) {
-
-                    builder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
-                           .applicationProtocolConfig(new ApplicationProtocolConfig(
-                                   ApplicationProtocolConfig.Protocol.ALPN,
-                                   // NO_ADVERTISE is currently the only mode supported by both OpenSsl and
-                                   // JDK providers.
-                                   ApplicationProtocolConfig.SelectorFailureBehavior.NO_ADVERTISE,
-                                   // ACCEPT is currently the only mode supported by both OpenSsl and JDK
-                                   // providers.
-                                   ApplicationProtocolConfig.SelectedListenerFailureBehavior.ACCEPT,
-                                   ApplicationProtocolNames.HTTP_2));
-                }
-                sslCtx = builder.build();
-            } catch (SSLException e) {
-                throw new IllegalStateException("failed to create an SslContext", e);
-            }
+            sslCtx = clientFactory.sslContext(sessionProtocol, endpointGroupName);
         } else {
             sslCtx = null;
         }
@@ -177,7 +153,10 @@ final class HttpClientPipelineConfigurator extends ChannelDuplexHandler {
         final Channel ch = ctx.channel();
 
         final ChannelPipeline p = ch.pipeline();
-        p.addLast(new FlushConsolidationHandler());
+        if (clientFactory.maxConsolidatedFlushes() > 0) {
+            p.addLast(new FlushConsolidationHandler(clientFactory.maxConsolidatedFlushes(),
+                                                    clientFactory.consolidateFlushesWhenNoReadInProgress()));
+        }
         p.addLast(ReadSuppressingHandler.INSTANCE);
 
         try {
@@ -211,6 +190,15 @@ final class HttpClientPipelineConfigurator extends ChannelDuplexHandler {
         p.addLast(sslHandler);
         p.addLast(TrafficLoggingHandler.CLIENT);
         p.addLast(new ChannelInboundHandlerAdapter() {
+            private long handshakeStartNanos;
+
+            @Override
+            public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                // SslHandler starts the handshake as soon as the connection is established.
+                handshakeStartNanos = System.nanoTime();
+                ctx.fireChannelActive();
+            }
+
             @Override
             public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
                 if (!(evt instanceof SslHandshakeCompletionEvent)) {
@@ -219,6 +207,7 @@ final class HttpClientPipelineConfigurator extends ChannelDuplexHandler {
                 }
 
                 final SslHandshakeCompletionEvent handshakeEvent = (SslHandshakeCompletionEvent) evt;
+                recordHandshake(sslHandler, handshakeEvent.isSuccess(), handshakeStartNanos);
                 if (!handshakeEvent.isSuccess()) {
                     // The connection will be closed automatically by SslHandler.
                     return;
@@ -261,6 +250,18 @@ final class HttpClientPipelineConfigurator extends ChannelDuplexHandler {
         });
     }
 
+    private void recordHandshake(SslHandler sslHandler, boolean success, long handshakeStartNanos) {
+        final MeterRegistry registry = clientFactory.meterRegistry();
+        if (!success) {
+            registry.counter(TLS_HANDSHAKE_FAILURES_METER_NAME).increment();
+            return;
+        }
+
+        final boolean resumed = clientFactory.isResumedTlsSession(sslHandler.engine().getSession());
+        registry.timer(TLS_HANDSHAKE_DURATION_METER_NAME, "resumed", String.valueOf(resumed))
+                .record(System.nanoTime() - handshakeStartNanos, TimeUnit.NANOSECONDS);
+    }
+
     // refer https://http2.github.io/http2-spec/#discover-http
     private void configureAsHttp(Channel ch) {
         final ChannelPipeline pipeline = ch.pipeline();
@@ -600,7 +601,8 @@ final class HttpClientPipelineConfigurator extends ChannelDuplexHandler {
         final Http2Connection conn = new DefaultHttp2Connection(false);
         conn.addListener(new Http2GoAwayListener(ch));
 
-        final Http2FrameReader reader = new DefaultHttp2FrameReader(validateHeaders);
+        final Http2FrameReader reader = new DefaultHttp2FrameReader(
+                new ArmeriaHttp2HeadersDecoder(validateHeaders));
         final Http2FrameWriter writer = new DefaultHttp2FrameWriter();
 
         final Http2ConnectionEncoder encoder = new DefaultHttp2ConnectionEncoder(conn, writer);
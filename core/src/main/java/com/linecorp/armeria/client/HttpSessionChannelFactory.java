@@ -23,10 +23,13 @@ import java.net.UnknownHostException;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
+import javax.annotation.Nullable;
+
 import com.linecorp.armeria.client.pool.PoolKey;
 import com.linecorp.armeria.common.SessionProtocol;
 
@@ -47,6 +50,7 @@ class HttpSessionChannelFactory implements Function<PoolKey, Future<Channel>> {
     private final Bootstrap baseBootstrap;
     private final int connectTimeoutMillis;
     private final Map<SessionProtocol, Bootstrap> bootstrapMap;
+    private final Map<String, Map<SessionProtocol, Bootstrap>> endpointGroupBootstrapMaps;
 
     HttpSessionChannelFactory(HttpClientFactory clientFactory, EventLoop eventLoop) {
         this.clientFactory = clientFactory;
@@ -56,6 +60,7 @@ class HttpSessionChannelFactory implements Function<PoolKey, Future<Channel>> {
         connectTimeoutMillis = (Integer) baseBootstrap.config().options()
                                                       .get(ChannelOption.CONNECT_TIMEOUT_MILLIS);
         bootstrapMap = Collections.synchronizedMap(new EnumMap<>(SessionProtocol.class));
+        endpointGroupBootstrapMaps = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -76,7 +81,7 @@ class HttpSessionChannelFactory implements Function<PoolKey, Future<Channel>> {
         }
 
         final Promise<Channel> sessionPromise = eventLoop.newPromise();
-        connect(remoteAddress, protocol, sessionPromise);
+        connect(remoteAddress, protocol, key.endpointGroupName(), sessionPromise);
 
         return sessionPromise;
     }
@@ -95,7 +100,12 @@ class HttpSessionChannelFactory implements Function<PoolKey, Future<Channel>> {
     }
 
     void connect(SocketAddress remoteAddress, SessionProtocol protocol, Promise<Channel> sessionPromise) {
-        final Bootstrap bootstrap = bootstrap(protocol);
+        connect(remoteAddress, protocol, null, sessionPromise);
+    }
+
+    private void connect(SocketAddress remoteAddress, SessionProtocol protocol,
+                         @Nullable String endpointGroupName, Promise<Channel> sessionPromise) {
+        final Bootstrap bootstrap = bootstrap(protocol, endpointGroupName);
         final ChannelFuture connectFuture = bootstrap.connect(remoteAddress);
 
         connectFuture.addListener((ChannelFuture future) -> {
@@ -107,13 +117,23 @@ class HttpSessionChannelFactory implements Function<PoolKey, Future<Channel>> {
         });
     }
 
-    private Bootstrap bootstrap(SessionProtocol sessionProtocol) {
+    private Bootstrap bootstrap(SessionProtocol sessionProtocol, @Nullable String endpointGroupName) {
+        final Map<SessionProtocol, Bootstrap> bootstrapMap;
+        if (endpointGroupName == null) {
+            bootstrapMap = this.bootstrapMap;
+        } else {
+            bootstrapMap = endpointGroupBootstrapMaps.computeIfAbsent(
+                    endpointGroupName,
+                    unused -> Collections.synchronizedMap(new EnumMap<>(SessionProtocol.class)));
+        }
+
         return bootstrapMap.computeIfAbsent(sessionProtocol, sp -> {
             final Bootstrap bs = baseBootstrap.clone();
             bs.handler(new ChannelInitializer<Channel>() {
                 @Override
                 protected void initChannel(Channel ch) throws Exception {
-                    ch.pipeline().addLast(new HttpClientPipelineConfigurator(clientFactory, sp));
+                    ch.pipeline().addLast(new HttpClientPipelineConfigurator(clientFactory, sp,
+                                                                             endpointGroupName));
                 }
             });
             return bs;
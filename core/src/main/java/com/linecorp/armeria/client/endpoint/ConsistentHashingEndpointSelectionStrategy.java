@@ -0,0 +1,299 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.endpoint;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.common.logging.RequestLogAvailability;
+
+/**
+ * An {@link EndpointSelectionStrategy} which implements sticky load-balancing with a consistent hash ring,
+ * using the user passed {@link ToLongFunction} to compute the hash of a request.
+ *
+ * <p>Unlike {@link StickyEndpointSelectionStrategy}, an {@link Endpoint} added to or removed from the
+ * {@link EndpointGroup} remaps only the requests which belong to the {@link Endpoint}, because each
+ * {@link Endpoint} owns the ranges of the hash ring around its virtual nodes. The number of the virtual nodes
+ * of an {@link Endpoint} is proportional to its {@link Endpoint#weight()}. The ring is rebuilt when the
+ * {@link EndpointGroup} is updated, so that {@link EndpointSelector#select(ClientRequestContext)} only does
+ * a binary search.
+ *
+ * <p>When a load factor is specified, this strategy implements consistent hashing with bounded loads:
+ * an {@link Endpoint} which has more in-flight requests than {@code loadFactor} times its share of
+ * the in-flight requests, which is proportional to its {@link Endpoint#weight()}, is skipped and the next
+ * {@link Endpoint} on the ring is selected, so that a hot key does not overload a single {@link Endpoint}.
+ * The in-flight requests of an {@link Endpoint} are still counted after the ring is rebuilt.
+ *
+ * <pre>{@code
+ * ToLongFunction<ClientRequestContext> hasher = (ClientRequestContext ctx) -> {
+ *     return ((HttpRequest) ctx.request()).headers().get(AsciiString.of("cookie")).hashCode();
+ * };
+ * final ConsistentHashingEndpointSelectionStrategy strategy =
+ *         new ConsistentHashingEndpointSelectionStrategy(hasher, 100, 1.25);
+ * }</pre>
+ */
+public final class ConsistentHashingEndpointSelectionStrategy implements EndpointSelectionStrategy {
+
+    private static final int DEFAULT_VIRTUAL_NODES = 100;
+
+    private static final HashFunction hashFunction = Hashing.murmur3_128();
+
+    private final ToLongFunction<ClientRequestContext> requestContextHasher;
+    private final int virtualNodes;
+    private final double loadFactor;
+
+    /**
+     * Creates a new {@link ConsistentHashingEndpointSelectionStrategy} with 100 virtual nodes per
+     * {@link Endpoint} and without bounded loads.
+     *
+     * @param requestContextHasher the {@link ToLongFunction} which hashes a {@link ClientRequestContext}
+     */
+    public ConsistentHashingEndpointSelectionStrategy(
+            ToLongFunction<ClientRequestContext> requestContextHasher) {
+        this(requestContextHasher, DEFAULT_VIRTUAL_NODES, 0);
+    }
+
+    /**
+     * Creates a new {@link ConsistentHashingEndpointSelectionStrategy}.
+     *
+     * @param requestContextHasher the {@link ToLongFunction} which hashes a {@link ClientRequestContext}
+     * @param virtualNodes the number of the virtual nodes of an {@link Endpoint} with the average weight.
+     *                     More virtual nodes spread the requests more evenly but make the ring larger.
+     * @param loadFactor the maximum number of the in-flight requests of an {@link Endpoint} relative to
+     *                   its weighted share, e.g. {@code 1.25}, or {@code 0} to disable bounded loads
+     */
+    public ConsistentHashingEndpointSelectionStrategy(
+            ToLongFunction<ClientRequestContext> requestContextHasher, int virtualNodes, double loadFactor) {
+        this.requestContextHasher = requireNonNull(requestContextHasher, "requestContextHasher");
+        checkArgument(virtualNodes > 0, "virtualNodes: %s (expected: > 0)", virtualNodes);
+        checkArgument(loadFactor == 0 || loadFactor >= 1,
+                      "loadFactor: %s (expected: 0 or >= 1)", loadFactor);
+        this.virtualNodes = virtualNodes;
+        this.loadFactor = loadFactor;
+    }
+
+    @Override
+    public EndpointSelector newSelector(EndpointGroup endpointGroup) {
+        requireNonNull(endpointGroup, "endpointGroup");
+        return new ConsistentHashingEndpointSelector(endpointGroup);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("virtualNodes", virtualNodes)
+                          .add("loadFactor", loadFactor)
+                          .toString();
+    }
+
+    private final class ConsistentHashingEndpointSelector implements EndpointSelector {
+
+        private final EndpointGroup endpointGroup;
+        // The number of the in-flight requests of all rings.
+        private final AtomicInteger totalLoad = new AtomicInteger();
+        private volatile Ring ring;
+
+        ConsistentHashingEndpointSelector(EndpointGroup endpointGroup) {
+            this.endpointGroup = endpointGroup;
+            if (endpointGroup instanceof DynamicEndpointGroup) {
+                // Rebuild only when the endpoints are really changed.
+                // The current endpoints are given to the listener as added ones immediately.
+                ring = new Ring(ImmutableList.of(), null);
+                ((DynamicEndpointGroup) endpointGroup).addDiffListener(
+                        diff -> ring = new Ring(diff.endpoints(), ring));
+            } else {
+                ring = new Ring(endpointGroup.endpoints(), null);
+                endpointGroup.addListener(endpoints -> ring = new Ring(endpoints, ring));
+            }
+        }
+
+        @Override
+        public EndpointGroup group() {
+            return endpointGroup;
+        }
+
+        @Override
+        public EndpointSelectionStrategy strategy() {
+            return ConsistentHashingEndpointSelectionStrategy.this;
+        }
+
+        @Override
+        public Endpoint select(ClientRequestContext ctx) {
+            final Ring ring = this.ring;
+            if (ring.endpoints.isEmpty()) {
+                throw new EndpointGroupException(endpointGroup + " is empty");
+            }
+
+            final long key = mix(requestContextHasher.applyAsLong(ctx));
+            final int start = ring.search(key);
+            if (loadFactor == 0) {
+                return ring.endpoints.get(ring.owners[start]);
+            }
+
+            // Skip the endpoints which are full. The capacity of an endpoint is proportional to its weight.
+            // At least one endpoint always has a room for a new request because the sum of the capacities
+            // is greater than the total load.
+            final double capacityPerWeight = loadFactor * (totalLoad.get() + 1) / ring.totalWeight;
+            final int[] owners = ring.owners;
+            int owner = owners[start];
+            for (int i = 0; i < owners.length; i++) {
+                final int candidate = owners[(start + i) % owners.length];
+                if (ring.loads[candidate].get() < Math.ceil(capacityPerWeight * ring.weights[candidate])) {
+                    owner = candidate;
+                    break;
+                }
+            }
+
+            // Release the load which was acquired, even if the ring has been rebuilt since then.
+            final AtomicInteger load = ring.loads[owner];
+            load.incrementAndGet();
+            totalLoad.incrementAndGet();
+            ctx.log().addListener(log -> {
+                load.decrementAndGet();
+                totalLoad.decrementAndGet();
+            }, RequestLogAvailability.COMPLETE);
+            return ring.endpoints.get(owner);
+        }
+    }
+
+    /**
+     * An immutable consistent hash ring with the mutable loads of its {@link Endpoint}s.
+     */
+    private final class Ring {
+
+        final List<Endpoint> endpoints;
+        // The sorted positions of the virtual nodes and the indexes of the endpoints which own them.
+        final long[] points;
+        final int[] owners;
+
+        // The weights used for the capacities of the endpoints, which are 0 for the endpoints without nodes.
+        final int[] weights;
+        final long totalWeight;
+        // Shared with the previous ring for the same endpoints.
+        final AtomicInteger[] loads;
+
+        Ring(List<Endpoint> endpoints, @Nullable Ring previousRing) {
+            this.endpoints = ImmutableList.copyOf(endpoints);
+
+            long totalEndpointWeight = 0;
+            for (Endpoint e : endpoints) {
+                totalEndpointWeight += e.weight();
+            }
+
+            final int numEndpoints = this.endpoints.size();
+            final double averageWeight = numEndpoints != 0 ? (double) totalEndpointWeight / numEndpoints : 0;
+            final int[] numNodes = new int[numEndpoints];
+            weights = new int[numEndpoints];
+            long totalWeight = 0;
+            int totalNodes = 0;
+            for (int i = 0; i < numEndpoints; i++) {
+                final int weight = this.endpoints.get(i).weight();
+                if (averageWeight == 0) {
+                    // All endpoints have no weight, so they are treated equally.
+                    numNodes[i] = virtualNodes;
+                    weights[i] = 1;
+                } else if (weight > 0) {
+                    numNodes[i] = Math.max(1, (int) Math.round(virtualNodes * weight / averageWeight));
+                    weights[i] = weight;
+                }
+                totalWeight += weights[i];
+                totalNodes += numNodes[i];
+            }
+            this.totalWeight = totalWeight;
+
+            final Map<Endpoint, AtomicInteger> previousLoads = new HashMap<>();
+            if (previousRing != null) {
+                for (int i = 0; i < previousRing.endpoints.size(); i++) {
+                    previousLoads.put(previousRing.endpoints.get(i), previousRing.loads[i]);
+                }
+            }
+            loads = new AtomicInteger[numEndpoints];
+            for (int i = 0; i < numEndpoints; i++) {
+                final AtomicInteger load = previousLoads.get(this.endpoints.get(i));
+                loads[i] = load != null ? load : new AtomicInteger();
+            }
+
+            // Sort the virtual nodes by their positions. A node is a pair of its position and owner.
+            final long[][] nodes = new long[totalNodes][];
+            int n = 0;
+            for (int i = 0; i < numEndpoints; i++) {
+                for (int j = 0; j < numNodes[i]; j++) {
+                    nodes[n++] = new long[] { position(this.endpoints.get(i), j), i };
+                }
+            }
+            Arrays.sort(nodes, (a, b) -> Long.compare(a[0], b[0]));
+
+            points = new long[totalNodes];
+            owners = new int[totalNodes];
+            for (int i = 0; i < totalNodes; i++) {
+                points[i] = nodes[i][0];
+                owners[i] = (int) nodes[i][1];
+            }
+        }
+
+        /**
+         * Returns the index of the first virtual node whose position is equal to or greater than the
+         * specified key, wrapping around the ring.
+         */
+        int search(long key) {
+            final int index = Arrays.binarySearch(points, key);
+            if (index >= 0) {
+                return index;
+            }
+            final int insertionPoint = -index - 1;
+            return insertionPoint == points.length ? 0 : insertionPoint;
+        }
+    }
+
+    private static long position(Endpoint endpoint, int virtualNode) {
+        final Hasher hasher = hashFunction.newHasher()
+                                          .putString(endpoint.authority(), StandardCharsets.UTF_8);
+        final String ipAddr = endpoint.ipAddr();
+        if (ipAddr != null) {
+            hasher.putString(ipAddr, StandardCharsets.UTF_8);
+        }
+        return hasher.putInt(virtualNode).hash().asLong();
+    }
+
+    /**
+     * Spreads the bits of the user-provided hash, which is often a poorly distributed one such as
+     * {@link Object#hashCode()}, over the ring.
+     */
+    private static long mix(long key) {
+        // The finalizer of SplitMix64.
+        key = (key ^ (key >>> 30)) * 0xbf58476d1ce4e5b9L;
+        key = (key ^ (key >>> 27)) * 0x94d049bb133111ebL;
+        return key ^ (key >>> 31);
+    }
+}
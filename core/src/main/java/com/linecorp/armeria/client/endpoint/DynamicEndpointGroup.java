@@ -16,16 +16,20 @@
 package com.linecorp.armeria.client.endpoint;
 
 import static com.google.common.collect.ImmutableList.toImmutableList;
+import static java.util.Objects.requireNonNull;
 
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 import com.google.common.collect.ImmutableList;
 
@@ -34,17 +38,51 @@ import com.linecorp.armeria.common.util.AbstractListenable;
 
 /**
  * A dynamic {@link EndpointGroup}. The list of {@link Endpoint}s can be updated dynamically.
+ *
+ * <p>In addition to the listeners which get the whole list of {@link Endpoint}s, the listeners added via
+ * {@link #addDiffListener(Consumer)} get only the {@link Endpoint}s added, removed or changed by an update.
+ * They are not notified at all when an update does not change anything, so that a large group which is
+ * refreshed periodically, e.g. by DNS, does not make them rebuild their state from scratch.</p>
  */
 public class DynamicEndpointGroup extends AbstractListenable<List<Endpoint>> implements EndpointGroup {
     private volatile List<Endpoint> endpoints = ImmutableList.of();
     private final Lock endpointsLock = new ReentrantLock();
     private final CompletableFuture<List<Endpoint>> initialEndpointsFuture = new CompletableFuture<>();
+    private final Set<Consumer<? super EndpointDiff>> diffListeners = new CopyOnWriteArraySet<>();
 
     @Override
     public final List<Endpoint> endpoints() {
         return endpoints;
     }
 
+    /**
+     * Adds a {@link Consumer} which is invoked with an {@link EndpointDiff} when the {@link Endpoint}s of
+     * this group are added, removed or changed. If this group has {@link Endpoint}s already, the
+     * {@link Consumer} is invoked immediately with all of them as added ones, so that it can build its state
+     * from scratch without missing any update. The {@link Consumer} is invoked in the order of updates
+     * while this group is locked for updates, so it must not block.
+     */
+    public final void addDiffListener(Consumer<? super EndpointDiff> listener) {
+        requireNonNull(listener, "listener");
+        endpointsLock.lock();
+        try {
+            final List<Endpoint> endpoints = this.endpoints;
+            if (!endpoints.isEmpty()) {
+                listener.accept(new EndpointDiff(endpoints, endpoints, ImmutableList.of(), ImmutableList.of()));
+            }
+            diffListeners.add(listener);
+        } finally {
+            endpointsLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the {@link Consumer} added via {@link #addDiffListener(Consumer)}.
+     */
+    public final void removeDiffListener(Consumer<?> listener) {
+        diffListeners.remove(requireNonNull(listener, "listener"));
+    }
+
     /**
      * Returns the {@link CompletableFuture} which is completed when the initial {@link Endpoint}s are ready.
      */
@@ -91,6 +129,10 @@ public class DynamicEndpointGroup extends AbstractListenable<List<Endpoint>> imp
             newEndpointsBuilder.addAll(endpoints);
             newEndpointsBuilder.add(e);
             endpoints = newEndpoints = newEndpointsBuilder.build();
+            if (!diffListeners.isEmpty()) {
+                notifyDiffListeners(new EndpointDiff(newEndpoints, ImmutableList.of(e),
+                                                     ImmutableList.of(), ImmutableList.of()));
+            }
         } finally {
             endpointsLock.unlock();
         }
@@ -106,9 +148,17 @@ public class DynamicEndpointGroup extends AbstractListenable<List<Endpoint>> imp
         final List<Endpoint> newEndpoints;
         endpointsLock.lock();
         try {
-            endpoints = newEndpoints = endpoints.stream()
-                                                .filter(endpoint -> !endpoint.equals(e))
-                                                .collect(toImmutableList());
+            final List<Endpoint> oldEndpoints = endpoints;
+            endpoints = newEndpoints = oldEndpoints.stream()
+                                                   .filter(endpoint -> !endpoint.equals(e))
+                                                   .collect(toImmutableList());
+            if (!diffListeners.isEmpty() && oldEndpoints.size() != newEndpoints.size()) {
+                notifyDiffListeners(new EndpointDiff(newEndpoints, ImmutableList.of(),
+                                                     oldEndpoints.stream()
+                                                                 .filter(e::equals)
+                                                                 .collect(toImmutableList()),
+                                                     ImmutableList.of()));
+            }
         } finally {
             endpointsLock.unlock();
         }
@@ -122,7 +172,15 @@ public class DynamicEndpointGroup extends AbstractListenable<List<Endpoint>> imp
         final List<Endpoint> newEndpoints;
         endpointsLock.lock();
         try {
+            final List<Endpoint> oldEndpoints = this.endpoints;
             this.endpoints = newEndpoints = ImmutableList.copyOf(endpoints);
+            // Compute the difference only when someone is interested in it.
+            if (!diffListeners.isEmpty()) {
+                final EndpointDiff diff = EndpointDiff.of(oldEndpoints, newEndpoints);
+                if (!diff.isEmpty()) {
+                    notifyDiffListeners(diff);
+                }
+            }
         } finally {
             endpointsLock.unlock();
         }
@@ -131,6 +189,13 @@ public class DynamicEndpointGroup extends AbstractListenable<List<Endpoint>> imp
         completeInitialEndpointsFuture(newEndpoints);
     }
 
+    // Invoked while holding the lock, so that the listeners get the differences in order.
+    private void notifyDiffListeners(EndpointDiff diff) {
+        for (Consumer<? super EndpointDiff> listener : diffListeners) {
+            listener.accept(diff);
+        }
+    }
+
     private void completeInitialEndpointsFuture(List<Endpoint> endpoints) {
         if (!endpoints.isEmpty() && !initialEndpointsFuture.isDone()) {
             initialEndpointsFuture.complete(endpoints);
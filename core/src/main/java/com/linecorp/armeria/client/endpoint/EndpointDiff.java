@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.endpoint;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
+
+import com.linecorp.armeria.client.Endpoint;
+
+/**
+ * The {@link Endpoint}s added to, removed from or changed in a {@link DynamicEndpointGroup} by an update.
+ * An {@link Endpoint} is considered changed when an equal {@link Endpoint} with a different
+ * {@linkplain Endpoint#weight() weight} replaces it, because {@link Endpoint#equals(Object)} does not
+ * compare weights.
+ *
+ * @see DynamicEndpointGroup#addDiffListener(java.util.function.Consumer)
+ */
+public final class EndpointDiff {
+
+    /**
+     * Returns the {@link EndpointDiff} between the specified old and new {@link Endpoint}s.
+     * A duplicate {@link Endpoint} is counted as many times as it appears.
+     */
+    static EndpointDiff of(List<Endpoint> oldEndpoints, List<Endpoint> newEndpoints) {
+        final Map<Endpoint, Deque<Endpoint>> remaining = new HashMap<>();
+        for (Endpoint e : oldEndpoints) {
+            remaining.computeIfAbsent(e, unused -> new ArrayDeque<>(1)).add(e);
+        }
+
+        final ImmutableList.Builder<Endpoint> added = ImmutableList.builder();
+        final ImmutableList.Builder<Endpoint> changed = ImmutableList.builder();
+        for (Endpoint e : newEndpoints) {
+            final Deque<Endpoint> oldOnes = remaining.get(e);
+            final Endpoint oldOne = oldOnes != null ? oldOnes.poll() : null;
+            if (oldOne == null) {
+                added.add(e);
+            } else if (oldOne.weight() != e.weight()) {
+                changed.add(e);
+            }
+        }
+
+        final ImmutableList.Builder<Endpoint> removed = ImmutableList.builder();
+        remaining.values().forEach(removed::addAll);
+
+        return new EndpointDiff(newEndpoints, added.build(), removed.build(), changed.build());
+    }
+
+    private final List<Endpoint> endpoints;
+    private final List<Endpoint> added;
+    private final List<Endpoint> removed;
+    private final List<Endpoint> changed;
+
+    EndpointDiff(List<Endpoint> endpoints, List<Endpoint> added, List<Endpoint> removed,
+                 List<Endpoint> changed) {
+        this.endpoints = endpoints;
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+    }
+
+    /**
+     * Returns all {@link Endpoint}s after the update.
+     */
+    public List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Returns the {@link Endpoint}s which did not exist before the update.
+     */
+    public List<Endpoint> added() {
+        return added;
+    }
+
+    /**
+     * Returns the {@link Endpoint}s which do not exist anymore after the update.
+     */
+    public List<Endpoint> removed() {
+        return removed;
+    }
+
+    /**
+     * Returns the {@link Endpoint}s whose {@linkplain Endpoint#weight() weight} was changed by the update.
+     * The returned {@link Endpoint}s have the new weights.
+     */
+    public List<Endpoint> changed() {
+        return changed;
+    }
+
+    /**
+     * Returns whether the update did not change anything.
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("added", added)
+                          .add("removed", removed)
+                          .add("changed", changed)
+                          .toString();
+    }
+}
@@ -34,6 +34,10 @@ import com.linecorp.armeria.common.HttpRequest;
  * backend server. A common use case is to send all requests for the same logged-in user to the same backend,
  * which could have a local cache keyed by user id.
  *
+ * <p>Note that most requests are sent to a different backend when an {@link Endpoint} is added to or removed
+ * from the {@link EndpointGroup}. Use {@link ConsistentHashingEndpointSelectionStrategy} if the backends
+ * must keep their cache hit rate while the {@link EndpointGroup} changes, e.g. during a deployment.
+ *
  * <p>In below example, created strategy will route all {@link HttpRequest} which have the same value for key
  * "cookie" of its header to the same server:
  *
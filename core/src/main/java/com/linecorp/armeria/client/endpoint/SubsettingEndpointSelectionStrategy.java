@@ -0,0 +1,215 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.endpoint;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.collect.Ordering;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+
+/**
+ * An {@link EndpointSelectionStrategy} which makes a client use only a subset of the {@link Endpoint}s in
+ * an {@link EndpointGroup}, so that the number of connections does not grow with the product of the number
+ * of clients and servers. An {@link Endpoint} is selected from the subset by another
+ * {@link EndpointSelectionStrategy}.
+ *
+ * <p>The subset is chosen by rendezvous hashing keyed by the client ID: each {@link Endpoint} is scored by
+ * hashing the client ID with the {@link Endpoint}, and the {@link Endpoint}s with the highest scores form
+ * the subset. Therefore, the clients with the same ID always use the same subset, different client IDs
+ * spread over different subsets, and an {@link Endpoint} added to or removed from the
+ * {@link EndpointGroup} changes at most one {@link Endpoint} of a subset.
+ *
+ * <pre>{@code
+ * EndpointGroupRegistry.register(
+ *         "myGroup", myGroup,
+ *         new SubsettingEndpointSelectionStrategy(EndpointSelectionStrategy.WEIGHTED_ROUND_ROBIN,
+ *                                                 myInstanceId, 20));
+ * }</pre>
+ */
+public final class SubsettingEndpointSelectionStrategy implements EndpointSelectionStrategy {
+
+    private static final HashFunction hashFunction = Hashing.murmur3_128();
+
+    private final EndpointSelectionStrategy delegate;
+    private final String clientId;
+    private final int subsetSize;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param delegate the {@link EndpointSelectionStrategy} which selects an {@link Endpoint} from the subset
+     * @param clientId the ID of the client, which determines the subset. Use a value unique to the client
+     *                 process such as a host name and a process ID, so that the subsets are spread evenly.
+     * @param subsetSize the maximum number of the {@link Endpoint}s in the subset
+     */
+    public SubsettingEndpointSelectionStrategy(EndpointSelectionStrategy delegate, String clientId,
+                                               int subsetSize) {
+        this.delegate = requireNonNull(delegate, "delegate");
+        this.clientId = requireNonNull(clientId, "clientId");
+        checkArgument(subsetSize > 0, "subsetSize: %s (expected: > 0)", subsetSize);
+        this.subsetSize = subsetSize;
+    }
+
+    @Override
+    public EndpointSelector newSelector(EndpointGroup endpointGroup) {
+        requireNonNull(endpointGroup, "endpointGroup");
+        return new SubsettingEndpointSelector(endpointGroup);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("delegate", delegate)
+                          .add("clientId", clientId)
+                          .add("subsetSize", subsetSize)
+                          .toString();
+    }
+
+    private final class SubsettingEndpointSelector implements EndpointSelector {
+
+        private final EndpointGroup endpointGroup;
+        private final EndpointSelector delegateSelector;
+
+        SubsettingEndpointSelector(EndpointGroup endpointGroup) {
+            this.endpointGroup = endpointGroup;
+            delegateSelector = delegate.newSelector(new SubsetEndpointGroup(endpointGroup));
+        }
+
+        @Override
+        public EndpointGroup group() {
+            return endpointGroup;
+        }
+
+        @Override
+        public EndpointSelectionStrategy strategy() {
+            return SubsettingEndpointSelectionStrategy.this;
+        }
+
+        @Override
+        public Endpoint select(ClientRequestContext ctx) {
+            return delegateSelector.select(ctx);
+        }
+    }
+
+    /**
+     * A {@link DynamicEndpointGroup} which follows the subset of another {@link EndpointGroup}.
+     */
+    private final class SubsetEndpointGroup extends DynamicEndpointGroup {
+
+        private final EndpointGroup parent;
+
+        // Guarded by 'this'.
+        private final Map<Endpoint, Long> scores = new HashMap<>();
+        private final Comparator<Endpoint> byScore =
+                Comparator.<Endpoint>comparingLong(scores::get).thenComparing(Comparator.naturalOrder());
+        private final Set<Endpoint> subset = new HashSet<>();
+
+        SubsetEndpointGroup(EndpointGroup parent) {
+            this.parent = parent;
+            if (parent instanceof DynamicEndpointGroup) {
+                // The current endpoints are given to the listener immediately.
+                ((DynamicEndpointGroup) parent).addDiffListener(this::onChange);
+            } else {
+                updateSubset(parent.endpoints());
+                parent.addListener(this::updateSubset);
+            }
+        }
+
+        private synchronized void onChange(EndpointDiff diff) {
+            if (subset.size() == subsetSize &&
+                diff.changed().stream().noneMatch(subset::contains) &&
+                diff.removed().stream().noneMatch(subset::contains)) {
+
+                // Only the new endpoints can change the subset, which happens only when one of them has
+                // a higher score than the lowest one in the subset.
+                diff.removed().forEach(scores::remove);
+                final Endpoint lowest = subset.stream().min(byScore).get();
+                boolean affected = false;
+                for (Endpoint e : diff.added()) {
+                    if (byScore.compare(scored(e), lowest) > 0) {
+                        affected = true;
+                        break;
+                    }
+                }
+                if (!affected) {
+                    return;
+                }
+            }
+
+            updateSubset(diff.endpoints());
+        }
+
+        private synchronized void updateSubset(List<Endpoint> endpoints) {
+            final Set<Endpoint> distinctEndpoints = new HashSet<>(endpoints.size());
+            for (Endpoint e : endpoints) {
+                if (distinctEndpoints.add(e)) {
+                    scored(e);
+                }
+            }
+            // Forget the scores of the removed endpoints.
+            scores.keySet().retainAll(distinctEndpoints);
+
+            // Use the endpoint instances of the update, which may have new weights.
+            final Map<Endpoint, Endpoint> latest = new HashMap<>(distinctEndpoints.size());
+            endpoints.forEach(e -> latest.putIfAbsent(e, e));
+
+            final List<Endpoint> newSubset =
+                    Ordering.from(byScore).greatestOf(latest.values(), subsetSize);
+            subset.clear();
+            subset.addAll(newSubset);
+            setEndpoints(newSubset);
+        }
+
+        private Endpoint scored(Endpoint endpoint) {
+            scores.computeIfAbsent(endpoint, this::score);
+            return endpoint;
+        }
+
+        private long score(Endpoint endpoint) {
+            final Hasher hasher = hashFunction.newHasher()
+                                              .putString(clientId, StandardCharsets.UTF_8)
+                                              .putString(endpoint.authority(), StandardCharsets.UTF_8);
+            final String ipAddr = endpoint.ipAddr();
+            if (ipAddr != null) {
+                hasher.putString(ipAddr, StandardCharsets.UTF_8);
+            }
+            return hasher.hash().asLong();
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                              .add("parent", parent)
+                              .add("subset", endpoints())
+                              .toString();
+        }
+    }
+}
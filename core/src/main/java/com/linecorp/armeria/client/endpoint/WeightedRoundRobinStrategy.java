@@ -48,8 +48,17 @@ final class WeightedRoundRobinStrategy implements EndpointSelectionStrategy {
 
         WeightedRoundRobinSelector(EndpointGroup endpointGroup) {
             this.endpointGroup = endpointGroup;
-            endpointsAndWeights = new EndpointsAndWeights(endpointGroup.endpoints());
-            endpointGroup.addListener(endpoints -> endpointsAndWeights = new EndpointsAndWeights(endpoints));
+            if (endpointGroup instanceof DynamicEndpointGroup) {
+                // Update only when the endpoints are really changed, and only for the changed ones.
+                // The current endpoints are given to the listener as added ones immediately.
+                endpointsAndWeights = new EndpointsAndWeights(ImmutableList.of());
+                ((DynamicEndpointGroup) endpointGroup).addDiffListener(
+                        diff -> endpointsAndWeights = endpointsAndWeights.apply(diff));
+            } else {
+                endpointsAndWeights = new EndpointsAndWeights(endpointGroup.endpoints());
+                endpointGroup.addListener(
+                        endpoints -> endpointsAndWeights = new EndpointsAndWeights(endpoints));
+            }
         }
 
         @Override
@@ -74,6 +83,8 @@ final class WeightedRoundRobinStrategy implements EndpointSelectionStrategy {
             private final int maxWeight;
             private final int totalWeight;
 
+            private final int minWeight;
+
             EndpointsAndWeights(Iterable<Endpoint> endpoints) {
                 int minWeight = Integer.MAX_VALUE;
                 int maxWeight = Integer.MIN_VALUE;
@@ -85,11 +96,50 @@ final class WeightedRoundRobinStrategy implements EndpointSelectionStrategy {
                     totalWeight += weight;
                 }
                 this.endpoints = ImmutableList.copyOf(endpoints);
+                this.minWeight = minWeight;
                 this.maxWeight = maxWeight;
                 this.totalWeight = totalWeight;
                 weighted = minWeight != maxWeight;
             }
 
+            private EndpointsAndWeights(List<Endpoint> endpoints, int minWeight, int maxWeight,
+                                        int totalWeight) {
+                this.endpoints = endpoints;
+                this.minWeight = minWeight;
+                this.maxWeight = maxWeight;
+                this.totalWeight = totalWeight;
+                weighted = minWeight != maxWeight;
+            }
+
+            /**
+             * Returns a new {@link EndpointsAndWeights} with the specified {@link EndpointDiff} applied.
+             * The weights are updated without visiting all {@link Endpoint}s unless the minimum or maximum
+             * weight could have been removed.
+             */
+            EndpointsAndWeights apply(EndpointDiff diff) {
+                if (endpoints.isEmpty() || !diff.changed().isEmpty()) {
+                    return new EndpointsAndWeights(diff.endpoints());
+                }
+
+                int minWeight = this.minWeight;
+                int maxWeight = this.maxWeight;
+                int totalWeight = this.totalWeight;
+                for (Endpoint endpoint : diff.removed()) {
+                    final int weight = endpoint.weight();
+                    if (weight == minWeight || weight == maxWeight) {
+                        return new EndpointsAndWeights(diff.endpoints());
+                    }
+                    totalWeight -= weight;
+                }
+                for (Endpoint endpoint : diff.added()) {
+                    final int weight = endpoint.weight();
+                    minWeight = Math.min(minWeight, weight);
+                    maxWeight = Math.max(maxWeight, weight);
+                    totalWeight += weight;
+                }
+                return new EndpointsAndWeights(diff.endpoints(), minWeight, maxWeight, totalWeight);
+            }
+
             Endpoint selectEndpoint(int currentSequence) {
                 if (endpoints.isEmpty()) {
                     throw new EndpointGroupException(endpoints + " is empty");
@@ -21,20 +21,32 @@ import static com.linecorp.armeria.common.util.Functions.voidFunction;
 import static java.util.Objects.requireNonNull;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multiset;
 import com.spotify.futures.CompletableFutures;
 
 import com.linecorp.armeria.client.ClientFactory;
 import com.linecorp.armeria.client.Endpoint;
 import com.linecorp.armeria.client.endpoint.DynamicEndpointGroup;
+import com.linecorp.armeria.client.endpoint.EndpointDiff;
 import com.linecorp.armeria.client.endpoint.EndpointGroup;
 import com.linecorp.armeria.common.metric.MeterIdPrefix;
+import com.linecorp.armeria.common.util.SafeCloseable;
 
 import io.micrometer.core.instrument.binder.MeterBinder;
 
@@ -47,8 +59,15 @@ public abstract class HealthCheckedEndpointGroup extends DynamicEndpointGroup {
     private final ClientFactory clientFactory;
     private final EndpointGroup delegate;
     private final Duration retryInterval;
+    private final Consumer<EndpointDiff> delegateListener = this::onDelegateChange;
 
     volatile List<ServerConnection> allServers = ImmutableList.of();
+    private volatile boolean initialized;
+    private volatile boolean closed;
+
+    // Updated by the EndpointHealthCheckers which share their health check requests with other groups.
+    final LongAdder sentHealthChecks = new LongAdder();
+    final LongAdder sharedHealthChecks = new LongAdder();
 
     /**
      * Creates a new instance.
@@ -67,7 +86,13 @@ public abstract class HealthCheckedEndpointGroup extends DynamicEndpointGroup {
      * A subclass being initialized with this constructor must call {@link #init()} before start being used.
      */
     protected void init() {
+        if (delegate instanceof DynamicEndpointGroup) {
+            // Follow the changes of the delegate incrementally rather than comparing the whole list of
+            // the delegate on every health check. The current endpoints are added immediately.
+            ((DynamicEndpointGroup) delegate).addDiffListener(delegateListener);
+        }
         checkAndUpdateHealthyServers().join();
+        initialized = true;
         scheduleCheckAndUpdateHealthyServers();
     }
 
@@ -79,39 +104,134 @@ public abstract class HealthCheckedEndpointGroup extends DynamicEndpointGroup {
     }
 
     private void scheduleCheckAndUpdateHealthyServers() {
+        if (closed) {
+            return;
+        }
+        // Add a jitter of up to 20% so that the groups created at the same time do not send their health
+        // check requests at the same time.
+        final long retryIntervalMillis = retryInterval.toMillis();
+        final long jitterMillis = retryIntervalMillis / 5;
+        final long delayMillis = jitterMillis > 0 ? retryIntervalMillis - jitterMillis +
+                                                    ThreadLocalRandom.current().nextLong(jitterMillis * 2)
+                                                  : retryIntervalMillis;
         clientFactory.eventLoopGroup().schedule(
                 () -> checkAndUpdateHealthyServers().thenRun(this::scheduleCheckAndUpdateHealthyServers),
-                retryInterval.toMillis(), TimeUnit.MILLISECONDS);
+                delayMillis, TimeUnit.MILLISECONDS);
     }
 
     private CompletableFuture<Void> checkAndUpdateHealthyServers() {
-        List<ServerConnection> checkedServers = updateServerList();
+        final List<ServerConnection> checkedServers =
+                delegate instanceof DynamicEndpointGroup ? allServers : updateServerList();
+        return check(checkedServers);
+    }
 
+    private CompletableFuture<Void> check(List<ServerConnection> checkedServers) {
         CompletableFuture<List<Boolean>> healthCheckResults = CompletableFutures.successfulAsList(
                 checkedServers.stream()
                               .map(connection -> connection.healthChecker.isHealthy(connection.endpoint()))
                               .collect(toImmutableList()),
                 t -> false);
         return healthCheckResults.handle(voidFunction((result, thrown) -> {
-            ImmutableList.Builder<Endpoint> newHealthyEndpoints = ImmutableList.builder();
             for (int i = 0; i < result.size(); i++) {
-                if (result.get(i)) {
-                    newHealthyEndpoints.add(checkedServers.get(i).endpoint());
-                }
+                checkedServers.get(i).healthy = result.get(i);
             }
-            setEndpoints(newHealthyEndpoints.build());
+            updateHealthyEndpoints();
         }));
     }
 
+    /**
+     * Applies the {@link Endpoint}s added to, removed from or changed in the delegate {@link EndpointGroup}
+     * to the server list, and checks the health of only the added ones.
+     */
+    private synchronized void onDelegateChange(EndpointDiff diff) {
+        if (closed) {
+            return;
+        }
+
+        final List<ServerConnection> oldServers = allServers;
+        final ImmutableList.Builder<ServerConnection> newServersBuilder = ImmutableList.builder();
+        final List<ServerConnection> removedServers = new ArrayList<>();
+        if (diff.removed().isEmpty() && diff.changed().isEmpty()) {
+            newServersBuilder.addAll(oldServers);
+        } else {
+            final Multiset<Endpoint> removed = HashMultiset.create(diff.removed());
+            final Map<Endpoint, Endpoint> changed = new HashMap<>();
+            diff.changed().forEach(e -> changed.put(e, e));
+            for (ServerConnection connection : oldServers) {
+                if (removed.remove(connection.endpoint())) {
+                    removedServers.add(connection);
+                    continue;
+                }
+                final Endpoint changedEndpoint = changed.get(connection.endpoint());
+                if (changedEndpoint != null) {
+                    // Use the new weight.
+                    connection.endpoint = changedEndpoint;
+                }
+                newServersBuilder.add(connection);
+            }
+        }
+
+        final List<ServerConnection> addedServers =
+                diff.added().stream()
+                    .map(endpoint -> new ServerConnection(endpoint, createEndpointHealthChecker(endpoint)))
+                    .collect(toImmutableList());
+        newServersBuilder.addAll(addedServers);
+        allServers = newServersBuilder.build();
+
+        removedServers.forEach(ServerConnection::closeHealthChecker);
+        if (!removedServers.isEmpty() || !diff.changed().isEmpty()) {
+            updateHealthyEndpoints();
+        }
+        if (initialized && !addedServers.isEmpty()) {
+            // Check the new servers now rather than waiting for the next health check.
+            check(addedServers);
+        }
+    }
+
+    /**
+     * Updates the health of the {@link Endpoint}s checked by the specified {@link EndpointHealthChecker}
+     * without waiting for the next scheduled health check. This is used by an {@link EndpointHealthChecker}
+     * which is notified of a health change by the server, e.g. via long polling.
+     */
+    final void updateHealth(EndpointHealthChecker healthChecker, boolean healthy) {
+        final List<ServerConnection> servers = allServers;
+        boolean changed = false;
+        for (ServerConnection connection : servers) {
+            if (connection.healthChecker == healthChecker && connection.healthy != healthy) {
+                connection.healthy = healthy;
+                changed = true;
+            }
+        }
+        if (changed) {
+            updateHealthyEndpoints();
+        }
+    }
+
+    private synchronized void updateHealthyEndpoints() {
+        final ImmutableList.Builder<Endpoint> newHealthyEndpoints = ImmutableList.builder();
+        for (ServerConnection connection : allServers) {
+            if (connection.healthy) {
+                newHealthyEndpoints.add(connection.endpoint());
+            }
+        }
+        setEndpoints(newHealthyEndpoints.build());
+    }
+
     /**
      * Update the servers this health checker client talks to.
      */
-    private List<ServerConnection> updateServerList() {
-        Map<Endpoint, ServerConnection> allServersByEndpoint = allServers
+    private synchronized List<ServerConnection> updateServerList() {
+        final List<ServerConnection> oldServers = allServers;
+        if (closed) {
+            // Do not create new health checkers once closed.
+            return oldServers;
+        }
+
+        Map<Endpoint, ServerConnection> allServersByEndpoint = oldServers
                 .stream()
                 .collect(toImmutableMap(ServerConnection::endpoint,
-                                        Function.identity()));
-        return allServers = delegate
+                                        Function.identity(), (a, b) -> a));
+        final List<ServerConnection> newServers = delegate
                 .endpoints()
                 .stream()
                 .map(endpoint -> {
@@ -122,6 +242,15 @@ public abstract class HealthCheckedEndpointGroup extends DynamicEndpointGroup {
                     return new ServerConnection(endpoint, createEndpointHealthChecker(endpoint));
                 })
                 .collect(toImmutableList());
+        allServers = newServers;
+
+        // Release the health checkers of the removed servers.
+        final Set<ServerConnection> retainedServers = Collections.newSetFromMap(new IdentityHashMap<>());
+        retainedServers.addAll(newServers);
+        oldServers.stream()
+                  .filter(connection -> !retainedServers.contains(connection))
+                  .forEach(ServerConnection::closeHealthChecker);
+        return newServers;
     }
 
     /**
@@ -145,6 +274,18 @@ public abstract class HealthCheckedEndpointGroup extends DynamicEndpointGroup {
         return new HealthCheckedEndpointGroupMetrics(this, idPrefix);
     }
 
+    @Override
+    public void close() {
+        closed = true;
+        if (delegate instanceof DynamicEndpointGroup) {
+            ((DynamicEndpointGroup) delegate).removeDiffListener(delegateListener);
+        }
+        super.close();
+        synchronized (this) {
+            allServers.forEach(ServerConnection::closeHealthChecker);
+        }
+    }
+
     @Override
     public String toString() {
         StringBuilder buf = new StringBuilder();
@@ -163,7 +304,8 @@ public abstract class HealthCheckedEndpointGroup extends DynamicEndpointGroup {
     }
 
     /**
-     * Returns whether an {@link Endpoint} is healthy or not.
+     * Returns whether an {@link Endpoint} is healthy or not. If an {@link EndpointHealthChecker} implements
+     * {@link SafeCloseable}, it is closed when its {@link Endpoint} is removed or the group is closed.
      */
     @FunctionalInterface
     public interface EndpointHealthChecker {
@@ -171,8 +313,9 @@ public abstract class HealthCheckedEndpointGroup extends DynamicEndpointGroup {
     }
 
     static final class ServerConnection {
-        private final Endpoint endpoint;
+        private volatile Endpoint endpoint;
         private final EndpointHealthChecker healthChecker;
+        private volatile boolean healthy;
 
         private ServerConnection(Endpoint endpoint, EndpointHealthChecker healthChecker) {
             this.endpoint = endpoint;
@@ -182,5 +325,11 @@ public abstract class HealthCheckedEndpointGroup extends DynamicEndpointGroup {
         Endpoint endpoint() {
             return endpoint;
         }
+
+        void closeHealthChecker() {
+            if (healthChecker instanceof SafeCloseable) {
+                ((SafeCloseable) healthChecker).close();
+            }
+        }
     }
 }
@@ -51,6 +51,14 @@ class HealthCheckedEndpointGroupMetrics implements MeterBinder {
         registry.gauge(count, idPrefix.tags("state", "unhealthy"), endpointGroup,
                        unused -> endpointGroup.allServers.size() - endpointGroup.endpoints().size());
 
+        // 'sent' counts the health check requests sent for this group, and 'shared' counts the health checks
+        // which reused the request sent for another group.
+        final String healthChecks = idPrefix.name("healthChecks");
+        registry.more().counter(healthChecks, idPrefix.tags("result", "sent"), endpointGroup,
+                                group -> group.sentHealthChecks.sum());
+        registry.more().counter(healthChecks, idPrefix.tags("result", "shared"), endpointGroup,
+                                group -> group.sharedHealthChecks.sum());
+
         final ListenerImpl listener = new ListenerImpl(registry, idPrefix.append("healthy"));
         listener.accept(endpointGroup.endpoints());
         endpointGroup.addListener(listener);
@@ -18,17 +18,27 @@ package com.linecorp.armeria.client.endpoint.healthcheck;
 import static java.util.Objects.requireNonNull;
 
 import java.time.Duration;
-import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import com.linecorp.armeria.client.ClientFactory;
 import com.linecorp.armeria.client.Endpoint;
-import com.linecorp.armeria.client.HttpClient;
 import com.linecorp.armeria.client.endpoint.EndpointGroup;
-import com.linecorp.armeria.common.HttpStatus;
 import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.server.healthcheck.HttpHealthCheckService;
 
 /**
  * HTTP implementation of {@link HealthCheckedEndpointGroup}.
+ *
+ * <p>If {@linkplain HttpHealthCheckedEndpointGroupBuilder#longPollingTimeout(Duration) long polling} is
+ * enabled, a health check request is kept pending until the health of the server changes, so that
+ * an unhealthy server is removed from the group as soon as it starts to stop. This requires a server-side
+ * long polling support such as {@link HttpHealthCheckService}. If a server does not support long polling,
+ * it is checked every retry interval as usual.
+ *
+ * <p>The health check requests are shared by all {@link HttpHealthCheckedEndpointGroup}s in the JVM which
+ * check the same {@link Endpoint} with the same {@link ClientFactory}, {@link SessionProtocol}, path and
+ * long polling timeout. See {@link HealthCheckedEndpointGroup#newMeterBinder(String)} for the metrics which
+ * show how many health checks were shared.
  */
 public final class HttpHealthCheckedEndpointGroup extends HealthCheckedEndpointGroup {
 
@@ -70,6 +80,8 @@ public final class HttpHealthCheckedEndpointGroup extends HealthCheckedEndpointG
 
     private final SessionProtocol protocol;
     private final String healthCheckPath;
+    private final long retryIntervalMillis;
+    private final long longPollingTimeoutSeconds;
 
     /**
      * Creates a new {@link HttpHealthCheckedEndpointGroup} instance.
@@ -78,36 +90,20 @@ public final class HttpHealthCheckedEndpointGroup extends HealthCheckedEndpointG
                                    EndpointGroup delegate,
                                    SessionProtocol protocol,
                                    String healthCheckPath,
-                                   Duration healthCheckRetryInterval) {
+                                   Duration healthCheckRetryInterval,
+                                   Duration longPollingTimeout) {
         super(clientFactory, delegate, healthCheckRetryInterval);
         this.protocol = requireNonNull(protocol, "protocol");
         this.healthCheckPath = requireNonNull(healthCheckPath, "healthCheckPath");
+        retryIntervalMillis = healthCheckRetryInterval.toMillis();
+        // The 'wait' preference is specified in seconds.
+        longPollingTimeoutSeconds = TimeUnit.MILLISECONDS.toSeconds(longPollingTimeout.toMillis() + 999);
         init();
     }
 
     @Override
     protected EndpointHealthChecker createEndpointHealthChecker(Endpoint endpoint) {
-        return new HttpEndpointHealthChecker(clientFactory(), endpoint, protocol, healthCheckPath);
-    }
-
-    private static final class HttpEndpointHealthChecker implements EndpointHealthChecker {
-        private final HttpClient httpClient;
-        private final String healthCheckPath;
-
-        private HttpEndpointHealthChecker(ClientFactory clientFactory,
-                                          Endpoint endpoint,
-                                          SessionProtocol protocol,
-                                          String healthCheckPath) {
-            httpClient = HttpClient.of(clientFactory,
-                                       protocol.uriText() + "://" + endpoint.authority());
-            this.healthCheckPath = healthCheckPath;
-        }
-
-        @Override
-        public CompletableFuture<Boolean> isHealthy(Endpoint endpoint) {
-            return httpClient.get(healthCheckPath)
-                             .aggregate()
-                             .thenApply(message -> HttpStatus.OK.equals(message.status()));
-        }
+        return SharedHttpHealthChecker.subscribe(this, clientFactory(), protocol, endpoint, healthCheckPath,
+                                                 longPollingTimeoutSeconds, retryIntervalMillis);
     }
 }
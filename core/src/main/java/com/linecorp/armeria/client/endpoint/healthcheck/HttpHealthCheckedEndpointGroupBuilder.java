@@ -26,6 +26,7 @@ import com.linecorp.armeria.client.Client;
 import com.linecorp.armeria.client.ClientFactory;
 import com.linecorp.armeria.client.endpoint.EndpointGroup;
 import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.server.healthcheck.HttpHealthCheckService;
 
 /**
  * A builder for creating new {@link HttpHealthCheckedEndpointGroup}s.
@@ -38,6 +39,7 @@ public class HttpHealthCheckedEndpointGroupBuilder {
     private SessionProtocol protocol = SessionProtocol.HTTP;
     private Duration retryInterval = DEFAULT_HEALTHCHECK_RETRY_INTERVAL;
     private ClientFactory clientFactory = ClientFactory.DEFAULT;
+    private Duration longPollingTimeout = Duration.ZERO;
 
     /**
      * Creates a new {@link HttpHealthCheckedEndpointGroupBuilder}. Health check requests for the delegate
@@ -67,6 +69,25 @@ public class HttpHealthCheckedEndpointGroupBuilder {
         return this;
     }
 
+    /**
+     * Sets the maximum amount of time a health check request waits for the health of a server to change.
+     * If greater than zero, the server is asked to respond only when its health changes, using
+     * the {@code "if-none-match"} and {@code "prefer: wait=<seconds>"} headers, so that the health changes
+     * are detected without waiting for the retry interval. A server which does not respond with
+     * a {@code "preference-applied: wait=<seconds>"} header is checked every retry interval as usual.
+     * A {@code "304 Not Modified"} response means that the health has not changed.
+     * {@link Duration#ZERO} disables long polling, which is the default.
+     *
+     * @see HttpHealthCheckService
+     */
+    public HttpHealthCheckedEndpointGroupBuilder longPollingTimeout(Duration longPollingTimeout) {
+        requireNonNull(longPollingTimeout, "longPollingTimeout");
+        checkArgument(!longPollingTimeout.isNegative(),
+                      "longPollingTimeout: %s (expected: >= 0)", longPollingTimeout);
+        this.longPollingTimeout = longPollingTimeout;
+        return this;
+    }
+
     /**
      * Sets the {@link ClientFactory} to use when making health check requests. This should generally be the
      * same as the {@link ClientFactory} used when creating a {@link Client} stub using the
@@ -83,6 +104,6 @@ public class HttpHealthCheckedEndpointGroupBuilder {
      */
     public HttpHealthCheckedEndpointGroup build() {
         return new HttpHealthCheckedEndpointGroup(clientFactory, delegate, protocol, healthCheckPath,
-                                                  retryInterval);
+                                                  retryInterval, longPollingTimeout);
     }
 }
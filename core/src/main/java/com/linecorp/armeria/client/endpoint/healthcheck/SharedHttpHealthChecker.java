@@ -0,0 +1,370 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.endpoint.healthcheck;
+
+import static com.linecorp.armeria.common.util.Functions.voidFunction;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Ascii;
+
+import com.linecorp.armeria.client.ClientFactory;
+import com.linecorp.armeria.client.ClientOption;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.client.endpoint.healthcheck.HealthCheckedEndpointGroup.EndpointHealthChecker;
+import com.linecorp.armeria.common.AggregatedHttpMessage;
+import com.linecorp.armeria.common.Flags;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.util.SafeCloseable;
+
+/**
+ * Probes the health of an {@link Endpoint} on behalf of all {@link HttpHealthCheckedEndpointGroup}s in
+ * the JVM which check the same {@link Endpoint} in the same way, so that adding more groups for the same
+ * hosts does not multiply the number of health check requests.
+ *
+ * <p>Without long polling, a probe sends at most one request at a time and a group gets the result of
+ * the last request if it is younger than half of the retry interval of the group. With long polling,
+ * a probe keeps one request pending and notifies all the groups when the health changes.
+ */
+final class SharedHttpHealthChecker {
+
+    private static final ConcurrentMap<Key, SharedHttpHealthChecker> checkers = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a new {@link EndpointHealthChecker} of the specified {@link HttpHealthCheckedEndpointGroup},
+     * which shares the probe with other groups. The returned {@link EndpointHealthChecker} must be closed
+     * when it is not used anymore.
+     */
+    static Subscription subscribe(HttpHealthCheckedEndpointGroup group, ClientFactory clientFactory,
+                                  SessionProtocol protocol, Endpoint endpoint, String healthCheckPath,
+                                  long longPollingTimeoutSeconds, long retryIntervalMillis) {
+        final Key key = new Key(clientFactory, protocol, endpoint, healthCheckPath,
+                                longPollingTimeoutSeconds);
+        final Subscription[] subscription = new Subscription[1];
+        checkers.compute(key, (unused, checker) -> {
+            if (checker == null) {
+                checker = new SharedHttpHealthChecker(key);
+            }
+            subscription[0] = checker.new Subscription(group, retryIntervalMillis);
+            checker.subscriptions.add(subscription[0]);
+            return checker;
+        });
+        return subscription[0];
+    }
+
+    private final Key key;
+    private final HttpClient httpClient;
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    // Guarded by 'this'.
+    @Nullable
+    private CompletableFuture<Boolean> pendingHealthFuture;
+    private long lastCheckNanos;
+    private boolean longPollingStarted;
+    @Nullable
+    private HttpResponse pendingLongPollingResponse;
+
+    private volatile boolean healthy;
+    private volatile boolean closed;
+    @Nullable
+    private volatile String etag;
+
+    private SharedHttpHealthChecker(Key key) {
+        this.key = key;
+
+        // Give the server the whole long polling timeout in addition to the usual response timeout.
+        long responseTimeoutMillis = Flags.defaultResponseTimeoutMillis();
+        if (responseTimeoutMillis > 0) {
+            responseTimeoutMillis += TimeUnit.SECONDS.toMillis(key.longPollingTimeoutSeconds);
+        }
+        httpClient = HttpClient.of(
+                key.clientFactory, key.protocol.uriText() + "://" + key.endpoint.authority(),
+                ClientOption.DEFAULT_RESPONSE_TIMEOUT_MILLIS.newValue(responseTimeoutMillis));
+    }
+
+    private CompletableFuture<Boolean> isHealthy(Subscription subscription) {
+        if (key.longPollingTimeoutSeconds > 0) {
+            return isHealthyLongPolling(subscription);
+        }
+
+        final CompletableFuture<Boolean> future;
+        synchronized (this) {
+            if (pendingHealthFuture != null) {
+                // Another group sent a request already.
+                subscription.group.sharedHealthChecks.increment();
+                return pendingHealthFuture;
+            }
+
+            if (lastCheckNanos != 0 &&
+                System.nanoTime() - lastCheckNanos < TimeUnit.MILLISECONDS.toNanos(
+                        subscription.retryIntervalMillis / 2)) {
+                // Another group got a result recently.
+                subscription.group.sharedHealthChecks.increment();
+                return CompletableFuture.completedFuture(healthy);
+            }
+
+            subscription.group.sentHealthChecks.increment();
+            pendingHealthFuture = future = new CompletableFuture<>();
+        }
+
+        httpClient.get(key.healthCheckPath).aggregate().handle(voidFunction((res, cause) -> {
+            final boolean healthy = cause == null && HttpStatus.OK.equals(res.status());
+            synchronized (this) {
+                this.healthy = healthy;
+                lastCheckNanos = System.nanoTime();
+                pendingHealthFuture = null;
+            }
+            if (cause == null) {
+                future.complete(healthy);
+            } else {
+                future.completeExceptionally(cause);
+            }
+        }));
+        return future;
+    }
+
+    private CompletableFuture<Boolean> isHealthyLongPolling(Subscription subscription) {
+        synchronized (this) {
+            if (!longPollingStarted) {
+                longPollingStarted = true;
+                subscription.group.sentHealthChecks.increment();
+                pendingHealthFuture = new CompletableFuture<>();
+                sendLongPollingRequest();
+                return pendingHealthFuture;
+            }
+
+            subscription.group.sharedHealthChecks.increment();
+            if (pendingHealthFuture != null) {
+                return pendingHealthFuture;
+            }
+        }
+        return CompletableFuture.completedFuture(healthy);
+    }
+
+    private void sendLongPollingRequest() {
+        if (closed) {
+            return;
+        }
+
+        final HttpHeaders headers = HttpHeaders.of(HttpMethod.GET, key.healthCheckPath)
+                                               .set(HttpHeaderNames.PREFER,
+                                                    "wait=" + key.longPollingTimeoutSeconds);
+        final String etag = this.etag;
+        if (etag != null) {
+            headers.set(HttpHeaderNames.IF_NONE_MATCH, etag);
+        }
+
+        final long startNanos = System.nanoTime();
+        final HttpResponse res;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            pendingLongPollingResponse = res = httpClient.execute(headers);
+        }
+        res.aggregate().handle(voidFunction(
+                (aggregated, cause) -> onLongPollingResponse(aggregated, cause, etag, startNanos)));
+    }
+
+    /**
+     * Stops probing after the last {@link Subscription} is closed, aborting the pending long polling request
+     * rather than waiting for the server to respond.
+     */
+    private void close() {
+        final HttpResponse res;
+        synchronized (this) {
+            closed = true;
+            res = pendingLongPollingResponse;
+            pendingLongPollingResponse = null;
+        }
+        if (res != null) {
+            res.abort();
+        }
+    }
+
+    private void onLongPollingResponse(@Nullable AggregatedHttpMessage res, @Nullable Throwable cause,
+                                       @Nullable String sentEtag, long startNanos) {
+        final boolean healthy;
+        final String etag;
+        final boolean longPollingApplied;
+        if (cause == null) {
+            final HttpHeaders headers = res.headers();
+            if (HttpStatus.NOT_MODIFIED.equals(res.status())) {
+                // The health did not change while the server was waiting.
+                healthy = this.healthy;
+                final String newEtag = headers.get(HttpHeaderNames.ETAG);
+                etag = newEtag != null ? newEtag : sentEtag;
+            } else {
+                healthy = HttpStatus.OK.equals(res.status());
+                etag = headers.get(HttpHeaderNames.ETAG);
+            }
+            longPollingApplied = isWaitApplied(headers.get(HttpHeaderNames.PREFERENCE_APPLIED));
+        } else {
+            healthy = false;
+            etag = null;
+            longPollingApplied = false;
+        }
+        this.etag = etag;
+
+        final CompletableFuture<Boolean> initialHealthFuture;
+        synchronized (this) {
+            this.healthy = healthy;
+            initialHealthFuture = pendingHealthFuture;
+            pendingHealthFuture = null;
+            pendingLongPollingResponse = null;
+        }
+
+        if (initialHealthFuture != null) {
+            initialHealthFuture.complete(healthy);
+        } else {
+            subscriptions.forEach(s -> s.group.updateHealth(s, healthy));
+        }
+
+        if (closed) {
+            return;
+        }
+
+        final long retryIntervalMillis = subscriptions.stream()
+                                                      .mapToLong(s -> s.retryIntervalMillis)
+                                                      .min().orElse(0);
+        final long delayMillis;
+        if (!longPollingApplied || etag == null) {
+            // The server did not wait for the health to change; poll it periodically.
+            delayMillis = retryIntervalMillis;
+        } else if (!etag.equals(sentEtag)) {
+            // The health changed or was unknown; wait for the next change immediately.
+            delayMillis = 0;
+        } else {
+            // Do not send more than one request per retry interval if the server responded early
+            // without any change in the health, so that a misbehaving server cannot cause a busy loop.
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            delayMillis = Math.max(0, retryIntervalMillis - elapsedMillis);
+        }
+
+        if (delayMillis == 0) {
+            sendLongPollingRequest();
+        } else {
+            key.clientFactory.eventLoopGroup().schedule(this::sendLongPollingRequest,
+                                                        delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Returns whether the specified {@code "preference-applied"} header value tells that the server
+     * honored the {@code "prefer: wait=<seconds>"} header.
+     */
+    private static boolean isWaitApplied(@Nullable String preferenceApplied) {
+        if (preferenceApplied == null) {
+            return false;
+        }
+        for (String preference : preferenceApplied.split("[,;]")) {
+            final String trimmed = preference.trim();
+            if (trimmed.length() > 5 && Ascii.toLowerCase(trimmed.substring(0, 5)).equals("wait=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * An {@link EndpointHealthChecker} of an {@link HttpHealthCheckedEndpointGroup} which uses
+     * a {@link SharedHttpHealthChecker}.
+     */
+    final class Subscription implements EndpointHealthChecker, SafeCloseable {
+        final HttpHealthCheckedEndpointGroup group;
+        final long retryIntervalMillis;
+
+        Subscription(HttpHealthCheckedEndpointGroup group, long retryIntervalMillis) {
+            this.group = group;
+            this.retryIntervalMillis = retryIntervalMillis;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> isHealthy(Endpoint endpoint) {
+            return SharedHttpHealthChecker.this.isHealthy(this);
+        }
+
+        @Override
+        public void close() {
+            final boolean[] lastSubscription = new boolean[1];
+            checkers.computeIfPresent(key, (unused, checker) -> {
+                checker.subscriptions.remove(this);
+                if (!checker.subscriptions.isEmpty()) {
+                    return checker;
+                }
+                lastSubscription[0] = true;
+                return null;
+            });
+            if (lastSubscription[0]) {
+                // The last subscriber is gone; stop probing.
+                SharedHttpHealthChecker.this.close();
+            }
+        }
+    }
+
+    private static final class Key {
+        final ClientFactory clientFactory;
+        final SessionProtocol protocol;
+        final Endpoint endpoint;
+        final String healthCheckPath;
+        final long longPollingTimeoutSeconds;
+
+        Key(ClientFactory clientFactory, SessionProtocol protocol, Endpoint endpoint,
+            String healthCheckPath, long longPollingTimeoutSeconds) {
+            this.clientFactory = clientFactory;
+            this.protocol = protocol;
+            this.endpoint = endpoint;
+            this.healthCheckPath = healthCheckPath;
+            this.longPollingTimeoutSeconds = longPollingTimeoutSeconds;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(clientFactory, protocol, endpoint, healthCheckPath, longPollingTimeoutSeconds);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+
+            final Key that = (Key) obj;
+            return clientFactory == that.clientFactory &&
+                   protocol == that.protocol &&
+                   endpoint.equals(that.endpoint) &&
+                   healthCheckPath.equals(that.healthCheckPath) &&
+                   longPollingTimeoutSeconds == that.longPollingTimeoutSeconds;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.mirror;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.MoreObjects;
+
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.metric.MeterIdPrefix;
+import com.linecorp.armeria.common.stream.NoopSubscriber;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Mirrors a sample of {@link HttpRequest}s to a shadow {@link HttpClient}. The primary request is never
+ * delayed or failed by mirroring; the shadow copy of a request is dropped instead when there are too many
+ * shadow requests in progress or when the content retained for the shadow copies exceeds
+ * {@link HttpTrafficMirrorBuilder#maxRetainedBytes(long)}. The responses from the shadow destination are
+ * discarded. Use {@link HttpTrafficMirrorBuilder} to create a new instance:
+ * <pre>{@code
+ * HttpTrafficMirror mirror =
+ *         new HttpTrafficMirrorBuilder(HttpClient.of("http://group:shadow/"))
+ *                 .samplingRate(0.1)
+ *                 .maxConcurrency(64)
+ *                 .maxRetainedBytes(8 * 1024 * 1024)
+ *                 .meterRegistry(registry)
+ *                 .build();
+ *
+ * serverBuilder.decorator(MirroringHttpService.newDecorator(mirror));
+ * }</pre>
+ *
+ * @see MirroringHttpClient
+ */
+public final class HttpTrafficMirror {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpTrafficMirror.class);
+
+    private final HttpClient shadowClient;
+    private final String name;
+    private final double samplingRate;
+    private final int maxConcurrency;
+    private final long maxRetainedBytes;
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private final HttpTrafficMirrorMetrics metrics;
+
+    HttpTrafficMirror(HttpClient shadowClient, String name, double samplingRate, int maxConcurrency,
+                      long maxRetainedBytes, MeterRegistry meterRegistry, MeterIdPrefix meterIdPrefix) {
+        this.shadowClient = shadowClient;
+        this.name = name;
+        this.samplingRate = samplingRate;
+        this.maxConcurrency = maxConcurrency;
+        this.maxRetainedBytes = maxRetainedBytes;
+        metrics = new HttpTrafficMirrorMetrics(meterRegistry, meterIdPrefix.withTags("target", name), this);
+    }
+
+    /**
+     * Returns the name of the shadow destination, which is used as the {@code target} tag of the metrics.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the number of the shadow requests in progress.
+     */
+    public int activeRequests() {
+        return activeRequests.get();
+    }
+
+    /**
+     * Returns the number of bytes currently retained for the shadow copies of requests.
+     */
+    public long retainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+     * Sends a copy of the specified {@link HttpRequest} to the shadow destination if it is sampled and
+     * there is room for it, and returns the {@link HttpRequest} which must be sent to the primary
+     * destination instead of the specified one.
+     */
+    public HttpRequest mirror(HttpRequest req) {
+        requireNonNull(req, "req");
+        if (samplingRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= samplingRate) {
+            return req;
+        }
+
+        if (retainedBytes.get() >= maxRetainedBytes) {
+            metrics.onDroppedByMemory();
+            return req;
+        }
+
+        for (;;) {
+            final int active = activeRequests.get();
+            if (active >= maxConcurrency) {
+                metrics.onDroppedByConcurrency();
+                return req;
+            }
+            if (activeRequests.compareAndSet(active, active + 1)) {
+                break;
+            }
+        }
+
+        final HttpHeaders headers = HttpHeaders.copyOf(req.headers());
+        // Let the shadow client fill the authority of the shadow destination.
+        headers.remove(HttpHeaderNames.AUTHORITY);
+        headers.remove(HttpHeaderNames.HOST);
+        final ShadowHttpRequest shadowReq = new ShadowHttpRequest(this, headers);
+
+        final HttpResponse shadowRes;
+        try {
+            shadowRes = shadowClient.execute(shadowReq);
+        } catch (Throwable cause) {
+            logger.debug("Failed to send a shadow request to {}:", name, cause);
+            shadowReq.abort();
+            activeRequests.decrementAndGet();
+            metrics.onFailure();
+            return req;
+        }
+
+        metrics.onMirrored();
+        shadowRes.completionFuture().handle((unused, cause) -> {
+            // Discard the content the shadow destination did not consume, if any.
+            shadowReq.abort();
+            activeRequests.decrementAndGet();
+            if (cause == null) {
+                metrics.onSuccess();
+            } else {
+                metrics.onFailure();
+            }
+            return null;
+        });
+        shadowRes.subscribe(NoopSubscriber.get());
+
+        return new TeeHttpRequest(this, req, shadowReq);
+    }
+
+    /**
+     * Reserves the specified number of bytes for a shadow copy.
+     *
+     * @return {@code false} if the reservation exceeds {@link #maxRetainedBytes}
+     */
+    boolean tryReserve(int bytes) {
+        for (;;) {
+            final long current = retainedBytes.get();
+            final long next = current + bytes;
+            if (next > maxRetainedBytes) {
+                metrics.onDroppedByMemory();
+                return false;
+            }
+            if (retainedBytes.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases the bytes reserved by {@link #tryReserve(int)}.
+     */
+    void release(int bytes) {
+        retainedBytes.addAndGet(-bytes);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("name", name)
+                          .add("samplingRate", samplingRate)
+                          .add("maxConcurrency", maxConcurrency)
+                          .add("maxRetainedBytes", maxRetainedBytes)
+                          .add("activeRequests", activeRequests)
+                          .add("retainedBytes", retainedBytes)
+                          .toString();
+    }
+}
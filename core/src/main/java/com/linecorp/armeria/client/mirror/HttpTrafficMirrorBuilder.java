@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.mirror;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import com.google.common.base.MoreObjects;
+
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.common.metric.MeterIdPrefix;
+import com.linecorp.armeria.common.metric.NoopMeterRegistry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Builds a new {@link HttpTrafficMirror}.
+ */
+public final class HttpTrafficMirrorBuilder {
+
+    private static final double DEFAULT_SAMPLING_RATE = 1.0;
+    private static final int DEFAULT_MAX_CONCURRENCY = 128;
+    private static final long DEFAULT_MAX_RETAINED_BYTES = 16 * 1024 * 1024;
+    private static final MeterIdPrefix DEFAULT_METER_ID_PREFIX = new MeterIdPrefix("armeria.client.mirror");
+
+    private final HttpClient shadowClient;
+    private String name;
+    private double samplingRate = DEFAULT_SAMPLING_RATE;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private long maxRetainedBytes = DEFAULT_MAX_RETAINED_BYTES;
+    private MeterRegistry meterRegistry = NoopMeterRegistry.get();
+    private MeterIdPrefix meterIdPrefix = DEFAULT_METER_ID_PREFIX;
+
+    /**
+     * Creates a new builder which mirrors the traffic to the specified {@link HttpClient}. Create the
+     * {@link HttpClient} with a {@code group:} URI, e.g. {@code "http://group:shadow/"}, to mirror the
+     * traffic to an {@link com.linecorp.armeria.client.endpoint.EndpointGroup}.
+     */
+    public HttpTrafficMirrorBuilder(HttpClient shadowClient) {
+        this.shadowClient = requireNonNull(shadowClient, "shadowClient");
+        name = shadowClient.uri().getAuthority();
+    }
+
+    /**
+     * Sets the name of the shadow destination, which is used as the {@code target} tag of the metrics.
+     * If unspecified, the authority of {@link HttpClient#uri()} is used.
+     */
+    public HttpTrafficMirrorBuilder name(String name) {
+        requireNonNull(name, "name");
+        checkArgument(!name.isEmpty(), "name is empty.");
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Sets the ratio of the requests to mirror, between {@code 0.0} and {@code 1.0}.
+     * The default is {@value #DEFAULT_SAMPLING_RATE}.
+     */
+    public HttpTrafficMirrorBuilder samplingRate(double samplingRate) {
+        checkArgument(samplingRate >= 0.0 && samplingRate <= 1.0,
+                      "samplingRate: %s (expected: 0.0 <= samplingRate <= 1.0)", samplingRate);
+        this.samplingRate = samplingRate;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of the shadow requests in progress. A request is not mirrored while
+     * the number of the shadow requests in progress reaches this value.
+     * The default is {@value #DEFAULT_MAX_CONCURRENCY}.
+     */
+    public HttpTrafficMirrorBuilder maxConcurrency(int maxConcurrency) {
+        checkArgument(maxConcurrency > 0, "maxConcurrency: %s (expected: > 0)", maxConcurrency);
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of bytes retained for the shadow copies of all requests in progress.
+     * The shadow copy of a request is aborted when its content does not fit into this limit, which may
+     * happen when the shadow destination consumes the content more slowly than the primary destination.
+     * The default is {@value #DEFAULT_MAX_RETAINED_BYTES}.
+     */
+    public HttpTrafficMirrorBuilder maxRetainedBytes(long maxRetainedBytes) {
+        checkArgument(maxRetainedBytes > 0, "maxRetainedBytes: %s (expected: > 0)", maxRetainedBytes);
+        this.maxRetainedBytes = maxRetainedBytes;
+        return this;
+    }
+
+    /**
+     * Sets the {@link MeterRegistry} where the metrics of the {@link HttpTrafficMirror} are recorded.
+     */
+    public HttpTrafficMirrorBuilder meterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = requireNonNull(meterRegistry, "meterRegistry");
+        return this;
+    }
+
+    /**
+     * Sets the {@link MeterIdPrefix} of the metrics of the {@link HttpTrafficMirror}.
+     * The default is {@code "armeria.client.mirror"}.
+     */
+    public HttpTrafficMirrorBuilder meterIdPrefix(MeterIdPrefix meterIdPrefix) {
+        this.meterIdPrefix = requireNonNull(meterIdPrefix, "meterIdPrefix");
+        return this;
+    }
+
+    /**
+     * Returns a newly-created {@link HttpTrafficMirror} based on the properties of this builder.
+     */
+    public HttpTrafficMirror build() {
+        return new HttpTrafficMirror(shadowClient, name, samplingRate, maxConcurrency, maxRetainedBytes,
+                                     meterRegistry, meterIdPrefix);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("shadowClient", shadowClient)
+                          .add("name", name)
+                          .add("samplingRate", samplingRate)
+                          .add("maxConcurrency", maxConcurrency)
+                          .add("maxRetainedBytes", maxRetainedBytes)
+                          .add("meterIdPrefix", meterIdPrefix)
+                          .toString();
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.mirror;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+
+import com.linecorp.armeria.common.metric.MeterIdPrefix;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Provides {@link HttpTrafficMirror} stats.
+ */
+final class HttpTrafficMirrorMetrics {
+
+    /**
+     * The live {@link HttpTrafficMirror}s which share the same {@link MeterRegistry} and {@link MeterIdPrefix}.
+     * The gauges are registered only once per pair and report the sum of all mirrors in the pair, because
+     * a {@link MeterRegistry} keeps the first gauge registered with the same ID and ignores the others.
+     */
+    private static final ConcurrentMap<MeterRegistry, ConcurrentMap<MeterIdPrefix, Set<HttpTrafficMirror>>>
+            mirrors = new MapMaker().weakKeys().makeMap();
+
+    private final Counter mirrored;
+    private final Counter droppedByConcurrency;
+    private final Counter droppedByMemory;
+    private final Counter success;
+    private final Counter failure;
+
+    HttpTrafficMirrorMetrics(MeterRegistry parent, MeterIdPrefix idPrefix, HttpTrafficMirror mirror) {
+        mirrored = parent.counter(idPrefix.name("mirroredRequests"), idPrefix.tags());
+
+        final String dropped = idPrefix.name("droppedRequests");
+        droppedByConcurrency = parent.counter(dropped, idPrefix.tags("reason", "concurrency"));
+        droppedByMemory = parent.counter(dropped, idPrefix.tags("reason", "memory"));
+
+        final String responses = idPrefix.name("responses");
+        success = parent.counter(responses, idPrefix.tags("result", "success"));
+        failure = parent.counter(responses, idPrefix.tags("result", "failure"));
+
+        mirrors.computeIfAbsent(parent, unused -> new ConcurrentHashMap<>())
+               .computeIfAbsent(idPrefix, unused -> {
+                   final Set<HttpTrafficMirror> set =
+                           Collections.newSetFromMap(new MapMaker().weakKeys().makeMap());
+                   parent.gauge(idPrefix.name("activeRequests"), idPrefix.tags(), set,
+                                s -> s.stream().mapToInt(HttpTrafficMirror::activeRequests).sum());
+                   parent.gauge(idPrefix.name("retainedBytes"), idPrefix.tags(), set,
+                                s -> s.stream().mapToLong(HttpTrafficMirror::retainedBytes).sum());
+                   return set;
+               }).add(mirror);
+    }
+
+    void onMirrored() {
+        mirrored.increment();
+    }
+
+    void onDroppedByConcurrency() {
+        droppedByConcurrency.increment();
+    }
+
+    void onDroppedByMemory() {
+        droppedByMemory.increment();
+    }
+
+    void onSuccess() {
+        success.increment();
+    }
+
+    void onFailure() {
+        failure.increment();
+    }
+}
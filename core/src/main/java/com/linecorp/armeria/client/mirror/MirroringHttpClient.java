@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.mirror;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.Function;
+
+import com.linecorp.armeria.client.Client;
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.SimpleDecoratingClient;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+
+/**
+ * Decorates an HTTP {@link Client} to mirror a sample of its requests using an {@link HttpTrafficMirror}.
+ */
+public final class MirroringHttpClient extends SimpleDecoratingClient<HttpRequest, HttpResponse> {
+
+    /**
+     * Returns a new HTTP {@link Client} decorator that mirrors the requests using the specified
+     * {@link HttpTrafficMirror}.
+     */
+    public static Function<Client<HttpRequest, HttpResponse>, MirroringHttpClient>
+    newDecorator(HttpTrafficMirror mirror) {
+        requireNonNull(mirror, "mirror");
+        return delegate -> new MirroringHttpClient(delegate, mirror);
+    }
+
+    private final HttpTrafficMirror mirror;
+
+    private MirroringHttpClient(Client<HttpRequest, HttpResponse> delegate, HttpTrafficMirror mirror) {
+        super(delegate);
+        this.mirror = mirror;
+    }
+
+    @Override
+    public HttpResponse execute(ClientRequestContext ctx, HttpRequest req) throws Exception {
+        return delegate().execute(ctx, mirror.mirror(req));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.mirror;
+
+import com.google.common.base.MoreObjects;
+
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpObject;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.stream.DefaultStreamMessage;
+
+/**
+ * The shadow copy of an {@link HttpRequest}, which gives back the bytes reserved from its
+ * {@link HttpTrafficMirror} as its content is consumed or discarded.
+ */
+final class ShadowHttpRequest extends DefaultStreamMessage<HttpObject> implements HttpRequest {
+
+    private final HttpTrafficMirror mirror;
+    private final HttpHeaders headers;
+
+    ShadowHttpRequest(HttpTrafficMirror mirror, HttpHeaders headers) {
+        this.mirror = mirror;
+        this.headers = headers;
+    }
+
+    @Override
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    @Override
+    protected void onRemoval(HttpObject obj) {
+        if (obj instanceof HttpData) {
+            mirror.release(((HttpData) obj).length());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .addValue(headers()).toString();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.mirror;
+
+import javax.annotation.Nullable;
+
+import org.reactivestreams.Subscriber;
+
+import com.google.common.base.MoreObjects;
+
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpObject;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.stream.FilteredStreamMessage;
+
+import io.netty.buffer.ByteBufHolder;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * An {@link HttpRequest} which publishes the objects of the primary {@link HttpRequest} as they are,
+ * while writing their copies into a {@link ShadowHttpRequest}. The shadow copy is given up as soon as
+ * it cannot keep up, so that the primary {@link HttpRequest} is never held back by the shadow destination.
+ */
+final class TeeHttpRequest extends FilteredStreamMessage<HttpObject, HttpObject> implements HttpRequest {
+
+    private final HttpTrafficMirror mirror;
+    private final HttpHeaders headers;
+    @Nullable
+    private ShadowHttpRequest shadowReq;
+
+    TeeHttpRequest(HttpTrafficMirror mirror, HttpRequest req, ShadowHttpRequest shadowReq) {
+        super(req, true);
+        this.mirror = mirror;
+        headers = req.headers();
+        this.shadowReq = shadowReq;
+
+        // Give up the shadow copy if the primary request is aborted or never consumed. Do nothing if
+        // the shadow copy has been closed already because aborting it would discard its pending content.
+        req.completionFuture().whenComplete((unused, cause) -> {
+            if (cause != null && shadowReq.isOpen()) {
+                shadowReq.abort();
+            }
+        });
+    }
+
+    @Override
+    public HttpHeaders headers() {
+        return headers;
+    }
+
+    @Override
+    protected HttpObject filter(HttpObject obj) {
+        final ShadowHttpRequest shadowReq = this.shadowReq;
+        if (shadowReq == null) {
+            return obj;
+        }
+
+        if (obj instanceof HttpData) {
+            final HttpData data = (HttpData) obj;
+            final int length = data.length();
+            if (!mirror.tryReserve(length)) {
+                giveUp(shadowReq);
+                return obj;
+            }
+
+            // A pooled buffer belongs to the primary request, so the shadow copy gets its own copy.
+            final HttpData copy = data instanceof ByteBufHolder ? HttpData.of(ByteBufUtil.getBytes(
+                    ((ByteBufHolder) data).content())) : data;
+            if (!shadowReq.tryWrite(copy)) {
+                mirror.release(length);
+                this.shadowReq = null;
+            }
+        } else if (obj instanceof HttpHeaders) {
+            if (!shadowReq.tryWrite(HttpHeaders.copyOf((HttpHeaders) obj))) {
+                this.shadowReq = null;
+            }
+        }
+        return obj;
+    }
+
+    @Override
+    protected void beforeComplete(Subscriber<? super HttpObject> subscriber) {
+        final ShadowHttpRequest shadowReq = this.shadowReq;
+        if (shadowReq != null) {
+            this.shadowReq = null;
+            shadowReq.close();
+        }
+    }
+
+    @Override
+    protected Throwable beforeError(Subscriber<? super HttpObject> subscriber, Throwable cause) {
+        final ShadowHttpRequest shadowReq = this.shadowReq;
+        if (shadowReq != null) {
+            giveUp(shadowReq);
+        }
+        return cause;
+    }
+
+    private void giveUp(ShadowHttpRequest shadowReq) {
+        this.shadowReq = null;
+        shadowReq.abort();
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .addValue(headers()).toString();
+    }
+}
@@ -24,8 +24,11 @@ import javax.annotation.Nullable;
 
 import com.google.common.base.MoreObjects;
 
+import com.linecorp.armeria.client.endpoint.EndpointGroup;
 import com.linecorp.armeria.common.SessionProtocol;
 
+import io.netty.handler.ssl.SslContext;
+
 /**
  * The default key of {@link KeyedChannelPool}. It consists of:
  * <ul>
@@ -33,6 +36,7 @@ import com.linecorp.armeria.common.SessionProtocol;
  *   <li>the server's IP address, if resolved</li>
  *   <li>the server's port number</li>
  *   <li>the server's {@link SessionProtocol}</li>
+ *   <li>the name of the {@link EndpointGroup} which has its own {@link SslContext}, if specified</li>
  * </ul>
  */
 public final class PoolKey {
@@ -42,16 +46,30 @@ public final class PoolKey {
     private final String ipAddr;
     private final int port;
     private final SessionProtocol sessionProtocol;
+    @Nullable
+    private final String endpointGroupName;
 
     /**
      * Creates a new key with the specified {@code host}, {@code ipAddr}, {@code port} and
      * {@code sessionProtocol}.
      */
     public PoolKey(String host, @Nullable String ipAddr, int port, SessionProtocol sessionProtocol) {
+        this(host, ipAddr, port, sessionProtocol, null);
+    }
+
+    /**
+     * Creates a new key with the specified {@code host}, {@code ipAddr}, {@code port},
+     * {@code sessionProtocol} and {@code endpointGroupName}. The connections of the keys with different
+     * {@code endpointGroupName}s are never shared, so that each {@link EndpointGroup} can use its own
+     * {@link SslContext}.
+     */
+    public PoolKey(String host, @Nullable String ipAddr, int port, SessionProtocol sessionProtocol,
+                   @Nullable String endpointGroupName) {
         this.host = requireNonNull(host, "host");
         this.ipAddr = ipAddr;
         this.port = port;
         this.sessionProtocol = requireNonNull(sessionProtocol, "sessionProtocol");
+        this.endpointGroupName = endpointGroupName;
     }
 
     /**
@@ -85,6 +103,18 @@ public final class PoolKey {
         return sessionProtocol;
     }
 
+    /**
+     * Returns the name of the {@link EndpointGroup} whose own {@link SslContext} is used for the connections
+     * associated with this key.
+     *
+     * @return the name of the {@link EndpointGroup}, or {@code null} if the default {@link SslContext}
+     *         is used.
+     */
+    @Nullable
+    public String endpointGroupName() {
+        return endpointGroupName;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -97,13 +127,14 @@ public final class PoolKey {
 
         final PoolKey that = (PoolKey) o;
         return host.equals(that.host) && Objects.equals(ipAddr, that.ipAddr) &&
-               port == that.port && sessionProtocol == that.sessionProtocol;
+               port == that.port && sessionProtocol == that.sessionProtocol &&
+               Objects.equals(endpointGroupName, that.endpointGroupName);
     }
 
     @Override
     public int hashCode() {
-        return ((host.hashCode() * 31 + Objects.hashCode(ipAddr)) * 31 + port) * 31 +
-               sessionProtocol.hashCode();
+        return (((host.hashCode() * 31 + Objects.hashCode(ipAddr)) * 31 + port) * 31 +
+                sessionProtocol.hashCode()) * 31 + Objects.hashCode(endpointGroupName);
     }
 
     @Override
@@ -113,6 +144,7 @@ public final class PoolKey {
                           .add("host", host)
                           .add("ipAddr", ipAddr)
                           .add("port", port)
+                          .add("endpointGroupName", endpointGroupName)
                           .toString();
     }
 }
@@ -58,6 +58,8 @@ public final class RetryingHttpClient extends RetryingClient<HttpRequest, HttpRe
 
     private final int contentPreviewLength;
 
+    private final long maxInMemoryRequestLength;
+
     /**
      * Creates a new {@link Client} decorator that handles failures of an invocation and retries HTTP requests.
      *
@@ -102,19 +104,21 @@ public final class RetryingHttpClient extends RetryingClient<HttpRequest, HttpRe
     RetryingHttpClient(Client<HttpRequest, HttpResponse> delegate,
                        RetryStrategy<HttpRequest, HttpResponse> strategy, int totalMaxAttempts,
                        long responseTimeoutMillisForEachAttempt, boolean useRetryAfter,
-                       int contentPreviewLength) {
+                       int contentPreviewLength, long maxInMemoryRequestLength) {
         super(delegate, strategy, totalMaxAttempts, responseTimeoutMillisForEachAttempt);
         this.useRetryAfter = useRetryAfter;
         checkArgument(contentPreviewLength >= 0,
                       "contentPreviewLength: %s (expected: >= 0)", contentPreviewLength);
         this.contentPreviewLength = contentPreviewLength;
+        this.maxInMemoryRequestLength = maxInMemoryRequestLength;
     }
 
     @Override
     protected HttpResponse doExecute(ClientRequestContext ctx, HttpRequest req) throws Exception {
         final CompletableFuture<HttpResponse> responseFuture = new CompletableFuture<>();
         final HttpResponse res = HttpResponse.from(responseFuture);
-        final HttpRequestDuplicator reqDuplicator = new HttpRequestDuplicator(req, 0, ctx.eventLoop());
+        final HttpRequestDuplicator reqDuplicator =
+                new HttpRequestDuplicator(req, 0, maxInMemoryRequestLength, ctx.eventLoop());
         doExecute0(ctx, reqDuplicator, responseFuture);
         return res;
     }
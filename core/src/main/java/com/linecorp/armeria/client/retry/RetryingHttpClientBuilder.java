@@ -36,6 +36,8 @@ public class RetryingHttpClientBuilder extends RetryingClientBuilder<
 
     private int contentPreviewLength = DEFAULT_CONTENT_PREVIEW_LENGTH;
 
+    private long maxInMemoryRequestLength;
+
     /**
      * Creates a new builder with the specified retry strategy.
      */
@@ -73,13 +75,29 @@ public class RetryingHttpClientBuilder extends RetryingClientBuilder<
         return self();
     }
 
+    /**
+     * Sets the maximum length of the request content which is retained in memory for retries. The request
+     * content beyond this limit is spilled to a temporary memory-mapped file until the retrying completes,
+     * so that a large request does not occupy the direct memory.
+     * @param maxInMemoryRequestLength the maximum length of the request content retained in memory.
+     *                                 {@code 0} disables the limit, which is the default
+     * @return {@link RetryingHttpClientBuilder} to support method chaining
+     */
+    public RetryingHttpClientBuilder maxInMemoryRequestLength(long maxInMemoryRequestLength) {
+        checkArgument(maxInMemoryRequestLength >= 0,
+                      "maxInMemoryRequestLength: %s (expected: >= 0)", maxInMemoryRequestLength);
+        this.maxInMemoryRequestLength = maxInMemoryRequestLength;
+        return self();
+    }
+
     /**
      * Returns a newly-created {@link RetryingHttpClient} based on the properties of this builder.
      */
     @Override
     public RetryingHttpClient build(Client<HttpRequest, HttpResponse> delegate) {
         return new RetryingHttpClient(delegate, retryStrategy, maxTotalAttempts,
-                                      responseTimeoutMillisForEachAttempt, useRetryAfter, contentPreviewLength);
+                                      responseTimeoutMillisForEachAttempt, useRetryAfter, contentPreviewLength,
+                                      maxInMemoryRequestLength);
     }
 
     /**
@@ -90,11 +108,12 @@ public class RetryingHttpClientBuilder extends RetryingClientBuilder<
     public Function<Client<HttpRequest, HttpResponse>, RetryingHttpClient> newDecorator() {
         return delegate -> new RetryingHttpClient(
                 delegate, retryStrategy, maxTotalAttempts, responseTimeoutMillisForEachAttempt,
-                useRetryAfter, contentPreviewLength);
+                useRetryAfter, contentPreviewLength, maxInMemoryRequestLength);
     }
 
     @Override
     public String toString() {
-        return toStringHelper().add("useRetryAfter", useRetryAfter).toString();
+        return toStringHelper().add("useRetryAfter", useRetryAfter)
+                               .add("maxInMemoryRequestLength", maxInMemoryRequestLength).toString();
     }
 }
@@ -26,6 +26,8 @@ import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
+import javax.annotation.Nullable;
+
 import com.linecorp.armeria.common.util.Exceptions;
 import com.linecorp.armeria.common.util.SafeCloseable;
 
@@ -44,11 +46,21 @@ public abstract class AbstractRequestContext implements RequestContext {
     private static final CancellationException CANCELLATION_EXCEPTION =
             Exceptions.clearTrace(new CancellationException());
 
+    private static final SafeCloseable NOOP = () -> { /* no-op */ };
+
     private boolean timedOut;
+    @Nullable
+    private EventLoop contextAwareEventLoop;
 
     @Override
     public final EventLoop contextAwareEventLoop() {
-        return RequestContext.super.contextAwareEventLoop();
+        // Cache the wrapper because this method is often called for every callback.
+        // A race is harmless because the wrappers made by different threads are equivalent.
+        final EventLoop contextAwareEventLoop = this.contextAwareEventLoop;
+        if (contextAwareEventLoop != null) {
+            return contextAwareEventLoop;
+        }
+        return this.contextAwareEventLoop = RequestContext.super.contextAwareEventLoop();
     }
 
     @Override
@@ -167,17 +179,19 @@ public abstract class AbstractRequestContext implements RequestContext {
     }
 
     private SafeCloseable propagateContextIfNotPresent() {
-        return RequestContext.mapCurrent(currentContext -> {
-            if (currentContext != this) {
-                throw new IllegalStateException(
-                        "Trying to call object made with makeContextAware or object on executor made with " +
-                        "makeContextAware with context " + this +
-                        ", but context is currently set to " + currentContext + ". This means the " +
-                        "callback was passed from one invocation to another which is not allowed. Make " +
-                        "sure you are not saving callbacks into shared state.");
-            }
-            return () -> { /* no-op */ };
-        }, () -> RequestContext.push(this));
+        final RequestContext currentContext = RequestContextThreadLocal.get();
+        if (currentContext == null) {
+            return RequestContext.push(this);
+        }
+        if (currentContext != this) {
+            throw new IllegalStateException(
+                    "Trying to call object made with makeContextAware or object on executor made with " +
+                    "makeContextAware with context " + this +
+                    ", but context is currently set to " + currentContext + ". This means the " +
+                    "callback was passed from one invocation to another which is not allowed. Make " +
+                    "sure you are not saving callbacks into shared state.");
+        }
+        return NOOP;
     }
 
     @Override
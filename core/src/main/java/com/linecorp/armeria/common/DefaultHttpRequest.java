@@ -21,6 +21,7 @@ import static java.util.Objects.requireNonNull;
 import com.google.common.base.MoreObjects;
 
 import com.linecorp.armeria.common.stream.DefaultStreamMessage;
+import com.linecorp.armeria.common.stream.StreamWriterWatermark;
 
 /**
  * Default {@link HttpRequest} implementation.
@@ -39,6 +40,11 @@ public class DefaultHttpRequest extends DefaultStreamMessage<HttpObject> impleme
         this.headers = requireNonNull(headers, "headers");
     }
 
+    DefaultHttpRequest(HttpHeaders headers, StreamWriterWatermark watermark) {
+        super(watermark);
+        this.headers = requireNonNull(headers, "headers");
+    }
+
     @Override
     public HttpHeaders headers() {
         return headers;
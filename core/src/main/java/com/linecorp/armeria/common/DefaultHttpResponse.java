@@ -19,6 +19,7 @@ package com.linecorp.armeria.common;
 import com.google.common.base.MoreObjects;
 
 import com.linecorp.armeria.common.stream.DefaultStreamMessage;
+import com.linecorp.armeria.common.stream.StreamWriterWatermark;
 
 /**
  * Default {@link HttpResponse} instance.
@@ -29,6 +30,15 @@ import com.linecorp.armeria.common.stream.DefaultStreamMessage;
 public class DefaultHttpResponse
         extends DefaultStreamMessage<HttpObject> implements HttpResponseWriter {
 
+    /**
+     * Creates a new instance.
+     */
+    public DefaultHttpResponse() {}
+
+    DefaultHttpResponse(StreamWriterWatermark watermark) {
+        super(watermark);
+    }
+
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this).toString();
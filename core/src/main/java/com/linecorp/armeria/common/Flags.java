@@ -36,12 +36,15 @@ import com.google.common.base.CharMatcher;
 import com.google.common.base.Splitter;
 
 import com.linecorp.armeria.client.ClientFactoryBuilder;
+import com.linecorp.armeria.client.metric.MetricCollectingClient;
 import com.linecorp.armeria.client.retry.Backoff;
 import com.linecorp.armeria.client.retry.RetryingHttpClient;
 import com.linecorp.armeria.client.retry.RetryingRpcClient;
 import com.linecorp.armeria.common.util.Exceptions;
+import com.linecorp.armeria.internal.VirtualThreadExecutorService;
 import com.linecorp.armeria.server.PathMappingContext;
 import com.linecorp.armeria.server.ServiceConfig;
+import com.linecorp.armeria.server.metric.MetricCollectingService;
 
 import io.netty.channel.epoll.Epoll;
 import io.netty.handler.ssl.OpenSsl;
@@ -76,6 +79,10 @@ public final class Flags {
                    DEFAULT_NUM_COMMON_BLOCKING_TASK_THREADS,
                    value -> value > 0);
 
+    private static final boolean USE_VIRTUAL_THREAD_BLOCKING_TASK_EXECUTOR =
+            getBoolean("useVirtualThreadBlockingTaskExecutor", false,
+                       value -> VirtualThreadExecutorService.isAvailable() || !value);
+
     private static final long DEFAULT_DEFAULT_MAX_REQUEST_LENGTH = 10 * 1024 * 1024; // 10 MiB
     private static final long DEFAULT_MAX_REQUEST_LENGTH =
             getLong("defaultMaxRequestLength",
@@ -184,6 +191,9 @@ public final class Flags {
             CSV_SPLITTER.splitToList(getNormalized(
                     "cachedHeaders", DEFAULT_CACHED_HEADERS, CharMatcher.ascii()::matchesAllOf));
 
+    private static final boolean USE_THREAD_LOCAL_REQUEST_METRICS =
+            getBoolean("useThreadLocalRequestMetrics", false);
+
     static {
         if (!Epoll.isAvailable()) {
             final Throwable cause = Exceptions.peel(Epoll.unavailabilityCause());
@@ -192,6 +202,10 @@ public final class Flags {
             logger.info("Using /dev/epoll");
         }
 
+        if (USE_VIRTUAL_THREAD_BLOCKING_TASK_EXECUTOR) {
+            logger.info("Using virtual threads for blocking tasks");
+        }
+
         if (!OpenSsl.isAvailable()) {
             final Throwable cause = Exceptions.peel(OpenSsl.unavailabilityCause());
             logger.info("OpenSSL not available: {}", cause.toString());
@@ -261,6 +275,21 @@ public final class Flags {
         return NUM_COMMON_BLOCKING_TASK_THREADS;
     }
 
+    /**
+     * Returns whether the {@linkplain CommonPools#blockingTaskExecutor() blocking task executor} runs each task
+     * in a new virtual thread instead of a thread pool of {@link #numCommonBlockingTaskThreads()} threads.
+     * Enable this when the blocking tasks are mostly waiting for I/O, e.g. JDBC calls, so that the number of
+     * concurrent blocking tasks is not limited by the number of platform threads. Note that this value has
+     * effect only if a user did not specify a blocking task executor and the current JVM supports virtual
+     * threads.
+     *
+     * <p>This flag is disabled by default. Specify the
+     * {@code -Dcom.linecorp.armeria.useVirtualThreadBlockingTaskExecutor=true} JVM option to enable it.
+     */
+    public static boolean useVirtualThreadBlockingTaskExecutor() {
+        return USE_VIRTUAL_THREAD_BLOCKING_TASK_EXECUTOR;
+    }
+
     /**
      * Returns the default server-side maximum length of a request. Note that this value has effect
      * only if a user did not specify it.
@@ -494,6 +523,20 @@ public final class Flags {
         return COMPOSITE_SERVICE_CACHE_SPEC;
     }
 
+    /**
+     * Returns whether the request metrics collected by {@link MetricCollectingClient} and
+     * {@link MetricCollectingService} are accumulated in thread-local counters, i.e. mostly per event loop,
+     * which are summed up only when the metrics are exported. When enabled, recording a request does not
+     * contend with other threads, but the durations and lengths are exported only as their counts and totals,
+     * without percentiles or histograms.
+     *
+     * <p>This flag is disabled by default. Specify the
+     * {@code -Dcom.linecorp.armeria.useThreadLocalRequestMetrics=true} JVM option to enable it.
+     */
+    public static boolean useThreadLocalRequestMetrics() {
+        return USE_THREAD_LOCAL_REQUEST_METRICS;
+    }
+
     private static Optional<String> caffeineSpec(String name, String defaultValue) {
         final String spec = get(name, defaultValue, value -> {
             try {
@@ -286,6 +286,10 @@ public final class HttpHeaderNames {
      * {@code "prefer"}.
      */
     public static final AsciiString PREFER = AsciiString.cached("prefer");
+    /**
+     * {@code "preference-applied"}.
+     */
+    public static final AsciiString PREFERENCE_APPLIED = AsciiString.cached("preference-applied");
     /**
      * {@code "proxy-authenticate"}.
      */
@@ -428,21 +432,47 @@ public final class HttpHeaderNames {
                 } catch (Exception e) {
                     throw new Error(e);
                 }
-                builder.put(name.toString(), name);
+                final String lowerCased = name.toString();
+                builder.put(lowerCased, name);
+
+                // Also map the capitalized form most HTTP/1 clients send, e.g. "Content-Type",
+                // so that it is converted without being lower-cased first.
+                final String capitalized = capitalize(lowerCased);
+                if (!capitalized.equals(lowerCased)) {
+                    builder.put(capitalized, name);
+                }
             }
         }
         map = builder.build();
     }
 
+    private static String capitalize(String name) {
+        final char[] chars = name.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (i == 0 || chars[i - 1] == '-') {
+                chars[i] = Ascii.toUpperCase(chars[i]);
+            }
+        }
+        return new String(chars);
+    }
+
     /**
      * Lower-cases and converts the specified header name into an {@link AsciiString}. If {@code name} is
      * a known header name, this method will return a pre-instantiated {@link AsciiString} to reduce
      * the allocation rate of {@link AsciiString}.
      */
     public static AsciiString of(String name) {
-        name = Ascii.toLowerCase(requireNonNull(name, "name"));
+        requireNonNull(name, "name");
+        // Look up the name as it is first, because a known header name is usually either lower-cased or
+        // capitalized, e.g. "content-type" or "Content-Type".
         final AsciiString asciiName = map.get(name);
-        return asciiName != null ? asciiName : AsciiString.cached(name);
+        if (asciiName != null) {
+            return asciiName;
+        }
+
+        final String lowerCased = Ascii.toLowerCase(name);
+        final AsciiString lowerCasedAsciiName = map.get(lowerCased);
+        return lowerCasedAsciiName != null ? lowerCasedAsciiName : AsciiString.cached(lowerCased);
     }
 
     private HttpHeaderNames() {}
@@ -33,6 +33,7 @@ import com.linecorp.armeria.common.FixedHttpRequest.OneElementFixedHttpRequest;
 import com.linecorp.armeria.common.FixedHttpRequest.RegularFixedHttpRequest;
 import com.linecorp.armeria.common.FixedHttpRequest.TwoElementFixedHttpRequest;
 import com.linecorp.armeria.common.stream.StreamMessage;
+import com.linecorp.armeria.common.stream.StreamWriterWatermark;
 
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.util.concurrent.EventExecutor;
@@ -67,6 +68,17 @@ public interface HttpRequest extends Request, StreamMessage<HttpObject> {
         return new DefaultHttpRequest(headers);
     }
 
+    /**
+     * Creates a new HTTP request that can be used to stream an arbitrary number of {@link HttpObject}
+     * with the specified initial {@link HttpHeaders}, whose {@linkplain HttpRequestWriter#isWritable()
+     * writability} is determined by the specified {@link StreamWriterWatermark}.
+     */
+    static HttpRequestWriter streaming(HttpHeaders headers, StreamWriterWatermark watermark) {
+        requireNonNull(headers, "headers");
+        requireNonNull(watermark, "watermark");
+        return new DefaultHttpRequest(headers, watermark);
+    }
+
     /**
      * Creates a new HTTP request with empty content and closes the stream.
      *
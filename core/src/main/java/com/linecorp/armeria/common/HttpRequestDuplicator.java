@@ -81,12 +81,25 @@ public class HttpRequestDuplicator extends AbstractStreamMessageDuplicator<HttpO
      * @param executor the executor to use for upstream signals.
      */
     public HttpRequestDuplicator(HttpRequest req, long maxSignalLength, @Nullable EventExecutor executor) {
+        this(req, maxSignalLength, 0, executor);
+    }
+
+    /**
+     * Creates a new instance wrapping a {@link HttpRequest} and publishing to multiple subscribers.
+     * @param req the request that will publish data to subscribers
+     * @param maxSignalLength the maximum length of signals. {@code 0} disables the length limit
+     * @param maxInMemorySignalLength the maximum length of signals retained in memory. The content beyond
+     *                                this limit is spilled to a temporary file. {@code 0} disables spilling
+     * @param executor the executor to use for upstream signals.
+     */
+    public HttpRequestDuplicator(HttpRequest req, long maxSignalLength, long maxInMemorySignalLength,
+                                 @Nullable EventExecutor executor) {
         super(requireNonNull(req, "req"), obj -> {
             if (obj instanceof HttpData) {
                 return ((HttpData) obj).length();
             }
             return 0;
-        }, executor, maxSignalLength);
+        }, executor, maxSignalLength, maxInMemorySignalLength);
         headers = req.headers();
     }
 
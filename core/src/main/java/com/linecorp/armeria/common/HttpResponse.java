@@ -33,6 +33,7 @@ import com.linecorp.armeria.common.FixedHttpResponse.OneElementFixedHttpResponse
 import com.linecorp.armeria.common.FixedHttpResponse.RegularFixedHttpResponse;
 import com.linecorp.armeria.common.FixedHttpResponse.TwoElementFixedHttpResponse;
 import com.linecorp.armeria.common.stream.StreamMessage;
+import com.linecorp.armeria.common.stream.StreamWriterWatermark;
 import com.linecorp.armeria.common.util.Exceptions;
 
 import io.netty.buffer.ByteBufAllocator;
@@ -55,6 +56,16 @@ public interface HttpResponse extends Response, StreamMessage<HttpObject> {
         return new DefaultHttpResponse();
     }
 
+    /**
+     * Creates a new HTTP response that can stream an arbitrary number of {@link HttpObject} to the client,
+     * whose {@linkplain HttpResponseWriter#isWritable() writability} is determined by the specified
+     * {@link StreamWriterWatermark}. The first object written must be of type {@link HttpHeaders}.
+     */
+    static HttpResponseWriter streaming(StreamWriterWatermark watermark) {
+        requireNonNull(watermark, "watermark");
+        return new DefaultHttpResponse(watermark);
+    }
+
     /**
      * Creates a new HTTP response that delegates to the {@link HttpResponse} produced by the specified
      * {@link CompletionStage}. If the specified {@link CompletionStage} fails, the returned response will be
@@ -82,12 +82,25 @@ public class HttpResponseDuplicator
      * @param executor the executor to use for upstream signals.
      */
     public HttpResponseDuplicator(HttpResponse res, long maxSignalLength, @Nullable EventExecutor executor) {
+        this(res, maxSignalLength, 0, executor);
+    }
+
+    /**
+     * Creates a new instance wrapping a {@link HttpResponse} and publishing to multiple subscribers.
+     * @param res the response that will publish data to subscribers
+     * @param maxSignalLength the maximum length of signals. {@code 0} disables the length limit
+     * @param maxInMemorySignalLength the maximum length of signals retained in memory. The content beyond
+     *                                this limit is spilled to a temporary file. {@code 0} disables spilling
+     * @param executor the executor to use for upstream signals.
+     */
+    public HttpResponseDuplicator(HttpResponse res, long maxSignalLength, long maxInMemorySignalLength,
+                                  @Nullable EventExecutor executor) {
         super(requireNonNull(res, "res"), obj -> {
             if (obj instanceof HttpData) {
                 return ((HttpData) obj).length();
             }
             return 0;
-        }, executor, maxSignalLength);
+        }, executor, maxSignalLength, maxInMemorySignalLength);
     }
 
     @Override
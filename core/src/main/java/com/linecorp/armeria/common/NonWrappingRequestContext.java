@@ -199,8 +199,9 @@ public abstract class NonWrappingRequestContext extends AbstractRequestContext {
             return;
         }
 
-        for (Consumer<? super RequestContext> callback : callbacks) {
-            callback.accept(this);
+        // Use an index rather than an Iterator not to produce garbage on every push and pop.
+        for (int i = 0; i < callbacks.size(); i++) {
+            callbacks.get(i).accept(this);
         }
     }
 
@@ -211,8 +212,8 @@ public abstract class NonWrappingRequestContext extends AbstractRequestContext {
             return;
         }
 
-        for (BiConsumer<? super RequestContext, ? super RequestContext> callback : callbacks) {
-            callback.accept(this, newCtx);
+        for (int i = 0; i < callbacks.size(); i++) {
+            callbacks.get(i).accept(this, newCtx);
         }
     }
 }
@@ -128,6 +128,9 @@ public interface RequestContext extends AttributeMap {
      * when the context is pushed to and removed from the thread-local stack respectively.
      *
      * <p>NOTE: In case of re-entrance, the callbacks will never run.
+     *
+     * <p>NOTE: The returned {@link SafeCloseable} is reused by the later pushes once it is closed, so it must
+     *          be closed in the thread where the context was pushed and must not be retained afterwards.
      */
     static SafeCloseable push(RequestContext ctx) {
         return push(ctx, true);
@@ -152,34 +155,7 @@ public interface RequestContext extends AttributeMap {
      *                     NOTE: In case of re-entrance, the callbacks will never run.
      */
     static SafeCloseable push(RequestContext ctx, boolean runCallbacks) {
-        final RequestContext oldCtx = RequestContextThreadLocal.getAndSet(ctx);
-        if (oldCtx == ctx) {
-            // Reentrance
-            return () -> { /* no-op */ };
-        }
-
-        if (runCallbacks) {
-            if (oldCtx != null) {
-                oldCtx.invokeOnChildCallbacks(ctx);
-                ctx.invokeOnEnterCallbacks();
-                return () -> {
-                    ctx.invokeOnExitCallbacks();
-                    RequestContextThreadLocal.set(oldCtx);
-                };
-            } else {
-                ctx.invokeOnEnterCallbacks();
-                return () -> {
-                    ctx.invokeOnExitCallbacks();
-                    RequestContextThreadLocal.remove();
-                };
-            }
-        } else {
-            if (oldCtx != null) {
-                return () -> RequestContextThreadLocal.set(oldCtx);
-            } else {
-                return RequestContextThreadLocal::remove;
-            }
-        }
+        return RequestContextThreadLocal.push(ctx, runCallbacks);
     }
 
     /**
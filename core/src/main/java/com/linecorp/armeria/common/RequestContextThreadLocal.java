@@ -16,37 +16,119 @@
 
 package com.linecorp.armeria.common;
 
+import java.util.Arrays;
+
 import javax.annotation.Nullable;
 
+import com.linecorp.armeria.common.util.SafeCloseable;
+
 import io.netty.util.concurrent.FastThreadLocal;
-import io.netty.util.internal.InternalThreadLocalMap;
 
+/**
+ * Keeps the current {@link RequestContext} of a thread, along with the {@link SafeCloseable}s returned by
+ * {@link RequestContext#push(RequestContext, boolean)}. The {@link SafeCloseable}s are reused for each depth
+ * of the thread-local stack, so that pushing and popping a context does not produce garbage.
+ */
 final class RequestContextThreadLocal {
 
-    private static final FastThreadLocal<RequestContext> context = new FastThreadLocal<>();
+    private static final SafeCloseable NOOP = () -> { /* no-op */ };
+
+    private static final FastThreadLocal<ContextStack> stack = new FastThreadLocal<ContextStack>() {
+        @Override
+        protected ContextStack initialValue() {
+            return new ContextStack();
+        }
+    };
 
     @Nullable
     @SuppressWarnings("unchecked")
     static <T extends RequestContext> T get() {
-        return (T) context.get();
+        return (T) stack.get().current;
     }
 
-    @Nullable
-    @SuppressWarnings("unchecked")
-    static <T extends RequestContext> T getAndSet(RequestContext ctx) {
-        final InternalThreadLocalMap map = InternalThreadLocalMap.get();
-        final RequestContext oldCtx = context.get(map);
-        context.set(map, ctx);
-        return (T) oldCtx;
-    }
+    static SafeCloseable push(RequestContext ctx, boolean runCallbacks) {
+        final ContextStack stack = RequestContextThreadLocal.stack.get();
+        final RequestContext oldCtx = stack.current;
+        if (oldCtx == ctx) {
+            // Reentrance
+            return NOOP;
+        }
 
-    static void set(RequestContext ctx) {
-        context.set(ctx);
+        stack.current = ctx;
+        if (runCallbacks) {
+            if (oldCtx != null) {
+                oldCtx.invokeOnChildCallbacks(ctx);
+            }
+            ctx.invokeOnEnterCallbacks();
+        }
+        return stack.acquire(ctx, oldCtx, runCallbacks);
     }
 
-    static void remove() {
-        context.remove();
+    private RequestContextThreadLocal() {}
+
+    private static final class ContextStack {
+
+        @Nullable
+        RequestContext current;
+        private PushHandle[] handles = new PushHandle[4];
+        private int depth;
+
+        PushHandle acquire(RequestContext ctx, @Nullable RequestContext oldCtx, boolean runCallbacks) {
+            final int depth = this.depth;
+            if (depth == handles.length) {
+                handles = Arrays.copyOf(handles, depth << 1);
+            }
+
+            PushHandle handle = handles[depth];
+            if (handle == null) {
+                handles[depth] = handle = new PushHandle(this, depth);
+            } else if (handle.ctx != null) {
+                // The handles were closed out of order. Do not reuse the one which is still in use.
+                handle = new PushHandle(this, depth);
+            }
+
+            handle.ctx = ctx;
+            handle.oldCtx = oldCtx;
+            handle.runCallbacks = runCallbacks;
+            this.depth = depth + 1;
+            return handle;
+        }
     }
 
-    private RequestContextThreadLocal() {}
+    private static final class PushHandle implements SafeCloseable {
+
+        private final ContextStack stack;
+        private final int depth;
+        @Nullable
+        RequestContext ctx;
+        @Nullable
+        RequestContext oldCtx;
+        boolean runCallbacks;
+
+        PushHandle(ContextStack stack, int depth) {
+            this.stack = stack;
+            this.depth = depth;
+        }
+
+        @Override
+        public void close() {
+            final RequestContext ctx = this.ctx;
+            if (ctx == null) {
+                // Closed already.
+                return;
+            }
+
+            final RequestContext oldCtx = this.oldCtx;
+            this.ctx = null;
+            this.oldCtx = null;
+            try {
+                if (runCallbacks) {
+                    ctx.invokeOnExitCallbacks();
+                }
+            } finally {
+                stack.current = oldCtx;
+                stack.depth = depth;
+            }
+        }
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.metric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.RequestContext;
+import com.linecorp.armeria.common.RpcRequest;
+import com.linecorp.armeria.common.logging.RequestLog;
+import com.linecorp.armeria.common.logging.RequestLogAvailability;
+import com.linecorp.armeria.server.ServiceRequestContext;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+
+/**
+ * The {@link MeterIdPrefixFunction} returned by {@link MeterIdPrefixFunction#ofDefault(String)}.
+ * A {@link MeterIdPrefix} is created only once for each combination of its tag values, so that a request
+ * does not build and sort its tags again and its {@link Meter}s are looked up by the same instance.
+ */
+final class DefaultMeterIdPrefixFunction implements MeterIdPrefixFunction {
+
+    // Prevents unbounded growth when the tag values are unexpectedly diverse.
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    private final String name;
+    private final ConcurrentMap<CacheKey, MeterIdPrefix> cache = new ConcurrentHashMap<>();
+
+    DefaultMeterIdPrefixFunction(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public MeterIdPrefix apply(MeterRegistry registry, RequestLog log) {
+        final RequestContext ctx = log.context();
+        final Object requestContent = log.requestContent();
+
+        String methodName = null;
+        if (requestContent instanceof RpcRequest) {
+            methodName = ((RpcRequest) requestContent).method();
+        }
+
+        if (methodName == null) {
+            final HttpHeaders requestHeaders = log.requestHeaders();
+            final HttpMethod httpMethod = requestHeaders.method();
+            if (httpMethod != null) {
+                methodName = httpMethod.name();
+            }
+        }
+
+        if (methodName == null) {
+            methodName = MoreObjects.firstNonNull(log.method().name(), "__UNKNOWN_METHOD__");
+        }
+
+        String hostnamePattern = null;
+        String pathMapping = null;
+        if (ctx instanceof ServiceRequestContext) {
+            final ServiceRequestContext sCtx = (ServiceRequestContext) ctx;
+            hostnamePattern = sCtx.virtualHost().hostnamePattern();
+            pathMapping = sCtx.pathMapping().meterTag();
+        }
+
+        final int statusCode;
+        if (log.isAvailable(RequestLogAvailability.RESPONSE_HEADERS) && log.status() != null) {
+            statusCode = log.statusCode();
+        } else {
+            statusCode = -1;
+        }
+
+        final CacheKey key = new CacheKey(methodName, hostnamePattern, pathMapping, statusCode);
+        final MeterIdPrefix cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        final MeterIdPrefix idPrefix = newMeterIdPrefix(key);
+        if (cache.size() >= MAX_CACHE_SIZE) {
+            return idPrefix;
+        }
+        final MeterIdPrefix oldIdPrefix = cache.putIfAbsent(key, idPrefix);
+        return oldIdPrefix != null ? oldIdPrefix : idPrefix;
+    }
+
+    private MeterIdPrefix newMeterIdPrefix(CacheKey key) {
+        final List<Tag> tags = new ArrayList<>(4); // method, hostNamePattern, pathMapping, status
+        tags.add(Tag.of("method", key.methodName));
+
+        if (key.hostnamePattern != null) {
+            tags.add(Tag.of("hostnamePattern", key.hostnamePattern));
+        }
+        if (key.pathMapping != null) {
+            tags.add(Tag.of("pathMapping", key.pathMapping));
+        }
+        if (key.statusCode >= 0) {
+            tags.add(Tag.of("status", String.valueOf(key.statusCode)));
+        }
+
+        return new MeterIdPrefix(name, tags);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this).add("name", name).toString();
+    }
+
+    private static final class CacheKey {
+        final String methodName;
+        @Nullable
+        final String hostnamePattern;
+        @Nullable
+        final String pathMapping;
+        final int statusCode;
+
+        CacheKey(String methodName, @Nullable String hostnamePattern, @Nullable String pathMapping,
+                 int statusCode) {
+            this.methodName = methodName;
+            this.hostnamePattern = hostnamePattern;
+            this.pathMapping = pathMapping;
+            this.statusCode = statusCode;
+        }
+
+        @Override
+        public int hashCode() {
+            int hashCode = methodName.hashCode();
+            hashCode = hashCode * 31 + Objects.hashCode(hostnamePattern);
+            hashCode = hashCode * 31 + Objects.hashCode(pathMapping);
+            return hashCode * 31 + statusCode;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+
+            final CacheKey that = (CacheKey) obj;
+            return statusCode == that.statusCode &&
+                   methodName.equals(that.methodName) &&
+                   Objects.equals(hostnamePattern, that.hostnamePattern) &&
+                   Objects.equals(pathMapping, that.pathMapping);
+        }
+    }
+}
@@ -18,21 +18,11 @@ package com.linecorp.armeria.common.metric;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.function.BiFunction;
 
-import com.google.common.base.MoreObjects;
-
 import com.linecorp.armeria.client.metric.MetricCollectingClient;
-import com.linecorp.armeria.common.HttpHeaders;
-import com.linecorp.armeria.common.HttpMethod;
-import com.linecorp.armeria.common.RequestContext;
-import com.linecorp.armeria.common.RpcRequest;
 import com.linecorp.armeria.common.logging.RequestLog;
-import com.linecorp.armeria.common.logging.RequestLogAvailability;
 import com.linecorp.armeria.server.PathMapping;
-import com.linecorp.armeria.server.ServiceRequestContext;
 import com.linecorp.armeria.server.metric.MetricCollectingService;
 
 import io.micrometer.core.instrument.MeterRegistry;
@@ -52,46 +42,11 @@ public interface MeterIdPrefixFunction {
      * Returns the default function that creates a {@link MeterIdPrefix} with the specified name and
      * the {@link Tag}s derived from the current {@link PathMapping} (if available) and HTTP (or RPC)
      * method name. e.g. {@code my_service_name{pathMapping="exact:/service/path",method="POST"}}
+     * The returned function reuses the {@link MeterIdPrefix} it created for the same tag values.
      */
     static MeterIdPrefixFunction ofDefault(String name) {
         requireNonNull(name, "name");
-        return (registry, log) -> {
-            final RequestContext ctx = log.context();
-            final Object requestContent = log.requestContent();
-
-            String methodName = null;
-            if (requestContent instanceof RpcRequest) {
-                methodName = ((RpcRequest) requestContent).method();
-            }
-
-            if (methodName == null) {
-                final HttpHeaders requestHeaders = log.requestHeaders();
-                final HttpMethod httpMethod = requestHeaders.method();
-                if (httpMethod != null) {
-                    methodName = httpMethod.name();
-                }
-            }
-
-            if (methodName == null) {
-                methodName = MoreObjects.firstNonNull(log.method().name(), "__UNKNOWN_METHOD__");
-            }
-
-            final List<Tag> tags = new ArrayList<>(4); // method, hostNamePattern, pathMapping, status
-            tags.add(Tag.of("method", methodName));
-
-            if (ctx instanceof ServiceRequestContext) {
-                final ServiceRequestContext sCtx = (ServiceRequestContext) ctx;
-                tags.add(Tag.of("hostnamePattern", sCtx.virtualHost().hostnamePattern()));
-                tags.add(Tag.of("pathMapping", sCtx.pathMapping().meterTag()));
-            }
-
-            if (log.isAvailable(RequestLogAvailability.RESPONSE_HEADERS) &&
-                log.status() != null) {
-                tags.add(Tag.of("status", String.valueOf(log.statusCode())));
-            }
-
-            return new MeterIdPrefix(name, tags);
-        };
+        return new DefaultMeterIdPrefixFunction(name);
     }
 
     /**
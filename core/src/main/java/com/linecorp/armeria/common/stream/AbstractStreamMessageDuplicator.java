@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -38,9 +39,14 @@ import org.reactivestreams.Subscription;
 import com.google.common.annotations.VisibleForTesting;
 
 import com.linecorp.armeria.common.CommonPools;
+import com.linecorp.armeria.common.ContentTooLargeException;
+import com.linecorp.armeria.common.HttpData;
 import com.linecorp.armeria.common.RequestContext;
+import com.linecorp.armeria.common.metric.MeterIdPrefix;
 import com.linecorp.armeria.common.util.SafeCloseable;
+import com.linecorp.armeria.unsafe.ByteBufHttpData;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufHolder;
 import io.netty.buffer.Unpooled;
@@ -65,6 +71,15 @@ import io.netty.util.concurrent.ImmediateEventExecutor;
  * </p><p>
  * This factory has to be closed by {@link AbstractStreamMessageDuplicator#close()} when
  * you do not need the contents anymore, otherwise memory leak might happen.
+ * </p><p>
+ * The published elements are retained until all subscribers consume them. The total length of the
+ * retained elements is limited by {@code maxSignalLength}; the duplicated streams fail with
+ * a {@link ContentTooLargeException} when the limit is exceeded. In addition, the length of the elements
+ * retained in memory can be limited by {@code maxInMemorySignalLength}, in which case the content of
+ * the elements which do not fit in memory, i.e. {@link ByteBuf}s, {@link ByteBufHolder}s and
+ * {@link HttpData}s, is spilled to a temporary memory-mapped file. Use {@link #retainedSignalLength()} and
+ * {@link #spilledSignalLength()} to monitor them, or {@link #newMeterBinder()} to monitor the total of all
+ * duplicators in the JVM.
  * </p>
  * @param <T> the type of elements
  * @param <U> the type of the publisher and duplicated stream messages
@@ -86,10 +101,28 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
     protected AbstractStreamMessageDuplicator(
             U publisher, SignalLengthGetter<? super T> signalLengthGetter,
             @Nullable EventExecutor executor, long maxSignalLength) {
+        this(publisher, signalLengthGetter, executor, maxSignalLength, 0);
+    }
+
+    /**
+     * Creates a new instance wrapping a {@code publisher} and publishing to multiple subscribers.
+     * @param publisher the publisher who will publish data to subscribers
+     * @param signalLengthGetter the signal length getter that produces the length of signals
+     * @param executor the executor to use for upstream signals
+     * @param maxSignalLength the maximum length of signals. {@code 0} disables the length limit
+     * @param maxInMemorySignalLength the maximum length of signals retained in memory. The content of
+     *                                the signals beyond this limit is spilled to a temporary file.
+     *                                {@code 0} disables spilling
+     */
+    protected AbstractStreamMessageDuplicator(
+            U publisher, SignalLengthGetter<? super T> signalLengthGetter,
+            @Nullable EventExecutor executor, long maxSignalLength, long maxInMemorySignalLength) {
         requireNonNull(publisher, "publisher");
         requireNonNull(signalLengthGetter, "signalLengthGetter");
         checkArgument(maxSignalLength >= 0,
                       "maxSignalLength: %s (expected: >= 0)", maxSignalLength);
+        checkArgument(maxInMemorySignalLength >= 0,
+                      "maxInMemorySignalLength: %s (expected: >= 0)", maxInMemorySignalLength);
         if (executor != null) {
             duplicatorExecutor = executor;
         } else {
@@ -98,7 +131,7 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
         }
 
         processor = new StreamMessageProcessor<>(publisher, signalLengthGetter,
-                                                 duplicatorExecutor, maxSignalLength);
+                                                 duplicatorExecutor, maxSignalLength, maxInMemorySignalLength);
     }
 
     /**
@@ -137,6 +170,41 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
         return duplicatorExecutor;
     }
 
+    /**
+     * Returns the total length of the signals which are retained by this duplicator because not all
+     * subscribers consumed them yet, including the length of the spilled signals.
+     */
+    public long retainedSignalLength() {
+        return processor.signalLength;
+    }
+
+    /**
+     * Returns the total length of the signals whose content is spilled to a temporary file.
+     *
+     * @see #AbstractStreamMessageDuplicator(StreamMessage, SignalLengthGetter, EventExecutor, long, long)
+     */
+    public long spilledSignalLength() {
+        return processor.signals().spilledLength();
+    }
+
+    /**
+     * Returns a newly-created {@link MeterBinder} which binds the total length of the signals retained and
+     * spilled by all {@link AbstractStreamMessageDuplicator}s in the JVM with the default meter names,
+     * i.e. {@code "armeria.streamMessageDuplicator.retainedSignalLength"} and
+     * {@code "armeria.streamMessageDuplicator.spilledSignalLength"}.
+     */
+    public static MeterBinder newMeterBinder() {
+        return newMeterBinder(new MeterIdPrefix("armeria.streamMessageDuplicator"));
+    }
+
+    /**
+     * Returns a newly-created {@link MeterBinder} which binds the total length of the signals retained and
+     * spilled by all {@link AbstractStreamMessageDuplicator}s in the JVM.
+     */
+    public static MeterBinder newMeterBinder(MeterIdPrefix idPrefix) {
+        return new StreamMessageDuplicatorMetrics(idPrefix);
+    }
+
     /**
      * Closes this factory and stream messages who are invoked by
      * {@link AbstractStreamMessageDuplicator#duplicateStream()}.
@@ -177,7 +245,13 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
         private final SignalLengthGetter<Object> signalLengthGetter;
         private final EventExecutor processorExecutor;
         private final int maxSignalLength;
-        private int signalLength;
+        private final int maxInMemorySignalLength;
+        @Nullable
+        private SignalSpillFile spillFile;
+        private boolean closeEventPushed;
+
+        // Updated only by processorExecutor. Volatile so that it can be read for monitoring.
+        private volatile int signalLength;
 
         private final Set<DownstreamSubscription<T>> downstreamSubscriptions =
                 Collections.newSetFromMap(new ConcurrentHashMap<>());
@@ -194,19 +268,23 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
 
         @SuppressWarnings("unchecked")
         StreamMessageProcessor(StreamMessage<T> upstream, SignalLengthGetter<?> signalLengthGetter,
-                               EventExecutor executor, long maxSignalLength) {
+                               EventExecutor executor, long maxSignalLength, long maxInMemorySignalLength) {
             this.upstream = upstream;
             this.signalLengthGetter = (SignalLengthGetter<Object>) signalLengthGetter;
             processorExecutor = executor;
-            if (maxSignalLength == 0 || maxSignalLength > Integer.MAX_VALUE) {
-                this.maxSignalLength = Integer.MAX_VALUE;
-            } else {
-                this.maxSignalLength = (int) maxSignalLength;
-            }
+            this.maxSignalLength = toIntLength(maxSignalLength);
+            this.maxInMemorySignalLength = toIntLength(maxInMemorySignalLength);
             signals = new SignalQueue(this.signalLengthGetter);
             upstream.subscribe(this, processorExecutor, true);
         }
 
+        private static int toIntLength(long length) {
+            if (length == 0 || length > Integer.MAX_VALUE) {
+                return Integer.MAX_VALUE;
+            }
+            return (int) length;
+        }
+
         StreamMessage<T> upstream() {
             return upstream;
         }
@@ -253,26 +331,43 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
         }
 
         private void doPushSignal(Object obj) {
-            if (state == State.CLOSED) {
+            if (state == State.CLOSED || closeEventPushed) {
+                // Closed or failed already, e.g. the upstream signals AbortedStreamException after
+                // the duplicator aborted it due to ContentTooLargeException.
                 ReferenceCountUtil.safeRelease(obj);
                 return;
             }
-            if (!(obj instanceof CloseEvent)) {
+            if (obj instanceof CloseEvent) {
+                closeEventPushed = true;
+            } else {
                 final int dataLength = signalLengthGetter.length(obj);
                 if (dataLength > 0) {
                     final int allowedMaxSignalLength = maxSignalLength - signalLength;
                     if (dataLength > allowedMaxSignalLength) {
-                        upstream.abort();
-                        throw new IllegalStateException(
-                                "signal length greater than the maxSignalLength: " + maxSignalLength);
+                        ReferenceCountUtil.safeRelease(obj);
+                        abortUpstream(ContentTooLargeException.get());
+                        return;
+                    }
+
+                    final int inMemoryLength = signalLength - (int) signals.spilledLength();
+                    if (dataLength > maxInMemorySignalLength - inMemoryLength) {
+                        try {
+                            obj = spill(obj);
+                        } catch (Throwable cause) {
+                            ReferenceCountUtil.safeRelease(obj);
+                            abortUpstream(cause);
+                            return;
+                        }
                     }
                     signalLength += dataLength;
+                    StreamMessageDuplicatorMetrics.totalRetainedSignalLength.add(dataLength);
                 }
             }
 
             try {
                 final int removedLength = signals.addAndRemoveIfRequested(obj);
                 signalLength -= removedLength;
+                StreamMessageDuplicatorMetrics.totalRetainedSignalLength.add(-removedLength);
             } catch (IllegalStateException e) {
                 upstream.abort();
                 throw e;
@@ -285,6 +380,46 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
             }
         }
 
+        /**
+         * Aborts the upstream and fails the downstreams with the specified {@code cause} after they consume
+         * the signals published so far.
+         */
+        private void abortUpstream(Throwable cause) {
+            upstream.abort();
+            doPushSignal(new CloseEvent(cause));
+        }
+
+        /**
+         * Replaces the content of the specified signal with the one written into the spill file.
+         *
+         * @return the {@link SpilledSignal} which wraps the new signal, or the specified signal as is if
+         *         its content cannot be spilled
+         */
+        private Object spill(Object obj) throws IOException {
+            SignalSpillFile spillFile = this.spillFile;
+            if (spillFile == null) {
+                this.spillFile = spillFile = new SignalSpillFile();
+            }
+
+            final int length = signalLengthGetter.length(obj);
+            final Object spilled;
+            if (obj instanceof ByteBufHolder) {
+                final ByteBufHolder holder = (ByteBufHolder) obj;
+                spilled = holder.replace(spillFile.write(holder.content()));
+            } else if (obj instanceof ByteBuf) {
+                spilled = spillFile.write((ByteBuf) obj);
+            } else if (obj instanceof HttpData) {
+                final HttpData data = (HttpData) obj;
+                spilled = new ByteBufHttpData(spillFile.write(data.array(), data.offset(), data.length()),
+                                              data.isEndOfStream());
+            } else {
+                return obj;
+            }
+
+            ReferenceCountUtil.safeRelease(obj);
+            return new SpilledSignal(spilled, length);
+        }
+
         void subscribe(DownstreamSubscription<T> subscription) {
             if (processorExecutor.inEventLoop()) {
                 doSubscribe(subscription);
@@ -354,7 +489,7 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
                 if (state == State.LAST_DOWNSTREAM_ADDED) {
                     state = State.CLOSED;
                     upstream.abort();
-                    signals.clear();
+                    clearSignals();
                 }
             }
         }
@@ -408,7 +543,16 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
             downstreamSubscriptions.clear();
             final CompletableFuture<Void> allDoneFuture = CompletableFuture.allOf(
                     completionFutures.toArray(new CompletableFuture[completionFutures.size()]));
-            allDoneFuture.whenComplete((unused1, unused2) -> signals.clear());
+            allDoneFuture.whenComplete((unused1, unused2) -> clearSignals());
+        }
+
+        private void clearSignals() {
+            signals.clear();
+            StreamMessageDuplicatorMetrics.totalRetainedSignalLength.add(-signalLength);
+            signalLength = 0;
+            if (spillFile != null) {
+                spillFile.close();
+            }
         }
     }
 
@@ -806,6 +950,26 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
         }
     }
 
+    /**
+     * A signal whose content has been spilled to a {@link SignalSpillFile}. Stored in the {@link SignalQueue}
+     * in place of the signal, so that the length of the spilled signals can be tracked separately.
+     */
+    private static final class SpilledSignal {
+
+        final Object signal;
+        final int length;
+
+        SpilledSignal(Object signal, int length) {
+            this.signal = signal;
+            this.length = length;
+        }
+
+        @Override
+        public String toString() {
+            return "SpilledSignal(" + signal + ')';
+        }
+    }
+
     /**
      * A circular queue that stores signals in order and retrieves by {@link #get(int)}.
      * Addition and removal of elements are done by only one thread, or at least once at a time. Reading
@@ -827,6 +991,8 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
         private volatile int tail;
         private volatile int size;
 
+        private volatile long spilledLength;
+
         private int headOffset; // head offset from the first including removed elements
         @SuppressWarnings("unused")
         private volatile int lastRemovalRequestedOffset;
@@ -843,6 +1009,11 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
             if (headOffset < lastRemovalRequestedOffset) {
                 removedLength = removeElements();
             }
+            if (o instanceof SpilledSignal) {
+                final int length = ((SpilledSignal) o).length;
+                spilledLength += length;
+                StreamMessageDuplicatorMetrics.totalSpilledSignalLength.add(length);
+            }
             final int t = tail;
             elements[t] = o;
             size++;
@@ -862,10 +1033,18 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
             for (int numRemovals = 0; numRemovals < numElementsToBeRemoved; numRemovals++) {
                 final int index = oldHead + numRemovals & bitMask;
                 final Object o = elements[index];
-                if (!(o instanceof CloseEvent)) {
-                    removedLength += signalLengthGetter.length(o);
+                if (o instanceof SpilledSignal) {
+                    final SpilledSignal spilled = (SpilledSignal) o;
+                    removedLength += spilled.length;
+                    spilledLength -= spilled.length;
+                    StreamMessageDuplicatorMetrics.totalSpilledSignalLength.add(-spilled.length);
+                    ReferenceCountUtil.safeRelease(spilled.signal);
+                } else {
+                    if (!(o instanceof CloseEvent)) {
+                        removedLength += signalLengthGetter.length(o);
+                    }
+                    ReferenceCountUtil.safeRelease(o);
                 }
-                ReferenceCountUtil.safeRelease(o);
                 elements[index] = null;
             }
             head = oldHead + numElementsToBeRemoved & bitMask;
@@ -915,7 +1094,8 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
             checkArgument(offset >= lastRemovalRequestedOffset,
                           "offset: %s is invalid. (expected: >= lastRemovalRequestedOffset: %s)",
                           offset, lastRemovalRequestedOffset);
-            return elements[convertedIndex];
+            final Object o = elements[convertedIndex];
+            return o instanceof SpilledSignal ? ((SpilledSignal) o).signal : o;
         }
 
         void requestRemovalAheadOf(int offset) {
@@ -935,6 +1115,10 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
             return size;
         }
 
+        long spilledLength() {
+            return spilledLength;
+        }
+
         // Removes references to all objects.
         void clear() {
             final Object[] oldElements = elements;
@@ -944,8 +1128,11 @@ public abstract class AbstractStreamMessageDuplicator<T, U extends StreamMessage
             elements = null;
             final int t = tail;
             for (int i = head; i < t; i++) {
-                ReferenceCountUtil.safeRelease(oldElements[i]);
+                final Object o = oldElements[i];
+                ReferenceCountUtil.safeRelease(o instanceof SpilledSignal ? ((SpilledSignal) o).signal : o);
             }
+            StreamMessageDuplicatorMetrics.totalSpilledSignalLength.add(-spilledLength);
+            spilledLength = 0;
         }
     }
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.stream;
+
+import com.linecorp.armeria.common.HttpData;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+
+/**
+ * A {@link SignalLengthGetter} which returns the number of bytes of an {@link HttpData}, a {@link ByteBuf}
+ * or a {@link ByteBufHolder}, and {@code 0} for any other objects.
+ */
+final class DefaultSignalLengthGetter implements SignalLengthGetter<Object> {
+
+    static final DefaultSignalLengthGetter INSTANCE = new DefaultSignalLengthGetter();
+
+    private DefaultSignalLengthGetter() {}
+
+    @Override
+    public int length(Object obj) {
+        if (obj instanceof HttpData) {
+            return ((HttpData) obj).length();
+        }
+        if (obj instanceof ByteBufHolder) {
+            return ((ByteBufHolder) obj).content().readableBytes();
+        }
+        if (obj instanceof ByteBuf) {
+            return ((ByteBuf) obj).readableBytes();
+        }
+        return 0;
+    }
+}
@@ -21,12 +21,16 @@ import static java.util.Objects.requireNonNull;
 import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import javax.annotation.Nullable;
 
 import org.jctools.queues.MpscChunkedArrayQueue;
 import org.reactivestreams.Subscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.linecorp.armeria.common.Flags;
 
@@ -60,6 +64,10 @@ import io.netty.util.concurrent.ImmediateEventExecutor;
  * stream(myPub, 0, Integer.MAX_VALUE);
  * }</pre>
  *
+ * <p>Alternatively, a {@link StreamWriterWatermark} can be specified when creating a new instance, so that
+ * a producer can stop writing when {@link #isWritable()} returns {@code false} and resume when notified
+ * via {@link #setWritabilityChangeListener(Runnable)}.
+ *
  * @param <T> the type of element signaled
  */
 public class DefaultStreamMessage<T> extends AbstractStreamMessageAndWriter<T> {
@@ -73,8 +81,37 @@ public class DefaultStreamMessage<T> extends AbstractStreamMessageAndWriter<T> {
     private static final AtomicReferenceFieldUpdater<DefaultStreamMessage, State> stateUpdater =
             AtomicReferenceFieldUpdater.newUpdater(DefaultStreamMessage.class, State.class, "state");
 
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<DefaultStreamMessage> pendingElementsUpdater =
+            AtomicLongFieldUpdater.newUpdater(DefaultStreamMessage.class, "pendingElements");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<DefaultStreamMessage> pendingBytesUpdater =
+            AtomicLongFieldUpdater.newUpdater(DefaultStreamMessage.class, "pendingBytes");
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicIntegerFieldUpdater<DefaultStreamMessage> unwritableUpdater =
+            AtomicIntegerFieldUpdater.newUpdater(DefaultStreamMessage.class, "unwritable");
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultStreamMessage.class);
+
     private final Queue<Object> queue;
 
+    @Nullable
+    private final StreamWriterWatermark watermark;
+
+    // The number and the total length of the elements written but not removed from the queue yet.
+    // Updated only when watermark is not null.
+    @SuppressWarnings("unused")
+    private volatile long pendingElements; // set only via pendingElementsUpdater
+    @SuppressWarnings("unused")
+    private volatile long pendingBytes; // set only via pendingBytesUpdater
+    @SuppressWarnings("unused")
+    private volatile int unwritable; // set only via unwritableUpdater
+
+    @Nullable
+    private volatile Runnable writabilityChangeListener;
+
     @Nullable
     @SuppressWarnings("unused")
     private volatile SubscriptionImpl subscription; // set only via subscriptionUpdater
@@ -94,6 +131,16 @@ public class DefaultStreamMessage<T> extends AbstractStreamMessageAndWriter<T> {
      */
     public DefaultStreamMessage() {
         queue = new MpscChunkedArrayQueue<>(32, 1 << 30);
+        watermark = null;
+    }
+
+    /**
+     * Creates a new instance whose {@linkplain #isWritable() writability} is determined by
+     * the specified {@link StreamWriterWatermark}.
+     */
+    public DefaultStreamMessage(StreamWriterWatermark watermark) {
+        queue = new MpscChunkedArrayQueue<>(32, 1 << 30);
+        this.watermark = requireNonNull(watermark, "watermark");
     }
 
     @Override
@@ -106,6 +153,16 @@ public class DefaultStreamMessage<T> extends AbstractStreamMessageAndWriter<T> {
         return !isOpen() && !wroteAny;
     }
 
+    @Override
+    public boolean isWritable() {
+        return isOpen() && unwritable == 0;
+    }
+
+    @Override
+    public void setWritabilityChangeListener(@Nullable Runnable listener) {
+        writabilityChangeListener = listener;
+    }
+
     @Override
     void subscribe(SubscriptionImpl subscription) {
         final Subscriber<Object> subscriber = subscription.subscriber();
@@ -147,9 +204,48 @@ public class DefaultStreamMessage<T> extends AbstractStreamMessageAndWriter<T> {
     @Override
     void addObject(T obj) {
         wroteAny = true;
+        if (watermark != null) {
+            // Increase the pending counters before adding to the queue so that they never go negative.
+            final int length = DefaultSignalLengthGetter.INSTANCE.length(obj);
+            final long elements = pendingElementsUpdater.incrementAndGet(this);
+            final long bytes = pendingBytesUpdater.addAndGet(this, length);
+            if (watermark.isAboveHigh(elements, bytes) && unwritableUpdater.compareAndSet(this, 0, 1)) {
+                notifyWritabilityChange();
+                // The subscriber might have consumed the pending elements before 'unwritable' is set.
+                updateWritable();
+            }
+        }
         addObjectOrEvent(obj);
     }
 
+    private void onElementRemoved(Object obj) {
+        assert watermark != null;
+        pendingElementsUpdater.decrementAndGet(this);
+        pendingBytesUpdater.addAndGet(this, -DefaultSignalLengthGetter.INSTANCE.length(obj));
+        updateWritable();
+    }
+
+    private void updateWritable() {
+        assert watermark != null;
+        if (unwritable != 0 && watermark.isAtOrBelowLow(pendingElements, pendingBytes) &&
+            unwritableUpdater.compareAndSet(this, 1, 0)) {
+            notifyWritabilityChange();
+        }
+    }
+
+    private void notifyWritabilityChange() {
+        final Runnable listener = writabilityChangeListener;
+        if (listener == null) {
+            return;
+        }
+
+        try {
+            listener.run();
+        } catch (Throwable t) {
+            logger.warn("Unexpected exception from a writability change listener:", t);
+        }
+    }
+
     @Override
     long demand() {
         return demand;
@@ -335,6 +431,9 @@ public class DefaultStreamMessage<T> extends AbstractStreamMessageAndWriter<T> {
 
         @SuppressWarnings("unchecked")
         T o = (T) queue.remove();
+        if (watermark != null) {
+            onElementRemoved(o);
+        }
         inOnNext = true;
         try {
             o = prepareObjectForNotification(subscription, o);
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+
+/**
+ * A {@link StreamMessage} that applies a chain of {@link StreamMessage#map(Function)} and
+ * {@link StreamMessage#filter(Predicate)} operators to the elements of its source stream. The operators
+ * are fused into a single {@link Function} which returns {@code null} when an element is filtered out,
+ * so that only one {@link Subscriber} is interposed between the source and the actual {@link Subscriber}
+ * regardless of the number of operators. The {@link Subscription} of the source stream is passed to
+ * the actual {@link Subscriber} as is, which means the demand is signaled to the source directly.
+ */
+final class FuseableStreamMessage<T, U> implements StreamMessage<U> {
+
+    static <T, U> Function<T, U> mapping(Function<? super T, ? extends U> function) {
+        return obj -> {
+            final U result = function.apply(obj);
+            if (result == null) {
+                throw new NullPointerException("function.apply() returned null: " + function);
+            }
+            return result;
+        };
+    }
+
+    static <T> Function<T, T> filtering(Predicate<? super T> predicate) {
+        return obj -> {
+            if (predicate.test(obj)) {
+                return obj;
+            }
+            ReferenceCountUtil.safeRelease(obj);
+            return null;
+        };
+    }
+
+    private final StreamMessage<Object> source;
+    private final Function<Object, Object> function;
+
+    @SuppressWarnings("unchecked")
+    FuseableStreamMessage(StreamMessage<? extends T> source, Function<? super T, ? extends U> function) {
+        final Function<Object, Object> castFunction = (Function<Object, Object>) (Function<?, ?>) function;
+        if (source instanceof FuseableStreamMessage) {
+            // Fuse with the upstream operators rather than subscribing to them.
+            final FuseableStreamMessage<?, ?> upstream = (FuseableStreamMessage<?, ?>) source;
+            this.source = upstream.source;
+            this.function = fuse(upstream.function, castFunction);
+        } else {
+            this.source = (StreamMessage<Object>) (StreamMessage<?>) source;
+            this.function = castFunction;
+        }
+    }
+
+    private static Function<Object, Object> fuse(Function<Object, Object> first,
+                                                 Function<Object, Object> second) {
+        return obj -> {
+            final Object result = first.apply(obj);
+            return result != null ? second.apply(result) : null;
+        };
+    }
+
+    @Override
+    public boolean isOpen() {
+        return source.isOpen();
+    }
+
+    /**
+     * Returns {@code true} only if the source stream is empty. This method is only a hint; it returns
+     * {@code false} for a stream whose elements are all dropped by a fused filter, because it cannot know
+     * that without consuming the source stream.
+     */
+    @Override
+    public boolean isEmpty() {
+        // Never return true for a non-empty source, whose elements may or may not be filtered out.
+        return source.isEmpty();
+    }
+
+    @Override
+    public CompletableFuture<Void> completionFuture() {
+        return source.completionFuture();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super U> subscriber) {
+        requireNonNull(subscriber, "subscriber");
+        source.subscribe(new FusedSubscriber(subscriber));
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super U> subscriber, boolean withPooledObjects) {
+        requireNonNull(subscriber, "subscriber");
+        source.subscribe(new FusedSubscriber(subscriber), withPooledObjects);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super U> subscriber, EventExecutor executor) {
+        requireNonNull(subscriber, "subscriber");
+        requireNonNull(executor, "executor");
+        source.subscribe(new FusedSubscriber(subscriber), executor);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super U> subscriber, EventExecutor executor,
+                          boolean withPooledObjects) {
+        requireNonNull(subscriber, "subscriber");
+        requireNonNull(executor, "executor");
+        source.subscribe(new FusedSubscriber(subscriber), executor, withPooledObjects);
+    }
+
+    @Override
+    public void abort() {
+        source.abort();
+    }
+
+    private final class FusedSubscriber implements Subscriber<Object> {
+
+        private final Subscriber<? super U> delegate;
+        @Nullable
+        private Subscription subscription;
+        private boolean done;
+
+        FusedSubscriber(Subscriber<? super U> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            delegate.onSubscribe(s);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void onNext(Object obj) {
+            if (done) {
+                ReferenceCountUtil.safeRelease(obj);
+                return;
+            }
+
+            assert subscription != null;
+            final Object result;
+            try {
+                result = function.apply(obj);
+            } catch (Throwable cause) {
+                ReferenceCountUtil.safeRelease(obj);
+                done = true;
+                subscription.cancel();
+                delegate.onError(cause);
+                return;
+            }
+
+            if (result != null) {
+                delegate.onNext((U) result);
+            } else {
+                // Filtered out; request another element in place of it so that the demand of
+                // the delegate is not lost.
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+            if (!done) {
+                done = true;
+                delegate.onError(cause);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            if (!done) {
+                done = true;
+                delegate.onComplete();
+            }
+        }
+    }
+}
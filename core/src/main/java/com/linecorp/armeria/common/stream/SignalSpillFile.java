@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.stream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+/**
+ * A temporary file which holds the content of the signals retained by an
+ * {@link AbstractStreamMessageDuplicator} when they do not fit in memory. The file is mapped into memory
+ * a segment at a time, and a spilled content is exposed as a {@link ByteBuf} which wraps a slice of
+ * a segment, so that the content is paged in and out by the operating system rather than occupying
+ * the direct memory.
+ *
+ * <p>The file is deleted when closed. The mapped segments stay valid even after the file is closed, so that
+ * a {@link ByteBuf} which was published to a {@link org.reactivestreams.Subscriber} before closing can still
+ * be read. They are unmapped when garbage-collected.
+ *
+ * <p>This class is not thread-safe; it is accessed only by the executor of the duplicator.
+ */
+final class SignalSpillFile {
+
+    private static final Logger logger = LoggerFactory.getLogger(SignalSpillFile.class);
+
+    private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    @Nullable
+    private FileChannel channel;
+    @Nullable
+    private MappedByteBuffer segment;
+    private long fileLength;
+    private boolean closed;
+
+    /**
+     * Writes the readable bytes of the specified {@link ByteBuf} into this file.
+     * The reader index of the {@link ByteBuf} is not modified.
+     *
+     * @return the {@link ByteBuf} which wraps the written bytes
+     */
+    ByteBuf write(ByteBuf content) throws IOException {
+        final int length = content.readableBytes();
+        final ByteBuffer dst = allocate(length);
+        content.getBytes(content.readerIndex(), dst.duplicate());
+        return Unpooled.wrappedBuffer(dst);
+    }
+
+    /**
+     * Writes the specified bytes into this file.
+     *
+     * @return the {@link ByteBuf} which wraps the written bytes
+     */
+    ByteBuf write(byte[] array, int offset, int length) throws IOException {
+        final ByteBuffer dst = allocate(length);
+        dst.duplicate().put(array, offset, length);
+        return Unpooled.wrappedBuffer(dst);
+    }
+
+    private ByteBuffer allocate(int length) throws IOException {
+        if (closed) {
+            throw new IOException("spill file closed already");
+        }
+
+        MappedByteBuffer segment = this.segment;
+        if (segment == null || segment.remaining() < length) {
+            FileChannel channel = this.channel;
+            if (channel == null) {
+                final Path path = Files.createTempFile("armeria-duplicator-", ".tmp");
+                this.channel = channel = FileChannel.open(path, StandardOpenOption.READ,
+                                                          StandardOpenOption.WRITE,
+                                                          StandardOpenOption.DELETE_ON_CLOSE);
+            }
+
+            // Waste the remainder of the current segment rather than splitting the content, so that
+            // the content is always exposed as a single contiguous buffer.
+            final int segmentSize = Math.max(SEGMENT_SIZE, length);
+            this.segment = segment = channel.map(MapMode.READ_WRITE, fileLength, segmentSize);
+            fileLength += segmentSize;
+        }
+
+        final ByteBuffer slice = segment.slice();
+        slice.limit(length);
+        segment.position(segment.position() + length);
+        return slice;
+    }
+
+    /**
+     * Closes and deletes this file.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segment = null;
+
+        final FileChannel channel = this.channel;
+        if (channel != null) {
+            this.channel = null;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close a spill file:", e);
+            }
+        }
+    }
+}
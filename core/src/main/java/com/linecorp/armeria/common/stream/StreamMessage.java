@@ -16,15 +16,22 @@
 
 package com.linecorp.armeria.common.stream;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaders;
+
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufHolder;
 import io.netty.util.ReferenceCounted;
@@ -237,4 +244,97 @@ public interface StreamMessage<T> extends Publisher<T> {
      * on a closed or aborted stream has no effect.
      */
     void abort();
+
+    /**
+     * Returns a new {@link StreamMessage} that publishes the result of applying the specified
+     * {@code function} to each element of this stream. The {@code function} is invoked from the thread
+     * which invokes the {@link Subscriber}, i.e. the {@link EventExecutor} specified when subscribing,
+     * and consecutive {@link #map(Function)} and {@link #filter(Predicate)} calls are fused into a single
+     * {@link Subscriber} so that no additional {@link Subscription} is created for each operator.
+     *
+     * <p>Note that the {@code function} is responsible for releasing the element if it is a
+     * {@link ReferenceCounted} and the element is not published as is.
+     */
+    default <U> StreamMessage<U> map(Function<? super T, ? extends U> function) {
+        requireNonNull(function, "function");
+        return new FuseableStreamMessage<>(this, FuseableStreamMessage.mapping(function));
+    }
+
+    /**
+     * Returns a new {@link StreamMessage} that publishes only the elements of this stream which match the
+     * specified {@code predicate}. An element which does not match is released if it is
+     * a {@link ReferenceCounted}, and another element is requested from this stream in its place.
+     * The {@code predicate} is invoked from the thread which invokes the {@link Subscriber}, i.e.
+     * the {@link EventExecutor} specified when subscribing.
+     *
+     * @see #map(Function)
+     */
+    default StreamMessage<T> filter(Predicate<? super T> predicate) {
+        requireNonNull(predicate, "predicate");
+        return new FuseableStreamMessage<>(this, FuseableStreamMessage.filtering(predicate));
+    }
+
+    /**
+     * Returns a new {@link StreamMessage} that publishes the elements of this stream in {@link List}s of
+     * {@code maxElements} elements. The last {@link List} may contain fewer elements. When the
+     * {@link Subscriber} requests {@code n} {@link List}s, {@code n * maxElements} elements are requested
+     * from this stream at once.
+     */
+    default StreamMessage<List<T>> buffer(int maxElements) {
+        checkArgument(maxElements > 0, "maxElements: %s (expected: > 0)", maxElements);
+        return new WindowingStreamMessage<>(this, maxElements, Integer.MAX_VALUE, obj -> 0);
+    }
+
+    /**
+     * Returns a new {@link StreamMessage} that publishes the elements of this stream in {@link List}s whose
+     * total length is equal to or greater than {@code maxBytes}, i.e. a {@link List} is published as soon as
+     * the elements accumulated so far reach {@code maxBytes}. The last {@link List} may be shorter.
+     * The length of an element is determined as follows:
+     * <ul>
+     *   <li>the number of readable bytes if it is a {@link ByteBuf} or a {@link ByteBufHolder},</li>
+     *   <li>{@link HttpData#length()} if it is an {@link HttpData} or</li>
+     *   <li>{@code 0} otherwise, e.g. {@link HttpHeaders}.</li>
+     * </ul>
+     */
+    default StreamMessage<List<T>> windowByBytes(int maxBytes) {
+        return windowByBytes(maxBytes, DefaultSignalLengthGetter.INSTANCE);
+    }
+
+    /**
+     * Returns a new {@link StreamMessage} that publishes the elements of this stream in {@link List}s whose
+     * total length, determined by the specified {@link SignalLengthGetter}, is equal to or greater than
+     * {@code maxBytes}, i.e. a {@link List} is published as soon as the elements accumulated so far reach
+     * {@code maxBytes}. The last {@link List} may be shorter.
+     */
+    default StreamMessage<List<T>> windowByBytes(int maxBytes, SignalLengthGetter<? super T> lengthGetter) {
+        checkArgument(maxBytes > 0, "maxBytes: %s (expected: > 0)", maxBytes);
+        requireNonNull(lengthGetter, "lengthGetter");
+        return new WindowingStreamMessage<>(this, Integer.MAX_VALUE, maxBytes, lengthGetter);
+    }
+
+    /**
+     * Subscribes to this stream and collects all its elements into a {@link List}.
+     *
+     * @return the {@link CompletableFuture} which is completed with the collected elements when this stream
+     *         is complete, or completed exceptionally when this stream fails
+     */
+    default CompletableFuture<List<T>> collect() {
+        final CollectingSubscriber<T> subscriber = new CollectingSubscriber<>();
+        subscribe(subscriber);
+        return subscriber.future();
+    }
+
+    /**
+     * Subscribes to this stream and collects all its elements into a {@link List}, invoking
+     * the {@link Subscriber} from the specified {@link EventExecutor}.
+     *
+     * @return the {@link CompletableFuture} which is completed with the collected elements when this stream
+     *         is complete, or completed exceptionally when this stream fails
+     */
+    default CompletableFuture<List<T>> collect(EventExecutor executor) {
+        requireNonNull(executor, "executor");
+        final CollectingSubscriber<T> subscriber = new CollectingSubscriber<>();
+        subscribe(subscriber, executor);
+        return subscriber.future();
+    }
 }
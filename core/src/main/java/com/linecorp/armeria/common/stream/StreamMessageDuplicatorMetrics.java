@@ -0,0 +1,50 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.stream;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import com.linecorp.armeria.common.metric.MeterIdPrefix;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * {@link MeterBinder} for the signals retained by all {@link AbstractStreamMessageDuplicator}s in the JVM.
+ */
+final class StreamMessageDuplicatorMetrics implements MeterBinder {
+
+    // Updated by the duplicators as they retain, spill and release signals.
+    static final LongAdder totalRetainedSignalLength = new LongAdder();
+    static final LongAdder totalSpilledSignalLength = new LongAdder();
+
+    private final MeterIdPrefix idPrefix;
+
+    StreamMessageDuplicatorMetrics(MeterIdPrefix idPrefix) {
+        this.idPrefix = requireNonNull(idPrefix, "idPrefix");
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registry.gauge(idPrefix.name("retainedSignalLength"), idPrefix.tags(),
+                       totalRetainedSignalLength, LongAdder::sum);
+        registry.gauge(idPrefix.name("spilledSignalLength"), idPrefix.tags(),
+                       totalSpilledSignalLength, LongAdder::sum);
+    }
+}
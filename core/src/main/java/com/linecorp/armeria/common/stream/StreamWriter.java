@@ -20,6 +20,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 
 import javax.annotation.CheckReturnValue;
+import javax.annotation.Nullable;
 
 import org.reactivestreams.Subscriber;
 
@@ -119,6 +120,46 @@ public interface StreamWriter<T> {
      */
     CompletableFuture<Void> onDemand(Runnable task);
 
+    /**
+     * Returns {@code true} if the {@link StreamMessage} is open and the objects which were written but not
+     * consumed by the {@link Subscriber} yet do not exceed the {@link StreamWriterWatermark} of this writer.
+     * A producer is expected to stop writing when this method returns {@code false} and to resume when
+     * the listener set by {@link #setWritabilityChangeListener(Runnable)} is invoked. Note that
+     * {@link #tryWrite(Object)} still accepts an object while this method returns {@code false}.
+     *
+     * <p>A writer without a {@link StreamWriterWatermark} is writable as long as it is open.
+     */
+    default boolean isWritable() {
+        return isOpen();
+    }
+
+    /**
+     * Sets the listener which is invoked whenever the {@linkplain #isWritable() writability} of this writer
+     * changes due to its {@link StreamWriterWatermark}. The listener is invoked by the thread which writes
+     * an object when this writer becomes unwritable, and by the {@link Subscriber} thread when this writer
+     * becomes writable again. This method has no effect on a writer without a {@link StreamWriterWatermark}.
+     *
+     * <pre>{@code
+     * void stream(HttpResponseWriter res, Iterator<HttpData> it) {
+     *     while (res.isWritable()) {
+     *         if (!it.hasNext()) {
+     *             res.close();
+     *             return;
+     *         }
+     *         res.write(it.next());
+     *     }
+     *     // Resumed by the listener below.
+     * }
+     *
+     * res.setWritabilityChangeListener(() -> {
+     *     if (res.isWritable()) {
+     *         eventLoop.execute(() -> stream(res, it));
+     *     }
+     * });
+     * }</pre>
+     */
+    default void setWritabilityChangeListener(@Nullable Runnable listener) {}
+
     /**
      * Closes the {@link StreamMessage} successfully. {@link Subscriber#onComplete()} will be invoked to
      * signal that the {@link Subscriber} has consumed the stream completely.
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.stream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.base.MoreObjects;
+
+import com.linecorp.armeria.common.HttpData;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+
+/**
+ * The high and low watermarks of the elements buffered in a {@link StreamWriter}, which are used to
+ * determine its {@linkplain StreamWriter#isWritable() writability}. A {@link StreamWriter} becomes
+ * unwritable when either the number or the total length of the buffered elements exceeds its high watermark,
+ * and becomes writable again when both of them drop to or below their low watermarks.
+ *
+ * <p>The length of an element is the number of bytes of an {@link HttpData}, a {@link ByteBuf} or
+ * a {@link ByteBufHolder}, and {@code 0} for any other objects.
+ *
+ * @see DefaultStreamMessage#DefaultStreamMessage(StreamWriterWatermark)
+ */
+public final class StreamWriterWatermark {
+
+    /**
+     * Returns a new {@link StreamWriterWatermark} which limits the number of the buffered elements.
+     */
+    public static StreamWriterWatermark ofElements(int lowElements, int highElements) {
+        return of(lowElements, highElements, Long.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns a new {@link StreamWriterWatermark} which limits the total length of the buffered elements.
+     */
+    public static StreamWriterWatermark ofBytes(long lowBytes, long highBytes) {
+        return of(Integer.MAX_VALUE, Integer.MAX_VALUE, lowBytes, highBytes);
+    }
+
+    /**
+     * Returns a new {@link StreamWriterWatermark} which limits both the number and the total length of
+     * the buffered elements.
+     */
+    public static StreamWriterWatermark of(int lowElements, int highElements, long lowBytes, long highBytes) {
+        checkArgument(lowElements >= 0, "lowElements: %s (expected: >= 0)", lowElements);
+        checkArgument(highElements >= lowElements,
+                      "highElements: %s (expected: >= lowElements(%s))", highElements, lowElements);
+        checkArgument(lowBytes >= 0, "lowBytes: %s (expected: >= 0)", lowBytes);
+        checkArgument(highBytes >= lowBytes,
+                      "highBytes: %s (expected: >= lowBytes(%s))", highBytes, lowBytes);
+        return new StreamWriterWatermark(lowElements, highElements, lowBytes, highBytes);
+    }
+
+    private final int lowElements;
+    private final int highElements;
+    private final long lowBytes;
+    private final long highBytes;
+
+    private StreamWriterWatermark(int lowElements, int highElements, long lowBytes, long highBytes) {
+        this.lowElements = lowElements;
+        this.highElements = highElements;
+        this.lowBytes = lowBytes;
+        this.highBytes = highBytes;
+    }
+
+    /**
+     * Returns the number of the buffered elements at or below which a {@link StreamWriter} becomes writable.
+     */
+    public int lowElements() {
+        return lowElements;
+    }
+
+    /**
+     * Returns the number of the buffered elements above which a {@link StreamWriter} becomes unwritable.
+     */
+    public int highElements() {
+        return highElements;
+    }
+
+    /**
+     * Returns the total length of the buffered elements at or below which a {@link StreamWriter} becomes
+     * writable.
+     */
+    public long lowBytes() {
+        return lowBytes;
+    }
+
+    /**
+     * Returns the total length of the buffered elements above which a {@link StreamWriter} becomes
+     * unwritable.
+     */
+    public long highBytes() {
+        return highBytes;
+    }
+
+    boolean isAboveHigh(long elements, long bytes) {
+        return elements > highElements || bytes > highBytes;
+    }
+
+    boolean isAtOrBelowLow(long elements, long bytes) {
+        return elements <= lowElements && bytes <= lowBytes;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("lowElements", lowElements)
+                          .add("highElements", highElements)
+                          .add("lowBytes", lowBytes)
+                          .add("highBytes", highBytes)
+                          .toString();
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.stream;
+
+import static com.google.common.math.LongMath.saturatedMultiply;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.Nullable;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+
+/**
+ * A {@link StreamMessage} that publishes the elements of its source stream in {@link List}s, each of which
+ * is published when it contains {@code maxElements} elements or the total length of its elements reaches
+ * {@code maxBytes}.
+ *
+ * <p>A single object acts as both the {@link Subscriber} of the source stream and the {@link Subscription}
+ * of the actual {@link Subscriber}, translating the demand for {@link List}s into the demand for elements:
+ * <ul>
+ *   <li>When only {@code maxElements} is bounded, the demand for {@code n} {@link List}s is translated into
+ *       the demand for {@code n * maxElements} elements up front.</li>
+ *   <li>Otherwise, the demand for {@code n} {@link List}s is translated into the demand for {@code n}
+ *       elements, and another element is requested whenever an element does not complete a {@link List}.
+ *       Therefore, the outstanding demand for elements always equals the outstanding demand for
+ *       {@link List}s.</li>
+ * </ul>
+ */
+final class WindowingStreamMessage<T> implements StreamMessage<List<T>> {
+
+    private final StreamMessage<T> source;
+    private final int maxElements;
+    private final int maxBytes;
+    private final SignalLengthGetter<? super T> lengthGetter;
+
+    @SuppressWarnings("unchecked")
+    WindowingStreamMessage(StreamMessage<? extends T> source, int maxElements, int maxBytes,
+                           SignalLengthGetter<? super T> lengthGetter) {
+        this.source = (StreamMessage<T>) source;
+        this.maxElements = maxElements;
+        this.maxBytes = maxBytes;
+        this.lengthGetter = lengthGetter;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return source.isOpen();
+    }
+
+    /**
+     * Returns {@code true} only if the source stream is empty. This method is only a hint, like
+     * {@link StreamMessage#isEmpty()} of the source stream.
+     */
+    @Override
+    public boolean isEmpty() {
+        return source.isEmpty();
+    }
+
+    @Override
+    public CompletableFuture<Void> completionFuture() {
+        return source.completionFuture();
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super List<T>> subscriber) {
+        requireNonNull(subscriber, "subscriber");
+        source.subscribe(new WindowingSubscriber(subscriber));
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super List<T>> subscriber, boolean withPooledObjects) {
+        requireNonNull(subscriber, "subscriber");
+        source.subscribe(new WindowingSubscriber(subscriber), withPooledObjects);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super List<T>> subscriber, EventExecutor executor) {
+        requireNonNull(subscriber, "subscriber");
+        requireNonNull(executor, "executor");
+        source.subscribe(new WindowingSubscriber(subscriber), executor);
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super List<T>> subscriber, EventExecutor executor,
+                          boolean withPooledObjects) {
+        requireNonNull(subscriber, "subscriber");
+        requireNonNull(executor, "executor");
+        source.subscribe(new WindowingSubscriber(subscriber), executor, withPooledObjects);
+    }
+
+    @Override
+    public void abort() {
+        source.abort();
+    }
+
+    private final class WindowingSubscriber implements Subscriber<T>, Subscription {
+
+        private final Subscriber<? super List<T>> delegate;
+        private final boolean countOnly = maxBytes == Integer.MAX_VALUE;
+        @Nullable
+        private Subscription subscription;
+        @Nullable
+        private List<T> window;
+        private long windowBytes;
+        private boolean done;
+
+        WindowingSubscriber(Subscriber<? super List<T>> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            delegate.onSubscribe(this);
+        }
+
+        @Override
+        public void request(long n) {
+            assert subscription != null;
+            if (n <= 0) {
+                // Let the source stream reject the invalid demand.
+                subscription.request(n);
+                return;
+            }
+
+            subscription.request(countOnly ? saturatedMultiply(n, maxElements) : n);
+        }
+
+        @Override
+        public void cancel() {
+            assert subscription != null;
+            subscription.cancel();
+        }
+
+        @Override
+        public void onNext(T obj) {
+            if (done) {
+                ReferenceCountUtil.safeRelease(obj);
+                return;
+            }
+
+            assert subscription != null;
+            final int length;
+            try {
+                length = countOnly ? 0 : lengthGetter.length(obj);
+            } catch (Throwable cause) {
+                ReferenceCountUtil.safeRelease(obj);
+                subscription.cancel();
+                onError(cause);
+                return;
+            }
+
+            List<T> window = this.window;
+            if (window == null) {
+                this.window = window = new ArrayList<>(countOnly ? Math.min(maxElements, 1024) : 8);
+            }
+            window.add(obj);
+            windowBytes += length;
+
+            if (window.size() >= maxElements || windowBytes >= maxBytes) {
+                this.window = null;
+                windowBytes = 0;
+                delegate.onNext(window);
+            } else if (!countOnly) {
+                // Replenish the demand consumed by the element which did not complete a window.
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable cause) {
+            if (done) {
+                return;
+            }
+            done = true;
+            final List<T> window = this.window;
+            if (window != null) {
+                this.window = null;
+                window.forEach(ReferenceCountUtil::safeRelease);
+            }
+            delegate.onError(cause);
+        }
+
+        @Override
+        public void onComplete() {
+            if (done) {
+                return;
+            }
+            done = true;
+            final List<T> window = this.window;
+            if (window != null) {
+                this.window = null;
+                delegate.onNext(window);
+            }
+            delegate.onComplete();
+        }
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.internal;
+
+import static io.netty.handler.codec.http2.Http2Error.PROTOCOL_ERROR;
+import static io.netty.handler.codec.http2.Http2Exception.connectionError;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.linecorp.armeria.common.DefaultHttpHeaders;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
+
+import io.netty.handler.codec.EmptyHeaders;
+import io.netty.handler.codec.http2.Http2Headers;
+import io.netty.util.AsciiString;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * An {@link Http2Headers} which is a view of Armeria {@link HttpHeaders}, so that the HPACK encoder reads
+ * the headers and the HPACK decoder writes the headers without copying them from or into another
+ * {@link Http2Headers}.
+ *
+ * <p>When viewed as {@link Http2Headers}, the pseudo headers come first, the connection-specific headers
+ * such as {@code "connection"} are hidden and a {@code "cookie"} header is split into one header per cookie.
+ * The cookies added by {@link #add(CharSequence, CharSequence)} are concatenated into a single
+ * {@code "cookie"} header of the underlying {@link HttpHeaders}.
+ *
+ * <p>Only the operations required by the HPACK encoder and decoder and by Armeria are supported:
+ * the lookup operations, the {@code int} and {@code long} getters and {@link #add(CharSequence, CharSequence)}
+ * on the headers being decoded. The other typed getters return {@code null} or the default value, and
+ * the other mutating operations throw an {@link UnsupportedOperationException}.
+ */
+public final class ArmeriaHttp2Headers
+        extends EmptyHeaders<CharSequence, CharSequence, Http2Headers> implements Http2Headers {
+
+    private final HttpHeaders delegate;
+    private final boolean writable;
+    private final boolean validate;
+
+    /**
+     * Creates a new read-only view of the specified {@link HttpHeaders}.
+     */
+    public ArmeriaHttp2Headers(HttpHeaders delegate) {
+        this.delegate = delegate;
+        writable = false;
+        validate = false;
+    }
+
+    /**
+     * Creates a new instance to be filled by an HPACK decoder.
+     *
+     * @param validate whether to validate the header names
+     * @param initialCapacity the initial capacity of the underlying {@link HttpHeaders}
+     */
+    public ArmeriaHttp2Headers(boolean validate, int initialCapacity) {
+        delegate = new DefaultHttpHeaders(false, initialCapacity);
+        writable = true;
+        this.validate = validate;
+    }
+
+    /**
+     * Returns the underlying {@link HttpHeaders}.
+     */
+    public HttpHeaders delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Http2Headers add(CharSequence name, CharSequence value) {
+        if (!writable) {
+            throw new UnsupportedOperationException("read only");
+        }
+
+        final AsciiString asciiName = AsciiString.of(name);
+        if (validate) {
+            validateName(asciiName);
+        }
+
+        // Cookies must be concatenated into a single octet string.
+        // https://tools.ietf.org/html/rfc7540#section-8.1.2.5
+        if (asciiName.equals(HttpHeaderNames.COOKIE)) {
+            addCookies(value);
+        } else {
+            delegate.add(asciiName, ArmeriaHttpUtil.convertHeaderValue(asciiName, value));
+        }
+        return this;
+    }
+
+    private void addCookies(CharSequence value) {
+        final String oldCookies = delegate.get(HttpHeaderNames.COOKIE);
+        final StringBuilder buf = oldCookies != null ? new StringBuilder(oldCookies) : new StringBuilder();
+        for (String cookie : ArmeriaHttpUtil.COOKIE_SPLITTER.split(value)) {
+            if (buf.length() != 0) {
+                buf.append(ArmeriaHttpUtil.COOKIE_SEPARATOR);
+            }
+            buf.append(cookie);
+        }
+        if (buf.length() != 0) {
+            delegate.set(HttpHeaderNames.COOKIE, buf.toString());
+        }
+    }
+
+    private static void validateName(AsciiString name) {
+        if (name.isEmpty()) {
+            PlatformDependent.throwException(connectionError(PROTOCOL_ERROR, "empty headers are not allowed"));
+        }
+        if (name.byteAt(0) != ':') {
+            for (int i = 0; i < name.length(); i++) {
+                if (AsciiString.isUpperCase(name.byteAt(i))) {
+                    PlatformDependent.throwException(connectionError(
+                            PROTOCOL_ERROR, "invalid header name [%s]", name));
+                }
+            }
+        }
+    }
+
+    @Nullable
+    @Override
+    public CharSequence get(CharSequence name) {
+        final AsciiString asciiName = AsciiString.of(name);
+        if (isConnectionSpecific(asciiName)) {
+            return null;
+        }
+        if (asciiName.contentEqualsIgnoreCase(HttpHeaderNames.COOKIE)) {
+            final List<CharSequence> cookies = getAll(name);
+            return cookies.isEmpty() ? null : cookies.get(0);
+        }
+        return delegate.get(asciiName);
+    }
+
+    @Override
+    public CharSequence get(CharSequence name, CharSequence defaultValue) {
+        final CharSequence value = get(name);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public List<CharSequence> getAll(CharSequence name) {
+        List<CharSequence> values = null;
+        for (Entry<CharSequence, CharSequence> e : this) {
+            if (AsciiString.contentEqualsIgnoreCase(e.getKey(), name)) {
+                if (values == null) {
+                    values = new ArrayList<>(2);
+                }
+                values.add(e.getValue());
+            }
+        }
+        return values != null ? values : Collections.emptyList();
+    }
+
+    @Override
+    public Iterator<CharSequence> valueIterator(CharSequence name) {
+        return getAll(name).iterator();
+    }
+
+    @Nullable
+    @Override
+    public Integer getInt(CharSequence name) {
+        final CharSequence value = get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int getInt(CharSequence name, int defaultValue) {
+        final Integer value = getInt(name);
+        return value != null ? value : defaultValue;
+    }
+
+    @Nullable
+    @Override
+    public Long getLong(CharSequence name) {
+        final CharSequence value = get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public long getLong(CharSequence name, long defaultValue) {
+        final Long value = getLong(name);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public boolean contains(CharSequence name) {
+        return get(name) != null;
+    }
+
+    @Override
+    public boolean contains(CharSequence name, CharSequence value) {
+        return contains(name, value, false);
+    }
+
+    @Override
+    public boolean contains(CharSequence name, CharSequence value, boolean caseInsensitive) {
+        for (Entry<CharSequence, CharSequence> e : this) {
+            if (AsciiString.contentEqualsIgnoreCase(e.getKey(), name) &&
+                (caseInsensitive ? AsciiString.contentEqualsIgnoreCase(e.getValue(), value)
+                                 : AsciiString.contentEquals(e.getValue(), value))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Iterator<Entry<CharSequence, CharSequence>> i = iterator(); i.hasNext(); i.next()) {
+            size++;
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return !iterator().hasNext();
+    }
+
+    @Override
+    public Set<CharSequence> names() {
+        final Set<CharSequence> names = new LinkedHashSet<>();
+        for (Entry<CharSequence, CharSequence> e : this) {
+            names.add(e.getKey());
+        }
+        return names;
+    }
+
+    @Override
+    public Iterator<Entry<CharSequence, CharSequence>> iterator() {
+        return new Http2HeadersIterator();
+    }
+
+    @Override
+    public Http2Headers method(CharSequence value) {
+        throw new UnsupportedOperationException("read only");
+    }
+
+    @Override
+    public Http2Headers scheme(CharSequence value) {
+        throw new UnsupportedOperationException("read only");
+    }
+
+    @Override
+    public Http2Headers authority(CharSequence value) {
+        throw new UnsupportedOperationException("read only");
+    }
+
+    @Override
+    public Http2Headers path(CharSequence value) {
+        throw new UnsupportedOperationException("read only");
+    }
+
+    @Override
+    public Http2Headers status(CharSequence value) {
+        throw new UnsupportedOperationException("read only");
+    }
+
+    @Nullable
+    @Override
+    public CharSequence method() {
+        return delegate.get(HttpHeaderNames.METHOD);
+    }
+
+    @Nullable
+    @Override
+    public CharSequence scheme() {
+        return delegate.get(HttpHeaderNames.SCHEME);
+    }
+
+    @Nullable
+    @Override
+    public CharSequence authority() {
+        return delegate.get(HttpHeaderNames.AUTHORITY);
+    }
+
+    @Nullable
+    @Override
+    public CharSequence path() {
+        return delegate.get(HttpHeaderNames.PATH);
+    }
+
+    @Nullable
+    @Override
+    public CharSequence status() {
+        return delegate.get(HttpHeaderNames.STATUS);
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+
+    @Override
+    public boolean equals(@Nullable Object obj) {
+        return this == obj;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + delegate;
+    }
+
+    private static boolean isConnectionSpecific(AsciiString name) {
+        return name.contentEqualsIgnoreCase(HttpHeaderNames.CONNECTION) ||
+               name.contentEqualsIgnoreCase(HttpHeaderNames.TRANSFER_ENCODING) ||
+               name.contentEqualsIgnoreCase(HttpHeaderNames.TRAILER);
+    }
+
+    /**
+     * Iterates over the pseudo headers first and then over the other headers, skipping the connection-specific
+     * headers and splitting the {@code "cookie"} headers.
+     */
+    private final class Http2HeadersIterator implements Iterator<Entry<CharSequence, CharSequence>> {
+
+        private boolean pseudoHeaders = true;
+        private Iterator<Entry<AsciiString, String>> i = delegate.iterator();
+        @Nullable
+        private Iterator<String> cookies;
+        @Nullable
+        private Entry<CharSequence, CharSequence> next;
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = computeNext();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<CharSequence, CharSequence> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Entry<CharSequence, CharSequence> next = this.next;
+            this.next = null;
+            return next;
+        }
+
+        @Nullable
+        @SuppressWarnings("unchecked")
+        private Entry<CharSequence, CharSequence> computeNext() {
+            for (;;) {
+                if (cookies != null) {
+                    if (cookies.hasNext()) {
+                        return new CookieEntry(cookies.next());
+                    }
+                    cookies = null;
+                }
+
+                if (!i.hasNext()) {
+                    if (!pseudoHeaders) {
+                        return null;
+                    }
+                    pseudoHeaders = false;
+                    i = delegate.iterator();
+                    continue;
+                }
+
+                final Entry<AsciiString, String> e = i.next();
+                final AsciiString name = e.getKey();
+                final boolean pseudoHeader = !name.isEmpty() && name.byteAt(0) == ':';
+                if (pseudoHeader != pseudoHeaders) {
+                    continue;
+                }
+
+                if (!pseudoHeader) {
+                    if (isConnectionSpecific(name)) {
+                        continue;
+                    }
+                    // Split up cookies to allow for better compression.
+                    // https://tools.ietf.org/html/rfc7540#section-8.1.2.5
+                    if (name.equals(HttpHeaderNames.COOKIE)) {
+                        cookies = ArmeriaHttpUtil.COOKIE_SPLITTER.split(e.getValue()).iterator();
+                        continue;
+                    }
+                }
+
+                return (Entry<CharSequence, CharSequence>) (Entry<?, ?>) e;
+            }
+        }
+    }
+
+    private static final class CookieEntry implements Entry<CharSequence, CharSequence> {
+
+        private final String value;
+
+        CookieEntry(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public CharSequence getKey() {
+            return HttpHeaderNames.COOKIE;
+        }
+
+        @Override
+        public CharSequence getValue() {
+            return value;
+        }
+
+        @Override
+        public CharSequence setValue(CharSequence value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString() {
+            return HttpHeaderNames.COOKIE + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.internal;
+
+import io.netty.handler.codec.http2.DefaultHttp2HeadersDecoder;
+import io.netty.handler.codec.http2.Http2Headers;
+
+/**
+ * A {@link DefaultHttp2HeadersDecoder} which decodes the headers directly into an {@link ArmeriaHttp2Headers},
+ * so that they do not need to be converted into Armeria headers later.
+ */
+public final class ArmeriaHttp2HeadersDecoder extends DefaultHttp2HeadersDecoder {
+
+    private final boolean validateHeaders;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param validateHeaders whether to validate the header names
+     */
+    public ArmeriaHttp2HeadersDecoder(boolean validateHeaders) {
+        super(validateHeaders);
+        this.validateHeaders = validateHeaders;
+    }
+
+    @Override
+    protected Http2Headers newHeaders() {
+        return new ArmeriaHttp2Headers(validateHeaders, 16);
+    }
+}
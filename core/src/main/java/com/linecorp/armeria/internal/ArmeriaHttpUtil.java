@@ -53,6 +53,7 @@ import javax.annotation.Nullable;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.MoreObjects;
 import com.google.common.base.Splitter;
 
 import com.linecorp.armeria.common.DefaultHttpHeaders;
@@ -71,7 +72,6 @@ import io.netty.handler.codec.http.HttpRequest;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
-import io.netty.handler.codec.http2.DefaultHttp2Headers;
 import io.netty.handler.codec.http2.Http2Exception;
 import io.netty.handler.codec.http2.Http2Headers;
 import io.netty.handler.codec.http2.HttpConversionUtil;
@@ -162,8 +162,8 @@ public final class ArmeriaHttpUtil {
      */
     private static final String EMPTY_REQUEST_PATH = "/";
 
-    private static final Splitter COOKIE_SPLITTER = Splitter.on(';').trimResults().omitEmptyStrings();
-    private static final String COOKIE_SEPARATOR = "; ";
+    static final Splitter COOKIE_SPLITTER = Splitter.on(';').trimResults().omitEmptyStrings();
+    static final String COOKIE_SEPARATOR = "; ";
 
     @Nullable
     private static final LoadingCache<AsciiString, String> HEADER_VALUE_CACHE =
@@ -269,9 +269,14 @@ public final class ArmeriaHttpUtil {
     }
 
     /**
-     * Converts the specified Netty HTTP/2 into Armeria HTTP/2 headers.
+     * Converts the specified Netty HTTP/2 into Armeria HTTP/2 headers. No conversion is made if
+     * the specified headers were decoded by {@link ArmeriaHttp2HeadersDecoder}.
      */
     public static HttpHeaders toArmeria(Http2Headers headers) {
+        if (headers instanceof ArmeriaHttp2Headers) {
+            return ((ArmeriaHttp2Headers) headers).delegate();
+        }
+
         final HttpHeaders converted = new DefaultHttpHeaders(false, headers.size());
         StringJoiner cookieJoiner = null;
         for (Entry<CharSequence, CharSequence> e : headers) {
@@ -307,19 +312,45 @@ public final class ArmeriaHttpUtil {
      * {@link ExtensionHeaderNames#PATH} is ignored and instead extracted from the {@code Request-Line}.
      */
     public static HttpHeaders toArmeria(HttpRequest in) throws URISyntaxException {
-        final URI requestTargetUri = toUri(in);
+        final String scheme = in.headers().get(ExtensionHeaderNames.SCHEME.text());
+        return toArmeria(in, scheme != null ? scheme : "unknown");
+    }
 
+    /**
+     * Converts the headers of the given Netty HTTP/1.x request into Armeria HTTP/2 headers.
+     * The specified {@code defaultScheme} is used if the {@code Request-Line} does not contain a scheme.
+     * A {@code Request-Line} in the origin form, e.g. {@code "/foo?bar"}, which is the most common form,
+     * is used as {@code ":path"} as it is, without being parsed into a {@link URI}, because the path is
+     * validated later when the request is routed.
+     */
+    public static HttpHeaders toArmeria(HttpRequest in, String defaultScheme) throws URISyntaxException {
         final io.netty.handler.codec.http.HttpHeaders inHeaders = in.headers();
-        final HttpHeaders out = new DefaultHttpHeaders(true, inHeaders.size());
+        final HttpHeaders out = new DefaultHttpHeaders(true, inHeaders.size() + 4);
 
-        out.path(toHttp2Path(requestTargetUri));
-        out.method(HttpMethod.valueOf(in.method().name()));
-        setHttp2Scheme(inHeaders, requestTargetUri, out);
-
-        if (!isOriginForm(requestTargetUri) && !isAsteriskForm(requestTargetUri)) {
-            // Attempt to take from HOST header before taking from the request-line
-            final String host = inHeaders.getAsString(HttpHeaderNames.HOST);
-            setHttp2Authority(host == null || host.isEmpty() ? requestTargetUri.getAuthority() : host, out);
+        final String uri = in.uri();
+        final boolean originForm = !uri.isEmpty() && uri.charAt(0) == '/' &&
+                                   (uri.length() == 1 || uri.charAt(1) != '/');
+        if (originForm) {
+            out.path(uri);
+            out.method(HttpMethod.valueOf(in.method().name()));
+            out.scheme(defaultScheme);
+            // An empty HOST header is treated as absent, as well as in the absolute form below.
+            final String host = inHeaders.get(HttpHeaderNames.HOST);
+            if (host != null && !host.isEmpty()) {
+                setHttp2Authority(host, out);
+            }
+        } else {
+            final URI requestTargetUri = toUri(in);
+            out.path(toHttp2Path(requestTargetUri));
+            out.method(HttpMethod.valueOf(in.method().name()));
+            out.scheme(MoreObjects.firstNonNull(requestTargetUri.getScheme(), defaultScheme));
+
+            if (!isOriginForm(requestTargetUri) && !isAsteriskForm(requestTargetUri)) {
+                // Attempt to take from HOST header before taking from the request-line
+                final String host = inHeaders.getAsString(HttpHeaderNames.HOST);
+                setHttp2Authority(host == null || host.isEmpty() ? requestTargetUri.getAuthority() : host,
+                                  out);
+            }
         }
 
         // Add the HTTP headers which have not been consumed above
@@ -360,13 +391,24 @@ public final class ArmeriaHttpUtil {
         final Iterator<Entry<CharSequence, CharSequence>> iter = inHeaders.iteratorCharSequence();
         // Choose 8 as a default size because it is unlikely we will see more than 4 Connection headers values,
         // but still allowing for "enough" space in the map to reduce the chance of hash code collision.
-        final CharSequenceMap connectionBlacklist =
-                toLowercaseMap(inHeaders.valueCharSequenceIterator(HttpHeaderNames.CONNECTION), 8);
+        // Most requests have no more than a 'keep-alive' or 'close' in their Connection header, so do not
+        // create the map for them.
+        final CharSequenceMap connectionBlacklist;
+        final String connection = inHeaders.get(HttpHeaderNames.CONNECTION);
+        if (connection == null || isKeepAliveOrClose(connection)) {
+            connectionBlacklist = null;
+        } else {
+            connectionBlacklist =
+                    toLowercaseMap(inHeaders.valueCharSequenceIterator(HttpHeaderNames.CONNECTION), 8);
+        }
         StringJoiner cookieJoiner = null;
         while (iter.hasNext()) {
             final Entry<CharSequence, CharSequence> entry = iter.next();
-            final AsciiString aName = AsciiString.of(entry.getKey()).toLowerCase();
-            if (HTTP_TO_HTTP2_HEADER_BLACKLIST.contains(aName) || connectionBlacklist.contains(aName)) {
+            // The name is a String decoded by Netty. A known header name which is lower-cased or
+            // capitalized is mapped to its pre-instantiated AsciiString without being lower-cased.
+            final AsciiString aName = HttpHeaderNames.of(entry.getKey().toString());
+            if (HTTP_TO_HTTP2_HEADER_BLACKLIST.contains(aName) ||
+                connectionBlacklist != null && connectionBlacklist.contains(aName)) {
                 continue;
             }
 
@@ -394,6 +436,11 @@ public final class ArmeriaHttpUtil {
         }
     }
 
+    private static boolean isKeepAliveOrClose(String connection) {
+        return HttpHeaderValues.KEEP_ALIVE.contentEqualsIgnoreCase(connection) ||
+               HttpHeaderValues.CLOSE.contentEqualsIgnoreCase(connection);
+    }
+
     private static CharSequenceMap toLowercaseMap(Iterator<? extends CharSequence> valuesIter,
                                                   int arraySizeHint) {
         final CharSequenceMap result = new CharSequenceMap(arraySizeHint);
@@ -508,44 +555,14 @@ public final class ArmeriaHttpUtil {
         }
     }
 
-    private static void setHttp2Scheme(io.netty.handler.codec.http.HttpHeaders in, URI uri, HttpHeaders out) {
-        final String value = uri.getScheme();
-        if (value != null) {
-            out.scheme(value);
-            return;
-        }
-
-        // Consume the Scheme extension header if present
-        final CharSequence cValue = in.get(ExtensionHeaderNames.SCHEME.text());
-        if (cValue != null) {
-            out.scheme(cValue.toString());
-        } else {
-            out.scheme("unknown");
-        }
-    }
-
     /**
-     * Converts the specified Armeria HTTP/2 headers into Netty HTTP/2 headers.
+     * Converts the specified Armeria HTTP/2 headers into Netty HTTP/2 headers. The returned
+     * {@link Http2Headers} is a read-only view of the specified {@link HttpHeaders}.
+     *
+     * @see ArmeriaHttp2Headers
      */
     public static Http2Headers toNettyHttp2(HttpHeaders in) {
-        final Http2Headers out = new DefaultHttp2Headers(false, in.size());
-        out.set(in);
-        out.remove(HttpHeaderNames.CONNECTION);
-        out.remove(HttpHeaderNames.TRANSFER_ENCODING);
-        out.remove(HttpHeaderNames.TRAILER);
-
-        if (!out.contains(HttpHeaderNames.COOKIE)) {
-            return out;
-        }
-
-        // Split up cookies to allow for better compression.
-        // https://tools.ietf.org/html/rfc7540#section-8.1.2.5
-        final List<CharSequence> cookies = out.getAllAndRemove(HttpHeaderNames.COOKIE);
-        for (CharSequence c : cookies) {
-            out.add(HttpHeaderNames.COOKIE, COOKIE_SPLITTER.split(c));
-        }
-
-        return out;
+        return new ArmeriaHttp2Headers(in);
     }
 
     /**
@@ -609,7 +626,7 @@ public final class ArmeriaHttpUtil {
         }
     }
 
-    private static String convertHeaderValue(AsciiString name, CharSequence value) {
+    static String convertHeaderValue(AsciiString name, CharSequence value) {
         if (!(value instanceof AsciiString)) {
             return value.toString();
         }
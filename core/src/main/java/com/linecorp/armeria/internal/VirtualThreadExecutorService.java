@@ -0,0 +1,252 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.internal;
+
+import static java.util.Objects.requireNonNull;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import com.linecorp.armeria.common.RequestContext;
+import com.linecorp.armeria.common.util.Exceptions;
+import com.linecorp.armeria.common.util.SafeCloseable;
+
+/**
+ * An {@link AbstractExecutorService} which runs each task in a new virtual thread. Because a virtual thread
+ * does not occupy a platform thread while it is blocked, the number of concurrent blocking tasks is not
+ * limited by the number of platform threads. The {@link RequestContext} of the thread which submitted a task
+ * is propagated to the virtual thread which runs the task.
+ *
+ * <p>Virtual threads are detected at runtime, so that Armeria can still be built and run with Java 8.
+ * Use {@link #isAvailable()} to check if the current JVM supports virtual threads.
+ */
+public final class VirtualThreadExecutorService extends AbstractExecutorService {
+
+    @Nullable
+    private static final Method OF_VIRTUAL;
+    @Nullable
+    private static final Method BUILDER_NAME;
+    @Nullable
+    private static final Method BUILDER_FACTORY;
+    @Nullable
+    private static final Throwable UNAVAILABILITY_CAUSE;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Throwable unavailabilityCause = null;
+        try {
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            // Make sure virtual threads are not disabled, e.g. preview features in Java 19 and 20.
+            builderFactory.invoke(builderName.invoke(ofVirtual.invoke(null), "armeria-vt-check-", 0L));
+        } catch (Throwable cause) {
+            ofVirtual = null;
+            builderName = null;
+            builderFactory = null;
+            unavailabilityCause = Exceptions.peel(cause);
+        }
+
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        UNAVAILABILITY_CAUSE = unavailabilityCause;
+    }
+
+    /**
+     * Returns whether the current JVM supports virtual threads.
+     */
+    public static boolean isAvailable() {
+        return UNAVAILABILITY_CAUSE == null;
+    }
+
+    /**
+     * Returns the cause of why virtual threads are not available, or {@code null} if they are available.
+     */
+    @Nullable
+    public static Throwable unavailabilityCause() {
+        return UNAVAILABILITY_CAUSE;
+    }
+
+    private final ThreadFactory threadFactory;
+    private final AtomicInteger pendingTasks = new AtomicInteger();
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    // The number of the tasks which have been accepted but not finished yet.
+    private final AtomicInteger unfinishedTasks = new AtomicInteger();
+    private final Set<Thread> activeThreads = ConcurrentHashMap.newKeySet();
+    private final CompletableFuture<Void> terminationFuture = new CompletableFuture<>();
+    private volatile boolean shutdown;
+    private volatile boolean interrupted;
+
+    /**
+     * Creates a new instance whose threads are named with the specified prefix and a sequence number.
+     *
+     * @throws IllegalStateException if virtual threads are not available
+     */
+    public VirtualThreadExecutorService(String threadNamePrefix) {
+        requireNonNull(threadNamePrefix, "threadNamePrefix");
+        if (!isAvailable()) {
+            throw new IllegalStateException("virtual threads are not available", UNAVAILABILITY_CAUSE);
+        }
+
+        try {
+            assert OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_FACTORY != null;
+            threadFactory = (ThreadFactory) BUILDER_FACTORY.invoke(
+                    BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), threadNamePrefix, 0L));
+        } catch (Exception e) {
+            throw new IllegalStateException("failed to create a virtual thread factory", e);
+        }
+    }
+
+    /**
+     * Creates a new instance which runs each task in a new thread created by the specified
+     * {@link ThreadFactory}, so that this class can be tested with platform threads.
+     */
+    @VisibleForTesting
+    VirtualThreadExecutorService(ThreadFactory threadFactory) {
+        this.threadFactory = requireNonNull(threadFactory, "threadFactory");
+    }
+
+    /**
+     * Returns the number of the tasks which have been submitted but not started yet.
+     */
+    public int pendingTasks() {
+        return pendingTasks.get();
+    }
+
+    /**
+     * Returns the number of the tasks which are running.
+     */
+    public int activeTasks() {
+        return activeTasks.get();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        requireNonNull(command, "command");
+        unfinishedTasks.incrementAndGet();
+        if (shutdown) {
+            onTaskFinished();
+            throw new RejectedExecutionException("shut down already");
+        }
+
+        final RequestContext ctx = RequestContext.mapCurrent(Function.identity(), null);
+        pendingTasks.incrementAndGet();
+        Thread thread = null;
+        try {
+            thread = threadFactory.newThread(() -> run(command, ctx));
+            // Register the thread before starting it, so that shutdownNow() never misses it.
+            activeThreads.add(thread);
+            thread.start();
+        } catch (Throwable cause) {
+            if (thread != null) {
+                activeThreads.remove(thread);
+            }
+            pendingTasks.decrementAndGet();
+            onTaskFinished();
+            throw new RejectedExecutionException(cause);
+        }
+    }
+
+    private void run(Runnable command, @Nullable RequestContext ctx) {
+        final Thread thread = Thread.currentThread();
+        pendingTasks.decrementAndGet();
+        activeTasks.incrementAndGet();
+        if (interrupted) {
+            // shutdownNow() might have interrupted this thread before it started.
+            thread.interrupt();
+        }
+        try {
+            if (ctx != null) {
+                try (SafeCloseable ignored = RequestContext.push(ctx)) {
+                    command.run();
+                }
+            } else {
+                command.run();
+            }
+        } finally {
+            activeThreads.remove(thread);
+            activeTasks.decrementAndGet();
+            onTaskFinished();
+        }
+    }
+
+    private void onTaskFinished() {
+        if (unfinishedTasks.decrementAndGet() == 0 && shutdown) {
+            terminationFuture.complete(null);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        if (unfinishedTasks.get() == 0) {
+            terminationFuture.complete(null);
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        interrupted = true;
+        activeThreads.forEach(Thread::interrupt);
+        // No task is queued because a new thread is started for each task.
+        return Collections.emptyList();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return terminationFuture.isDone();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            terminationFuture.get(timeout, unit);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            // Never completed exceptionally.
+            throw new Error(e);
+        }
+    }
+}
@@ -19,9 +19,18 @@ package com.linecorp.armeria.internal.metric;
 import static com.linecorp.armeria.common.metric.MoreMeters.newDistributionSummary;
 import static com.linecorp.armeria.common.metric.MoreMeters.newTimer;
 
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 
+import com.google.common.collect.ImmutableList;
+
+import com.linecorp.armeria.common.Flags;
 import com.linecorp.armeria.common.RequestContext;
 import com.linecorp.armeria.common.RpcResponse;
 import com.linecorp.armeria.common.logging.RequestLog;
@@ -31,9 +40,17 @@ import com.linecorp.armeria.common.metric.MeterIdPrefixFunction;
 
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Statistic;
+import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.FastThreadLocalThread;
 
 /**
  * Collects the metric data and stores it into the {@link MeterRegistry}.
@@ -44,18 +61,36 @@ public final class RequestMetricSupport {
     private static final AttributeKey<Boolean> ATTR_REQUEST_METRICS_SET =
             AttributeKey.valueOf(Boolean.class, "REQUEST_METRICS_SET");
 
+    /**
+     * Sets up the request metrics of the specified {@link RequestContext}. The metrics are accumulated
+     * in thread-local counters if {@link Flags#useThreadLocalRequestMetrics()} is enabled.
+     */
     public static void setup(RequestContext ctx, MeterIdPrefixFunction meterIdPrefixFunction) {
+        setup(ctx, meterIdPrefixFunction, Flags.useThreadLocalRequestMetrics());
+    }
+
+    /**
+     * Sets up the request metrics of the specified {@link RequestContext}.
+     *
+     * @param useThreadLocalMetrics whether to accumulate the metrics in thread-local counters rather than
+     *                              the {@link Timer}s and {@link DistributionSummary}s with percentiles
+     */
+    public static void setup(RequestContext ctx, MeterIdPrefixFunction meterIdPrefixFunction,
+                             boolean useThreadLocalMetrics) {
         if (ctx.hasAttr(ATTR_REQUEST_METRICS_SET)) {
             return;
         }
         ctx.attr(ATTR_REQUEST_METRICS_SET).set(true);
 
-        ctx.log().addListener(log -> onRequest(log, meterIdPrefixFunction),
+        final BiFunction<MeterRegistry, MeterIdPrefix, RequestMetrics> metricsFactory =
+                useThreadLocalMetrics ? ThreadLocalRequestMetrics::new : DefaultRequestMetrics::new;
+        ctx.log().addListener(log -> onRequest(log, meterIdPrefixFunction, metricsFactory),
                               RequestLogAvailability.REQUEST_HEADERS,
                               RequestLogAvailability.REQUEST_CONTENT);
     }
 
-    private static void onRequest(RequestLog log, MeterIdPrefixFunction meterIdPrefixFunction) {
+    private static void onRequest(RequestLog log, MeterIdPrefixFunction meterIdPrefixFunction,
+                                  BiFunction<MeterRegistry, MeterIdPrefix, RequestMetrics> metricsFactory) {
         final RequestContext ctx = log.context();
         final MeterRegistry registry = ctx.meterRegistry();
         final MeterIdPrefix idPrefix = meterIdPrefixFunction.apply(registry, log);
@@ -68,35 +103,26 @@ public final class RequestMetricSupport {
                         reg.gauge(prefix.name(), prefix.tags(),
                                   new ActiveRequestMetrics(), ActiveRequestMetrics::doubleValue));
         activeRequestMetrics.increment();
-        ctx.log().addListener(requestLog -> onResponse(requestLog, meterIdPrefixFunction, activeRequestMetrics),
+        ctx.log().addListener(requestLog -> onResponse(requestLog, meterIdPrefixFunction, metricsFactory,
+                                                       activeRequestMetrics),
                               RequestLogAvailability.COMPLETE);
     }
 
     private static void onResponse(RequestLog log, MeterIdPrefixFunction meterIdPrefixFunction,
+                                   BiFunction<MeterRegistry, MeterIdPrefix, RequestMetrics> metricsFactory,
                                    ActiveRequestMetrics activeRequestMetrics) {
         final RequestContext ctx = log.context();
         final MeterRegistry registry = ctx.meterRegistry();
         final MeterIdPrefix idPrefix = meterIdPrefixFunction.apply(registry, log);
         final RequestMetrics metrics = MicrometerUtil.register(
-                registry, idPrefix, RequestMetrics.class, DefaultRequestMetrics::new);
+                registry, idPrefix, RequestMetrics.class, metricsFactory);
 
         if (log.requestCause() != null) {
-            metrics.failure().increment();
+            metrics.recordRequestFailure();
             return;
         }
 
-        metrics.requestDuration().record(log.requestDurationNanos(), TimeUnit.NANOSECONDS);
-        metrics.requestLength().record(log.requestLength());
-        metrics.responseDuration().record(log.responseDurationNanos(), TimeUnit.NANOSECONDS);
-        metrics.responseLength().record(log.responseLength());
-        metrics.totalDuration().record(log.totalDurationNanos(), TimeUnit.NANOSECONDS);
-
-        if (isSuccess(log)) {
-            metrics.success().increment();
-        } else {
-            metrics.failure().increment();
-        }
-
+        metrics.record(log, isSuccess(log));
         activeRequestMetrics.decrement();
     }
 
@@ -122,19 +148,15 @@ public final class RequestMetricSupport {
 
     // metrics that only needed to be called when a request completed
     private interface RequestMetrics {
-        Counter success();
-
-        Counter failure();
-
-        Timer requestDuration();
-
-        DistributionSummary requestLength();
-
-        Timer responseDuration();
-
-        DistributionSummary responseLength();
-
-        Timer totalDuration();
+        /**
+         * Records a request which failed before it is sent or received completely.
+         */
+        void recordRequestFailure();
+
+        /**
+         * Records a request and its response.
+         */
+        void record(RequestLog log, boolean success);
     }
 
     private static final class ActiveRequestMetrics extends LongAdder {}
@@ -167,38 +189,180 @@ public final class RequestMetricSupport {
         }
 
         @Override
-        public Counter success() {
-            return success;
+        public void recordRequestFailure() {
+            failure.increment();
         }
 
         @Override
-        public Counter failure() {
-            return failure;
+        public void record(RequestLog log, boolean success) {
+            requestDuration.record(log.requestDurationNanos(), TimeUnit.NANOSECONDS);
+            requestLength.record(log.requestLength());
+            responseDuration.record(log.responseDurationNanos(), TimeUnit.NANOSECONDS);
+            responseLength.record(log.responseLength());
+            totalDuration.record(log.totalDurationNanos(), TimeUnit.NANOSECONDS);
+
+            if (success) {
+                this.success.increment();
+            } else {
+                failure.increment();
+            }
+        }
+    }
+
+    /**
+     * A {@link RequestMetrics} which accumulates the metrics in the {@link ThreadCell} of the current thread
+     * if it is an event loop thread, which is written only by that thread. The other threads, such as
+     * the blocking task threads which come and go, share a {@link SharedCell}. The {@link Meter}s sum up
+     * the {@link Cell}s only when they are measured.
+     */
+    private static final class ThreadLocalRequestMetrics implements RequestMetrics {
+
+        /**
+         * The {@link ThreadCell}s of an event loop thread. Weak keys let the {@link ThreadLocalRequestMetrics}
+         * of a closed {@link MeterRegistry} be garbage-collected.
+         */
+        private static final FastThreadLocal<Map<ThreadLocalRequestMetrics, ThreadCell>> threadLocalCells =
+                new FastThreadLocal<Map<ThreadLocalRequestMetrics, ThreadCell>>() {
+                    @Override
+                    protected Map<ThreadLocalRequestMetrics, ThreadCell> initialValue() {
+                        return new WeakHashMap<>();
+                    }
+                };
+
+        // Bounded by the number of the event loop threads.
+        private final List<ThreadCell> threadCells = new CopyOnWriteArrayList<>();
+        private final SharedCell sharedCell = new SharedCell();
+
+        ThreadLocalRequestMetrics(MeterRegistry parent, MeterIdPrefix idPrefix) {
+            final String requests = idPrefix.name("requests");
+            FunctionCounter.builder(requests, this, m -> m.sum(Cell.SUCCESS))
+                           .tags(idPrefix.tags("result", "success"))
+                           .register(parent);
+            FunctionCounter.builder(requests, this, m -> m.sum(Cell.FAILURE))
+                           .tags(idPrefix.tags("result", "failure"))
+                           .register(parent);
+
+            final List<Tag> tags = idPrefix.tags();
+            registerTimer(parent, idPrefix.name("requestDuration"), tags, Cell.REQUEST_DURATION);
+            registerSummary(parent, idPrefix.name("requestLength"), tags, Cell.REQUEST_LENGTH);
+            registerTimer(parent, idPrefix.name("responseDuration"), tags, Cell.RESPONSE_DURATION);
+            registerSummary(parent, idPrefix.name("responseLength"), tags, Cell.RESPONSE_LENGTH);
+            registerTimer(parent, idPrefix.name("totalDuration"), tags, Cell.TOTAL_DURATION);
+        }
+
+        private void registerTimer(MeterRegistry parent, String name, List<Tag> tags, int index) {
+            FunctionTimer.builder(name, this, m -> m.sum(Cell.COUNT), m -> m.sum(index), TimeUnit.NANOSECONDS)
+                         .tags(tags)
+                         .register(parent);
+        }
+
+        private void registerSummary(MeterRegistry parent, String name, List<Tag> tags, int index) {
+            Meter.builder(name, Meter.Type.DISTRIBUTION_SUMMARY,
+                          ImmutableList.of(new Measurement(() -> (double) sum(Cell.COUNT), Statistic.COUNT),
+                                           new Measurement(() -> (double) sum(index), Statistic.TOTAL)))
+                 .tags(tags)
+                 .register(parent);
+        }
+
+        private long sum(int index) {
+            long sum = sharedCell.get(index);
+            for (ThreadCell cell : threadCells) {
+                sum += cell.get(index);
+            }
+            return sum;
+        }
+
+        private Cell cell() {
+            if (!(Thread.currentThread() instanceof FastThreadLocalThread)) {
+                return sharedCell;
+            }
+
+            final Map<ThreadLocalRequestMetrics, ThreadCell> cells = threadLocalCells.get();
+            ThreadCell cell = cells.get(this);
+            if (cell == null) {
+                cell = new ThreadCell();
+                cells.put(this, cell);
+                threadCells.add(cell);
+            }
+            return cell;
         }
 
         @Override
-        public Timer requestDuration() {
-            return requestDuration;
+        public void recordRequestFailure() {
+            cell().add(Cell.FAILURE, 1);
         }
 
         @Override
-        public DistributionSummary requestLength() {
-            return requestLength;
+        public void record(RequestLog log, boolean success) {
+            final Cell cell = cell();
+            cell.add(Cell.COUNT, 1);
+            cell.add(Cell.REQUEST_DURATION, log.requestDurationNanos());
+            cell.add(Cell.REQUEST_LENGTH, log.requestLength());
+            cell.add(Cell.RESPONSE_DURATION, log.responseDurationNanos());
+            cell.add(Cell.RESPONSE_LENGTH, log.responseLength());
+            cell.add(Cell.TOTAL_DURATION, log.totalDurationNanos());
+            cell.add(success ? Cell.SUCCESS : Cell.FAILURE, 1);
+        }
+    }
+
+    /**
+     * The counters of a {@link ThreadLocalRequestMetrics}.
+     */
+    private interface Cell {
+        int SUCCESS = 0;
+        int FAILURE = 1;
+        int COUNT = 2;
+        int REQUEST_DURATION = 3;
+        int REQUEST_LENGTH = 4;
+        int RESPONSE_DURATION = 5;
+        int RESPONSE_LENGTH = 6;
+        int TOTAL_DURATION = 7;
+        int SIZE = 8;
+
+        void add(int index, long delta);
+
+        long get(int index);
+    }
+
+    /**
+     * The counters of an event loop thread. Only the owner thread updates them, so an update does not need
+     * an atomic read-modify-write operation but only an ordered write for the reader threads.
+     */
+    private static final class ThreadCell extends AtomicLongArray implements Cell {
+
+        private static final long serialVersionUID = 2856155016453645547L;
+
+        ThreadCell() {
+            super(SIZE);
         }
 
         @Override
-        public Timer responseDuration() {
-            return responseDuration;
+        public void add(int index, long delta) {
+            lazySet(index, get(index) + delta);
+        }
+    }
+
+    /**
+     * The counters shared by the threads other than the event loop threads.
+     */
+    private static final class SharedCell implements Cell {
+
+        private final LongAdder[] adders = new LongAdder[SIZE];
+
+        SharedCell() {
+            for (int i = 0; i < SIZE; i++) {
+                adders[i] = new LongAdder();
+            }
         }
 
         @Override
-        public DistributionSummary responseLength() {
-            return responseLength;
+        public void add(int index, long delta) {
+            adders[index].add(delta);
         }
 
         @Override
-        public Timer totalDuration() {
-            return totalDuration;
+        public long get(int index) {
+            return adders[index].sum();
         }
     }
 }
@@ -38,27 +38,16 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.ImmutableList;
 
-import com.linecorp.armeria.common.Flags;
 import com.linecorp.armeria.common.HttpRequest;
 import com.linecorp.armeria.common.HttpResponse;
 import com.linecorp.armeria.common.MediaType;
 import com.linecorp.armeria.common.MediaTypeSet;
 import com.linecorp.armeria.common.SessionProtocol;
-import com.linecorp.armeria.internal.crypto.BouncyCastleKeyFactoryProvider;
 import com.linecorp.armeria.server.annotation.ExceptionHandlerFunction;
 import com.linecorp.armeria.server.annotation.RequestConverterFunction;
 import com.linecorp.armeria.server.annotation.ResponseConverterFunction;
 
-import io.netty.handler.codec.http2.Http2SecurityUtil;
-import io.netty.handler.ssl.ApplicationProtocolConfig;
-import io.netty.handler.ssl.ApplicationProtocolConfig.Protocol;
-import io.netty.handler.ssl.ApplicationProtocolConfig.SelectedListenerFailureBehavior;
-import io.netty.handler.ssl.ApplicationProtocolConfig.SelectorFailureBehavior;
-import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.SslContextBuilder;
-import io.netty.handler.ssl.SslProvider;
-import io.netty.handler.ssl.SupportedCipherSuiteFilter;
 import io.netty.handler.ssl.util.SelfSignedCertificate;
 
 /**
@@ -72,15 +61,6 @@ abstract class AbstractVirtualHostBuilder<B extends AbstractVirtualHostBuilder>
 
     private static final Logger logger = LoggerFactory.getLogger(AbstractVirtualHostBuilder.class);
 
-    private static final ApplicationProtocolConfig HTTPS_ALPN_CFG = new ApplicationProtocolConfig(
-            Protocol.ALPN,
-            // NO_ADVERTISE is currently the only mode supported by both OpenSsl and JDK providers.
-            SelectorFailureBehavior.NO_ADVERTISE,
-            // ACCEPT is currently the only mode supported by both OpenSsl and JDK providers.
-            SelectedListenerFailureBehavior.ACCEPT,
-            ApplicationProtocolNames.HTTP_2,
-            ApplicationProtocolNames.HTTP_1_1);
-
     private static final String LOCAL_HOSTNAME;
 
     static {
@@ -126,6 +106,8 @@ abstract class AbstractVirtualHostBuilder<B extends AbstractVirtualHostBuilder>
     @Nullable
     private SslContext sslContext;
     @Nullable
+    private SslContextLoader sslContextLoader;
+    @Nullable
     private Function<Service<HttpRequest, HttpResponse>, Service<HttpRequest, HttpResponse>> decorator;
 
     /**
@@ -172,6 +154,7 @@ abstract class AbstractVirtualHostBuilder<B extends AbstractVirtualHostBuilder>
      */
     public B tls(SslContext sslContext) {
         this.sslContext = VirtualHost.validateSslContext(requireNonNull(sslContext, "sslContext"));
+        sslContextLoader = null;
         return self();
     }
 
@@ -186,42 +169,16 @@ abstract class AbstractVirtualHostBuilder<B extends AbstractVirtualHostBuilder>
 
     /**
      * Configures SSL or TLS of this {@link VirtualHost} with the specified {@code keyCertChainFile},
-     * {@code keyFile} and {@code keyPassword}.
+     * {@code keyFile} and {@code keyPassword}. The {@link SslContext} is rebuilt from the files when
+     * {@link Server#reloadTls()} is invoked or when the files are modified, if
+     * {@link ServerBuilder#tlsReloadInterval(java.time.Duration)} is set.
      */
     public B tls(File keyCertChainFile, File keyFile, @Nullable String keyPassword) throws SSLException {
-        if (!keyCertChainFile.exists()) {
-            throw new SSLException("non-existent certificate chain file: " + keyCertChainFile);
-        }
-        if (!keyCertChainFile.canRead()) {
-            throw new SSLException("cannot read certificate chain file: " + keyCertChainFile);
-        }
-        if (!keyFile.exists()) {
-            throw new SSLException("non-existent key file: " + keyFile);
-        }
-        if (!keyFile.canRead()) {
-            throw new SSLException("cannot read key file: " + keyFile);
-        }
-
-        final SslContext sslCtx;
-
-        try {
-            sslCtx = BouncyCastleKeyFactoryProvider.call(() -> {
-                final SslContextBuilder builder =
-                        SslContextBuilder.forServer(keyCertChainFile, keyFile, keyPassword);
-
-                builder.sslProvider(Flags.useOpenSsl() ? SslProvider.OPENSSL : SslProvider.JDK);
-                builder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE);
-                builder.applicationProtocolConfig(HTTPS_ALPN_CFG);
-
-                return builder.build();
-            });
-        } catch (RuntimeException | SSLException e) {
-            throw e;
-        } catch (Exception e) {
-            throw new SSLException("failed to configure TLS: " + e, e);
-        }
-
-        tls(sslCtx);
+        requireNonNull(keyCertChainFile, "keyCertChainFile");
+        requireNonNull(keyFile, "keyFile");
+        final SslContextLoader sslContextLoader = new SslContextLoader(keyCertChainFile, keyFile, keyPassword);
+        tls(sslContextLoader.load());
+        this.sslContextLoader = sslContextLoader;
         return self();
     }
 
@@ -322,6 +279,30 @@ abstract class AbstractVirtualHostBuilder<B extends AbstractVirtualHostBuilder>
         return self();
     }
 
+    /**
+     * Binds the specified {@link Service} at the specified path pattern. The blocking tasks of
+     * the {@link Service} are run by the specified {@link BlockingTaskBulkhead} instead of
+     * {@link ServerConfig#blockingTaskExecutor()}.
+     *
+     * @throws IllegalArgumentException if the specified path pattern is invalid
+     */
+    public B service(String pathPattern, Service<HttpRequest, HttpResponse> service,
+                     BlockingTaskBulkhead blockingTaskBulkhead) {
+        return service(PathMapping.of(pathPattern), service, blockingTaskBulkhead);
+    }
+
+    /**
+     * Binds the specified {@link Service} at the specified {@link PathMapping}. The blocking tasks of
+     * the {@link Service} are run by the specified {@link BlockingTaskBulkhead} instead of
+     * {@link ServerConfig#blockingTaskExecutor()}.
+     */
+    public B service(PathMapping pathMapping, Service<HttpRequest, HttpResponse> service,
+                     BlockingTaskBulkhead blockingTaskBulkhead) {
+        requireNonNull(blockingTaskBulkhead, "blockingTaskBulkhead");
+        services.add(new ServiceConfig(pathMapping, service, null, blockingTaskBulkhead));
+        return self();
+    }
+
     /**
      * Binds the specified {@link Service} at the specified {@link PathMapping}.
      *
@@ -498,7 +479,7 @@ abstract class AbstractVirtualHostBuilder<B extends AbstractVirtualHostBuilder>
         });
 
         final VirtualHost virtualHost =
-                new VirtualHost(defaultHostname, hostnamePattern, sslContext, services,
+                new VirtualHost(defaultHostname, hostnamePattern, sslContext, sslContextLoader, services,
                                 new MediaTypeSet(producibleTypes));
         return decorator != null ? virtualHost.decorate(decorator) : virtualHost;
     }
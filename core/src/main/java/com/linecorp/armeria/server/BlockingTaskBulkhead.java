@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+
+import com.linecorp.armeria.common.metric.MeterIdPrefix;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ * A dedicated and bounded blocking task executor for a {@link Service}, so that the blocking tasks of
+ * a slow {@link Service} do not starve the other {@link Service}s which share
+ * {@link ServerConfig#blockingTaskExecutor()}. A task submitted via
+ * {@link ServiceRequestContext#blockingTaskExecutor()} is rejected with
+ * {@link BlockingTaskRejectedException}, which results in {@code 503 Service Unavailable}, when all threads
+ * are busy and the queue is full.
+ * <pre>{@code
+ * BlockingTaskBulkhead reports = BlockingTaskBulkhead.of("reports", 8, 32);
+ * ServerBuilder sb = new ServerBuilder();
+ * sb.service("/reports/{id}", reportService, reports);
+ * }</pre>
+ *
+ * <p>The following meters are exported to the {@link Server#meterRegistry()} with the {@code name} tag:
+ * <ul>
+ *   <li>{@code armeria.server.bulkhead.activeTasks} - the number of the tasks being run</li>
+ *   <li>{@code armeria.server.bulkhead.queuedTasks} - the number of the tasks waiting in the queue</li>
+ *   <li>{@code armeria.server.bulkhead.waitDuration} - the time a task spent in the queue</li>
+ *   <li>{@code armeria.server.bulkhead.rejectedTasks} - the number of the rejected tasks</li>
+ * </ul>
+ */
+public final class BlockingTaskBulkhead {
+
+    private static final MeterIdPrefix METER_ID_PREFIX = new MeterIdPrefix("armeria.server.bulkhead");
+
+    /**
+     * Returns a new {@link BlockingTaskBulkhead}.
+     *
+     * @param name the name of the bulkhead, which is used as the {@code name} tag of the meters
+     *             and as the prefix of the thread names
+     * @param maxConcurrency the maximum number of the tasks that run concurrently
+     * @param maxQueueLength the maximum number of the tasks that wait for a thread. {@code 0} rejects
+     *                       a task immediately when all threads are busy.
+     */
+    public static BlockingTaskBulkhead of(String name, int maxConcurrency, int maxQueueLength) {
+        requireNonNull(name, "name");
+        checkArgument(!name.isEmpty(), "name is empty.");
+        checkArgument(maxConcurrency > 0, "maxConcurrency: %s (expected: > 0)", maxConcurrency);
+        checkArgument(maxQueueLength >= 0, "maxQueueLength: %s (expected: >= 0)", maxQueueLength);
+        return new BlockingTaskBulkhead(name, maxConcurrency, maxQueueLength);
+    }
+
+    private final String name;
+    private final int maxConcurrency;
+    private final int maxQueueLength;
+    private final ThreadPoolExecutor threadPool;
+    private final BulkheadExecutorService executor = new BulkheadExecutorService();
+    @Nullable
+    private volatile Timer waitDuration;
+    @Nullable
+    private volatile Counter rejectedTasks;
+
+    private BlockingTaskBulkhead(String name, int maxConcurrency, int maxQueueLength) {
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+        this.maxQueueLength = maxQueueLength;
+
+        final BlockingQueue<Runnable> queue = maxQueueLength > 0 ? new ArrayBlockingQueue<>(maxQueueLength)
+                                                                 : new SynchronousQueue<>();
+        threadPool = new ThreadPoolExecutor(
+                maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS, queue,
+                new DefaultThreadFactory("armeria-bulkhead-" + name, true),
+                (task, executor) -> {
+                    final Counter rejectedTasks = this.rejectedTasks;
+                    if (rejectedTasks != null) {
+                        rejectedTasks.increment();
+                    }
+                    throw BlockingTaskRejectedException.get();
+                });
+        threadPool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the name of this bulkhead.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the maximum number of the tasks that run concurrently.
+     */
+    public int maxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the maximum number of the tasks that wait for a thread.
+     */
+    public int maxQueueLength() {
+        return maxQueueLength;
+    }
+
+    /**
+     * Returns the {@link java.util.concurrent.ExecutorService} which runs the tasks of this bulkhead.
+     */
+    AbstractExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * Exports the meters of this bulkhead to the specified {@link MeterRegistry}. Does nothing if
+     * exported already, e.g. when this bulkhead is shared by more than one {@link Server}.
+     */
+    synchronized void bindMetrics(MeterRegistry registry) {
+        if (waitDuration != null) {
+            return;
+        }
+
+        final MeterIdPrefix idPrefix = METER_ID_PREFIX.withTags("name", name);
+        registry.gauge(idPrefix.name("activeTasks"), idPrefix.tags(), threadPool,
+                       ThreadPoolExecutor::getActiveCount);
+        registry.gauge(idPrefix.name("queuedTasks"), idPrefix.tags(), threadPool,
+                       pool -> pool.getQueue().size());
+        rejectedTasks = registry.counter(idPrefix.name("rejectedTasks"), idPrefix.tags());
+        waitDuration = registry.timer(idPrefix.name("waitDuration"), idPrefix.tags());
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("name", name)
+                          .add("maxConcurrency", maxConcurrency)
+                          .add("maxQueueLength", maxQueueLength)
+                          .toString();
+    }
+
+    private final class BulkheadExecutorService extends AbstractExecutorService {
+
+        @Override
+        public void execute(Runnable command) {
+            requireNonNull(command, "command");
+            final Timer waitDuration = BlockingTaskBulkhead.this.waitDuration;
+            if (waitDuration == null) {
+                threadPool.execute(command);
+                return;
+            }
+
+            final long submittedNanos = System.nanoTime();
+            threadPool.execute(() -> {
+                waitDuration.record(System.nanoTime() - submittedNanos, TimeUnit.NANOSECONDS);
+                command.run();
+            });
+        }
+
+        // A bulkhead lives as long as the JVM, like CommonPools.blockingTaskExecutor().
+
+        @Override
+        public void shutdown() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return BlockingTaskBulkhead.this.toString();
+        }
+    }
+}
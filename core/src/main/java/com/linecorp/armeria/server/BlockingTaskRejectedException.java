@@ -0,0 +1,44 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import com.linecorp.armeria.common.Flags;
+import com.linecorp.armeria.common.util.Exceptions;
+
+/**
+ * A {@link RejectedExecutionException} raised when a {@link BlockingTaskBulkhead} is full. A {@link Service}
+ * which raised this exception responds with {@code 503 Service Unavailable}.
+ */
+public final class BlockingTaskRejectedException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 2807441447453367473L;
+
+    private static final BlockingTaskRejectedException INSTANCE =
+            Exceptions.clearTrace(new BlockingTaskRejectedException());
+
+    /**
+     * Returns a {@link BlockingTaskRejectedException} which may be a singleton or a new instance, depending
+     * on whether {@link Flags#verboseExceptions() the verbose exception mode} is enabled.
+     */
+    public static BlockingTaskRejectedException get() {
+        return Flags.verboseExceptions() ? new BlockingTaskRejectedException() : INSTANCE;
+    }
+
+    private BlockingTaskRejectedException() {}
+}
@@ -185,7 +185,9 @@ public class DefaultServiceRequestContext extends NonWrappingRequestContext impl
             return blockingTaskExecutor;
         }
 
-        return blockingTaskExecutor = makeContextAware(server().config().blockingTaskExecutor());
+        final BlockingTaskBulkhead bulkhead = cfg.blockingTaskBulkhead().orElse(null);
+        return blockingTaskExecutor = makeContextAware(
+                bulkhead != null ? bulkhead.executor() : server().config().blockingTaskExecutor());
     }
 
     @Override
@@ -60,7 +60,6 @@ import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.handler.codec.http2.Http2CodecUtil;
 import io.netty.handler.codec.http2.Http2Settings;
-import io.netty.handler.codec.http2.HttpConversionUtil.ExtensionHeaderNames;
 import io.netty.util.AsciiString;
 import io.netty.util.ReferenceCountUtil;
 
@@ -71,7 +70,7 @@ final class Http1RequestDecoder extends ChannelDuplexHandler {
     private static final Http2Settings DEFAULT_HTTP2_SETTINGS = new Http2Settings();
 
     private final ServerConfig cfg;
-    private final AsciiString scheme;
+    private final String scheme;
     private final InboundTrafficController inboundTrafficController;
 
     /** The request being decoded currently. */
@@ -83,7 +82,7 @@ final class Http1RequestDecoder extends ChannelDuplexHandler {
 
     Http1RequestDecoder(ServerConfig cfg, Channel channel, AsciiString scheme) {
         this.cfg = cfg;
-        this.scheme = scheme;
+        this.scheme = scheme.toString();
         inboundTrafficController = new InboundTrafficController(channel);
     }
 
@@ -148,12 +147,10 @@ final class Http1RequestDecoder extends ChannelDuplexHandler {
                         contentEmpty = true;
                     }
 
-                    nettyHeaders.set(ExtensionHeaderNames.SCHEME.text(), scheme);
-
                     this.req = req = new DecodedHttpRequest(
                             ctx.channel().eventLoop(),
                             id, 1,
-                            ArmeriaHttpUtil.toArmeria(nettyReq),
+                            ArmeriaHttpUtil.toArmeria(nettyReq, scheme),
                             HttpUtil.isKeepAlive(nettyReq),
                             inboundTrafficController,
                             cfg.defaultMaxRequestLength());
@@ -39,6 +39,7 @@ import com.linecorp.armeria.common.logging.RequestLog;
 import com.linecorp.armeria.common.logging.RequestLogAvailability;
 import com.linecorp.armeria.common.logging.RequestLogBuilder;
 import com.linecorp.armeria.common.stream.AbortedStreamException;
+import com.linecorp.armeria.common.util.Exceptions;
 import com.linecorp.armeria.internal.Http1ObjectEncoder;
 import com.linecorp.armeria.internal.HttpObjectEncoder;
 
@@ -236,6 +237,8 @@ final class HttpResponseSubscriber implements Subscriber<HttpObject>, RequestTim
             failAndRespond(cause,
                            AggregatedHttpMessage.of(((HttpStatusException) cause).httpStatus()),
                            Http2Error.CANCEL);
+        } else if (Exceptions.peel(cause) instanceof BlockingTaskRejectedException) {
+            failAndRespond(cause, SERVICE_UNAVAILABLE_MESSAGE, Http2Error.CANCEL);
         } else if (cause instanceof AbortedStreamException) {
             // One of the two cases:
             // - Client closed the connection too early.
@@ -358,6 +358,8 @@ final class HttpServerHandler extends ChannelInboundHandlerAdapter implements Ht
                 try {
                     if (cause instanceof HttpStatusException) {
                         respond(ctx, req, ((HttpStatusException) cause).httpStatus(), reqCtx, cause);
+                    } else if (cause instanceof BlockingTaskRejectedException) {
+                        respond(ctx, req, HttpStatus.SERVICE_UNAVAILABLE, reqCtx, cause);
                     } else {
                         logger.warn("{} Unexpected exception: {}, {}", reqCtx, service, req, cause);
                         respond(ctx, req, HttpStatus.INTERNAL_SERVER_ERROR, reqCtx, cause);
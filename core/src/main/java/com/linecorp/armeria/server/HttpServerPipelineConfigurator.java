@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import com.google.common.collect.Iterables;
 
 import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.internal.ArmeriaHttp2HeadersDecoder;
 import com.linecorp.armeria.internal.Http2GoAwayListener;
 import com.linecorp.armeria.internal.ReadSuppressingHandler;
 import com.linecorp.armeria.internal.TrafficLoggingHandler;
@@ -72,7 +73,7 @@ import io.netty.handler.ssl.SniHandler;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.util.AsciiString;
-import io.netty.util.DomainNameMapping;
+import io.netty.util.Mapping;
 
 /**
  * Configures Netty {@link ChannelPipeline} to serve HTTP/1 and 2 requests.
@@ -100,7 +101,7 @@ final class HttpServerPipelineConfigurator extends ChannelInitializer<Channel> {
     private final ServerConfig config;
     private final ServerPort port;
     @Nullable
-    private final DomainNameMapping<SslContext> sslContexts;
+    private final Mapping<String, SslContext> sslContexts;
     private final GracefulShutdownSupport gracefulShutdownSupport;
 
     /**
@@ -108,7 +109,7 @@ final class HttpServerPipelineConfigurator extends ChannelInitializer<Channel> {
      */
     HttpServerPipelineConfigurator(
             ServerConfig config, ServerPort port,
-            @Nullable DomainNameMapping<SslContext> sslContexts,
+            @Nullable Mapping<String, SslContext> sslContexts,
             GracefulShutdownSupport gracefulShutdownSupport) {
 
         this.config = requireNonNull(config, "config");
@@ -120,7 +121,10 @@ final class HttpServerPipelineConfigurator extends ChannelInitializer<Channel> {
     @Override
     protected void initChannel(Channel ch) throws Exception {
         final ChannelPipeline p = ch.pipeline();
-        p.addLast(new FlushConsolidationHandler());
+        if (config.maxConsolidatedFlushes() > 0) {
+            p.addLast(new FlushConsolidationHandler(config.maxConsolidatedFlushes(),
+                                                    config.consolidateFlushesWhenNoReadInProgress()));
+        }
         p.addLast(ReadSuppressingHandler.INSTANCE);
         configurePipeline(p, port.protocols(), null);
     }
@@ -172,7 +176,7 @@ final class HttpServerPipelineConfigurator extends ChannelInitializer<Channel> {
         final Http2Connection conn = new DefaultHttp2Connection(true);
         conn.addListener(new Http2GoAwayListener(pipeline.channel()));
 
-        final Http2FrameReader reader = new DefaultHttp2FrameReader(true);
+        final Http2FrameReader reader = new DefaultHttp2FrameReader(new ArmeriaHttp2HeadersDecoder(true));
         final Http2FrameWriter writer = new DefaultHttp2FrameWriter();
 
         final Http2ConnectionEncoder encoder = new DefaultHttp2ConnectionEncoder(conn, writer);
@@ -19,7 +19,9 @@ package com.linecorp.armeria.server;
 import static com.linecorp.armeria.common.util.Functions.voidFunction;
 import static java.util.Objects.requireNonNull;
 
+import java.io.File;
 import java.net.InetSocketAddress;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -29,11 +31,13 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -41,12 +45,14 @@ import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 
 import com.linecorp.armeria.common.SessionProtocol;
@@ -57,8 +63,10 @@ import com.linecorp.armeria.internal.ChannelUtil;
 import com.linecorp.armeria.internal.ConnectionLimitingHandler;
 import com.linecorp.armeria.internal.PathAndQuery;
 import com.linecorp.armeria.internal.TransportType;
+import com.linecorp.armeria.internal.VirtualThreadExecutorService;
 
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
@@ -66,7 +74,6 @@ import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.handler.ssl.SslContext;
-import io.netty.util.DomainNameMapping;
 import io.netty.util.concurrent.FastThreadLocalThread;
 import io.netty.util.concurrent.Future;
 import io.netty.util.concurrent.GlobalEventExecutor;
@@ -83,7 +90,7 @@ public final class Server implements AutoCloseable {
 
     private final ServerConfig config;
     @Nullable
-    private final DomainNameMapping<SslContext> sslContexts;
+    private final ServerSslContexts sslContexts;
 
     private final StateManager stateManager = new StateManager();
     private final Set<Channel> serverChannels = Collections.newSetFromMap(new ConcurrentHashMap<>());
@@ -104,9 +111,12 @@ public final class Server implements AutoCloseable {
      */
     private volatile GracefulShutdownSupport gracefulShutdownSupport = GracefulShutdownSupport.disabled();
 
-    Server(ServerConfig config, @Nullable DomainNameMapping<SslContext> sslContexts) {
+    Server(ServerConfig config, @Nullable ServerSslContexts sslContexts) {
         this.config = requireNonNull(config, "config");
         this.sslContexts = sslContexts;
+        if (sslContexts != null) {
+            addListener(sslContexts);
+        }
 
         config.setServer(this);
 
@@ -165,6 +175,23 @@ public final class Server implements AutoCloseable {
         return config().meterRegistry();
     }
 
+    /**
+     * Reloads the {@link SslContext}s of the {@link VirtualHost}s whose TLS was configured with
+     * a certificate chain file and a key file, such as {@link ServerBuilder#tls(File, File)}. All of them
+     * are replaced at once, so that the new connections are accepted with the new certificates while
+     * the existing connections are not affected. This method does nothing if TLS is not configured.
+     *
+     * @throws SSLException if failed to reload any of the {@link SslContext}s, in which case none of
+     *                      the {@link SslContext}s is replaced
+     *
+     * @see ServerBuilder#tlsReloadInterval(Duration)
+     */
+    public void reloadTls() throws SSLException {
+        if (sslContexts != null) {
+            sslContexts.reload(true);
+        }
+    }
+
     /**
      * Adds the specified {@link ServerListener} to this {@link Server}, so that it is notified when the state
      * of this {@link Server} changes. This method is useful when you want to initialize/destroy the resources
@@ -206,6 +233,26 @@ public final class Server implements AutoCloseable {
                             GracefulShutdownSupport::pendingResponses);
         meterRegistry.gauge("armeria.server.connections", connectionLimitingHandler,
                             ConnectionLimitingHandler::numConnections);
+
+        final Executor blockingTaskExecutor = config().unwrappedBlockingTaskExecutor();
+        final List<Tag> activeTags = ImmutableList.of(Tag.of("state", "active"));
+        final List<Tag> pendingTags = ImmutableList.of(Tag.of("state", "pending"));
+        if (blockingTaskExecutor instanceof ThreadPoolExecutor) {
+            final ThreadPoolExecutor threadPool = (ThreadPoolExecutor) blockingTaskExecutor;
+            meterRegistry.gauge("armeria.server.blockingTasks", activeTags, threadPool,
+                                ThreadPoolExecutor::getActiveCount);
+            meterRegistry.gauge("armeria.server.blockingTasks", pendingTags, threadPool,
+                                pool -> pool.getQueue().size());
+        } else if (blockingTaskExecutor instanceof VirtualThreadExecutorService) {
+            final VirtualThreadExecutorService executor = (VirtualThreadExecutorService) blockingTaskExecutor;
+            meterRegistry.gauge("armeria.server.blockingTasks", activeTags, executor,
+                                VirtualThreadExecutorService::activeTasks);
+            meterRegistry.gauge("armeria.server.blockingTasks", pendingTags, executor,
+                                VirtualThreadExecutorService::pendingTasks);
+        }
+
+        config().serviceConfigs().forEach(cfg -> cfg.blockingTaskBulkhead().ifPresent(
+                bulkhead -> bulkhead.bindMetrics(meterRegistry)));
     }
 
     /**
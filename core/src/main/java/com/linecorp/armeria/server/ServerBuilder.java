@@ -56,10 +56,10 @@ import com.linecorp.armeria.server.logging.AccessLogWriters;
 
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Metrics;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.ssl.SslContext;
-import io.netty.util.DomainNameMapping;
-import io.netty.util.DomainNameMappingBuilder;
 
 /**
  * Builds a new {@link Server} and its {@link ServerConfig}.
@@ -119,6 +119,9 @@ public final class ServerBuilder {
     private static final String DEFAULT_SERVICE_LOGGER_PREFIX = "armeria.services";
     private static final int PROXY_PROTOCOL_DEFAULT_MAX_TLV_SIZE = 65535 - 216;
 
+    private static final int DEFAULT_MAX_CONSOLIDATED_FLUSHES =
+            FlushConsolidationHandler.DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES;
+
     private final List<ServerPort> ports = new ArrayList<>();
     private final List<ServerListener> serverListeners = new ArrayList<>();
     private final List<VirtualHost> virtualHosts = new ArrayList<>();
@@ -138,12 +141,20 @@ public final class ServerBuilder {
     private int maxHttp1HeaderSize = Flags.defaultMaxHttp1HeaderSize();
     private int maxHttp1ChunkSize = Flags.defaultMaxHttp1ChunkSize();
     private int proxyProtocolMaxTlvSize = PROXY_PROTOCOL_DEFAULT_MAX_TLV_SIZE;
+    private int maxConsolidatedFlushes = DEFAULT_MAX_CONSOLIDATED_FLUSHES;
+    private boolean consolidateFlushesWhenNoReadInProgress;
     private Duration gracefulShutdownQuietPeriod = DEFAULT_GRACEFUL_SHUTDOWN_QUIET_PERIOD;
     private Duration gracefulShutdownTimeout = DEFAULT_GRACEFUL_SHUTDOWN_TIMEOUT;
     private Executor blockingTaskExecutor = CommonPools.blockingTaskExecutor();
     private MeterRegistry meterRegistry = Metrics.globalRegistry;
     private String serviceLoggerPrefix = DEFAULT_SERVICE_LOGGER_PREFIX;
     private Consumer<RequestLog> accessLogWriter = AccessLogWriters.disabled();
+    private int tlsSessionCacheSize = -1;
+    private int tlsSessionTimeoutSeconds = -1;
+    @Nullable
+    private TlsSessionTicketKeySource tlsSessionTicketKeySource;
+    private long tlsSessionTicketKeyRefreshIntervalMillis;
+    private long tlsReloadIntervalMillis;
 
     @Nullable
     private Function<Service<HttpRequest, HttpResponse>, Service<HttpRequest, HttpResponse>> decorator;
@@ -526,6 +537,35 @@ public final class ServerBuilder {
         return this;
     }
 
+    /**
+     * Sets the maximum number of flushes to consolidate into a single flush, i.e. a single write system call,
+     * on a connection. The flushes issued while reading from a connection are held until the end of the read
+     * batch or until this many flushes are issued, whichever comes first. {@code 0} disables flush
+     * consolidation. The default value of this property is
+     * {@value FlushConsolidationHandler#DEFAULT_EXPLICIT_FLUSH_AFTER_FLUSHES}.
+     */
+    public ServerBuilder maxConsolidatedFlushes(int maxConsolidatedFlushes) {
+        checkArgument(maxConsolidatedFlushes >= 0,
+                      "maxConsolidatedFlushes: %s (expected: >= 0)", maxConsolidatedFlushes);
+        this.maxConsolidatedFlushes = maxConsolidatedFlushes;
+        return this;
+    }
+
+    /**
+     * Sets whether the flushes issued while not reading from a connection, e.g. when a service sends
+     * a response asynchronously, are also consolidated. When enabled, such a flush is deferred until
+     * the {@link EventLoop} finishes its current task, so that the responses of many concurrent streams
+     * multiplexed on an HTTP/2 connection are sent with fewer system calls at the cost of slightly higher
+     * latency. Every write, including the end of a stream, is still flushed before the {@link EventLoop}
+     * waits for the next I/O event. This option is disabled by default and has no effect if
+     * {@link #maxConsolidatedFlushes(int)} is {@code 0}.
+     */
+    public ServerBuilder consolidateFlushesWhenNoReadInProgress(
+            boolean consolidateFlushesWhenNoReadInProgress) {
+        this.consolidateFlushesWhenNoReadInProgress = consolidateFlushesWhenNoReadInProgress;
+        return this;
+    }
+
     /**
      * Sets the {@link SslContext} of the default {@link VirtualHost}.
      *
@@ -581,6 +621,56 @@ public final class ServerBuilder {
         return this;
     }
 
+    /**
+     * Sets the maximum number of TLS sessions cached by the server for session resumption.
+     * {@code 0} means unlimited. If not set, the default of the TLS provider is used.
+     */
+    public ServerBuilder tlsSessionCacheSize(int tlsSessionCacheSize) {
+        this.tlsSessionCacheSize = validateNonNegative(tlsSessionCacheSize, "tlsSessionCacheSize");
+        return this;
+    }
+
+    /**
+     * Sets how long a cached TLS session can be resumed. {@link Duration#ZERO} means unlimited.
+     * If not set, the default of the TLS provider is used.
+     */
+    public ServerBuilder tlsSessionTimeout(Duration tlsSessionTimeout) {
+        requireNonNull(tlsSessionTimeout, "tlsSessionTimeout");
+        final long seconds = validateNonNegative(tlsSessionTimeout, "tlsSessionTimeout").getSeconds();
+        tlsSessionTimeoutSeconds = (int) Math.min(seconds, Integer.MAX_VALUE);
+        return this;
+    }
+
+    /**
+     * Sets the {@link TlsSessionTicketKeySource} which provides the keys for encrypting and decrypting
+     * TLS session tickets. The keys are loaded when this builder builds a {@link Server} and then
+     * reloaded every {@code refreshInterval}, so that the keys rotated by an external process are picked
+     * up by all servers which share the same source. Specify {@link Duration#ZERO} to load the keys only
+     * once. Note that TLS session tickets are supported only by the OpenSSL provider.
+     */
+    public ServerBuilder tlsSessionTicketKeySource(TlsSessionTicketKeySource tlsSessionTicketKeySource,
+                                                   Duration refreshInterval) {
+        this.tlsSessionTicketKeySource =
+                requireNonNull(tlsSessionTicketKeySource, "tlsSessionTicketKeySource");
+        requireNonNull(refreshInterval, "refreshInterval");
+        tlsSessionTicketKeyRefreshIntervalMillis =
+                validateNonNegative(refreshInterval, "refreshInterval").toMillis();
+        return this;
+    }
+
+    /**
+     * Sets the interval of checking whether the certificate chain files and the key files of
+     * the {@link VirtualHost}s have been modified. When modified, the {@link SslContext}s are rebuilt from
+     * the files and replaced atomically without restarting the {@link Server}. Only the {@link SslContext}s
+     * configured with files, such as {@link #tls(File, File)}, are reloaded. Specify {@link Duration#ZERO}
+     * to disable, which is the default. {@link Server#reloadTls()} can be used to reload on demand.
+     */
+    public ServerBuilder tlsReloadInterval(Duration tlsReloadInterval) {
+        requireNonNull(tlsReloadInterval, "tlsReloadInterval");
+        tlsReloadIntervalMillis = validateNonNegative(tlsReloadInterval, "tlsReloadInterval").toMillis();
+        return this;
+    }
+
     /**
      * Sets the {@link SslContext} of the default {@link VirtualHost}.
      *
@@ -690,6 +780,32 @@ public final class ServerBuilder {
         return this;
     }
 
+    /**
+     * Binds the specified {@link Service} at the specified path pattern of the default {@link VirtualHost}.
+     * The blocking tasks of the {@link Service} are run by the specified {@link BlockingTaskBulkhead}
+     * instead of {@link #blockingTaskExecutor(Executor)}.
+     *
+     * @throws IllegalArgumentException if the specified path pattern is invalid
+     */
+    public ServerBuilder service(String pathPattern, Service<HttpRequest, HttpResponse> service,
+                                 BlockingTaskBulkhead blockingTaskBulkhead) {
+        defaultVirtualHostBuilderUpdated();
+        defaultVirtualHostBuilder.service(pathPattern, service, blockingTaskBulkhead);
+        return this;
+    }
+
+    /**
+     * Binds the specified {@link Service} at the specified {@link PathMapping} of the default
+     * {@link VirtualHost}. The blocking tasks of the {@link Service} are run by the specified
+     * {@link BlockingTaskBulkhead} instead of {@link #blockingTaskExecutor(Executor)}.
+     */
+    public ServerBuilder service(PathMapping pathMapping, Service<HttpRequest, HttpResponse> service,
+                                 BlockingTaskBulkhead blockingTaskBulkhead) {
+        defaultVirtualHostBuilderUpdated();
+        defaultVirtualHostBuilder.service(pathMapping, service, blockingTaskBulkhead);
+        return this;
+    }
+
     /**
      * Binds the specified {@link Service} at the specified {@link PathMapping} of the default
      * {@link VirtualHost}.
@@ -956,9 +1072,6 @@ public final class ServerBuilder {
         }
 
         final List<ServerPort> ports;
-
-        // Pre-populate the domain name mapping for later matching.
-        final DomainNameMapping<SslContext> sslContexts;
         final SslContext defaultSslContext = findDefaultSslContext(defaultVirtualHost, virtualHosts);
 
         this.ports.forEach(
@@ -967,7 +1080,6 @@ public final class ServerBuilder {
                                    port.protocols(), HTTP, HTTPS));
 
         if (defaultSslContext == null) {
-            sslContexts = null;
             if (!this.ports.isEmpty()) {
                 ports = ImmutableList.copyOf(this.ports);
                 for (final ServerPort p : ports) {
@@ -984,54 +1096,70 @@ public final class ServerBuilder {
             } else {
                 ports = ImmutableList.of(new ServerPort(0, HTTP, HTTPS));
             }
-
-            final DomainNameMappingBuilder<SslContext>
-                    mappingBuilder = new DomainNameMappingBuilder<>(defaultSslContext);
-            for (VirtualHost h : virtualHosts) {
-                final SslContext sslCtx = h.sslContext();
-                if (sslCtx != null) {
-                    mappingBuilder.add(h.hostnamePattern(), sslCtx);
-                }
-            }
-            sslContexts = mappingBuilder.build();
         }
 
-        final Server server = new Server(new ServerConfig(
-                ports, normalizeDefaultVirtualHost(defaultVirtualHost, defaultSslContext), virtualHosts,
+        final ServerConfig config = new ServerConfig(
+                ports, normalizeDefaultVirtualHost(defaultVirtualHost, virtualHosts), virtualHosts,
                 workerGroup, shutdownWorkerGroupOnStop, maxNumConnections,
                 idleTimeoutMillis, defaultRequestTimeoutMillis, defaultMaxRequestLength,
                 maxHttp1InitialLineLength, maxHttp1HeaderSize, maxHttp1ChunkSize,
                 gracefulShutdownQuietPeriod, gracefulShutdownTimeout, blockingTaskExecutor,
                 meterRegistry, serviceLoggerPrefix, accessLogWriter,
-                proxyProtocolMaxTlvSize), sslContexts);
+                proxyProtocolMaxTlvSize, maxConsolidatedFlushes, consolidateFlushesWhenNoReadInProgress);
+
+        // Pre-populate the domain name mapping for later matching.
+        final ServerSslContexts sslContexts;
+        if (defaultSslContext != null) {
+            sslContexts = new ServerSslContexts(
+                    config.defaultVirtualHost(), virtualHosts,
+                    tlsSessionCacheSize, tlsSessionTimeoutSeconds,
+                    tlsSessionTicketKeySource, tlsSessionTicketKeyRefreshIntervalMillis,
+                    tlsReloadIntervalMillis);
+        } else {
+            sslContexts = null;
+        }
+
+        final Server server = new Server(config, sslContexts);
 
         serverListeners.forEach(server::addListener);
         return server;
     }
 
-    private static VirtualHost normalizeDefaultVirtualHost(VirtualHost h,
-                                                           @Nullable SslContext defaultSslContext) {
-        final SslContext sslCtx = h.sslContext() != null ? h.sslContext() : defaultSslContext;
+    private static VirtualHost normalizeDefaultVirtualHost(VirtualHost h, List<VirtualHost> virtualHosts) {
+        // Borrow the TLS configuration of the virtual host which provides the default SslContext,
+        // so that the default SslContext is reloaded together with it.
+        final VirtualHost tlsVirtualHost = findDefaultTlsVirtualHost(h, virtualHosts);
+        final SslContext sslCtx = tlsVirtualHost != null ? tlsVirtualHost.sslContext() : null;
+        final SslContextLoader sslCtxLoader = tlsVirtualHost != null ? tlsVirtualHost.sslContextLoader() : null;
         return new VirtualHost(
-                h.defaultHostname(), "*", sslCtx,
+                h.defaultHostname(), "*", sslCtx, sslCtxLoader,
                 h.serviceConfigs().stream().map(
-                        e -> new ServiceConfig(e.pathMapping(), e.service(), e.loggerName().orElse(null)))
+                        e -> new ServiceConfig(e.pathMapping(), e.service(), e.loggerName().orElse(null),
+                                               e.blockingTaskBulkhead().orElse(null)))
                  .collect(Collectors.toList()), h.producibleMediaTypes());
     }
 
     @Nullable
     private static SslContext findDefaultSslContext(VirtualHost defaultVirtualHost,
                                                     List<VirtualHost> virtualHosts) {
-        SslContext lastSslContext = null;
+        final VirtualHost tlsVirtualHost = findDefaultTlsVirtualHost(defaultVirtualHost, virtualHosts);
+        return tlsVirtualHost != null ? tlsVirtualHost.sslContext() : null;
+    }
+
+    @Nullable
+    private static VirtualHost findDefaultTlsVirtualHost(VirtualHost defaultVirtualHost,
+                                                        List<VirtualHost> virtualHosts) {
+        if (defaultVirtualHost.sslContext() != null) {
+            return defaultVirtualHost;
+        }
+
+        VirtualHost lastTlsVirtualHost = null;
         for (VirtualHost h : virtualHosts) {
             if (h.sslContext() != null) {
-                lastSslContext = h.sslContext();
+                lastTlsVirtualHost = h;
             }
         }
-        if (defaultVirtualHost.sslContext() != null) {
-            lastSslContext = defaultVirtualHost.sslContext();
-        }
-        return lastSslContext;
+        return lastTlsVirtualHost;
     }
 
     @Override
@@ -1040,7 +1168,8 @@ public final class ServerBuilder {
                 getClass(), ports, defaultVirtualHost, virtualHosts, workerGroup, shutdownWorkerGroupOnStop,
                 maxNumConnections, idleTimeoutMillis, defaultRequestTimeoutMillis, defaultMaxRequestLength,
                 maxHttp1InitialLineLength, maxHttp1HeaderSize, maxHttp1ChunkSize,
-                proxyProtocolMaxTlvSize, gracefulShutdownQuietPeriod, gracefulShutdownTimeout,
+                proxyProtocolMaxTlvSize, maxConsolidatedFlushes, consolidateFlushesWhenNoReadInProgress,
+                gracefulShutdownQuietPeriod, gracefulShutdownTimeout,
                 blockingTaskExecutor, meterRegistry, serviceLoggerPrefix, accessLogWriter
         );
     }
@@ -70,6 +70,7 @@ public final class ServerConfig {
     private final Duration gracefulShutdownTimeout;
 
     private final ExecutorService blockingTaskExecutor;
+    private final Executor unwrappedBlockingTaskExecutor;
 
     private final MeterRegistry meterRegistry;
 
@@ -79,6 +80,9 @@ public final class ServerConfig {
 
     private final int proxyProtocolMaxTlvSize;
 
+    private final int maxConsolidatedFlushes;
+    private final boolean consolidateFlushesWhenNoReadInProgress;
+
     @Nullable
     private String strVal;
 
@@ -91,7 +95,8 @@ public final class ServerConfig {
             int defaultMaxHttp1InitialLineLength, int defaultMaxHttp1HeaderSize, int defaultMaxHttp1ChunkSize,
             Duration gracefulShutdownQuietPeriod, Duration gracefulShutdownTimeout,
             Executor blockingTaskExecutor, MeterRegistry meterRegistry, String serviceLoggerPrefix,
-            Consumer<RequestLog> accessLogWriter, int proxyProtocolMaxTlvSize) {
+            Consumer<RequestLog> accessLogWriter, int proxyProtocolMaxTlvSize,
+            int maxConsolidatedFlushes, boolean consolidateFlushesWhenNoReadInProgress) {
 
         requireNonNull(ports, "ports");
         requireNonNull(defaultVirtualHost, "defaultVirtualHost");
@@ -118,6 +123,7 @@ public final class ServerConfig {
                                    gracefulShutdownQuietPeriod, "gracefulShutdownQuietPeriod");
 
         requireNonNull(blockingTaskExecutor, "blockingTaskExecutor");
+        unwrappedBlockingTaskExecutor = blockingTaskExecutor;
         if (blockingTaskExecutor instanceof ExecutorService) {
             this.blockingTaskExecutor = new InterminableExecutorService((ExecutorService) blockingTaskExecutor);
         } else {
@@ -127,6 +133,8 @@ public final class ServerConfig {
         this.meterRegistry = requireNonNull(meterRegistry, "meterRegistry");
         this.serviceLoggerPrefix = ServiceConfig.validateLoggerName(serviceLoggerPrefix, "serviceLoggerPrefix");
         this.accessLogWriter = requireNonNull(accessLogWriter, "accessLogWriter");
+        this.maxConsolidatedFlushes = validateNonNegative(maxConsolidatedFlushes, "maxConsolidatedFlushes");
+        this.consolidateFlushesWhenNoReadInProgress = consolidateFlushesWhenNoReadInProgress;
 
         // Set localAddresses.
         final List<ServerPort> portsCopy = new ArrayList<>();
@@ -417,6 +425,14 @@ public final class ServerConfig {
         return blockingTaskExecutor;
     }
 
+    /**
+     * Returns the {@link Executor} specified by {@link ServerBuilder#blockingTaskExecutor(Executor)}, which
+     * is not wrapped by {@link #blockingTaskExecutor()}, so that its type can be inspected.
+     */
+    Executor unwrappedBlockingTaskExecutor() {
+        return unwrappedBlockingTaskExecutor;
+    }
+
     /**
      * Returns the {@link MeterRegistry} that collects various stats.
      */
@@ -446,6 +462,21 @@ public final class ServerConfig {
         return proxyProtocolMaxTlvSize;
     }
 
+    /**
+     * Returns the maximum number of flushes to consolidate into a single flush on a connection.
+     * {@code 0} means flush consolidation is disabled.
+     */
+    public int maxConsolidatedFlushes() {
+        return maxConsolidatedFlushes;
+    }
+
+    /**
+     * Returns whether the flushes issued while not reading from a connection are also consolidated.
+     */
+    public boolean consolidateFlushesWhenNoReadInProgress() {
+        return consolidateFlushesWhenNoReadInProgress;
+    }
+
     @Override
     public String toString() {
         String strVal = this.strVal;
@@ -456,7 +487,9 @@ public final class ServerConfig {
                     maxNumConnections(), idleTimeoutMillis(),
                     defaultRequestTimeoutMillis(), defaultMaxRequestLength(),
                     defaultMaxHttp1InitialLineLength(), defaultMaxHttp1HeaderSize(), defaultMaxHttp1ChunkSize(),
-                    proxyProtocolMaxTlvSize(), gracefulShutdownQuietPeriod(), gracefulShutdownTimeout(),
+                    proxyProtocolMaxTlvSize(), maxConsolidatedFlushes(),
+                    consolidateFlushesWhenNoReadInProgress(),
+                    gracefulShutdownQuietPeriod(), gracefulShutdownTimeout(),
                     blockingTaskExecutor(), meterRegistry(), serviceLoggerPrefix(), accessLogWriter()
             );
         }
@@ -471,6 +504,7 @@ public final class ServerConfig {
             int maxNumConnections, long idleTimeoutMillis, long defaultRequestTimeoutMillis,
             long defaultMaxRequestLength, long defaultMaxHttp1InitialLineLength,
             long defaultMaxHttp1HeaderSize, long defaultMaxHttp1ChunkSize, int proxyProtocolMaxTlvSize,
+            int maxConsolidatedFlushes, boolean consolidateFlushesWhenNoReadInProgress,
             Duration gracefulShutdownQuietPeriod, Duration gracefulShutdownTimeout,
             Executor blockingTaskExecutor, @Nullable MeterRegistry meterRegistry, String serviceLoggerPrefix,
             Consumer<RequestLog> accessLogWriter) {
@@ -537,7 +571,11 @@ public final class ServerConfig {
         buf.append(defaultMaxHttp1ChunkSize);
         buf.append("B, proxyProtocolMaxTlvSize: ");
         buf.append(proxyProtocolMaxTlvSize);
-        buf.append("B, gracefulShutdownQuietPeriod: ");
+        buf.append("B, maxConsolidatedFlushes: ");
+        buf.append(maxConsolidatedFlushes);
+        buf.append(", consolidateFlushesWhenNoReadInProgress: ");
+        buf.append(consolidateFlushesWhenNoReadInProgress);
+        buf.append(", gracefulShutdownQuietPeriod: ");
         buf.append(gracefulShutdownQuietPeriod);
         buf.append(", gracefulShutdownTimeout: ");
         buf.append(gracefulShutdownTimeout);
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.server;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSessionContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableList;
+
+import io.netty.channel.EventLoop;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.SslContext;
+import io.netty.util.DomainNameMapping;
+import io.netty.util.DomainNameMappingBuilder;
+import io.netty.util.Mapping;
+import io.netty.util.concurrent.ScheduledFuture;
+
+/**
+ * Maps a hostname to the {@link SslContext} of the matching {@link VirtualHost}. Unlike a plain
+ * {@link DomainNameMapping}, the {@link SslContext}s can be reloaded from their certificate and key files
+ * and the TLS session ticket keys can be rotated while the {@link Server} is running. A new
+ * {@link SslContext} is fully configured before it is published, and all {@link SslContext}s are replaced
+ * at once, so that a new connection never sees a partially reloaded state. The existing connections keep
+ * using the {@link SslContext} they were accepted with.
+ */
+final class ServerSslContexts extends ServerListenerAdapter implements Mapping<String, SslContext> {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServerSslContexts.class);
+
+    private static final int NAME_SIZE = 16;
+    private static final int HMAC_KEY_SIZE = 16;
+
+    private final List<VirtualHost> virtualHosts;
+    private final int sessionCacheSize;
+    private final int sessionTimeoutSeconds;
+    @Nullable
+    private final TlsSessionTicketKeySource ticketKeySource;
+    private final long ticketKeyRefreshIntervalMillis;
+    private final long reloadIntervalMillis;
+
+    private volatile DomainNameMapping<SslContext> mapping;
+    private boolean warnedTicketKeysUnsupported;
+    @Nullable
+    private volatile OpenSslSessionTicketKey[] ticketKeys;
+
+    // Guarded by 'this'.
+    private final List<ScheduledFuture<?>> scheduledFutures = new ArrayList<>();
+
+    /**
+     * Creates a new instance.
+     *
+     * @param defaultVirtualHost the default {@link VirtualHost} whose hostname pattern is {@code "*"}
+     * @param virtualHosts the other {@link VirtualHost}s
+     * @param sessionCacheSize the maximum number of cached TLS sessions, or {@code -1} to use
+     *                         the default of the TLS provider
+     * @param sessionTimeoutSeconds the lifetime of a cached TLS session, or {@code -1} to use the default
+     *                              of the TLS provider
+     */
+    ServerSslContexts(VirtualHost defaultVirtualHost, List<VirtualHost> virtualHosts,
+                      int sessionCacheSize, int sessionTimeoutSeconds,
+                      @Nullable TlsSessionTicketKeySource ticketKeySource, long ticketKeyRefreshIntervalMillis,
+                      long reloadIntervalMillis) {
+        checkArgument(defaultVirtualHost.sslContext() != null,
+                      "defaultVirtualHost: %s (expected: TLS configured)", defaultVirtualHost);
+
+        this.virtualHosts = ImmutableList.<VirtualHost>builder().add(defaultVirtualHost)
+                                                                 .addAll(virtualHosts)
+                                                                 .build();
+        this.sessionCacheSize = sessionCacheSize;
+        this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+        this.ticketKeySource = ticketKeySource;
+        this.ticketKeyRefreshIntervalMillis = ticketKeyRefreshIntervalMillis;
+        this.reloadIntervalMillis = reloadIntervalMillis;
+
+        if (ticketKeySource != null) {
+            try {
+                ticketKeys = loadTicketKeys(ticketKeySource);
+            } catch (Exception e) {
+                throw new IllegalStateException("failed to load the TLS session ticket keys from: " +
+                                                ticketKeySource, e);
+            }
+        }
+
+        sslContexts().forEach(this::configure);
+        mapping = buildMapping();
+    }
+
+    @Override
+    public SslContext map(String hostname) {
+        return mapping.map(hostname);
+    }
+
+    /**
+     * Reloads the {@link SslContext}s built from files.
+     *
+     * @param force {@code true} to reload all of them, or {@code false} to reload only the ones whose
+     *              files have been modified since the last load
+     * @return {@code true} if any {@link SslContext} has been replaced
+     * @throws SSLException if failed to reload any of the {@link SslContext}s, in which case none of
+     *                      the {@link SslContext}s is replaced
+     */
+    synchronized boolean reload(boolean force) throws SSLException {
+        // Build all new SslContexts first so that a failure does not leave a partially reloaded state.
+        final Map<SslContextLoader, SslContext> reloaded = new IdentityHashMap<>();
+        for (VirtualHost h : virtualHosts) {
+            final SslContextLoader loader = h.sslContextLoader();
+            if (loader == null || reloaded.containsKey(loader) || !(force || loader.isModified())) {
+                continue;
+            }
+
+            final SslContext sslCtx = loader.load();
+            configure(sslCtx);
+            reloaded.put(loader, sslCtx);
+        }
+
+        if (reloaded.isEmpty()) {
+            return false;
+        }
+
+        for (VirtualHost h : virtualHosts) {
+            final SslContextLoader loader = h.sslContextLoader();
+            if (loader != null && reloaded.containsKey(loader)) {
+                h.sslContext(reloaded.get(loader));
+            }
+        }
+        mapping = buildMapping();
+        logger.info("Reloaded the TLS certificates: {}", reloaded.keySet());
+        return true;
+    }
+
+    /**
+     * Loads the TLS session ticket keys from the {@link TlsSessionTicketKeySource} again and applies them
+     * to all {@link SslContext}s.
+     */
+    synchronized void rotateTicketKeys() throws Exception {
+        if (ticketKeySource == null) {
+            return;
+        }
+
+        final OpenSslSessionTicketKey[] ticketKeys = loadTicketKeys(ticketKeySource);
+        this.ticketKeys = ticketKeys;
+        sslContexts().forEach(this::configure);
+    }
+
+    @Override
+    public void serverStarted(Server server) {
+        final EventLoop eventLoop = server.config().workerGroup().next();
+        final Executor blockingTaskExecutor = server.config().blockingTaskExecutor();
+        synchronized (this) {
+            if (reloadIntervalMillis > 0) {
+                scheduledFutures.add(eventLoop.scheduleWithFixedDelay(
+                        () -> blockingTaskExecutor.execute(this::reloadIfModified),
+                        reloadIntervalMillis, reloadIntervalMillis, TimeUnit.MILLISECONDS));
+            }
+            if (ticketKeySource != null && ticketKeyRefreshIntervalMillis > 0) {
+                scheduledFutures.add(eventLoop.scheduleWithFixedDelay(
+                        () -> blockingTaskExecutor.execute(this::refreshTicketKeys),
+                        ticketKeyRefreshIntervalMillis, ticketKeyRefreshIntervalMillis,
+                        TimeUnit.MILLISECONDS));
+            }
+        }
+    }
+
+    @Override
+    public synchronized void serverStopping(Server server) {
+        scheduledFutures.forEach(f -> f.cancel(false));
+        scheduledFutures.clear();
+    }
+
+    private void reloadIfModified() {
+        try {
+            reload(false);
+        } catch (Exception e) {
+            logger.warn("Failed to reload the TLS certificates; using the old ones:", e);
+        }
+    }
+
+    private void refreshTicketKeys() {
+        try {
+            rotateTicketKeys();
+        } catch (Exception e) {
+            logger.warn("Failed to load the TLS session ticket keys from: {}; using the old ones:",
+                        ticketKeySource, e);
+        }
+    }
+
+    private void configure(SslContext sslCtx) {
+        final SSLSessionContext sessionCtx = sslCtx.sessionContext();
+        if (sessionCacheSize >= 0) {
+            sessionCtx.setSessionCacheSize(sessionCacheSize);
+        }
+        if (sessionTimeoutSeconds >= 0) {
+            sessionCtx.setSessionTimeout(sessionTimeoutSeconds);
+        }
+
+        final OpenSslSessionTicketKey[] ticketKeys = this.ticketKeys;
+        if (ticketKeys != null) {
+            if (sessionCtx instanceof OpenSslSessionContext) {
+                ((OpenSslSessionContext) sessionCtx).setTicketKeys(ticketKeys);
+            } else if (!warnedTicketKeysUnsupported) {
+                warnedTicketKeysUnsupported = true;
+                logger.warn("TLS session ticket keys are supported only by OpenSSL; ignoring: {}",
+                            ticketKeySource);
+            }
+        }
+    }
+
+    private Set<SslContext> sslContexts() {
+        final Set<SslContext> sslContexts = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (VirtualHost h : virtualHosts) {
+            final SslContext sslCtx = h.sslContext();
+            if (sslCtx != null) {
+                sslContexts.add(sslCtx);
+            }
+        }
+        return sslContexts;
+    }
+
+    private DomainNameMapping<SslContext> buildMapping() {
+        final SslContext defaultSslContext = virtualHosts.get(0).sslContext();
+        assert defaultSslContext != null;
+        final DomainNameMappingBuilder<SslContext> builder = new DomainNameMappingBuilder<>(defaultSslContext);
+        for (VirtualHost h : virtualHosts.subList(1, virtualHosts.size())) {
+            final SslContext sslCtx = h.sslContext();
+            if (sslCtx != null) {
+                builder.add(h.hostnamePattern(), sslCtx);
+            }
+        }
+        return builder.build();
+    }
+
+    private static OpenSslSessionTicketKey[] loadTicketKeys(TlsSessionTicketKeySource source) throws Exception {
+        final List<byte[]> keys = source.ticketKeys();
+        if (keys == null || keys.isEmpty()) {
+            throw new IllegalStateException(source + " returned no TLS session ticket keys.");
+        }
+
+        final OpenSslSessionTicketKey[] ticketKeys = new OpenSslSessionTicketKey[keys.size()];
+        for (int i = 0; i < ticketKeys.length; i++) {
+            final byte[] key = keys.get(i);
+            if (key == null || key.length != TlsSessionTicketKeySource.TICKET_KEY_SIZE) {
+                throw new IllegalStateException(
+                        source + " returned an invalid TLS session ticket key (length: " +
+                        (key != null ? key.length : "null") + ", expected: " +
+                        TlsSessionTicketKeySource.TICKET_KEY_SIZE + ')');
+            }
+
+            ticketKeys[i] = new OpenSslSessionTicketKey(
+                    Arrays.copyOfRange(key, 0, NAME_SIZE),
+                    Arrays.copyOfRange(key, NAME_SIZE, NAME_SIZE + HMAC_KEY_SIZE),
+                    Arrays.copyOfRange(key, NAME_SIZE + HMAC_KEY_SIZE, key.length));
+        }
+        return ticketKeys;
+    }
+}
@@ -48,6 +48,8 @@ public final class ServiceConfig {
     @Nullable
     private final String loggerName;
     private final Service<HttpRequest, HttpResponse> service;
+    @Nullable
+    private final BlockingTaskBulkhead blockingTaskBulkhead;
 
     /**
      * Creates a new instance.
@@ -72,9 +74,23 @@ public final class ServiceConfig {
      */
     ServiceConfig(PathMapping pathMapping, Service<HttpRequest, HttpResponse> service,
                   @Nullable String loggerName) {
+        this(pathMapping, service, loggerName, null);
+    }
+
+    /**
+     * Creates a new instance.
+     */
+    ServiceConfig(PathMapping pathMapping, Service<HttpRequest, HttpResponse> service,
+                  @Nullable String loggerName, @Nullable BlockingTaskBulkhead blockingTaskBulkhead) {
         this.pathMapping = requireNonNull(pathMapping, "pathMapping");
         this.service = requireNonNull(service, "service");
         this.loggerName = loggerName != null ? validateLoggerName(loggerName, "loggerName") : null;
+        this.blockingTaskBulkhead = blockingTaskBulkhead;
+    }
+
+    private ServiceConfig(VirtualHost virtualHost, ServiceConfig config) {
+        this(config.pathMapping, config.service, config.loggerName, config.blockingTaskBulkhead);
+        this.virtualHost = requireNonNull(virtualHost, "virtualHost");
     }
 
     static String validateLoggerName(String value, String propertyName) {
@@ -86,8 +102,7 @@ public final class ServiceConfig {
     }
 
     ServiceConfig build(VirtualHost virtualHost) {
-        requireNonNull(virtualHost, "virtualHost");
-        return new ServiceConfig(virtualHost, pathMapping(), service());
+        return new ServiceConfig(virtualHost, this);
     }
 
     /**
@@ -133,6 +148,15 @@ public final class ServiceConfig {
         return Optional.ofNullable(loggerName);
     }
 
+    /**
+     * Returns the {@link BlockingTaskBulkhead} dedicated to the {@link Service}, which is used by
+     * {@link ServiceRequestContext#blockingTaskExecutor()} instead of
+     * {@link ServerConfig#blockingTaskExecutor()}.
+     */
+    public Optional<BlockingTaskBulkhead> blockingTaskBulkhead() {
+        return Optional.ofNullable(blockingTaskBulkhead);
+    }
+
     @Override
     public String toString() {
         if (virtualHost != null) {
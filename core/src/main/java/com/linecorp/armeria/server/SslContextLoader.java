@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.server;
+
+import java.io.File;
+
+import javax.annotation.Nullable;
+import javax.net.ssl.SSLException;
+
+import com.google.common.base.MoreObjects;
+
+import com.linecorp.armeria.common.Flags;
+import com.linecorp.armeria.internal.crypto.BouncyCastleKeyFactoryProvider;
+
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolConfig.Protocol;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectedListenerFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectorFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+
+/**
+ * Builds a server-side {@link SslContext} from a certificate chain file and a key file, remembering the
+ * last modification time of the files so that the {@link SslContext} can be rebuilt when they change.
+ */
+final class SslContextLoader {
+
+    private static final ApplicationProtocolConfig HTTPS_ALPN_CFG = new ApplicationProtocolConfig(
+            Protocol.ALPN,
+            // NO_ADVERTISE is currently the only mode supported by both OpenSsl and JDK providers.
+            SelectorFailureBehavior.NO_ADVERTISE,
+            // ACCEPT is currently the only mode supported by both OpenSsl and JDK providers.
+            SelectedListenerFailureBehavior.ACCEPT,
+            ApplicationProtocolNames.HTTP_2,
+            ApplicationProtocolNames.HTTP_1_1);
+
+    private final File keyCertChainFile;
+    private final File keyFile;
+    @Nullable
+    private final String keyPassword;
+
+    // Updated only by load(), which is invoked by one thread at a time.
+    private long keyCertChainFileLastModified;
+    private long keyFileLastModified;
+
+    SslContextLoader(File keyCertChainFile, File keyFile, @Nullable String keyPassword) {
+        this.keyCertChainFile = keyCertChainFile;
+        this.keyFile = keyFile;
+        this.keyPassword = keyPassword;
+    }
+
+    /**
+     * Returns whether the certificate chain file or the key file has been modified since the last
+     * {@link #load()}.
+     */
+    boolean isModified() {
+        return keyCertChainFile.lastModified() != keyCertChainFileLastModified ||
+               keyFile.lastModified() != keyFileLastModified;
+    }
+
+    /**
+     * Builds a new {@link SslContext} from the current content of the files.
+     */
+    SslContext load() throws SSLException {
+        if (!keyCertChainFile.exists()) {
+            throw new SSLException("non-existent certificate chain file: " + keyCertChainFile);
+        }
+        if (!keyCertChainFile.canRead()) {
+            throw new SSLException("cannot read certificate chain file: " + keyCertChainFile);
+        }
+        if (!keyFile.exists()) {
+            throw new SSLException("non-existent key file: " + keyFile);
+        }
+        if (!keyFile.canRead()) {
+            throw new SSLException("cannot read key file: " + keyFile);
+        }
+
+        // Record the modification time before reading the files, so that a change made while loading is
+        // picked up by the next reload.
+        final long keyCertChainFileLastModified = keyCertChainFile.lastModified();
+        final long keyFileLastModified = keyFile.lastModified();
+
+        final SslContext sslCtx;
+        try {
+            sslCtx = BouncyCastleKeyFactoryProvider.call(() -> {
+                final SslContextBuilder builder =
+                        SslContextBuilder.forServer(keyCertChainFile, keyFile, keyPassword);
+
+                builder.sslProvider(Flags.useOpenSsl() ? SslProvider.OPENSSL : SslProvider.JDK);
+                builder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE);
+                builder.applicationProtocolConfig(HTTPS_ALPN_CFG);
+
+                return builder.build();
+            });
+        } catch (RuntimeException | SSLException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new SSLException("failed to configure TLS: " + e, e);
+        }
+
+        this.keyCertChainFileLastModified = keyCertChainFileLastModified;
+        this.keyFileLastModified = keyFileLastModified;
+        return sslCtx;
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                          .add("keyCertChainFile", keyCertChainFile)
+                          .add("keyFile", keyFile)
+                          .toString();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.server;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.time.Duration;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Provides the keys used for encrypting and decrypting TLS session tickets. Sharing the same keys across
+ * all the servers behind a load balancer allows a client to resume its TLS session on any of them, which
+ * saves a full handshake on every reconnection.
+ *
+ * <p>Each key is {@value #TICKET_KEY_SIZE} bytes long and consists of a 16-byte key name, a 16-byte HMAC
+ * secret and a 16-byte AES key, in that order. The first key is used for encrypting new session tickets
+ * and all keys are used for decrypting the session tickets presented by clients. Therefore, a new key
+ * should be distributed to all servers as a decryption-only key first, i.e. not as the first key, before
+ * it is promoted to the first key.
+ *
+ * <p>Note that TLS session tickets are supported only by the OpenSSL provider. See
+ * {@link com.linecorp.armeria.common.Flags#useOpenSsl()}.
+ *
+ * @see ServerBuilder#tlsSessionTicketKeySource(TlsSessionTicketKeySource, Duration)
+ */
+@FunctionalInterface
+public interface TlsSessionTicketKeySource {
+
+    /**
+     * The length of a TLS session ticket key, in bytes.
+     */
+    int TICKET_KEY_SIZE = 48;
+
+    /**
+     * Returns a {@link TlsSessionTicketKeySource} which reads the keys from the specified {@link File}
+     * whenever the keys are requested. The file must contain one or more {@value #TICKET_KEY_SIZE}-byte
+     * keys, concatenated without any delimiter.
+     */
+    static TlsSessionTicketKeySource ofFile(File file) {
+        requireNonNull(file, "file");
+        return () -> {
+            final byte[] content = Files.readAllBytes(file.toPath());
+            if (content.length == 0 || content.length % TICKET_KEY_SIZE != 0) {
+                throw new IOException("invalid TLS session ticket key file: " + file +
+                                      " (length: " + content.length + ", expected: a multiple of " +
+                                      TICKET_KEY_SIZE + ')');
+            }
+
+            final ImmutableList.Builder<byte[]> builder = ImmutableList.builder();
+            for (int i = 0; i < content.length; i += TICKET_KEY_SIZE) {
+                builder.add(Arrays.copyOfRange(content, i, i + TICKET_KEY_SIZE));
+            }
+            return builder.build();
+        };
+    }
+
+    /**
+     * Returns the current TLS session ticket keys. The first key is used for encrypting new session
+     * tickets.
+     *
+     * @return a non-empty {@link List} of {@value #TICKET_KEY_SIZE}-byte keys
+     */
+    List<byte[]> ticketKeys() throws Exception;
+}
@@ -67,7 +67,9 @@ public final class VirtualHost {
     private final String defaultHostname;
     private final String hostnamePattern;
     @Nullable
-    private final SslContext sslContext;
+    private volatile SslContext sslContext;
+    @Nullable
+    private final SslContextLoader sslContextLoader;
     private final List<ServiceConfig> services;
     private final Router<ServiceConfig> router;
     private final MediaTypeSet producibleMediaTypes;
@@ -78,6 +80,12 @@ public final class VirtualHost {
     VirtualHost(String defaultHostname, String hostnamePattern,
                 @Nullable SslContext sslContext, Iterable<ServiceConfig> serviceConfigs,
                 MediaTypeSet producibleMediaTypes) {
+        this(defaultHostname, hostnamePattern, sslContext, null, serviceConfigs, producibleMediaTypes);
+    }
+
+    VirtualHost(String defaultHostname, String hostnamePattern,
+                @Nullable SslContext sslContext, @Nullable SslContextLoader sslContextLoader,
+                Iterable<ServiceConfig> serviceConfigs, MediaTypeSet producibleMediaTypes) {
 
         defaultHostname = normalizeDefaultHostname(defaultHostname);
         hostnamePattern = normalizeHostnamePattern(hostnamePattern);
@@ -86,6 +94,7 @@ public final class VirtualHost {
         this.defaultHostname = defaultHostname;
         this.hostnamePattern = hostnamePattern;
         this.sslContext = validateSslContext(sslContext);
+        this.sslContextLoader = sslContextLoader;
         this.producibleMediaTypes = producibleMediaTypes;
 
         requireNonNull(serviceConfigs, "serviceConfigs");
@@ -213,13 +222,32 @@ public final class VirtualHost {
     }
 
     /**
-     * Returns the {@link SslContext} of this virtual host.
+     * Returns the {@link SslContext} of this virtual host. The returned value may change when the
+     * {@link SslContext} is reloaded from its certificate and key files.
+     *
+     * @see Server#reloadTls()
      */
     @Nullable
     public SslContext sslContext() {
         return sslContext;
     }
 
+    /**
+     * Replaces the {@link SslContext} of this virtual host with the one reloaded by {@link ServerSslContexts}.
+     */
+    void sslContext(SslContext sslContext) {
+        this.sslContext = sslContext;
+    }
+
+    /**
+     * Returns the {@link SslContextLoader} which rebuilds the {@link SslContext} of this virtual host,
+     * or {@code null} if the {@link SslContext} was not built from files.
+     */
+    @Nullable
+    SslContextLoader sslContextLoader() {
+        return sslContextLoader;
+    }
+
     /**
      * Returns the information about the {@link Service}s bound to this virtual host.
      */
@@ -263,10 +291,11 @@ public final class VirtualHost {
                     final PathMapping pathMapping = cfg.pathMapping();
                     final Service<HttpRequest, HttpResponse> service = decorator.apply(cfg.service());
                     final String loggerName = cfg.loggerName().orElse(null);
-                    return new ServiceConfig(pathMapping, service, loggerName);
+                    final BlockingTaskBulkhead bulkhead = cfg.blockingTaskBulkhead().orElse(null);
+                    return new ServiceConfig(pathMapping, service, loggerName, bulkhead);
                 }).collect(Collectors.toList());
 
-        return new VirtualHost(defaultHostname(), hostnamePattern(), sslContext(),
+        return new VirtualHost(defaultHostname(), hostnamePattern(), sslContext(), sslContextLoader(),
                                services, producibleMediaTypes());
     }
 
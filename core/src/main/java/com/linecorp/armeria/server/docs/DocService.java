@@ -32,6 +32,7 @@ import java.util.Set;
 import javax.annotation.Nullable;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -66,7 +67,7 @@ import com.linecorp.armeria.server.file.HttpFileService;
  */
 public class DocService extends AbstractCompositeService<HttpRequest, HttpResponse> {
 
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectWriter writer = new ObjectMapper().writerWithDefaultPrettyPrinter();
 
     static final List<DocServicePlugin> plugins = Streams.stream(ServiceLoader.load(
             DocServicePlugin.class, DocService.class.getClassLoader())).collect(toImmutableList());
@@ -135,8 +136,8 @@ public class DocService extends AbstractCompositeService<HttpRequest, HttpRespon
                 spec = addDocStrings(spec, services);
                 spec = addExamples(spec);
 
-                vfs().setSpecification(mapper.writerWithDefaultPrettyPrinter()
-                                             .writeValueAsBytes(spec));
+                // Serialized only once per server start and served from memory until the next start.
+                vfs().setSpecification(writer.writeValueAsBytes(spec));
             }
         });
     }
@@ -311,8 +312,11 @@ public class DocService extends AbstractCompositeService<HttpRequest, HttpRespon
             return DocService.class.getSimpleName();
         }
 
+        /**
+         * Replaces the cached specification. The new entry has a new last modification time, so that
+         * the clients which sent an {@code "if-modified-since"} header get the new specification.
+         */
         void setSpecification(byte[] content) {
-            assert entry == Entry.NONE;
             entry = new ByteArrayEntry("/", MediaType.JSON_UTF_8, content);
         }
     }
@@ -16,18 +16,32 @@
 
 package com.linecorp.armeria.server.healthcheck;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nullable;
 
+import com.google.common.base.Ascii;
+
 import com.linecorp.armeria.common.AggregatedHttpMessage;
 import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
 import com.linecorp.armeria.common.HttpRequest;
 import com.linecorp.armeria.common.HttpResponse;
 import com.linecorp.armeria.common.HttpStatus;
 import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.logging.RequestLogAvailability;
 import com.linecorp.armeria.server.AbstractHttpService;
 import com.linecorp.armeria.server.HttpService;
 import com.linecorp.armeria.server.Server;
@@ -69,14 +83,54 @@ import com.linecorp.armeria.server.ServiceRequestContext;
  *                 .build())
  *         .build();
  * }</pre>
+ *
+ * <h2>Long polling</h2>
+ *
+ * <p>A client may wait for the health of the {@link Server} to change instead of sending a request
+ * periodically. The response of a long-polling request has an {@code "etag"} header whose value is
+ * {@code "healthy"} or {@code "unhealthy"}, and a {@code "preference-applied: wait=<seconds>"}
+ * header which tells the client that long polling is supported. If the client sends the last
+ * {@code "etag"} it received in an {@code "if-none-match"} header with a {@code "prefer: wait=<seconds>"}
+ * header, the response is sent as soon as the health changes, or when the specified number of seconds,
+ * capped by the maximum long-polling timeout, elapses:</p>
+ *
+ * <pre>{@code
+ * GET /health HTTP/1.1
+ * if-none-match: "healthy"
+ * prefer: wait=60
+ * }</pre>
+ *
+ * <p>The health is re-evaluated immediately when a {@link SettableHealthChecker} changes its state.
+ * Other {@link HealthChecker}s are checked once a second while a long-polling request is pending.</p>
  */
 public class HttpHealthCheckService extends AbstractHttpService {
 
     private static final HttpData RES_OK = HttpData.ofUtf8("ok");
     private static final HttpData RES_NOT_OK = HttpData.ofUtf8("not ok");
 
+    // Built only once and copied for each response, because a decorator may modify the headers in place.
+    private static final HttpHeaders RES_OK_HEADERS = newResponseHeaders(HttpStatus.OK, RES_OK);
+    private static final HttpHeaders RES_NOT_OK_HEADERS =
+            newResponseHeaders(HttpStatus.SERVICE_UNAVAILABLE, RES_NOT_OK);
+
+    private static final String ETAG_HEALTHY = "\"healthy\"";
+    private static final String ETAG_UNHEALTHY = "\"unhealthy\"";
+
+    private static final Duration DEFAULT_MAX_LONG_POLLING_TIMEOUT = Duration.ofMinutes(1);
+    private static final long POLLING_INTERVAL_MILLIS = 1000;
+
+    private static HttpHeaders newResponseHeaders(HttpStatus status, HttpData content) {
+        return HttpHeaders.of(status)
+                          .contentType(MediaType.PLAIN_TEXT_UTF_8)
+                          .setInt(HttpHeaderNames.CONTENT_LENGTH, content.length())
+                          .asImmutable();
+    }
+
     private final List<HealthChecker> healthCheckers;
     private final ServerListener serverHealthUpdater;
+    private final long maxLongPollingTimeoutMillis;
+    private final boolean needsPolling;
+    private final Set<PendingResponse> pendingResponses = ConcurrentHashMap.newKeySet();
 
     final SettableHealthChecker serverHealth;
 
@@ -89,9 +143,36 @@ public class HttpHealthCheckService extends AbstractHttpService {
      * @param healthCheckers the additional {@link HealthChecker}s
      */
     public HttpHealthCheckService(HealthChecker... healthCheckers) {
+        this(DEFAULT_MAX_LONG_POLLING_TIMEOUT, healthCheckers);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxLongPollingTimeout the maximum amount of time a long-polling request waits for
+     *                              the health to change. {@link Duration#ZERO} disables long polling.
+     * @param healthCheckers the additional {@link HealthChecker}s
+     */
+    public HttpHealthCheckService(Duration maxLongPollingTimeout, HealthChecker... healthCheckers) {
+        requireNonNull(maxLongPollingTimeout, "maxLongPollingTimeout");
+        checkArgument(!maxLongPollingTimeout.isNegative(),
+                      "maxLongPollingTimeout: %s (expected: >= 0)", maxLongPollingTimeout);
+        maxLongPollingTimeoutMillis = maxLongPollingTimeout.toMillis();
+
         this.healthCheckers = Collections.unmodifiableList(Arrays.asList(healthCheckers));
         serverHealth = new SettableHealthChecker();
         serverHealthUpdater = new ServerHealthUpdater();
+
+        boolean needsPolling = false;
+        for (HealthChecker healthChecker : this.healthCheckers) {
+            if (healthChecker instanceof SettableHealthChecker) {
+                ((SettableHealthChecker) healthChecker).addListener(this::onHealthChange);
+            } else {
+                needsPolling = true;
+            }
+        }
+        serverHealth.addListener(this::onHealthChange);
+        this.needsPolling = needsPolling;
     }
 
     /**
@@ -100,7 +181,7 @@ public class HttpHealthCheckService extends AbstractHttpService {
     protected AggregatedHttpMessage newHealthyResponse(
             @SuppressWarnings("UnusedParameters") ServiceRequestContext ctx) {
 
-        return AggregatedHttpMessage.of(HttpStatus.OK, MediaType.PLAIN_TEXT_UTF_8, RES_OK);
+        return AggregatedHttpMessage.of(HttpHeaders.copyOf(RES_OK_HEADERS), RES_OK);
     }
 
     /**
@@ -109,7 +190,7 @@ public class HttpHealthCheckService extends AbstractHttpService {
     protected AggregatedHttpMessage newUnhealthyResponse(
             @SuppressWarnings("UnusedParameters") ServiceRequestContext ctx) {
 
-        return AggregatedHttpMessage.of(HttpStatus.SERVICE_UNAVAILABLE, MediaType.PLAIN_TEXT_UTF_8, RES_NOT_OK);
+        return AggregatedHttpMessage.of(HttpHeaders.copyOf(RES_NOT_OK_HEADERS), RES_NOT_OK);
     }
 
     @Override
@@ -130,17 +211,106 @@ public class HttpHealthCheckService extends AbstractHttpService {
 
     @Override
     protected HttpResponse doHead(ServiceRequestContext ctx, HttpRequest req) {
-        return HttpResponse.of(newResponse(ctx).headers()); // Send without the content.
+        return serve(ctx, req, true);
     }
 
     @Override
     protected HttpResponse doGet(ServiceRequestContext ctx, HttpRequest req) {
-        return HttpResponse.of(newResponse(ctx));
+        return serve(ctx, req, false);
+    }
+
+    private HttpResponse serve(ServiceRequestContext ctx, HttpRequest req, boolean headOnly) {
+        final long timeoutMillis = longPollingTimeoutMillis(req.headers());
+        if (timeoutMillis < 0) {
+            final AggregatedHttpMessage res = newResponse(ctx, isHealthy());
+            return headOnly ? HttpResponse.of(res.headers()) // Send without the content.
+                            : HttpResponse.of(res);
+        }
+
+        final boolean healthy = isHealthy();
+        final String etag = req.headers().get(HttpHeaderNames.IF_NONE_MATCH);
+        if (timeoutMillis == 0 || !etag(healthy).equals(etag)) {
+            // The client does not know the current health yet.
+            return newLongPollingResponse(ctx, healthy, headOnly, timeoutMillis);
+        }
+
+        final PendingResponse pending = new PendingResponse(ctx, healthy, headOnly, timeoutMillis);
+        pendingResponses.add(pending);
+        // Check the health again, because onHealthChange() misses the change made before this response
+        // became pending.
+        pending.completeIfChanged();
+        if (pending.future.isDone()) {
+            return HttpResponse.from(pending.future);
+        }
+
+        // The response is sent by the timer below rather than by the request timeout.
+        ctx.setRequestTimeoutMillis(0);
+        pending.timeoutFuture = ctx.eventLoop().schedule(() -> pending.complete(isHealthy()),
+                                                         timeoutMillis, TimeUnit.MILLISECONDS);
+        if (needsPolling) {
+            pending.pollingFuture = ctx.eventLoop().scheduleWithFixedDelay(
+                    pending::completeIfChanged,
+                    POLLING_INTERVAL_MILLIS, POLLING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        // Clean up when the client goes away before the response is sent.
+        ctx.log().addListener(log -> pending.cancel(), RequestLogAvailability.COMPLETE);
+
+        return HttpResponse.from(pending.future);
+    }
+
+    /**
+     * Returns the number of milliseconds to wait for the health to change, specified in
+     * the {@code "prefer: wait=<seconds>"} header, or {@code -1} if the request is not a long-polling one.
+     */
+    private long longPollingTimeoutMillis(HttpHeaders headers) {
+        if (maxLongPollingTimeoutMillis == 0) {
+            return -1;
+        }
+
+        final String prefer = headers.get(HttpHeaderNames.PREFER);
+        if (prefer == null) {
+            return -1;
+        }
+
+        for (String preference : prefer.split("[,;]")) {
+            final String trimmed = preference.trim();
+            if (trimmed.length() <= 5 || !Ascii.toLowerCase(trimmed.substring(0, 5)).equals("wait=")) {
+                continue;
+            }
+
+            try {
+                final long waitSeconds = Long.parseLong(trimmed.substring(5).trim());
+                if (waitSeconds < 0) {
+                    return -1;
+                }
+                return Math.min(TimeUnit.SECONDS.toMillis(waitSeconds), maxLongPollingTimeoutMillis);
+            } catch (NumberFormatException ignored) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private HttpResponse newLongPollingResponse(ServiceRequestContext ctx, boolean healthy, boolean headOnly,
+                                                long timeoutMillis) {
+        final AggregatedHttpMessage res = newResponse(ctx, healthy);
+        final HttpHeaders headers = HttpHeaders.copyOf(res.headers())
+                                               .set(HttpHeaderNames.ETAG, etag(healthy))
+                                               .set(HttpHeaderNames.PREFERENCE_APPLIED,
+                                                    "wait=" + TimeUnit.MILLISECONDS.toSeconds(timeoutMillis));
+        if (headOnly) {
+            return HttpResponse.of(headers);
+        }
+        return HttpResponse.of(AggregatedHttpMessage.of(headers, res.content(), res.trailingHeaders()));
+    }
+
+    private AggregatedHttpMessage newResponse(ServiceRequestContext ctx, boolean healthy) {
+        return healthy ? newHealthyResponse(ctx)
+                       : newUnhealthyResponse(ctx);
     }
 
-    private AggregatedHttpMessage newResponse(ServiceRequestContext ctx) {
-        return isHealthy() ? newHealthyResponse(ctx)
-                           : newUnhealthyResponse(ctx);
+    private static String etag(boolean healthy) {
+        return healthy ? ETAG_HEALTHY : ETAG_UNHEALTHY;
     }
 
     private boolean isHealthy() {
@@ -152,6 +322,76 @@ public class HttpHealthCheckService extends AbstractHttpService {
         return serverHealth.isHealthy();
     }
 
+    private void onHealthChange() {
+        if (pendingResponses.isEmpty()) {
+            return;
+        }
+
+        final boolean healthy = isHealthy();
+        for (PendingResponse pending : pendingResponses) {
+            if (pending.healthy != healthy) {
+                pending.ctx.eventLoop().execute(() -> pending.complete(healthy));
+            }
+        }
+    }
+
+    private final class PendingResponse {
+        final ServiceRequestContext ctx;
+        final boolean healthy;
+        final boolean headOnly;
+        final long timeoutMillis;
+        final CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+        @Nullable
+        ScheduledFuture<?> timeoutFuture;
+        @Nullable
+        ScheduledFuture<?> pollingFuture;
+
+        PendingResponse(ServiceRequestContext ctx, boolean healthy, boolean headOnly, long timeoutMillis) {
+            this.ctx = ctx;
+            this.healthy = healthy;
+            this.headOnly = headOnly;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        void completeIfChanged() {
+            final boolean healthy = isHealthy();
+            if (this.healthy != healthy) {
+                complete(healthy);
+            }
+        }
+
+        void complete(boolean healthy) {
+            if (!cancel()) {
+                return;
+            }
+
+            try {
+                future.complete(newLongPollingResponse(ctx, healthy, headOnly, timeoutMillis));
+            } catch (Throwable cause) {
+                future.completeExceptionally(cause);
+            }
+        }
+
+        /**
+         * Stops waiting for the health to change.
+         *
+         * @return {@code true} if this response was pending, or {@code false} if it was sent or cancelled.
+         */
+        boolean cancel() {
+            if (!pendingResponses.remove(this)) {
+                return false;
+            }
+
+            if (timeoutFuture != null) {
+                timeoutFuture.cancel(false);
+            }
+            if (pollingFuture != null) {
+                pollingFuture.cancel(false);
+            }
+            return true;
+        }
+    }
+
     final class ServerHealthUpdater extends ServerListenerAdapter {
         @Override
         public void serverStarted(Server server) {
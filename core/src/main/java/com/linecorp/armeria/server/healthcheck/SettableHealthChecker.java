@@ -16,6 +16,9 @@
 
 package com.linecorp.armeria.server.healthcheck;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import com.linecorp.armeria.server.Server;
 
 /**
@@ -25,6 +28,7 @@ import com.linecorp.armeria.server.Server;
  */
 public final class SettableHealthChecker implements HealthChecker {
 
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
     private volatile boolean isHealthy;
 
     @Override
@@ -36,7 +40,19 @@ public final class SettableHealthChecker implements HealthChecker {
      * Sets if the {@link Server} is healthy or not.
      */
     public void setHealthy(boolean isHealthy) {
+        if (this.isHealthy == isHealthy) {
+            return;
+        }
+
         this.isHealthy = isHealthy;
+        listeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Adds the specified {@link Runnable} which is invoked when the health of this checker changes.
+     */
+    void addListener(Runnable listener) {
+        listeners.add(listener);
     }
 
     @Override
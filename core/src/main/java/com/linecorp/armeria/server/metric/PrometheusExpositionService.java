@@ -16,52 +16,395 @@
 
 package com.linecorp.armeria.server.metric;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
 
+import javax.annotation.Nullable;
+
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
 import com.linecorp.armeria.common.HttpRequest;
 import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpResponseWriter;
 import com.linecorp.armeria.common.HttpStatus;
 import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.stream.ClosedPublisherException;
+import com.linecorp.armeria.common.util.Exceptions;
 import com.linecorp.armeria.server.AbstractHttpService;
 import com.linecorp.armeria.server.ServiceRequestContext;
+import com.linecorp.armeria.unsafe.ByteBufHttpData;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.ReferenceCountUtil;
+import io.prometheus.client.Collector.MetricFamilySamples;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.exporter.common.TextFormat;
 
 /**
  * Exposes Prometheus metrics in <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">text
- * format 0.0.4</a>.
+ * format 0.0.4</a>, or in the OpenMetrics text format 1.0.0 if a scraper asks for it and the Prometheus
+ * client library in the class path supports it.
+ *
+ * <p>The metrics are written by a blocking task executor directly into a series of pooled buffers, each of
+ * which is sent as soon as it is filled and the scraper is ready to receive it, so that a large registry
+ * is never rendered into a single contiguous array. The response is compressed with gzip if the scraper
+ * accepts it.
+ *
+ * <p>If a cache TTL is specified, a rendered scrape is kept for the TTL and shared by all scrapers which ask
+ * for the same format within it, so that the registry is not rendered again for each of them.
  */
 public class PrometheusExpositionService extends AbstractHttpService {
 
     private static final MediaType CONTENT_TYPE_004 = MediaType.parse(TextFormat.CONTENT_TYPE_004);
+    private static final MediaType CONTENT_TYPE_OPENMETRICS_100 =
+            MediaType.parse("application/openmetrics-text; version=1.0.0; charset=utf-8");
+
+    private static final int CHUNK_SIZE = 8192;
+
+    // Available only in the newer versions of the Prometheus client library.
+    @Nullable
+    private static final Method writeOpenMetrics100 = findWriteOpenMetrics100();
+
+    @Nullable
+    private static Method findWriteOpenMetrics100() {
+        try {
+            return TextFormat.class.getMethod("writeOpenMetrics100", Writer.class, Enumeration.class);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
 
     private final CollectorRegistry collectorRegistry;
+    private final long cacheTtlNanos;
+
+    // Indexed by formatIndex(); used only when cacheTtlNanos > 0.
+    private final AtomicReferenceArray<CachedScrape> cachedScrapes = new AtomicReferenceArray<>(4);
 
     /**
-     * Creates a new instance.
+     * Creates a new instance which renders the metrics for every scrape.
      *
      * @param collectorRegistry Prometheus registry
      */
     public PrometheusExpositionService(CollectorRegistry collectorRegistry) {
-        requireNonNull(collectorRegistry, "collectorRegistry");
-        this.collectorRegistry = collectorRegistry;
+        this(collectorRegistry, Duration.ZERO);
+    }
+
+    /**
+     * Creates a new instance which shares a rendered scrape between the scrapers for the specified
+     * {@code cacheTtl}.
+     *
+     * @param collectorRegistry Prometheus registry
+     * @param cacheTtl how long a rendered scrape is reused. {@link Duration#ZERO} disables caching.
+     */
+    public PrometheusExpositionService(CollectorRegistry collectorRegistry, Duration cacheTtl) {
+        this.collectorRegistry = requireNonNull(collectorRegistry, "collectorRegistry");
+        requireNonNull(cacheTtl, "cacheTtl");
+        checkArgument(!cacheTtl.isNegative(), "cacheTtl: %s (expected: >= 0)", cacheTtl);
+        cacheTtlNanos = cacheTtl.toNanos();
     }
 
     @Override
     protected HttpResponse doGet(ServiceRequestContext ctx, HttpRequest req) throws Exception {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        try (OutputStreamWriter writer = new OutputStreamWriter(stream)) {
-            TextFormat.write004(writer, collectorRegistry.metricFamilySamples());
+        final boolean openMetrics = acceptsOpenMetrics(req.headers().get(HttpHeaderNames.ACCEPT));
+        final boolean gzip = acceptsGzip(req.headers().get(HttpHeaderNames.ACCEPT_ENCODING));
+        final HttpHeaders headers = HttpHeaders.of(HttpStatus.OK)
+                                               .contentType(openMetrics ? CONTENT_TYPE_OPENMETRICS_100
+                                                                        : CONTENT_TYPE_004);
+        // The content depends on whether the scraper accepts gzip.
+        headers.set(HttpHeaderNames.VARY, "Accept-Encoding");
+        if (gzip) {
+            headers.set(HttpHeaderNames.CONTENT_ENCODING, "gzip");
         }
-        return HttpResponse.of(HttpStatus.OK, CONTENT_TYPE_004, stream.toByteArray());
+
+        if (cacheTtlNanos == 0) {
+            return stream(ctx, headers, openMetrics, gzip);
+        }
+
+        final CachedScrape scrape = cachedScrape(ctx, openMetrics, gzip);
+        return HttpResponse.from(scrape.future.thenApply(chunks -> {
+            final HttpResponseWriter res = HttpResponse.streaming();
+            res.write(headers);
+            chunks.forEach(res::write);
+            res.close();
+            return res;
+        }));
     }
 
     @Override
     protected HttpResponse doPost(ServiceRequestContext ctx, HttpRequest req) throws Exception {
         return doGet(ctx, req);
     }
+
+    private HttpResponse stream(ServiceRequestContext ctx, HttpHeaders headers,
+                                boolean openMetrics, boolean gzip) {
+        final HttpResponseWriter res = HttpResponse.streaming();
+        res.write(headers);
+        try {
+            ctx.blockingTaskExecutor().execute(() -> {
+                final Supplier<ByteBuf> bufferFactory = () -> ctx.alloc().buffer(CHUNK_SIZE, CHUNK_SIZE);
+                final ChunkedOutputStream out = new ChunkedOutputStream(bufferFactory, streamingSink(res));
+                try {
+                    write(out, openMetrics, gzip);
+                } catch (Throwable cause) {
+                    out.discard();
+                    res.close(Exceptions.peel(cause));
+                    return;
+                }
+                res.close();
+            });
+        } catch (RejectedExecutionException e) {
+            // Do not leave the response whose headers have been written open.
+            res.close(e);
+        }
+        return res;
+    }
+
+    /**
+     * Returns a sink which writes each chunk to the specified {@link HttpResponseWriter} once the scraper
+     * is ready to receive it. The chunk is released if the scraper went away before receiving it.
+     */
+    static Consumer<ByteBuf> streamingSink(HttpResponseWriter res) {
+        return buf -> {
+            try {
+                // Do not render more than what the scraper is ready to receive.
+                res.onDemand(() -> {}).join();
+            } catch (Throwable cause) {
+                ReferenceCountUtil.safeRelease(buf);
+                throw cause;
+            }
+            // tryWrite() releases the chunk by itself when the response has been closed.
+            if (!res.tryWrite(new ByteBufHttpData(buf, false))) {
+                throw ClosedPublisherException.get();
+            }
+        };
+    }
+
+    private CachedScrape cachedScrape(ServiceRequestContext ctx, boolean openMetrics, boolean gzip) {
+        final int index = (openMetrics ? 2 : 0) | (gzip ? 1 : 0);
+        for (;;) {
+            final CachedScrape cached = cachedScrapes.get(index);
+            final long currentTimeNanos = System.nanoTime();
+            if (cached != null && currentTimeNanos - cached.createdTimeNanos < cacheTtlNanos) {
+                return cached;
+            }
+
+            final CachedScrape newScrape = new CachedScrape(currentTimeNanos);
+            if (!cachedScrapes.compareAndSet(index, cached, newScrape)) {
+                // Another scraper started rendering; use its result.
+                continue;
+            }
+
+            try {
+                ctx.blockingTaskExecutor().execute(() -> {
+                    final List<HttpData> chunks = new ArrayList<>();
+                    final Supplier<ByteBuf> bufferFactory = () -> Unpooled.buffer(CHUNK_SIZE, CHUNK_SIZE);
+                    final Consumer<ByteBuf> sink = buf -> chunks.add(HttpData.of(
+                            buf.array(), buf.arrayOffset() + buf.readerIndex(), buf.readableBytes()));
+
+                    final ChunkedOutputStream out = new ChunkedOutputStream(bufferFactory, sink);
+                    try {
+                        write(out, openMetrics, gzip);
+                    } catch (Throwable cause) {
+                        out.discard();
+                        failScrape(index, newScrape, Exceptions.peel(cause));
+                        return;
+                    }
+                    newScrape.future.complete(chunks);
+                });
+            } catch (RejectedExecutionException e) {
+                failScrape(index, newScrape, e);
+            }
+            return newScrape;
+        }
+    }
+
+    private void failScrape(int index, CachedScrape scrape, Throwable cause) {
+        // Do not keep a failure so that the next scrape tries again.
+        cachedScrapes.compareAndSet(index, scrape, null);
+        scrape.future.completeExceptionally(cause);
+    }
+
+    /**
+     * Renders the metrics into the specified {@link OutputStream} and closes it.
+     */
+    private void write(OutputStream out, boolean openMetrics, boolean gzip) throws Exception {
+        final OutputStream encoded = gzip ? new EndingGzipOutputStream(out) : out;
+        // Close 'encoded' by itself as well, because the Writer does not close it if flushing fails.
+        try (OutputStream ignored = encoded;
+             Writer writer = new OutputStreamWriter(encoded, StandardCharsets.UTF_8)) {
+            final Enumeration<MetricFamilySamples> samples = collectorRegistry.metricFamilySamples();
+            if (openMetrics) {
+                assert writeOpenMetrics100 != null;
+                try {
+                    writeOpenMetrics100.invoke(null, writer, samples);
+                } catch (InvocationTargetException e) {
+                    Exceptions.throwUnsafely(e.getCause());
+                }
+            } else {
+                TextFormat.write004(writer, samples);
+            }
+        }
+    }
+
+    private static boolean acceptsOpenMetrics(@Nullable String accept) {
+        return writeOpenMetrics100 != null && accept != null &&
+               accept.contains("application/openmetrics-text");
+    }
+
+    private static boolean acceptsGzip(@Nullable String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String encoding : acceptEncoding.split(",")) {
+            final int semicolonPos = encoding.indexOf(';');
+            final String name = (semicolonPos < 0 ? encoding : encoding.substring(0, semicolonPos)).trim();
+            if (!"gzip".equalsIgnoreCase(name)) {
+                continue;
+            }
+            final int equalsPos = encoding.indexOf('=', semicolonPos);
+            if (semicolonPos < 0 || equalsPos < 0) {
+                return true;
+            }
+            try {
+                return Float.parseFloat(encoding.substring(equalsPos + 1).trim()) > 0;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A {@link GZIPOutputStream} which ends its {@link java.util.zip.Deflater} even if it fails to write
+     * the remaining data on {@link #close()}.
+     */
+    private static final class EndingGzipOutputStream extends GZIPOutputStream {
+
+        EndingGzipOutputStream(OutputStream out) throws IOException {
+            super(out, CHUNK_SIZE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                def.end();
+            }
+        }
+    }
+
+    private static final class CachedScrape {
+        final long createdTimeNanos;
+        final CompletableFuture<List<HttpData>> future = new CompletableFuture<>();
+
+        CachedScrape(long createdTimeNanos) {
+            this.createdTimeNanos = createdTimeNanos;
+        }
+    }
+
+    /**
+     * An {@link OutputStream} which fills fixed-size buffers and hands each of them over to a sink as soon
+     * as it is full. The last buffer, which may not be full, is handed over on {@link #close()}.
+     */
+    private static final class ChunkedOutputStream extends OutputStream {
+
+        private final Supplier<ByteBuf> bufferFactory;
+        private final Consumer<ByteBuf> sink;
+        @Nullable
+        private ByteBuf buf;
+        private boolean closed;
+
+        ChunkedOutputStream(Supplier<ByteBuf> bufferFactory, Consumer<ByteBuf> sink) {
+            this.bufferFactory = bufferFactory;
+            this.sink = sink;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buffer().writeByte(b);
+            flushIfFull();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                final ByteBuf buf = buffer();
+                final int length = Math.min(len, buf.writableBytes());
+                buf.writeBytes(b, off, length);
+                off += length;
+                len -= length;
+                flushIfFull();
+            }
+        }
+
+        private ByteBuf buffer() throws IOException {
+            if (closed) {
+                throw new IOException("closed already");
+            }
+            if (buf == null) {
+                buf = bufferFactory.get();
+            }
+            return buf;
+        }
+
+        private void flushIfFull() {
+            assert buf != null;
+            if (!buf.isWritable()) {
+                final ByteBuf buf = this.buf;
+                this.buf = null;
+                sink.accept(buf);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            final ByteBuf buf = this.buf;
+            if (buf == null) {
+                return;
+            }
+            this.buf = null;
+            if (buf.isReadable()) {
+                sink.accept(buf);
+            } else {
+                buf.release();
+            }
+        }
+
+        /**
+         * Releases the buffer being filled without handing it over to the sink.
+         */
+        void discard() {
+            closed = true;
+            if (buf != null) {
+                buf.release();
+                buf = null;
+            }
+        }
+    }
 }
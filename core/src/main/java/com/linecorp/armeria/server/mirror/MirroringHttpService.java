@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.mirror;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.function.Function;
+
+import com.linecorp.armeria.client.mirror.HttpTrafficMirror;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.server.Service;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import com.linecorp.armeria.server.SimpleDecoratingService;
+
+/**
+ * Decorates an HTTP {@link Service} to mirror a sample of the incoming requests using
+ * an {@link HttpTrafficMirror}.
+ */
+public final class MirroringHttpService extends SimpleDecoratingService<HttpRequest, HttpResponse> {
+
+    /**
+     * Returns a new HTTP {@link Service} decorator that mirrors the incoming requests using the specified
+     * {@link HttpTrafficMirror}.
+     */
+    public static Function<Service<HttpRequest, HttpResponse>, MirroringHttpService>
+    newDecorator(HttpTrafficMirror mirror) {
+        requireNonNull(mirror, "mirror");
+        return delegate -> new MirroringHttpService(delegate, mirror);
+    }
+
+    private final HttpTrafficMirror mirror;
+
+    private MirroringHttpService(Service<HttpRequest, HttpResponse> delegate, HttpTrafficMirror mirror) {
+        super(delegate);
+        this.mirror = mirror;
+    }
+
+    @Override
+    public HttpResponse serve(ServiceRequestContext ctx, HttpRequest req) throws Exception {
+        return delegate().serve(ctx, mirror.mirror(req));
+    }
+}
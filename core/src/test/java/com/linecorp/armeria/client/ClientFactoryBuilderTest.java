@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.logging.RequestLogAvailability;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.testing.server.ServerRule;
+
+import io.netty.handler.flush.FlushConsolidationHandler;
+
+public class ClientFactoryBuilderTest {
+
+    @ClassRule
+    public static final ServerRule server = new ServerRule() {
+        @Override
+        protected void configure(ServerBuilder sb) throws Exception {
+            sb.service("/", (ctx, req) -> HttpResponse.of(HttpStatus.OK));
+        }
+    };
+
+    @Test
+    public void maxConsolidatedFlushes() {
+        assertThatThrownBy(() -> new ClientFactoryBuilder().maxConsolidatedFlushes(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void flushConsolidationHandler() {
+        final FlushConsolidationHandler handler = flushConsolidationHandler(
+                new ClientFactoryBuilder().maxConsolidatedFlushes(5)
+                                          .consolidateFlushesWhenNoReadInProgress(true));
+        assertThat(handler).extracting("explicitFlushAfterFlushes", "consolidateWhenNoReadInProgress")
+                           .containsExactly(5, true);
+
+        // 0 removes the handler.
+        assertThat(flushConsolidationHandler(new ClientFactoryBuilder().maxConsolidatedFlushes(0))).isNull();
+    }
+
+    @Nullable
+    private static FlushConsolidationHandler flushConsolidationHandler(ClientFactoryBuilder builder) {
+        final AtomicReference<FlushConsolidationHandler> handler = new AtomicReference<>();
+        try (ClientFactory factory = builder.build()) {
+            final HttpClient client = new HttpClientBuilder(server.uri("/"))
+                    .factory(factory)
+                    .decorator((delegate, ctx, req) -> {
+                        ctx.log().addListener(log -> {
+                            handler.set(log.channel().pipeline().get(FlushConsolidationHandler.class));
+                        }, RequestLogAvailability.REQUEST_START);
+                        return delegate.execute(ctx, req);
+                    })
+                    .build();
+            assertThat(client.get("/").aggregate().join().status()).isEqualTo(HttpStatus.OK);
+        }
+        return handler.get();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.endpoint.EndpointGroupRegistry;
+import com.linecorp.armeria.client.endpoint.EndpointSelectionStrategy;
+import com.linecorp.armeria.client.endpoint.StaticEndpointGroup;
+import com.linecorp.armeria.client.pool.KeyedChannelPoolHandlerAdapter;
+import com.linecorp.armeria.client.pool.PoolKey;
+import com.linecorp.armeria.common.AggregatedHttpMessage;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.metric.MoreMeters;
+import com.linecorp.armeria.common.metric.PrometheusMeterRegistries;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.testing.server.ServerRule;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.Channel;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+
+public class HttpClientTlsTest {
+
+    private static final String GROUP_NAME = "HttpClientTlsTest";
+
+    private static final MeterRegistry registry = PrometheusMeterRegistries.newRegistry();
+
+    // Trusts the self-signed certificate only for the requests sent to the group.
+    private static final ClientFactory clientFactory =
+            new ClientFactoryBuilder()
+                    .sslContextCustomizer(GROUP_NAME,
+                                          b -> b.trustManager(InsecureTrustManagerFactory.INSTANCE))
+                    .tlsSessionCacheSize(16)
+                    .meterRegistry(registry)
+                    .build();
+
+    @ClassRule
+    public static final ServerRule server = new ServerRule() {
+        @Override
+        protected void configure(ServerBuilder sb) throws Exception {
+            sb.https(0);
+            sb.tlsSelfSigned();
+            sb.service("/", (ctx, req) -> HttpResponse.of(HttpStatus.OK));
+        }
+    };
+
+    @AfterClass
+    public static void destroy() {
+        clientFactory.close();
+        EndpointGroupRegistry.unregister(GROUP_NAME);
+    }
+
+    @Test
+    public void endpointGroupSslContext() throws Exception {
+        EndpointGroupRegistry.register(GROUP_NAME,
+                                       new StaticEndpointGroup(Endpoint.of("127.0.0.1", server.httpsPort())),
+                                       EndpointSelectionStrategy.ROUND_ROBIN);
+
+        final HttpClient groupClient = HttpClient.of(clientFactory, "h2://group:" + GROUP_NAME);
+        final AggregatedHttpMessage res = groupClient.get("/").aggregate().join();
+        assertThat(res.status()).isEqualTo(HttpStatus.OK);
+
+        final Map<String, Double> measurements = MoreMeters.measureAll(registry);
+        assertThat(measurements.getOrDefault("armeria.client.tls.handshakeDuration#count{resumed=false}", 0.0) +
+                   measurements.getOrDefault("armeria.client.tls.handshakeDuration#count{resumed=true}", 0.0))
+                .isEqualTo(1.0);
+
+        // The default SslContext does not trust the self-signed certificate.
+        final HttpClient client = HttpClient.of(clientFactory, "h2://127.0.0.1:" + server.httpsPort());
+        assertThatThrownBy(() -> client.get("/").aggregate().join()).hasCauseInstanceOf(Exception.class);
+        await().untilAsserted(() -> assertThat(MoreMeters.measureAll(registry))
+                .containsEntry("armeria.client.tls.handshakeFailures#count", 1.0));
+    }
+
+    @Test
+    public void resumedAfterReconnect() throws Exception {
+        final MeterRegistry registry = PrometheusMeterRegistries.newRegistry();
+        final AtomicInteger closedConnections = new AtomicInteger();
+        final ClientFactory clientFactory =
+                new ClientFactoryBuilder()
+                        // The OpenSSL client engine does not cache TLS sessions. TLSv1.2 resumes a session
+                        // by its ID.
+                        .sslContextCustomizer(b -> b.sslProvider(SslProvider.JDK)
+                                                    .protocols("TLSv1.2")
+                                                    .trustManager(InsecureTrustManagerFactory.INSTANCE))
+                        .idleTimeoutMillis(100)
+                        .connectionPoolListener(new KeyedChannelPoolHandlerAdapter<PoolKey>() {
+                            @Override
+                            public void channelClosed(PoolKey key, Channel ch) {
+                                closedConnections.incrementAndGet();
+                            }
+                        })
+                        .meterRegistry(registry)
+                        .build();
+        try {
+            final HttpClient client = HttpClient.of(clientFactory, "h2://127.0.0.1:" + server.httpsPort());
+            assertThat(client.get("/").aggregate().join().status()).isEqualTo(HttpStatus.OK);
+
+            // Reconnect after the idle connection is closed.
+            await().untilAsserted(() -> assertThat(closedConnections).hasValue(1));
+            assertThat(client.get("/").aggregate().join().status()).isEqualTo(HttpStatus.OK);
+
+            assertThat(MoreMeters.measureAll(registry))
+                    .containsEntry("armeria.client.tls.handshakeDuration#count{resumed=false}", 1.0)
+                    .containsEntry("armeria.client.tls.handshakeDuration#count{resumed=true}", 1.0);
+        } finally {
+            clientFactory.close();
+        }
+    }
+}
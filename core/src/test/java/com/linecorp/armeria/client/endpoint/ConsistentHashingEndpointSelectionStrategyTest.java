@@ -0,0 +1,232 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.endpoint;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.common.logging.RequestLog;
+import com.linecorp.armeria.common.logging.RequestLogAvailability;
+import com.linecorp.armeria.common.logging.RequestLogListener;
+
+public class ConsistentHashingEndpointSelectionStrategyTest {
+
+    private final ClientRequestContext ctx = mock(ClientRequestContext.class);
+    private final RequestLog log = mock(RequestLog.class);
+    private final List<RequestLogListener> logListeners = new ArrayList<>();
+    private long key;
+
+    @Before
+    public void setUp() {
+        when(ctx.log()).thenReturn(log);
+        doAnswer(invocation -> {
+            logListeners.add(invocation.getArgument(0));
+            return null;
+        }).when(log).addListener(any(RequestLogListener.class), any(RequestLogAvailability.class));
+    }
+
+    @Test
+    public void sameKeySelectsSameEndpoint() {
+        final EndpointSelector selector = newSelector(0, new StaticEndpointGroup(endpoints(0, 10)));
+        for (key = 0; key < 100; key++) {
+            assertThat(selector.select(ctx)).isSameAs(selector.select(ctx));
+        }
+    }
+
+    @Test
+    public void spreadsKeys() {
+        final List<Endpoint> endpoints = endpoints(0, 10);
+        final Map<Endpoint, Integer> counts = select(newSelector(0, new StaticEndpointGroup(endpoints)));
+        assertThat(counts.keySet()).containsExactlyInAnyOrderElementsOf(endpoints);
+        // Each endpoint gets 1000 keys on average.
+        assertThat(counts.values()).allMatch(count -> count > 500 && count < 1500);
+    }
+
+    @Test
+    public void remapsOnlyAffectedKeys() {
+        final TestDynamicEndpointGroup group = new TestDynamicEndpointGroup();
+        final List<Endpoint> endpoints = endpoints(0, 10);
+        group.updateEndpoints(endpoints);
+        final EndpointSelector selector = newSelector(0, group);
+        final List<Endpoint> oldSelections = selectAll(selector);
+
+        // Remove an endpoint.
+        final Endpoint removed = endpoints.get(3);
+        group.updateEndpoints(endpoints.stream().filter(e -> !e.equals(removed)).collect(Collectors.toList()));
+        final List<Endpoint> newSelections = selectAll(selector);
+        for (int i = 0; i < oldSelections.size(); i++) {
+            if (!oldSelections.get(i).equals(removed)) {
+                assertThat(newSelections.get(i)).isEqualTo(oldSelections.get(i));
+            }
+        }
+
+        // Add an endpoint.
+        final Endpoint added = Endpoint.of("10.0.0.100", 8080);
+        final List<Endpoint> newEndpoints = new ArrayList<>(endpoints);
+        newEndpoints.add(added);
+        group.updateEndpoints(newEndpoints);
+        final List<Endpoint> selectionsAfterAdd = selectAll(selector);
+        for (int i = 0; i < oldSelections.size(); i++) {
+            if (!selectionsAfterAdd.get(i).equals(added)) {
+                assertThat(selectionsAfterAdd.get(i)).isEqualTo(oldSelections.get(i));
+            }
+        }
+        assertThat(selectionsAfterAdd).contains(added);
+    }
+
+    @Test
+    public void weighted() {
+        final List<Endpoint> endpoints = endpoints(0, 10);
+        endpoints.set(0, endpoints.get(0).withWeight(4000));
+        final Map<Endpoint, Integer> counts = select(newSelector(0, new StaticEndpointGroup(endpoints)));
+        // The endpoint with the weight 4000 gets about 3077 keys (= 10000 * 4 / 13).
+        assertThat(counts.get(endpoints.get(0))).isBetween(2000, 4000);
+    }
+
+    @Test
+    public void boundedLoads() {
+        final List<Endpoint> endpoints = endpoints(0, 10);
+        final EndpointGroup group = new StaticEndpointGroup(endpoints);
+        final Endpoint first = newSelector(0, group).select(ctx);
+        final EndpointSelector selector = newSelector(1.25, group);
+
+        // Send 100 requests with the same key without completing them.
+        final Map<Endpoint, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            counts.merge(selector.select(ctx), 1, Integer::sum);
+        }
+
+        // No endpoint gets more than 13 (= ceil(1.25 * 100 / 10)) requests.
+        assertThat(counts.get(first)).isBetween(10, 13);
+        assertThat(counts.values()).allMatch(count -> count <= 13);
+
+        // The requests go back to the first endpoint once completed.
+        logListeners.forEach(listener -> {
+            try {
+                listener.onRequestLog(log);
+            } catch (Exception e) {
+                throw new Error(e);
+            }
+        });
+        assertThat(selector.select(ctx)).isEqualTo(first);
+    }
+
+    @Test
+    public void weightedBoundedLoads() {
+        final List<Endpoint> endpoints = endpoints(0, 10);
+        final Endpoint heavy = endpoints.get(0).withWeight(4000);
+        endpoints.set(0, heavy);
+        final EndpointGroup group = new StaticEndpointGroup(endpoints);
+        final EndpointSelector unbounded = newSelector(0, group);
+        while (!unbounded.select(ctx).equals(heavy)) {
+            key++;
+        }
+        final EndpointSelector selector = newSelector(1.25, group);
+
+        // Send 100 requests with the key of the heavy endpoint without completing them.
+        final Map<Endpoint, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            counts.merge(selector.select(ctx), 1, Integer::sum);
+        }
+
+        // The heavy endpoint gets up to 39 (= ceil(1.25 * 100 * 4 / 13)) requests
+        // while the others get up to 10 (= ceil(1.25 * 100 * 1 / 13)) requests.
+        assertThat(counts.get(heavy)).isBetween(30, 39);
+        counts.remove(heavy);
+        assertThat(counts.values()).allMatch(count -> count <= 10);
+    }
+
+    @Test
+    public void boundedLoadsAfterRebuild() {
+        final TestDynamicEndpointGroup group = new TestDynamicEndpointGroup();
+        final List<Endpoint> endpoints = endpoints(0, 10);
+        group.updateEndpoints(endpoints);
+        final Endpoint first = newSelector(0, group).select(ctx);
+        final EndpointSelector selector = newSelector(1.25, group);
+
+        // Send 100 requests with the same key without completing them.
+        for (int i = 0; i < 100; i++) {
+            selector.select(ctx);
+        }
+
+        // The in-flight requests are still counted after the ring is rebuilt,
+        // so the first endpoint is still full.
+        final List<Endpoint> newEndpoints = new ArrayList<>(endpoints);
+        newEndpoints.add(Endpoint.of("10.0.0.100", 8080));
+        group.updateEndpoints(newEndpoints);
+        assertThat(selector.select(ctx)).isNotEqualTo(first);
+    }
+
+    @Test
+    public void empty() {
+        final EndpointSelector selector = newSelector(0, new TestDynamicEndpointGroup());
+        assertThatThrownBy(() -> selector.select(ctx)).isInstanceOf(EndpointGroupException.class);
+    }
+
+    @Test
+    public void invalidArguments() {
+        assertThatThrownBy(() -> new ConsistentHashingEndpointSelectionStrategy(ctx -> 0, 0, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ConsistentHashingEndpointSelectionStrategy(ctx -> 0, 100, 0.5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private EndpointSelector newSelector(double loadFactor, EndpointGroup group) {
+        return new ConsistentHashingEndpointSelectionStrategy(ctx -> key, 100, loadFactor).newSelector(group);
+    }
+
+    private List<Endpoint> selectAll(EndpointSelector selector) {
+        final List<Endpoint> selections = new ArrayList<>();
+        for (key = 0; key < 10000; key++) {
+            selections.add(selector.select(ctx));
+        }
+        return selections;
+    }
+
+    private Map<Endpoint, Integer> select(EndpointSelector selector) {
+        final Map<Endpoint, Integer> counts = new HashMap<>();
+        selectAll(selector).forEach(e -> counts.merge(e, 1, Integer::sum));
+        return counts;
+    }
+
+    private static List<Endpoint> endpoints(int start, int end) {
+        return IntStream.range(start, end)
+                        .mapToObj(i -> Endpoint.of("10.0.0." + i, 8080))
+                        .collect(Collectors.toList());
+    }
+
+    private static final class TestDynamicEndpointGroup extends DynamicEndpointGroup {
+        void updateEndpoints(List<Endpoint> endpoints) {
+            setEndpoints(endpoints);
+        }
+    }
+}
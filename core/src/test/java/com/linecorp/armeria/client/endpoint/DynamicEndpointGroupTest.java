@@ -17,6 +17,8 @@ package com.linecorp.armeria.client.endpoint;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
@@ -49,4 +51,43 @@ public class DynamicEndpointGroupTest {
         assertThat(endpointGroup.endpoints()).isEqualTo(ImmutableList.of(Endpoint.of("127.0.0.1", 1111),
                                                                          Endpoint.of("127.0.0.1", 3333)));
     }
+
+    @Test
+    public void diffListener() {
+        final DynamicEndpointGroup endpointGroup = new DynamicEndpointGroup();
+        endpointGroup.setEndpoints(ImmutableList.of(Endpoint.of("127.0.0.1", 1111)));
+
+        final List<EndpointDiff> diffs = new ArrayList<>();
+        endpointGroup.addDiffListener(diffs::add);
+
+        // The current endpoints are notified immediately.
+        assertThat(diffs).hasSize(1);
+        assertThat(diffs.get(0).added()).containsExactly(Endpoint.of("127.0.0.1", 1111));
+
+        // Not notified when nothing changes.
+        endpointGroup.setEndpoints(ImmutableList.of(Endpoint.of("127.0.0.1", 1111)));
+        assertThat(diffs).hasSize(1);
+
+        endpointGroup.setEndpoints(ImmutableList.of(Endpoint.of("127.0.0.1", 1111).withWeight(10),
+                                                    Endpoint.of("127.0.0.1", 2222)));
+        assertThat(diffs).hasSize(2);
+        assertThat(diffs.get(1).added()).containsExactly(Endpoint.of("127.0.0.1", 2222));
+        assertThat(diffs.get(1).removed()).isEmpty();
+        assertThat(diffs.get(1).changed()).containsExactly(Endpoint.of("127.0.0.1", 1111));
+        assertThat(diffs.get(1).changed().get(0).weight()).isEqualTo(10);
+
+        endpointGroup.addEndpoint(Endpoint.of("127.0.0.1", 3333));
+        assertThat(diffs).hasSize(3);
+        assertThat(diffs.get(2).added()).containsExactly(Endpoint.of("127.0.0.1", 3333));
+
+        endpointGroup.removeEndpoint(Endpoint.of("127.0.0.1", 1111));
+        assertThat(diffs).hasSize(4);
+        assertThat(diffs.get(3).removed()).containsExactly(Endpoint.of("127.0.0.1", 1111));
+        assertThat(diffs.get(3).endpoints()).containsExactly(Endpoint.of("127.0.0.1", 2222),
+                                                             Endpoint.of("127.0.0.1", 3333));
+
+        // Not notified when nothing is removed.
+        endpointGroup.removeEndpoint(Endpoint.of("127.0.0.1", 1111));
+        assertThat(diffs).hasSize(4);
+    }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.client.endpoint;
+
+import static com.linecorp.armeria.client.endpoint.EndpointSelectionStrategy.ROUND_ROBIN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+
+public class SubsettingEndpointSelectionStrategyTest {
+
+    private static final int SUBSET_SIZE = 10;
+
+    private final ClientRequestContext ctx = mock(ClientRequestContext.class);
+
+    @Test
+    public void sameClientIdSelectsSameSubset() {
+        final List<Endpoint> endpoints = endpoints(0, 100);
+        final Set<Endpoint> subsetA = subset("client-a", new StaticEndpointGroup(endpoints));
+        final Set<Endpoint> subsetA2 = subset("client-a", new StaticEndpointGroup(endpoints));
+        final Set<Endpoint> subsetB = subset("client-b", new StaticEndpointGroup(endpoints));
+
+        assertThat(subsetA).hasSize(SUBSET_SIZE).isEqualTo(subsetA2);
+        assertThat(subsetB).hasSize(SUBSET_SIZE).isNotEqualTo(subsetA);
+        assertThat(endpoints).containsAll(subsetA);
+    }
+
+    @Test
+    public void smallGroup() {
+        final List<Endpoint> endpoints = endpoints(0, 3);
+        assertThat(subset("client-a", new StaticEndpointGroup(endpoints))).containsOnlyElementsOf(endpoints)
+                                                                         .hasSize(3);
+    }
+
+    @Test
+    public void minimalRebalancing() {
+        final TestDynamicEndpointGroup group = new TestDynamicEndpointGroup();
+        final List<Endpoint> endpoints = endpoints(0, 100);
+        group.updateEndpoints(endpoints);
+
+        final EndpointSelector selector = new SubsettingEndpointSelectionStrategy(
+                ROUND_ROBIN, "client-a", SUBSET_SIZE).newSelector(group);
+        final Set<Endpoint> oldSubset = selectAll(selector);
+        assertThat(oldSubset).hasSize(SUBSET_SIZE);
+
+        // Removing an endpoint outside the subset does not change the subset.
+        final Endpoint outsider = endpoints.stream().filter(e -> !oldSubset.contains(e)).findFirst().get();
+        group.updateEndpoints(endpoints.stream().filter(e -> !e.equals(outsider)).collect(Collectors.toList()));
+        assertThat(selectAll(selector)).isEqualTo(oldSubset);
+
+        // Removing an endpoint in the subset replaces only that endpoint.
+        final Endpoint member = oldSubset.iterator().next();
+        group.updateEndpoints(endpoints.stream().filter(e -> !e.equals(member)).collect(Collectors.toList()));
+        final Set<Endpoint> newSubset = selectAll(selector);
+        assertThat(newSubset).hasSize(SUBSET_SIZE).doesNotContain(member);
+        assertThat(Sets.intersection(oldSubset, newSubset)).hasSize(SUBSET_SIZE - 1);
+
+        // Adding it back restores the original subset.
+        group.updateEndpoints(endpoints);
+        assertThat(selectAll(selector)).isEqualTo(oldSubset);
+    }
+
+    @Test
+    public void invalidSubsetSize() {
+        assertThatThrownBy(() -> new SubsettingEndpointSelectionStrategy(ROUND_ROBIN, "client-a", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Set<Endpoint> subset(String clientId, EndpointGroup group) {
+        return selectAll(new SubsettingEndpointSelectionStrategy(ROUND_ROBIN, clientId, SUBSET_SIZE)
+                                 .newSelector(group));
+    }
+
+    private Set<Endpoint> selectAll(EndpointSelector selector) {
+        final Set<Endpoint> selected = new HashSet<>();
+        for (int i = 0; i < SUBSET_SIZE * 2; i++) {
+            selected.add(selector.select(ctx));
+        }
+        return selected;
+    }
+
+    private static List<Endpoint> endpoints(int start, int end) {
+        return IntStream.range(start, end)
+                        .mapToObj(i -> Endpoint.of("10.0.0." + i, 8080))
+                        .collect(Collectors.toList());
+    }
+
+    private static final class TestDynamicEndpointGroup extends DynamicEndpointGroup {
+        void updateEndpoints(List<Endpoint> endpoints) {
+            setEndpoints(endpoints);
+        }
+    }
+}
@@ -197,6 +197,26 @@ public class WeightedRoundRobinStrategyTest {
         assertThat(selector.select(ctx)).isEqualTo(Endpoint.of("127.0.0.1", 1111).withWeight(1));
     }
 
+    @Test
+    public void selectAfterIncrementalUpdates() {
+        final TestDynamicEndpointGroup endpointGroup = new TestDynamicEndpointGroup();
+        final EndpointSelector selector = WEIGHTED_ROUND_ROBIN.newSelector(endpointGroup);
+
+        final Endpoint a = Endpoint.of("127.0.0.1", 1111).withWeight(1);
+        final Endpoint b = Endpoint.of("127.0.0.1", 2222).withWeight(2);
+        final Endpoint c = Endpoint.of("127.0.0.1", 3333).withWeight(3);
+        endpointGroup.updateEndpoints(ImmutableList.of(a, b));
+        endpointGroup.updateEndpoints(ImmutableList.of(a, b, c));
+        endpointGroup.updateEndpoints(ImmutableList.of(a, c));
+
+        // Should select exactly as if the group had only 'a' and 'c' from the beginning.
+        final EndpointSelector expectedSelector =
+                WEIGHTED_ROUND_ROBIN.newSelector(new StaticEndpointGroup(a, c));
+        for (int i = 0; i < 12; i++) {
+            assertThat(selector.select(ctx)).isEqualTo(expectedSelector.select(ctx));
+        }
+    }
+
     private static final class TestDynamicEndpointGroup extends DynamicEndpointGroup {
         void updateEndpoints(List<Endpoint> endpoints) {
             setEndpoints(endpoints);
@@ -21,7 +21,11 @@ import static com.linecorp.armeria.common.SessionProtocol.HTTPS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -35,7 +39,12 @@ import com.linecorp.armeria.client.ClientFactory;
 import com.linecorp.armeria.client.ClientFactoryBuilder;
 import com.linecorp.armeria.client.Endpoint;
 import com.linecorp.armeria.client.endpoint.StaticEndpointGroup;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
 import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.logging.RequestLogAvailability;
 import com.linecorp.armeria.common.metric.MoreMeters;
 import com.linecorp.armeria.common.metric.PrometheusMeterRegistries;
 import com.linecorp.armeria.server.ServerBuilder;
@@ -49,6 +58,13 @@ import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 public class HttpHealthCheckedEndpointGroupTest {
 
     private static final String HEALTH_CHECK_PATH = "/healthcheck";
+    private static final String IGNORING_PREFER_PATH = "/ignoringPrefer";
+    private static final String NOT_MODIFIED_PATH = "/notModified";
+    private static final String NEVER_CHANGING_PATH = "/neverChanging";
+
+    private static final AtomicInteger ignoringPreferRequests = new AtomicInteger();
+    private static final AtomicInteger notModifiedResponses = new AtomicInteger();
+    private static final AtomicInteger pendingLongPollingRequests = new AtomicInteger();
 
     @Parameters(name = "{index}: protocol={0}")
     public static Collection<SessionProtocol> protocols() {
@@ -67,6 +83,44 @@ public class HttpHealthCheckedEndpointGroupTest {
             sb.https(0);
             sb.tlsSelfSigned();
             sb.service(HEALTH_CHECK_PATH, new HttpHealthCheckService());
+
+            // Responds immediately with an etag, without honoring the 'prefer: wait' header.
+            sb.service(IGNORING_PREFER_PATH, (ctx, req) -> {
+                ignoringPreferRequests.incrementAndGet();
+                return HttpResponse.of(HttpHeaders.of(HttpStatus.OK)
+                                                  .set(HttpHeaderNames.ETAG, "\"healthy\""));
+            });
+
+            // Waits for a while and responds with '304 Not Modified' once the client knows the health.
+            sb.service(NOT_MODIFIED_PATH, (ctx, req) -> {
+                final HttpHeaders headers;
+                if (req.headers().contains(HttpHeaderNames.IF_NONE_MATCH)) {
+                    notModifiedResponses.incrementAndGet();
+                    headers = HttpHeaders.of(HttpStatus.NOT_MODIFIED);
+                } else {
+                    headers = HttpHeaders.of(HttpStatus.OK).set(HttpHeaderNames.ETAG, "\"healthy\"");
+                }
+                headers.set(HttpHeaderNames.PREFERENCE_APPLIED, "wait=1");
+
+                final CompletableFuture<HttpResponse> future = new CompletableFuture<>();
+                ctx.eventLoop().schedule(() -> future.complete(HttpResponse.of(headers)),
+                                         100, TimeUnit.MILLISECONDS);
+                return HttpResponse.from(future);
+            });
+
+            // Never responds once the client knows the health, as if the health never changed.
+            sb.service(NEVER_CHANGING_PATH, (ctx, req) -> {
+                if (!req.headers().contains(HttpHeaderNames.IF_NONE_MATCH)) {
+                    return HttpResponse.of(HttpHeaders.of(HttpStatus.OK)
+                                                      .set(HttpHeaderNames.ETAG, "\"healthy\"")
+                                                      .set(HttpHeaderNames.PREFERENCE_APPLIED, "wait=60"));
+                }
+                pendingLongPollingRequests.incrementAndGet();
+                ctx.setRequestTimeoutMillis(0);
+                ctx.log().addListener(log -> pendingLongPollingRequests.decrementAndGet(),
+                                      RequestLogAvailability.COMPLETE);
+                return HttpResponse.streaming();
+            });
         }
     }
 
@@ -191,4 +245,142 @@ public class HttpHealthCheckedEndpointGroupTest {
                                    "{authority=127.0.0.1:" + portOne + ",name=baz}", 1.0);
         });
     }
+
+    @Test
+    public void endpoints_longPolling() throws Exception {
+        serverOne.start();
+        serverTwo.start();
+
+        final int portOne = serverOne.port(protocol);
+        final int portTwo = serverTwo.port(protocol);
+        // Use a long retry interval so that only long polling can detect the health change in time.
+        final HealthCheckedEndpointGroup endpointGroup = new HttpHealthCheckedEndpointGroupBuilder(
+                new StaticEndpointGroup(Endpoint.of("127.0.0.1", portOne),
+                                        Endpoint.of("127.0.0.1", portTwo)),
+                HEALTH_CHECK_PATH)
+                .protocol(protocol)
+                .clientFactory(clientFactory)
+                .retryInterval(Duration.ofMinutes(1))
+                .longPollingTimeout(Duration.ofMinutes(1))
+                .build();
+
+        try {
+            assertThat(endpointGroup.endpoints()).containsExactly(
+                    Endpoint.of("127.0.0.1", portOne),
+                    Endpoint.of("127.0.0.1", portTwo));
+
+            serverTwo.stop().get();
+            await().untilAsserted(() -> assertThat(endpointGroup.endpoints()).containsExactly(
+                    Endpoint.of("127.0.0.1", portOne)));
+        } finally {
+            endpointGroup.close();
+        }
+    }
+
+    @Test
+    public void endpoints_longPollingNotApplied() throws Exception {
+        serverOne.start();
+        ignoringPreferRequests.set(0);
+
+        final int portOne = serverOne.port(protocol);
+        final HealthCheckedEndpointGroup endpointGroup = new HttpHealthCheckedEndpointGroupBuilder(
+                new StaticEndpointGroup(Endpoint.of("127.0.0.1", portOne)), IGNORING_PREFER_PATH)
+                .protocol(protocol)
+                .clientFactory(clientFactory)
+                .retryInterval(Duration.ofMinutes(1))
+                .longPollingTimeout(Duration.ofMinutes(1))
+                .build();
+
+        try {
+            assertThat(endpointGroup.endpoints()).containsExactly(Endpoint.of("127.0.0.1", portOne));
+
+            // The server did not wait, so the next request must wait for the retry interval.
+            Thread.sleep(1000);
+            assertThat(ignoringPreferRequests).hasValue(1);
+        } finally {
+            endpointGroup.close();
+        }
+    }
+
+    @Test
+    public void endpoints_longPollingNotModified() throws Exception {
+        serverOne.start();
+        notModifiedResponses.set(0);
+
+        final int portOne = serverOne.port(protocol);
+        final HealthCheckedEndpointGroup endpointGroup = new HttpHealthCheckedEndpointGroupBuilder(
+                new StaticEndpointGroup(Endpoint.of("127.0.0.1", portOne)), NOT_MODIFIED_PATH)
+                .protocol(protocol)
+                .clientFactory(clientFactory)
+                .retryInterval(Duration.ofMillis(200))
+                .longPollingTimeout(Duration.ofSeconds(1))
+                .build();
+
+        try {
+            assertThat(endpointGroup.endpoints()).containsExactly(Endpoint.of("127.0.0.1", portOne));
+
+            // '304 Not Modified' keeps the last known health.
+            await().untilAsserted(() -> assertThat(notModifiedResponses).hasValueGreaterThanOrEqualTo(3));
+            assertThat(endpointGroup.endpoints()).containsExactly(Endpoint.of("127.0.0.1", portOne));
+        } finally {
+            endpointGroup.close();
+        }
+    }
+
+    @Test
+    public void endpoints_longPollingAbortedOnClose() throws Exception {
+        serverOne.start();
+        pendingLongPollingRequests.set(0);
+
+        final int portOne = serverOne.port(protocol);
+        final HealthCheckedEndpointGroup endpointGroup = new HttpHealthCheckedEndpointGroupBuilder(
+                new StaticEndpointGroup(Endpoint.of("127.0.0.1", portOne)), NEVER_CHANGING_PATH)
+                .protocol(protocol)
+                .clientFactory(clientFactory)
+                .retryInterval(Duration.ofMinutes(1))
+                .longPollingTimeout(Duration.ofMinutes(1))
+                .build();
+
+        try {
+            assertThat(endpointGroup.endpoints()).containsExactly(Endpoint.of("127.0.0.1", portOne));
+            await().untilAsserted(() -> assertThat(pendingLongPollingRequests).hasValue(1));
+        } finally {
+            endpointGroup.close();
+        }
+
+        // The pending request is aborted rather than left until the server's wait expires.
+        await().untilAsserted(() -> assertThat(pendingLongPollingRequests).hasValue(0));
+    }
+
+    @Test
+    public void endpoints_sharedHealthChecks() throws Exception {
+        serverOne.start();
+
+        final int portOne = serverOne.port(protocol);
+        final HttpHealthCheckedEndpointGroupBuilder builder = new HttpHealthCheckedEndpointGroupBuilder(
+                new StaticEndpointGroup(Endpoint.of("127.0.0.1", portOne)), HEALTH_CHECK_PATH)
+                .protocol(protocol)
+                .clientFactory(clientFactory)
+                .retryInterval(Duration.ofMinutes(1));
+
+        try (HealthCheckedEndpointGroup groupA = builder.build();
+             HealthCheckedEndpointGroup groupB = builder.build()) {
+
+            groupA.newMeterBinder("qux").bindTo(registry);
+            groupB.newMeterBinder("quux").bindTo(registry);
+
+            // The second group reuses the result of the health check request sent for the first group.
+            assertThat(groupA.endpoints()).containsExactly(Endpoint.of("127.0.0.1", portOne));
+            assertThat(groupB.endpoints()).containsExactly(Endpoint.of("127.0.0.1", portOne));
+            assertThat(MoreMeters.measureAll(registry))
+                    .containsEntry("armeria.client.endpointGroup.healthChecks#count" +
+                                   "{name=qux,result=sent}", 1.0)
+                    .containsEntry("armeria.client.endpointGroup.healthChecks#count" +
+                                   "{name=qux,result=shared}", 0.0)
+                    .containsEntry("armeria.client.endpointGroup.healthChecks#count" +
+                                   "{name=quux,result=sent}", 0.0)
+                    .containsEntry("armeria.client.endpointGroup.healthChecks#count" +
+                                   "{name=quux,result=shared}", 1.0);
+        }
+    }
 }
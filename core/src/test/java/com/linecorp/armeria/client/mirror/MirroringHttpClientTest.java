@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.mirror;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.client.HttpClientBuilder;
+import com.linecorp.armeria.common.AggregatedHttpMessage;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.metric.MeterIdPrefix;
+import com.linecorp.armeria.common.metric.MoreMeters;
+import com.linecorp.armeria.common.metric.PrometheusMeterRegistries;
+import com.linecorp.armeria.server.AbstractHttpService;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.server.ServiceRequestContext;
+import com.linecorp.armeria.testing.server.ServerRule;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+public class MirroringHttpClientTest {
+
+    private static final BlockingQueue<String> shadowRequests = new LinkedBlockingQueue<>();
+    private static volatile CompletableFuture<HttpResponse> heldShadowResponse;
+
+    @ClassRule
+    public static final ServerRule primary = new ServerRule() {
+        @Override
+        protected void configure(ServerBuilder sb) throws Exception {
+            sb.service("/echo", new EchoService());
+            sb.service("/hold", new EchoService());
+        }
+    };
+
+    @ClassRule
+    public static final ServerRule shadow = new ServerRule() {
+        @Override
+        protected void configure(ServerBuilder sb) throws Exception {
+            sb.service("/echo", new AbstractHttpService() {
+                @Override
+                protected HttpResponse doPost(ServiceRequestContext ctx, HttpRequest req) {
+                    return HttpResponse.from(req.aggregate().thenApply(msg -> {
+                        shadowRequests.add(msg.content().toStringUtf8());
+                        return HttpResponse.of(HttpStatus.OK);
+                    }));
+                }
+            });
+            sb.service("/hold", new AbstractHttpService() {
+                @Override
+                protected HttpResponse doPost(ServiceRequestContext ctx, HttpRequest req) {
+                    return HttpResponse.from(heldShadowResponse);
+                }
+            });
+        }
+    };
+
+    @Before
+    public void clearShadowRequests() {
+        shadowRequests.clear();
+        heldShadowResponse = new CompletableFuture<>();
+    }
+
+    @Test
+    public void mirror() throws Exception {
+        final MeterRegistry registry = PrometheusMeterRegistries.newRegistry();
+        final HttpTrafficMirror mirror = new HttpTrafficMirrorBuilder(HttpClient.of(shadow.uri("/")))
+                .name("shadow")
+                .meterRegistry(registry)
+                .meterIdPrefix(new MeterIdPrefix("foo"))
+                .build();
+        final HttpClient client = new HttpClientBuilder(primary.uri("/"))
+                .decorator(MirroringHttpClient.newDecorator(mirror))
+                .build();
+
+        final AggregatedHttpMessage res = client.post("/echo", "hello").aggregate().join();
+        assertThat(res.content().toStringUtf8()).isEqualTo("hello");
+        assertThat(shadowRequests.poll(10, TimeUnit.SECONDS)).isEqualTo("hello");
+
+        await().untilAsserted(() -> assertThat(MoreMeters.measureAll(registry))
+                .containsEntry("foo.mirroredRequests#count{target=shadow}", 1.0)
+                .containsEntry("foo.responses#count{result=success,target=shadow}", 1.0)
+                .containsEntry("foo.activeRequests#value{target=shadow}", 0.0)
+                .containsEntry("foo.retainedBytes#value{target=shadow}", 0.0));
+    }
+
+    @Test
+    public void dropShadowCopyWhenRetainedBytesExceeded() throws Exception {
+        final MeterRegistry registry = PrometheusMeterRegistries.newRegistry();
+        final HttpTrafficMirror mirror = new HttpTrafficMirrorBuilder(HttpClient.of(shadow.uri("/")))
+                .name("shadow")
+                .maxRetainedBytes(4)
+                .meterRegistry(registry)
+                .meterIdPrefix(new MeterIdPrefix("foo"))
+                .build();
+        final HttpClient client = new HttpClientBuilder(primary.uri("/"))
+                .decorator(MirroringHttpClient.newDecorator(mirror))
+                .build();
+
+        // The primary request must not be affected by the dropped shadow copy.
+        final AggregatedHttpMessage res = client.post("/echo", "hello, world").aggregate().join();
+        assertThat(res.content().toStringUtf8()).isEqualTo("hello, world");
+
+        await().untilAsserted(() -> {
+            assertThat(mirror.activeRequests()).isZero();
+            assertThat(mirror.retainedBytes()).isZero();
+            assertThat(MoreMeters.measureAll(registry))
+                    .containsEntry("foo.droppedRequests#count{reason=memory,target=shadow}", 1.0);
+        });
+        assertThat(shadowRequests).isEmpty();
+    }
+
+    @Test
+    public void gaugesSharedByMirrorsWithSameName() throws Exception {
+        final MeterRegistry registry = PrometheusMeterRegistries.newRegistry();
+        final HttpTrafficMirrorBuilder builder = new HttpTrafficMirrorBuilder(HttpClient.of(shadow.uri("/")))
+                .name("shadow")
+                .meterRegistry(registry)
+                .meterIdPrefix(new MeterIdPrefix("foo"));
+        final HttpTrafficMirror first = builder.build();
+        final HttpTrafficMirror second = builder.build();
+        final HttpClient client = new HttpClientBuilder(primary.uri("/"))
+                .decorator(MirroringHttpClient.newDecorator(second))
+                .build();
+
+        assertThat(client.post("/hold", "hello").aggregate().join().content().toStringUtf8())
+                .isEqualTo("hello");
+
+        // The gauges registered by the first mirror must reflect the second mirror as well.
+        await().untilAsserted(() -> assertThat(MoreMeters.measureAll(registry))
+                .containsEntry("foo.activeRequests#value{target=shadow}", 1.0));
+        assertThat(first.activeRequests()).isZero();
+        assertThat(second.activeRequests()).isOne();
+
+        heldShadowResponse.complete(HttpResponse.of(HttpStatus.OK));
+        await().untilAsserted(() -> assertThat(MoreMeters.measureAll(registry))
+                .containsEntry("foo.activeRequests#value{target=shadow}", 0.0)
+                .containsEntry("foo.retainedBytes#value{target=shadow}", 0.0));
+    }
+
+    @Test
+    public void samplingRate() throws Exception {
+        final HttpTrafficMirror mirror = new HttpTrafficMirrorBuilder(HttpClient.of(shadow.uri("/")))
+                .samplingRate(0)
+                .build();
+        final HttpClient client = new HttpClientBuilder(primary.uri("/"))
+                .decorator(MirroringHttpClient.newDecorator(mirror))
+                .build();
+
+        assertThat(client.post("/echo", "hello").aggregate().join().content().toStringUtf8())
+                .isEqualTo("hello");
+        assertThat(shadowRequests.poll(1, TimeUnit.SECONDS)).isNull();
+    }
+
+    private static final class EchoService extends AbstractHttpService {
+        @Override
+        protected HttpResponse doPost(ServiceRequestContext ctx, HttpRequest req) {
+            return HttpResponse.from(req.aggregate().thenApply(
+                    msg -> HttpResponse.of(HttpStatus.OK, MediaType.PLAIN_TEXT_UTF_8,
+                                           msg.content().toStringUtf8())));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+import io.netty.util.AsciiString;
+
+public class HttpHeaderNamesTest {
+
+    @Test
+    public void knownName() {
+        assertThat(HttpHeaderNames.of("content-type")).isSameAs(HttpHeaderNames.CONTENT_TYPE);
+        assertThat(HttpHeaderNames.of("Content-Type")).isSameAs(HttpHeaderNames.CONTENT_TYPE);
+        assertThat(HttpHeaderNames.of("CONTENT-TYPE")).isSameAs(HttpHeaderNames.CONTENT_TYPE);
+        assertThat(HttpHeaderNames.of("WWW-Authenticate")).isSameAs(HttpHeaderNames.WWW_AUTHENTICATE);
+        assertThat(HttpHeaderNames.of(":method")).isSameAs(HttpHeaderNames.METHOD);
+    }
+
+    @Test
+    public void unknownName() {
+        assertThat(HttpHeaderNames.of("X-Unknown-Header")).isEqualTo(AsciiString.of("x-unknown-header"));
+    }
+}
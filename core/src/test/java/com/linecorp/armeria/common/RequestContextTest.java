@@ -34,6 +34,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -349,6 +350,60 @@ public class RequestContextTest {
         assertDepth(0);
     }
 
+    @Test
+    public void reusePushHandles() {
+        final RequestContext ctx1 = createContext(true);
+        final RequestContext ctx2 = createContext(true);
+        final SafeCloseable handle1 = RequestContext.push(ctx1);
+        final SafeCloseable handle2 = RequestContext.push(ctx2);
+        assertThat(ctxStack).containsExactly(ctx1, ctx2);
+        handle2.close();
+        assertCurrentContext(ctx1);
+
+        // Closing again must not affect the current context.
+        handle2.close();
+        assertCurrentContext(ctx1);
+        assertThat(ctxStack).containsExactly(ctx1);
+
+        // The handle of the same depth is reused.
+        try (SafeCloseable handle3 = RequestContext.push(ctx2)) {
+            assertThat(handle3).isSameAs(handle2);
+            assertCurrentContext(ctx2);
+        }
+
+        handle1.close();
+        assertThat(RequestContext.mapCurrent(Function.identity(), null)).isNull();
+        assertDepth(0);
+    }
+
+    @Test
+    public void pushHandlesClosedOutOfOrder() {
+        final RequestContext ctx1 = createContext(false);
+        final RequestContext ctx2 = createContext(false);
+        final RequestContext ctx3 = createContext(false);
+        final SafeCloseable handle1 = RequestContext.push(ctx1);
+        final SafeCloseable handle2 = RequestContext.push(ctx2);
+        handle1.close();
+        assertThat(RequestContext.mapCurrent(Function.identity(), null)).isNull();
+
+        try (SafeCloseable handle3 = RequestContext.push(ctx3)) {
+            assertThat(handle3).isSameAs(handle1);
+            // handle2 is still in use, so a new handle has to be returned.
+            try (SafeCloseable handle4 = RequestContext.push(ctx1)) {
+                assertThat(handle4).isNotSameAs(handle2);
+                assertCurrentContext(ctx1);
+            }
+            assertCurrentContext(ctx3);
+        }
+        assertThat(RequestContext.mapCurrent(Function.identity(), null)).isNull();
+    }
+
+    @Test
+    public void cachedContextAwareEventLoop() {
+        final RequestContext ctx = createContext();
+        assertThat(ctx.contextAwareEventLoop()).isSameAs(ctx.contextAwareEventLoop());
+    }
+
     @Test
     public void timedOut() {
         RequestContext ctx = createContext();
@@ -16,7 +16,18 @@
 
 package com.linecorp.armeria.common.stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.linecorp.armeria.common.HttpData;
+
+import io.netty.util.concurrent.ImmediateEventExecutor;
 
 public class DefaultStreamMessageTest extends AbstractStreamMessageAndWriterTest {
 
@@ -24,4 +35,81 @@ public class DefaultStreamMessageTest extends AbstractStreamMessageAndWriterTest
     <T> StreamMessageAndWriter<T> newStreamWriter(List<T> unused) {
         return new DefaultStreamMessage<>();
     }
+
+    @Test
+    public void writableWithoutWatermark() {
+        final DefaultStreamMessage<Integer> stream = new DefaultStreamMessage<>();
+        for (int i = 0; i < 100; i++) {
+            stream.write(i);
+        }
+        assertThat(stream.isWritable()).isTrue();
+        stream.close();
+        assertThat(stream.isWritable()).isFalse();
+    }
+
+    @Test
+    public void elementWatermark() {
+        final DefaultStreamMessage<Integer> stream =
+                new DefaultStreamMessage<>(StreamWriterWatermark.ofElements(1, 3));
+        final AtomicInteger numChanges = new AtomicInteger();
+        stream.setWritabilityChangeListener(numChanges::incrementAndGet);
+
+        for (int i = 0; i < 3; i++) {
+            stream.write(i);
+        }
+        assertThat(stream.isWritable()).isTrue();
+        stream.write(3);
+        assertThat(stream.isWritable()).isFalse();
+        assertThat(numChanges).hasValue(1);
+
+        // Still accepts an element while unwritable.
+        assertThat(stream.tryWrite(4)).isTrue();
+
+        final Subscription subscription = subscribe(stream);
+        subscription.request(3);
+        // 2 elements are pending, which is above the low watermark.
+        assertThat(stream.isWritable()).isFalse();
+        subscription.request(1);
+        assertThat(stream.isWritable()).isTrue();
+        assertThat(numChanges).hasValue(2);
+    }
+
+    @Test
+    public void byteWatermark() {
+        final DefaultStreamMessage<Object> stream =
+                new DefaultStreamMessage<>(StreamWriterWatermark.ofBytes(4, 8));
+        final AtomicInteger numChanges = new AtomicInteger();
+        stream.setWritabilityChangeListener(numChanges::incrementAndGet);
+
+        stream.write(HttpData.ofUtf8("12345"));
+        stream.write("not counted");
+        assertThat(stream.isWritable()).isTrue();
+        stream.write(HttpData.ofUtf8("6789"));
+        assertThat(stream.isWritable()).isFalse();
+
+        final Subscription subscription = subscribe(stream);
+        subscription.request(2);
+        assertThat(stream.isWritable()).isTrue();
+        assertThat(numChanges).hasValue(2);
+    }
+
+    private static Subscription subscribe(StreamMessage<?> stream) {
+        final Subscription[] subscriptionHolder = new Subscription[1];
+        stream.subscribe(new Subscriber<Object>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscriptionHolder[0] = s;
+            }
+
+            @Override
+            public void onNext(Object o) {}
+
+            @Override
+            public void onError(Throwable t) {}
+
+            @Override
+            public void onComplete() {}
+        }, ImmediateEventExecutor.INSTANCE);
+        return subscriptionHolder[0];
+    }
 }
@@ -26,6 +26,8 @@ import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
@@ -41,11 +43,17 @@ import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.linecorp.armeria.common.ContentTooLargeException;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.metric.MoreMeters;
+import com.linecorp.armeria.common.metric.PrometheusMeterRegistries;
 import com.linecorp.armeria.common.stream.AbstractStreamMessageDuplicator.DownstreamSubscription;
 import com.linecorp.armeria.common.stream.AbstractStreamMessageDuplicator.SignalQueue;
 import com.linecorp.armeria.common.stream.AbstractStreamMessageDuplicator.StreamMessageProcessor;
 import com.linecorp.armeria.testing.internal.AnticipatedException;
+import com.linecorp.armeria.unsafe.ByteBufHttpData;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.util.IllegalReferenceCountException;
@@ -354,6 +362,85 @@ public class StreamMessageDuplicatorTest {
         return UnpooledByteBufAllocator.DEFAULT.buffer().writeByte(0);
     }
 
+    @Test
+    public void spillToFile() {
+        final DefaultStreamMessage<HttpData> publisher = new DefaultStreamMessage<>();
+        final HttpDataDuplicator duplicator = new HttpDataDuplicator(publisher, 0, 4);
+        final CompletableFuture<List<HttpData>> future =
+                duplicator.duplicateStream(true).collect(ImmediateEventExecutor.INSTANCE);
+
+        publisher.write(HttpData.ofUtf8("abc"));
+        assertThat(duplicator.retainedSignalLength()).isEqualTo(3);
+        assertThat(duplicator.spilledSignalLength()).isZero();
+
+        // Exceeds the in-memory limit.
+        publisher.write(HttpData.ofUtf8("defg"));
+        assertThat(duplicator.retainedSignalLength()).isEqualTo(7);
+        assertThat(duplicator.spilledSignalLength()).isEqualTo(4);
+
+        publisher.close();
+        final List<HttpData> data = future.join();
+        assertThat(data).extracting(HttpData::toStringUtf8).containsExactly("abc", "defg");
+        assertThat(data.get(1)).isInstanceOf(ByteBufHttpData.class);
+        assertThat(duplicator.retainedSignalLength()).isZero();
+        assertThat(duplicator.spilledSignalLength()).isZero();
+    }
+
+    @Test
+    public void meters() {
+        final MeterRegistry registry = PrometheusMeterRegistries.newRegistry();
+        AbstractStreamMessageDuplicator.newMeterBinder().bindTo(registry);
+        final String retained = "armeria.streamMessageDuplicator.retainedSignalLength#value";
+        final String spilled = "armeria.streamMessageDuplicator.spilledSignalLength#value";
+        final Map<String, Double> before = MoreMeters.measureAll(registry);
+
+        final DefaultStreamMessage<HttpData> publisher = new DefaultStreamMessage<>();
+        final HttpDataDuplicator duplicator = new HttpDataDuplicator(publisher, 0, 4);
+        final CompletableFuture<List<HttpData>> future =
+                duplicator.duplicateStream(true).collect(ImmediateEventExecutor.INSTANCE);
+
+        publisher.write(HttpData.ofUtf8("abc"));
+        publisher.write(HttpData.ofUtf8("defg"));
+        Map<String, Double> measurements = MoreMeters.measureAll(registry);
+        assertThat(measurements.get(retained) - before.get(retained)).isEqualTo(7.0);
+        assertThat(measurements.get(spilled) - before.get(spilled)).isEqualTo(4.0);
+
+        publisher.close();
+        future.join();
+        measurements = MoreMeters.measureAll(registry);
+        assertThat(measurements.get(retained)).isEqualTo(before.get(retained));
+        assertThat(measurements.get(spilled)).isEqualTo(before.get(spilled));
+    }
+
+    @Test
+    public void exceedMaxSignalLength() {
+        final DefaultStreamMessage<HttpData> publisher = new DefaultStreamMessage<>();
+        final HttpDataDuplicator duplicator = new HttpDataDuplicator(publisher, 5, 0);
+        final CompletableFuture<List<HttpData>> future =
+                duplicator.duplicateStream().collect(ImmediateEventExecutor.INSTANCE);
+
+        publisher.write(HttpData.ofUtf8("abc"));
+        publisher.write(HttpData.ofUtf8("def"));
+
+        assertThatThrownBy(future::join).hasCauseInstanceOf(ContentTooLargeException.class);
+        assertThat(publisher.isOpen()).isFalse();
+        duplicator.close();
+    }
+
+    private static class HttpDataDuplicator
+            extends AbstractStreamMessageDuplicator<HttpData, StreamMessage<HttpData>> {
+        HttpDataDuplicator(StreamMessage<HttpData> publisher, long maxSignalLength,
+                           long maxInMemorySignalLength) {
+            super(publisher, HttpData::length, ImmediateEventExecutor.INSTANCE, maxSignalLength,
+                  maxInMemorySignalLength);
+        }
+
+        @Override
+        public StreamMessage<HttpData> doDuplicateStream(StreamMessage<HttpData> delegate) {
+            return new StreamMessageWrapper<>(delegate);
+        }
+    }
+
     private static class StreamMessageDuplicator
             extends AbstractStreamMessageDuplicator<String, StreamMessage<String>> {
         StreamMessageDuplicator(StreamMessage<String> publisher) {
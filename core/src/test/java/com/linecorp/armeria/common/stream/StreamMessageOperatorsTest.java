@@ -0,0 +1,213 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.common.stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.google.common.collect.ImmutableList;
+
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpObject;
+import com.linecorp.armeria.common.HttpStatus;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.concurrent.ImmediateEventExecutor;
+
+public class StreamMessageOperatorsTest {
+
+    @Test
+    public void mapAndFilter() {
+        final StreamMessage<String> stream = StreamMessage.of(1, 2, 3, 4, 5)
+                                                          .map(i -> i * 10)
+                                                          .filter(i -> i != 20)
+                                                          .map(String::valueOf)
+                                                          .filter(s -> !s.startsWith("4"));
+        assertThat(stream).isInstanceOf(FuseableStreamMessage.class);
+        assertThat(stream.collect(ImmediateEventExecutor.INSTANCE).join())
+                .containsExactly("10", "30", "50");
+    }
+
+    @Test
+    public void isEmptyWhenFilterDropsEverything() {
+        final StreamMessage<Integer> source = StreamMessage.of(1, 2, 3);
+        final StreamMessage<Integer> stream = source.filter(i -> false);
+        // isEmpty() is only a hint, which never returns true for a non-empty source.
+        assertThat(stream.isEmpty()).isFalse();
+        assertThat(stream.buffer(2).isEmpty()).isFalse();
+        assertThat(stream.collect(ImmediateEventExecutor.INSTANCE).join()).isEmpty();
+
+        assertThat(StreamMessage.<Integer>of().filter(i -> false).isEmpty()).isTrue();
+    }
+
+    @Test
+    public void filteredElementDoesNotConsumeDemand() {
+        final DefaultStreamMessage<Integer> source = new DefaultStreamMessage<>();
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(1);
+        source.filter(i -> i % 2 == 0).subscribe(subscriber, ImmediateEventExecutor.INSTANCE);
+
+        source.write(1);
+        source.write(3);
+        assertThat(subscriber.elements).isEmpty();
+        source.write(4);
+        assertThat(subscriber.elements).containsExactly(4);
+
+        // No demand left.
+        source.write(6);
+        assertThat(subscriber.elements).containsExactly(4);
+        subscriber.subscription.request(1);
+        assertThat(subscriber.elements).containsExactly(4, 6);
+    }
+
+    @Test
+    public void exceptionInFunction() {
+        final DefaultStreamMessage<Integer> source = new DefaultStreamMessage<>();
+        final StreamMessage<Integer> stream = source.map(i -> {
+            if (i == 2) {
+                throw new AnticipatedException();
+            }
+            return i;
+        });
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        stream.subscribe(subscriber, ImmediateEventExecutor.INSTANCE);
+
+        source.write(1);
+        source.write(2);
+        assertThat(subscriber.elements).containsExactly(1);
+        assertThat(subscriber.cause).isInstanceOf(AnticipatedException.class);
+        assertThat(source.isOpen()).isFalse();
+    }
+
+    @Test
+    public void exceptionInFunctionReleasesElement() {
+        final DefaultStreamMessage<ByteBuf> source = new DefaultStreamMessage<>();
+        final RecordingSubscriber<ByteBuf> subscriber = new RecordingSubscriber<>(Long.MAX_VALUE);
+        source.<ByteBuf>map(buf -> {
+            throw new AnticipatedException();
+        }).subscribe(subscriber, ImmediateEventExecutor.INSTANCE, true);
+
+        final ByteBuf buf = Unpooled.buffer().writeByte(0);
+        source.write(buf);
+        assertThat(subscriber.cause).isInstanceOf(AnticipatedException.class);
+        assertThat(buf.refCnt()).isZero();
+    }
+
+    @Test
+    public void buffer() {
+        final DefaultStreamMessage<Integer> source = new DefaultStreamMessage<>();
+        final RecordingSubscriber<List<Integer>> subscriber = new RecordingSubscriber<>(1);
+        source.buffer(3).subscribe(subscriber, ImmediateEventExecutor.INSTANCE);
+
+        for (int i = 0; i < 7; i++) {
+            source.write(i);
+        }
+        assertThat(subscriber.elements).containsExactly(ImmutableList.of(0, 1, 2));
+        // 3 elements were requested for the first window.
+        assertThat(source.demand()).isZero();
+
+        subscriber.subscription.request(2);
+        source.close();
+        assertThat(subscriber.elements).containsExactly(ImmutableList.of(0, 1, 2),
+                                                        ImmutableList.of(3, 4, 5),
+                                                        ImmutableList.of(6));
+        assertThat(subscriber.completed).isTrue();
+    }
+
+    @Test
+    public void windowByBytes() {
+        final HttpHeaders headers = HttpHeaders.of(HttpStatus.OK);
+        final HttpData data1 = HttpData.ofUtf8("abc");
+        final HttpData data2 = HttpData.ofUtf8("de");
+        final HttpData data3 = HttpData.ofUtf8("fghij");
+        final HttpData data4 = HttpData.ofUtf8("k");
+        final StreamMessage<HttpObject> source = StreamMessage.of(headers, data1, data2, data3, data4);
+
+        assertThat(source.windowByBytes(5).collect(ImmediateEventExecutor.INSTANCE).join())
+                .containsExactly(ImmutableList.of(headers, data1, data2),
+                                 ImmutableList.of(data3),
+                                 ImmutableList.of(data4));
+    }
+
+    @Test
+    public void windowByBytesKeepsDemand() {
+        final DefaultStreamMessage<String> source = new DefaultStreamMessage<>();
+        final RecordingSubscriber<List<String>> subscriber = new RecordingSubscriber<>(1);
+        source.windowByBytes(4, String::length).subscribe(subscriber, ImmediateEventExecutor.INSTANCE);
+
+        source.write("a");
+        source.write("bc");
+        assertThat(subscriber.elements).isEmpty();
+        source.write("def");
+        assertThat(subscriber.elements).containsExactly(ImmutableList.of("a", "bc", "def"));
+        assertThat(source.demand()).isZero();
+    }
+
+    @Test
+    public void collectFailure() {
+        final DefaultStreamMessage<Integer> source = new DefaultStreamMessage<>();
+        source.write(1);
+        source.close(new AnticipatedException());
+        assertThatThrownBy(() -> source.collect(ImmediateEventExecutor.INSTANCE).join())
+                .hasCauseInstanceOf(AnticipatedException.class);
+    }
+
+    private static final class RecordingSubscriber<T> implements Subscriber<T> {
+
+        private final long initialDemand;
+        final List<T> elements = new ArrayList<>();
+        Subscription subscription;
+        Throwable cause;
+        boolean completed;
+
+        RecordingSubscriber(long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            s.request(initialDemand);
+        }
+
+        @Override
+        public void onNext(T obj) {
+            elements.add(obj);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            cause = t;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class AnticipatedException extends RuntimeException {}
+}
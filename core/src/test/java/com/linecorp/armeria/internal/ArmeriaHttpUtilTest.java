@@ -28,8 +28,10 @@ import org.junit.Test;
 import com.linecorp.armeria.common.DefaultHttpHeaders;
 import com.linecorp.armeria.common.HttpHeaderNames;
 import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpMethod;
 import com.linecorp.armeria.common.MediaType;
 
+import io.netty.handler.codec.http.DefaultHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http2.DefaultHttp2Headers;
@@ -120,6 +122,45 @@ public class ArmeriaHttpUtilTest {
                 .containsExactly("a=b; c=d; e=f; g=h; i=j; k=l");
     }
 
+    @Test
+    public void inboundCookiesMustBeMergedWhenDecodedDirectly() {
+        final ArmeriaHttp2Headers in = new ArmeriaHttp2Headers(true, 16);
+
+        in.add(HttpHeaderNames.COOKIE, "a=b; c=d");
+        in.add(HttpHeaderNames.COOKIE, "e=f;g=h");
+        in.add(HttpHeaderNames.CONTENT_TYPE, MediaType.PLAIN_TEXT_UTF_8.toString());
+        in.add(HttpHeaderNames.COOKIE, "i=j");
+        in.add(HttpHeaderNames.COOKIE, "k=l;");
+
+        final HttpHeaders out = toArmeria(in);
+
+        assertThat(out).isSameAs(in.delegate());
+        assertThat(out.getAll(HttpHeaderNames.COOKIE))
+                .containsExactly("a=b; c=d; e=f; g=h; i=j; k=l");
+        assertThat(out.get(HttpHeaderNames.CONTENT_TYPE)).isEqualTo(MediaType.PLAIN_TEXT_UTF_8.toString());
+    }
+
+    @Test
+    public void outboundHttp2HeadersView() {
+        final HttpHeaders in = new DefaultHttpHeaders();
+
+        in.add(HttpHeaderNames.CONTENT_TYPE, "text/plain");
+        in.add(HttpHeaderNames.CONNECTION, "keep-alive");
+        in.add(HttpHeaderNames.STATUS, "200");
+        in.add(HttpHeaderNames.TRANSFER_ENCODING, "chunked");
+        in.add(HttpHeaderNames.COOKIE, "a=b; c=d");
+
+        final Http2Headers out = toNettyHttp2(in);
+        assertThat(out.status().toString()).isEqualTo("200");
+        assertThat(out.contains(HttpHeaderNames.CONNECTION)).isFalse();
+        assertThat(out.contains(HttpHeaderNames.TRANSFER_ENCODING)).isFalse();
+        assertThat(out.size()).isEqualTo(4);
+
+        // Pseudo headers must come first.
+        assertThat(out.names()).containsExactly(HttpHeaderNames.STATUS, HttpHeaderNames.CONTENT_TYPE,
+                                                HttpHeaderNames.COOKIE);
+    }
+
     @Test
     public void setHttp2AuthorityWithoutUserInfo() {
         HttpHeaders headers = new DefaultHttpHeaders();
@@ -232,4 +273,49 @@ public class ArmeriaHttpUtilTest {
         assertThat(out).hasSize(1);
         assertThat(out.get(AsciiString.of("hello"))).isEqualTo("world");
     }
+
+    @Test
+    public void convertOriginFormRequest() throws Exception {
+        final io.netty.handler.codec.http.HttpRequest in = new DefaultHttpRequest(
+                HttpVersion.HTTP_1_1, io.netty.handler.codec.http.HttpMethod.GET, "/foo?bar=baz#qux");
+        in.headers().add("Host", "user@example.com:8080");
+        in.headers().add("Content-Type", "text/plain");
+        in.headers().add("Connection", "keep-alive");
+
+        final HttpHeaders out = toArmeria(in, "http");
+        assertThat(out.path()).isEqualTo("/foo?bar=baz#qux");
+        assertThat(out.method()).isSameAs(HttpMethod.GET);
+        assertThat(out.scheme()).isEqualTo("http");
+        assertThat(out.authority()).isEqualTo("example.com:8080");
+        assertThat(out.get(HttpHeaderNames.CONTENT_TYPE)).isEqualTo("text/plain");
+        assertThat(out.contains(HttpHeaderNames.CONNECTION)).isFalse();
+        assertThat(out.contains(HttpHeaderNames.HOST)).isFalse();
+
+        // A known header name must be converted into the pre-instantiated AsciiString.
+        assertThat(out.names().stream().filter(HttpHeaderNames.CONTENT_TYPE::equals).findFirst())
+                .containsSame(HttpHeaderNames.CONTENT_TYPE);
+    }
+
+    @Test
+    public void convertOriginFormRequestWithEmptyHost() throws Exception {
+        final io.netty.handler.codec.http.HttpRequest in = new DefaultHttpRequest(
+                HttpVersion.HTTP_1_1, io.netty.handler.codec.http.HttpMethod.GET, "/foo");
+        in.headers().add("Host", "");
+
+        final HttpHeaders out = toArmeria(in, "http");
+        assertThat(out.path()).isEqualTo("/foo");
+        assertThat(out.authority()).isNull();
+        assertThat(out.contains(HttpHeaderNames.HOST)).isFalse();
+    }
+
+    @Test
+    public void convertAbsoluteFormRequest() throws Exception {
+        final io.netty.handler.codec.http.HttpRequest in = new DefaultHttpRequest(
+                HttpVersion.HTTP_1_1, io.netty.handler.codec.http.HttpMethod.GET, "https://example.com/foo?bar");
+
+        final HttpHeaders out = toArmeria(in, "http");
+        assertThat(out.path()).isEqualTo("/foo?bar");
+        assertThat(out.scheme()).isEqualTo("https");
+        assertThat(out.authority()).isEqualTo("example.com");
+    }
 }
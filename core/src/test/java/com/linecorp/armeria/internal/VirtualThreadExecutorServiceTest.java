@@ -0,0 +1,126 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.internal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+import com.linecorp.armeria.client.ClientOptions;
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.DefaultClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.RequestContext;
+import com.linecorp.armeria.common.SessionProtocol;
+import com.linecorp.armeria.common.metric.NoopMeterRegistry;
+import com.linecorp.armeria.common.util.SafeCloseable;
+
+import io.netty.channel.EventLoop;
+
+public class VirtualThreadExecutorServiceTest {
+
+    @Test
+    public void execute() throws Exception {
+        assumeTrue(VirtualThreadExecutorService.isAvailable());
+        final VirtualThreadExecutorService executor = new VirtualThreadExecutorService("test-");
+        final CountDownLatch started = new CountDownLatch(2);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicReference<String> threadName = new AtomicReference<>();
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                threadName.set(Thread.currentThread().getName());
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        started.await();
+        assertThat(threadName.get()).startsWith("test-");
+        assertThat(executor.activeTasks()).isEqualTo(2);
+        assertThat(executor.pendingTasks()).isZero();
+
+        executor.shutdown();
+        assertThat(executor.isShutdown()).isTrue();
+        assertThat(executor.isTerminated()).isFalse();
+        assertThatThrownBy(() -> executor.execute(() -> {})).isInstanceOf(RejectedExecutionException.class);
+
+        release.countDown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.activeTasks()).isZero();
+    }
+
+    @Test
+    public void shutdownNow() throws Exception {
+        assumeTrue(VirtualThreadExecutorService.isAvailable());
+        final VirtualThreadExecutorService executor = new VirtualThreadExecutorService("test-");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(Long.MAX_VALUE);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+
+        started.await();
+        assertThat(executor.shutdownNow()).isEmpty();
+        assertThat(interrupted.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void propagateRequestContext() throws Exception {
+        // Use platform threads so that this test runs with any JVM.
+        final VirtualThreadExecutorService executor = new VirtualThreadExecutorService(Thread::new);
+        final ClientRequestContext ctx = new DefaultClientRequestContext(
+                mock(EventLoop.class), NoopMeterRegistry.get(), SessionProtocol.H2C,
+                Endpoint.of("example.com", 8080), HttpMethod.GET, "/", null, null,
+                ClientOptions.DEFAULT, HttpRequest.of(HttpMethod.GET, "/"));
+
+        final CompletableFuture<RequestContext> taskContext = new CompletableFuture<>();
+        try (SafeCloseable ignored = RequestContext.push(ctx)) {
+            executor.execute(() -> taskContext.complete(RequestContext.current()));
+        }
+        assertThat(taskContext.get(10, TimeUnit.SECONDS)).isSameAs(ctx);
+
+        // No context is propagated if a task is submitted without a context.
+        final CompletableFuture<RequestContext> noContext = new CompletableFuture<>();
+        executor.execute(() -> noContext.complete(RequestContext.mapCurrent(Function.identity(), null)));
+        assertThat(noContext.get(10, TimeUnit.SECONDS)).isNull();
+
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -39,6 +39,7 @@ import com.linecorp.armeria.common.metric.PrometheusMeterRegistries;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.netty.channel.Channel;
 import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.FastThreadLocalThread;
 
 public class RequestMetricSupportTest {
 
@@ -124,4 +125,80 @@ public class RequestMetricSupportTest {
 
         assertThat(measureAll(registry)).containsEntry("bar.activeRequests#value{method=baz}", 1.0);
     }
+
+    @Test
+    public void threadLocalMetrics() {
+        final MeterRegistry registry = PrometheusMeterRegistries.newRegistry();
+        final MeterIdPrefixFunction meterIdPrefixFunction = MeterIdPrefixFunction.ofDefault("foo");
+
+        for (int i = 0; i < 2; i++) {
+            final ClientRequestContext ctx = new DefaultClientRequestContext(
+                    mock(EventLoop.class), registry, SessionProtocol.H2C,
+                    Endpoint.of("example.com", 8080), HttpMethod.POST, "/foo", null, null,
+                    ClientOptions.DEFAULT, HttpRequest.of(HttpMethod.POST, "/foo"));
+
+            ctx.logBuilder().startRequest(mock(Channel.class), SessionProtocol.H2C, "example.com");
+            RequestMetricSupport.setup(ctx, meterIdPrefixFunction, true);
+
+            ctx.logBuilder().requestHeaders(HttpHeaders.of(HttpMethod.POST, "/foo"));
+            ctx.logBuilder().requestContent(null, null);
+            ctx.logBuilder().requestLength(123);
+            ctx.logBuilder().responseHeaders(HttpHeaders.of(200));
+            ctx.logBuilder().responseLength(456);
+            ctx.logBuilder().endRequest();
+            ctx.logBuilder().endResponse();
+
+            // The same MeterIdPrefix is returned for the same tag values.
+            assertThat(meterIdPrefixFunction.apply(registry, ctx.log()))
+                    .isSameAs(meterIdPrefixFunction.apply(registry, ctx.log()));
+        }
+
+        final Map<String, Double> measurements = measureAll(registry);
+        assertThat(measurements).containsEntry("foo.activeRequests#value{method=POST}", 0.0)
+                                .containsEntry("foo.requests#count{method=POST,result=success,status=200}", 2.0)
+                                .containsEntry("foo.requests#count{method=POST,result=failure,status=200}", 0.0)
+                                .containsEntry("foo.requestLength#count{method=POST,status=200}", 2.0)
+                                .containsEntry("foo.requestLength#total{method=POST,status=200}", 246.0)
+                                .containsEntry("foo.responseDuration#count{method=POST,status=200}", 2.0)
+                                .containsEntry("foo.responseLength#count{method=POST,status=200}", 2.0)
+                                .containsEntry("foo.responseLength#total{method=POST,status=200}", 912.0)
+                                .containsEntry("foo.totalDuration#count{method=POST,status=200}", 2.0);
+    }
+
+    @Test
+    public void threadLocalMetricsOfEventLoopAndOtherThreads() throws Exception {
+        final MeterRegistry registry = PrometheusMeterRegistries.newRegistry();
+        final MeterIdPrefixFunction meterIdPrefixFunction = MeterIdPrefixFunction.ofDefault("foo");
+
+        // Recorded in the cell of an event loop thread.
+        final Thread eventLoopThread = new FastThreadLocalThread(
+                () -> recordSuccess(registry, meterIdPrefixFunction));
+        eventLoopThread.start();
+        eventLoopThread.join();
+
+        // Recorded in the cell shared by the other threads.
+        recordSuccess(registry, meterIdPrefixFunction);
+
+        assertThat(measureAll(registry))
+                .containsEntry("foo.requests#count{method=POST,result=success,status=200}", 2.0)
+                .containsEntry("foo.responseLength#count{method=POST,status=200}", 2.0)
+                .containsEntry("foo.responseLength#total{method=POST,status=200}", 912.0);
+    }
+
+    private static void recordSuccess(MeterRegistry registry, MeterIdPrefixFunction meterIdPrefixFunction) {
+        final ClientRequestContext ctx = new DefaultClientRequestContext(
+                mock(EventLoop.class), registry, SessionProtocol.H2C,
+                Endpoint.of("example.com", 8080), HttpMethod.POST, "/foo", null, null,
+                ClientOptions.DEFAULT, HttpRequest.of(HttpMethod.POST, "/foo"));
+
+        ctx.logBuilder().startRequest(mock(Channel.class), SessionProtocol.H2C, "example.com");
+        RequestMetricSupport.setup(ctx, meterIdPrefixFunction, true);
+
+        ctx.logBuilder().requestHeaders(HttpHeaders.of(HttpMethod.POST, "/foo"));
+        ctx.logBuilder().requestContent(null, null);
+        ctx.logBuilder().responseHeaders(HttpHeaders.of(200));
+        ctx.logBuilder().responseLength(456);
+        ctx.logBuilder().endRequest();
+        ctx.logBuilder().endResponse();
+    }
 }
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.common.AggregatedHttpMessage;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.metric.MoreMeters;
+import com.linecorp.armeria.common.metric.PrometheusMeterRegistries;
+import com.linecorp.armeria.testing.server.ServerRule;
+
+public class BlockingTaskBulkheadTest {
+
+    private static final BlockingTaskBulkhead bulkhead = BlockingTaskBulkhead.of("slow", 1, 0);
+    private static final CountDownLatch release = new CountDownLatch(1);
+    private static final CountDownLatch started = new CountDownLatch(1);
+    private static final AtomicReference<String> slowThreadName = new AtomicReference<>();
+    private static final AtomicReference<String> fastThreadName = new AtomicReference<>();
+
+    @ClassRule
+    public static final ServerRule server = new ServerRule() {
+        @Override
+        protected void configure(ServerBuilder sb) throws Exception {
+            sb.meterRegistry(PrometheusMeterRegistries.newRegistry());
+            sb.service("/slow", (ctx, req) -> HttpResponse.from(CompletableFuture.supplyAsync(() -> {
+                slowThreadName.set(Thread.currentThread().getName());
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return HttpResponse.of(HttpStatus.OK);
+            }, ctx.blockingTaskExecutor())), bulkhead);
+            sb.service("/fast", (ctx, req) -> HttpResponse.from(CompletableFuture.supplyAsync(() -> {
+                fastThreadName.set(Thread.currentThread().getName());
+                return HttpResponse.of(HttpStatus.OK);
+            }, ctx.blockingTaskExecutor())));
+        }
+    };
+
+    @Test
+    public void rejectWhenFull() throws Exception {
+        final HttpClient client = HttpClient.of(server.uri("/"));
+        final CompletableFuture<AggregatedHttpMessage> first = client.get("/slow").aggregate();
+        started.await();
+        assertThat(slowThreadName.get()).startsWith("armeria-bulkhead-slow");
+
+        // The bulkhead is full.
+        assertThat(client.get("/slow").aggregate().join().status()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+
+        // The other services are not affected.
+        assertThat(client.get("/fast").aggregate().join().status()).isEqualTo(HttpStatus.OK);
+        assertThat(fastThreadName.get()).startsWith("armeria-common-blocking-tasks");
+
+        release.countDown();
+        assertThat(first.join().status()).isEqualTo(HttpStatus.OK);
+
+        await().untilAsserted(() -> assertThat(MoreMeters.measureAll(server.server().meterRegistry()))
+                .containsEntry("armeria.server.bulkhead.rejectedTasks#count{name=slow}", 1.0)
+                .containsEntry("armeria.server.bulkhead.waitDuration#count{name=slow}", 1.0)
+                .containsEntry("armeria.server.bulkhead.activeTasks#value{name=slow}", 0.0)
+                .containsEntry("armeria.server.bulkhead.queuedTasks#value{name=slow}", 0.0));
+    }
+}
@@ -15,11 +15,23 @@
  */
 package com.linecorp.armeria.server;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
 import org.assertj.core.api.ThrowableAssert.ThrowingCallable;
 import org.junit.Test;
 
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+
+import io.netty.handler.flush.FlushConsolidationHandler;
+
 public class ServerBuilderTest {
 
     @Test
@@ -29,6 +41,50 @@ public class ServerBuilderTest {
         assertDuplicatePort(() -> sb.https(8080));
     }
 
+    @Test
+    public void maxConsolidatedFlushes() {
+        assertThatThrownBy(() -> new ServerBuilder().maxConsolidatedFlushes(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        final ServerConfig config = new ServerBuilder().service("/", (ctx, req) -> HttpResponse.of(200))
+                                                       .maxConsolidatedFlushes(5)
+                                                       .consolidateFlushesWhenNoReadInProgress(true)
+                                                       .build().config();
+        assertThat(config.maxConsolidatedFlushes()).isEqualTo(5);
+        assertThat(config.consolidateFlushesWhenNoReadInProgress()).isTrue();
+    }
+
+    @Test
+    public void flushConsolidationHandler() {
+        final FlushConsolidationHandler handler = flushConsolidationHandler(
+                sb -> sb.maxConsolidatedFlushes(5).consolidateFlushesWhenNoReadInProgress(true));
+        assertThat(handler).extracting("explicitFlushAfterFlushes", "consolidateWhenNoReadInProgress")
+                           .containsExactly(5, true);
+
+        // 0 removes the handler.
+        assertThat(flushConsolidationHandler(sb -> sb.maxConsolidatedFlushes(0))).isNull();
+    }
+
+    @Nullable
+    private static FlushConsolidationHandler flushConsolidationHandler(Consumer<ServerBuilder> customizer) {
+        final AtomicReference<FlushConsolidationHandler> handler = new AtomicReference<>();
+        final ServerBuilder sb = new ServerBuilder().http(0).service("/", (ctx, req) -> {
+            handler.set(ctx.log().channel().pipeline().get(FlushConsolidationHandler.class));
+            return HttpResponse.of(200);
+        });
+        customizer.accept(sb);
+        final Server server = sb.build();
+        try {
+            server.start().join();
+            final int port = server.activePort().get().localAddress().getPort();
+            assertThat(HttpClient.of("http://127.0.0.1:" + port).get("/").aggregate().join().status())
+                    .isEqualTo(HttpStatus.OK);
+            return handler.get();
+        } finally {
+            server.stop().join();
+        }
+    }
+
     private static void assertDuplicatePort(ThrowingCallable callable) {
         assertThatThrownBy(callable)
                 .isInstanceOf(IllegalArgumentException.class)
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSessionContext;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.collect.ImmutableList;
+
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.testing.server.SelfSignedCertificateRule;
+
+import io.netty.handler.ssl.SslContext;
+
+public class ServerSslContextsTest {
+
+    @ClassRule
+    public static final SelfSignedCertificateRule sscA = new SelfSignedCertificateRule("a.com");
+
+    @ClassRule
+    public static final SelfSignedCertificateRule sscB = new SelfSignedCertificateRule("b.com");
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File certFile;
+    private File keyFile;
+
+    @Before
+    public void setUp() throws Exception {
+        certFile = folder.newFile("cert.pem");
+        keyFile = folder.newFile("key.pem");
+        copy(sscA, certFile, keyFile);
+    }
+
+    @Test
+    public void reload() throws Exception {
+        final Server server = newServer(new ServerBuilder());
+        final VirtualHost virtualHost = server.config().findVirtualHost("a.com");
+        final SslContext oldSslContext = virtualHost.sslContext();
+        assertThat(oldSslContext).isNotNull();
+
+        // The default virtual host borrows the SslContext of 'a.com', so it must be reloaded together.
+        assertThat(server.config().defaultVirtualHost().sslContext()).isSameAs(oldSslContext);
+
+        copy(sscB, certFile, keyFile);
+        server.reloadTls();
+
+        final SslContext newSslContext = virtualHost.sslContext();
+        assertThat(newSslContext).isNotNull().isNotSameAs(oldSslContext);
+        assertThat(server.config().defaultVirtualHost().sslContext()).isSameAs(newSslContext);
+    }
+
+    @Test
+    public void reloadOnlyWhenModified() throws Exception {
+        final ServerSslContexts sslContexts = newSslContexts();
+        assertThat(sslContexts.reload(false)).isFalse();
+        final SslContext oldSslContext = sslContexts.map("a.com");
+
+        copy(sscB, certFile, keyFile);
+        assertThat(certFile.setLastModified(certFile.lastModified() + 2000)).isTrue();
+
+        assertThat(sslContexts.reload(false)).isTrue();
+        assertThat(sslContexts.map("a.com")).isNotSameAs(oldSslContext);
+        assertThat(sslContexts.map("unknown.com")).isSameAs(sslContexts.map("a.com"));
+        assertThat(sslContexts.reload(false)).isFalse();
+    }
+
+    @Test
+    public void failedReloadKeepsOldSslContext() throws Exception {
+        final Server server = newServer(new ServerBuilder());
+        final VirtualHost virtualHost = server.config().findVirtualHost("a.com");
+        final SslContext oldSslContext = virtualHost.sslContext();
+
+        assertThat(keyFile.delete()).isTrue();
+        assertThatThrownBy(server::reloadTls).isInstanceOf(SSLException.class);
+        assertThat(virtualHost.sslContext()).isSameAs(oldSslContext);
+    }
+
+    @Test
+    public void sessionCache() throws Exception {
+        final Server server = newServer(new ServerBuilder().tlsSessionCacheSize(42)
+                                                           .tlsSessionTimeout(Duration.ofMinutes(5)));
+        SSLSessionContext sessionCtx = server.config().findVirtualHost("a.com").sslContext().sessionContext();
+        assertThat(sessionCtx.getSessionCacheSize()).isEqualTo(42);
+        assertThat(sessionCtx.getSessionTimeout()).isEqualTo(300);
+
+        // A reloaded SslContext must have the same settings.
+        server.reloadTls();
+        sessionCtx = server.config().findVirtualHost("a.com").sslContext().sessionContext();
+        assertThat(sessionCtx.getSessionCacheSize()).isEqualTo(42);
+        assertThat(sessionCtx.getSessionTimeout()).isEqualTo(300);
+    }
+
+    @Test
+    public void ticketKeysFromFile() throws Exception {
+        final File file = folder.newFile();
+        final byte[] content = new byte[TlsSessionTicketKeySource.TICKET_KEY_SIZE * 2];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(file.toPath(), content);
+
+        final List<byte[]> keys = TlsSessionTicketKeySource.ofFile(file).ticketKeys();
+        assertThat(keys).hasSize(2);
+        assertThat(keys.get(0)).hasSize(TlsSessionTicketKeySource.TICKET_KEY_SIZE).startsWith(0, 1, 2);
+        assertThat(keys.get(1)).hasSize(TlsSessionTicketKeySource.TICKET_KEY_SIZE).startsWith(48, 49, 50);
+
+        Files.write(file.toPath(), new byte[TlsSessionTicketKeySource.TICKET_KEY_SIZE - 1]);
+        assertThatThrownBy(() -> TlsSessionTicketKeySource.ofFile(file).ticketKeys())
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void invalidTicketKeys() {
+        assertThatThrownBy(() -> newServer(new ServerBuilder().tlsSessionTicketKeySource(
+                () -> ImmutableList.of(new byte[16]), Duration.ZERO)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private Server newServer(ServerBuilder sb) throws Exception {
+        sb.virtualHost(new VirtualHostBuilder("a.com")
+                               .service("/", (ctx, req) -> HttpResponse.of(HttpStatus.OK))
+                               .tls(certFile, keyFile)
+                               .build());
+        sb.service("/", (ctx, req) -> HttpResponse.of(HttpStatus.OK));
+        return sb.build();
+    }
+
+    private ServerSslContexts newSslContexts() throws Exception {
+        final Server server = newServer(new ServerBuilder());
+        return new ServerSslContexts(server.config().defaultVirtualHost(),
+                                     server.config().virtualHosts().subList(0, 1),
+                                     -1, -1, null, 0, 0);
+    }
+
+    private static void copy(SelfSignedCertificateRule ssc, File certFile, File keyFile) throws IOException {
+        Files.copy(ssc.certificateFile().toPath(), certFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(ssc.privateKeyFile().toPath(), keyFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -24,8 +24,12 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
+import org.junit.ClassRule;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.Mock;
@@ -34,7 +38,10 @@ import org.mockito.junit.MockitoRule;
 
 import com.google.common.io.ByteStreams;
 
+import com.linecorp.armeria.client.HttpClient;
 import com.linecorp.armeria.common.AggregatedHttpMessage;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
 import com.linecorp.armeria.common.HttpMethod;
 import com.linecorp.armeria.common.HttpRequest;
 import com.linecorp.armeria.common.HttpStatus;
@@ -42,11 +49,22 @@ import com.linecorp.armeria.common.logging.DefaultRequestLog;
 import com.linecorp.armeria.server.Server;
 import com.linecorp.armeria.server.ServerBuilder;
 import com.linecorp.armeria.server.ServiceRequestContext;
+import com.linecorp.armeria.testing.server.ServerRule;
 
 import io.netty.util.NetUtil;
 
 public class HttpHealthCheckServiceTest {
 
+    private static final SettableHealthChecker settableHealth = new SettableHealthChecker();
+
+    @ClassRule
+    public static final ServerRule server = new ServerRule() {
+        @Override
+        protected void configure(ServerBuilder sb) throws Exception {
+            sb.service("/hc", new HttpHealthCheckService(settableHealth));
+        }
+    };
+
     @Rule
     public MockitoRule rule = MockitoJUnit.rule();
 
@@ -66,6 +84,7 @@ public class HttpHealthCheckServiceTest {
 
     @Before
     public void setUp() {
+        settableHealth.setHealthy(true);
         when(context.logBuilder()).thenReturn(new DefaultRequestLog(context));
         service = new HttpHealthCheckService(health1, health2, health3);
         service.serverHealth.setHealthy(true);
@@ -163,4 +182,79 @@ public class HttpHealthCheckServiceTest {
             server.stop();
         }
     }
+
+    @Test
+    public void longPollingWithoutEtag() throws Exception {
+        final AggregatedHttpMessage res = longPoll(null, 10).join();
+        assertThat(res.status()).isEqualTo(HttpStatus.OK);
+        assertThat(res.headers().get(HttpHeaderNames.ETAG)).isEqualTo("\"healthy\"");
+        assertThat(res.headers().get(HttpHeaderNames.PREFERENCE_APPLIED)).isEqualTo("wait=10");
+        assertThat(res.content().toStringUtf8()).isEqualTo("ok");
+    }
+
+    @Test
+    public void longPollingWithStaleEtag() throws Exception {
+        final AggregatedHttpMessage res = longPoll("\"unhealthy\"", 10).join();
+        assertThat(res.status()).isEqualTo(HttpStatus.OK);
+        assertThat(res.headers().get(HttpHeaderNames.ETAG)).isEqualTo("\"healthy\"");
+    }
+
+    @Test
+    public void longPollingRespondsOnHealthChange() throws Exception {
+        final CompletableFuture<AggregatedHttpMessage> f = longPoll("\"healthy\"", 10);
+        Thread.sleep(500);
+        assertThat(f).isNotDone();
+
+        settableHealth.setHealthy(false);
+        final AggregatedHttpMessage res = f.get(5, TimeUnit.SECONDS);
+        assertThat(res.status()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(res.headers().get(HttpHeaderNames.ETAG)).isEqualTo("\"unhealthy\"");
+        assertThat(res.content().toStringUtf8()).isEqualTo("not ok");
+    }
+
+    @Test
+    public void longPollingTimesOut() throws Exception {
+        final long startNanos = System.nanoTime();
+        final AggregatedHttpMessage res = longPoll("\"healthy\"", 1).join();
+        assertThat(System.nanoTime() - startNanos).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(900));
+        assertThat(res.status()).isEqualTo(HttpStatus.OK);
+        assertThat(res.headers().get(HttpHeaderNames.ETAG)).isEqualTo("\"healthy\"");
+    }
+
+    @Test
+    public void longPollingRespondsOnHealthChangeBeforePending() throws Exception {
+        // Healthy when the request arrives, but unhealthy by the time the response becomes pending.
+        when(health1.isHealthy()).thenReturn(true, false);
+        when(health2.isHealthy()).thenReturn(true);
+        when(health3.isHealthy()).thenReturn(true);
+
+        final HttpRequest req = HttpRequest.of(HttpHeaders.of(HttpMethod.GET, "/")
+                                                          .set(HttpHeaderNames.IF_NONE_MATCH, "\"healthy\"")
+                                                          .set(HttpHeaderNames.PREFER, "wait=10"));
+        final AggregatedHttpMessage res = service.serve(context, req).aggregate().get(10, TimeUnit.SECONDS);
+        assertThat(res.status()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(res.headers().get(HttpHeaderNames.ETAG)).isEqualTo("\"unhealthy\"");
+    }
+
+    @Test
+    public void longPollingDisabled() throws Exception {
+        final HttpHealthCheckService service = new HttpHealthCheckService(Duration.ZERO);
+        service.serverHealth.setHealthy(true);
+        final HttpRequest req = HttpRequest.of(HttpHeaders.of(HttpMethod.GET, "/")
+                                                          .set(HttpHeaderNames.IF_NONE_MATCH, "\"healthy\"")
+                                                          .set(HttpHeaderNames.PREFER, "wait=10"));
+        final AggregatedHttpMessage res = service.serve(context, req).aggregate().get();
+        assertThat(res.status()).isEqualTo(HttpStatus.OK);
+        assertThat(res.headers().contains(HttpHeaderNames.ETAG)).isFalse();
+        assertThat(res.headers().contains(HttpHeaderNames.PREFERENCE_APPLIED)).isFalse();
+    }
+
+    private static CompletableFuture<AggregatedHttpMessage> longPoll(String etag, int waitSeconds) {
+        final HttpHeaders headers = HttpHeaders.of(HttpMethod.GET, "/hc")
+                                               .set(HttpHeaderNames.PREFER, "wait=" + waitSeconds);
+        if (etag != null) {
+            headers.set(HttpHeaderNames.IF_NONE_MATCH, etag);
+        }
+        return HttpClient.of(server.uri("/")).execute(headers).aggregate();
+    }
 }
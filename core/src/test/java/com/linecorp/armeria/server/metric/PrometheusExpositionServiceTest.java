@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.metric;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import com.google.common.io.ByteStreams;
+
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.common.AggregatedHttpMessage;
+import com.linecorp.armeria.common.HttpData;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpObject;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpResponseWriter;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.stream.ClosedPublisherException;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.testing.server.ServerRule;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.exporter.common.TextFormat;
+
+public class PrometheusExpositionServiceTest {
+
+    private static final CollectorRegistry registry = new CollectorRegistry();
+    private static final Counter counter = Counter.build("test_requests_total", "The number of requests.")
+                                                  .labelNames("path")
+                                                  .register(registry);
+
+    static {
+        // Make the exposition larger than a single chunk.
+        for (int i = 0; i < 1000; i++) {
+            counter.labels("/path/" + i).inc();
+        }
+    }
+
+    @ClassRule
+    public static final ServerRule server = new ServerRule() {
+        @Override
+        protected void configure(ServerBuilder sb) throws Exception {
+            sb.service("/metrics", new PrometheusExpositionService(registry));
+            sb.service("/cached", new PrometheusExpositionService(registry, Duration.ofMinutes(1)));
+        }
+    };
+
+    @ClassRule
+    public static final ServerRule rejectingServer = new ServerRule() {
+        @Override
+        protected void configure(ServerBuilder sb) throws Exception {
+            sb.blockingTaskExecutor(command -> {
+                throw new RejectedExecutionException();
+            });
+            sb.service("/metrics", new PrometheusExpositionService(registry));
+            sb.service("/cached", new PrometheusExpositionService(registry, Duration.ofMinutes(1)));
+        }
+    };
+
+    @Test
+    public void plainText() throws Exception {
+        final AggregatedHttpMessage res = HttpClient.of(server.uri("/")).get("/metrics").aggregate().join();
+        assertThat(res.status()).isEqualTo(HttpStatus.OK);
+        assertThat(res.headers().get(HttpHeaderNames.CONTENT_TYPE)).isEqualTo(TextFormat.CONTENT_TYPE_004);
+        assertThat(res.headers().get(HttpHeaderNames.CONTENT_ENCODING)).isNull();
+
+        final String content = res.content().toStringUtf8();
+        assertThat(content.length()).isGreaterThan(8192);
+        assertThat(content).contains("# TYPE test_requests_total counter\n")
+                           .contains("test_requests_total{path=\"/path/0\",} 1.0\n")
+                           .contains("test_requests_total{path=\"/path/999\",} 1.0\n");
+    }
+
+    @Test
+    public void gzip() throws Exception {
+        final AggregatedHttpMessage res = HttpClient.of(server.uri("/")).execute(
+                HttpHeaders.of(HttpMethod.GET, "/metrics")
+                           .set(HttpHeaderNames.ACCEPT_ENCODING, "gzip")).aggregate().join();
+        assertThat(res.status()).isEqualTo(HttpStatus.OK);
+        assertThat(res.headers().get(HttpHeaderNames.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(res.headers().get(HttpHeaderNames.VARY)).isEqualTo("Accept-Encoding");
+        assertThat(decompress(res.content().array()))
+                .contains("test_requests_total{path=\"/path/999\",} 1.0\n");
+    }
+
+    @Test
+    public void rejectedScrape() throws Exception {
+        final HttpClient client = HttpClient.of(rejectingServer.uri("/"));
+        for (String path : new String[] { "/metrics", "/cached" }) {
+            // The response must be closed rather than left open until it times out.
+            final CompletableFuture<Void> done =
+                    client.get(path).aggregate().handle((res, cause) -> null);
+            done.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void cached() throws Exception {
+        final HttpClient client = HttpClient.of(server.uri("/"));
+        counter.labels("/cached").inc();
+        final String first = client.get("/cached").aggregate().join().content().toStringUtf8();
+        assertThat(first).contains("test_requests_total{path=\"/cached\",} 1.0\n");
+
+        // The scrape is reused within the TTL.
+        counter.labels("/cached").inc();
+        final String second = client.get("/cached").aggregate().join().content().toStringUtf8();
+        assertThat(second).isEqualTo(first);
+
+        // .. but is not shared with the scrapers which ask for a different format.
+        final AggregatedHttpMessage compressed = client.execute(
+                HttpHeaders.of(HttpMethod.GET, "/cached")
+                           .set(HttpHeaderNames.ACCEPT_ENCODING, "gzip")).aggregate().join();
+        assertThat(decompress(compressed.content().array()))
+                .contains("test_requests_total{path=\"/cached\",} 2.0\n");
+    }
+
+    @Test
+    public void abortedScrape() throws Exception {
+        final HttpResponse res = HttpClient.of(server.uri("/")).get("/metrics");
+        final CompletableFuture<Void> firstChunk = new CompletableFuture<>();
+        res.subscribe(new Subscriber<HttpObject>() {
+            private Subscription subscription;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                s.request(1);
+            }
+
+            @Override
+            public void onNext(HttpObject obj) {
+                if (obj instanceof HttpData) {
+                    // Go away in the middle of the scrape.
+                    firstChunk.complete(null);
+                    subscription.cancel();
+                } else {
+                    subscription.request(1);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {}
+
+            @Override
+            public void onComplete() {}
+        });
+        firstChunk.join();
+
+        // The service keeps serving the other scrapers.
+        final AggregatedHttpMessage next = HttpClient.of(server.uri("/")).get("/metrics").aggregate().join();
+        assertThat(next.status()).isEqualTo(HttpStatus.OK);
+        assertThat(next.content().toStringUtf8()).contains("test_requests_total{path=\"/path/999\",} 1.0\n");
+    }
+
+    @Test
+    public void streamingSinkReleasesChunkWhenAborted() {
+        final HttpResponseWriter res = HttpResponse.streaming();
+        res.abort();
+
+        final ByteBuf buf = Unpooled.buffer().writeZero(16);
+        assertThatThrownBy(() -> PrometheusExpositionService.streamingSink(res).accept(buf))
+                .hasCauseInstanceOf(ClosedPublisherException.class);
+        assertThat(buf.refCnt()).isZero();
+    }
+
+    private static String decompress(byte[] compressed) throws Exception {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+}
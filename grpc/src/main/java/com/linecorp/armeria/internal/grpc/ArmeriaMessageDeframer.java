@@ -53,6 +53,7 @@ import static java.util.Objects.requireNonNull;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.Objects;
 
 import javax.annotation.Nullable;
@@ -70,14 +71,17 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufHolder;
 import io.netty.buffer.ByteBufInputStream;
 import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
 
 /**
  * A deframer of messages transported in the gRPC wire format. See
  * <a href="https://grpc.io/docs/guides/wire.html">gRPC Wire Protocol</a> for more detail on the protocol.
  *
  * <p>The logic has been mostly copied from {@code io.grpc.internal.MessageDeframer}, while removing the buffer
- * abstraction in favor of using {@link ByteBuf} directly, and allowing the delivery of uncompressed frames as
- * a {@link ByteBuf} to optimize message parsing.
+ * abstraction in favor of using {@link ByteBuf} directly, and allowing the delivery of frames as
+ * a {@link ByteBuf} to optimize message parsing. A message split across more than one {@link HttpData} is
+ * delivered as a {@link CompositeByteBuf} of the received buffers rather than being copied into a new buffer,
+ * and a compressed message is decompressed into a buffer allocated from the {@link ByteBufAllocator}.
  */
 public class ArmeriaMessageDeframer implements AutoCloseable {
 
@@ -86,11 +90,12 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
     private static final int HEADER_LENGTH = 5;
     private static final int COMPRESSED_FLAG_MASK = 1;
     private static final int RESERVED_MASK = 0xFE;
+    private static final int DECOMPRESSION_CHUNK_SIZE = 8192;
 
     /**
-     * A deframed message. For uncompressed messages, we have the entire buffer available and return it
-     * as is in {@code buf} to optimize parsing. For compressed messages, we will parse incrementally
-     * and thus return a {@link InputStream} in {@code stream}.
+     * A deframed message. The messages produced by {@link ArmeriaMessageDeframer} are always available
+     * as a {@link ByteBuf} in {@code buf} to optimize parsing. An {@link InputStream} in {@code stream} may
+     * be used by the callers which produce a message by themselves.
      */
     public static class ByteBufOrStream {
         @Nullable
@@ -176,11 +181,12 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
     private boolean compressedFlag;
     private boolean endOfStream;
 
+    /**
+     * The received buffers which have not been consumed yet, or {@code null} if this deframer has been closed.
+     */
     @Nullable
-    private ByteBuf firstFrame;
-
-    @Nullable
-    private CompositeByteBuf unprocessed;
+    private ArrayDeque<ByteBuf> unprocessed = new ArrayDeque<>();
+    private int unprocessedBytes;
 
     private long pendingDeliveries;
     private boolean deliveryStalled = true;
@@ -193,8 +199,6 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
         this.listener = requireNonNull(listener, "listener");
         this.maxMessageSizeBytes = maxMessageSizeBytes;
         this.alloc = requireNonNull(alloc, "alloc");
-
-        unprocessed = alloc.compositeBuffer();
     }
 
     /**
@@ -244,19 +248,11 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
             if (data instanceof ByteBufHolder) {
                 buf = ((ByteBufHolder) data).content();
             } else {
-                buf = alloc.buffer(data.length());
-                buf.writeBytes(data.array(), data.offset(), data.length());
-            }
-            if (unprocessed != null) {
-                unprocessed.addComponent(true, buf);
-            } else if (firstFrame == null) {
-                firstFrame = buf;
-            } else {
-                unprocessed = alloc.compositeBuffer();
-                unprocessed.addComponent(true, firstFrame);
-                unprocessed.addComponent(true, buf);
-                firstFrame = null;
+                buf = Unpooled.wrappedBuffer(data.array(), data.offset(), data.length());
             }
+            assert unprocessed != null;
+            unprocessed.add(buf);
+            unprocessedBytes += buf.readableBytes();
         }
 
         // Indicate that all of the data for this stream has been received.
@@ -270,16 +266,21 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
      */
     @Override
     public void close() {
+        if (unprocessed == null) {
+            return;
+        }
+
         try {
-            if (firstFrame != null) {
-                firstFrame.release();
-            }
-            if (unprocessed != null) {
-                unprocessed.release();
+            for (;;) {
+                final ByteBuf buf = unprocessed.poll();
+                if (buf == null) {
+                    break;
+                }
+                buf.release();
             }
         } finally {
-            firstFrame = null;
             unprocessed = null;
+            unprocessedBytes = 0;
         }
     }
 
@@ -287,7 +288,7 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
      * Indicates whether or not this deframer has been closed.
      */
     public boolean isClosed() {
-        return firstFrame == null && unprocessed == null;
+        return unprocessed == null;
     }
 
     public ArmeriaMessageDeframer decompressor(Decompressor decompressor) {
@@ -344,7 +345,7 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
             final boolean stalled = !hasRequiredBytes();
 
             if (endOfStream && stalled) {
-                final boolean havePartialMessage = readableBuf().isReadable();
+                final boolean havePartialMessage = unprocessedBytes > 0;
                 if (!havePartialMessage) {
                     listener.endOfStream();
                     deliveryStalled = false;
@@ -363,7 +364,7 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
     }
 
     private boolean hasRequiredBytes() {
-        return readableBuf().readableBytes() >= requiredLength;
+        return unprocessedBytes >= requiredLength;
     }
 
     /**
@@ -371,8 +372,7 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
      * frame length.
      */
     private void readHeader() {
-        final ByteBuf buf = readableBuf();
-        final int type = buf.readUnsignedByte();
+        final int type = readUnsignedByte();
         if ((type & RESERVED_MASK) != 0) {
             throw Status.INTERNAL.withDescription(
                     DEBUG_STRING + ": Frame header malformed: reserved bits not zero")
@@ -381,7 +381,7 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
         compressedFlag = (type & COMPRESSED_FLAG_MASK) != 0;
 
         // Update the required length to include the length of the frame.
-        requiredLength = buf.readInt();
+        requiredLength = readInt();
         if (requiredLength < 0 || requiredLength > maxMessageSizeBytes) {
             throw Status.RESOURCE_EXHAUSTED.withDescription(
                     String.format("%s: Frame size %d exceeds maximum: %d. ",
@@ -407,28 +407,75 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
         requiredLength = HEADER_LENGTH;
     }
 
-    private ByteBuf readableBuf() {
-        if (firstFrame != null) {
-            return firstFrame;
-        } else {
+    private int readUnsignedByte() {
+        assert unprocessed != null;
+        final ByteBuf buf = unprocessed.element();
+        final int value = buf.readUnsignedByte();
+        unprocessedBytes--;
+        discardIfConsumed(buf);
+        return value;
+    }
+
+    private int readInt() {
+        assert unprocessed != null;
+        final ByteBuf buf = unprocessed.element();
+        if (buf.readableBytes() >= 4) {
+            final int value = buf.readInt();
+            unprocessedBytes -= 4;
+            discardIfConsumed(buf);
+            return value;
+        }
+
+        // The integer is split across more than one buffer.
+        return readUnsignedByte() << 24 | readUnsignedByte() << 16 | readUnsignedByte() << 8 |
+               readUnsignedByte();
+    }
+
+    private void discardIfConsumed(ByteBuf buf) {
+        if (!buf.isReadable()) {
             assert unprocessed != null;
-            return unprocessed;
+            unprocessed.remove();
+            buf.release();
         }
     }
 
+    /**
+     * Reads the specified number of bytes without copying them. The returned buffer is a slice of
+     * a received buffer if the bytes are in a single buffer, or a {@link CompositeByteBuf} of the slices of
+     * the received buffers otherwise.
+     */
     private ByteBuf readBytes(int length) {
-        if (firstFrame != null) {
-            if (firstFrame.readableBytes() == length) {
-                return firstFrame;
+        if (length == 0) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        assert unprocessed != null;
+        unprocessedBytes -= length;
+
+        final ByteBuf firstBuf = unprocessed.element();
+        final int firstReadableBytes = firstBuf.readableBytes();
+        if (firstReadableBytes == length) {
+            return unprocessed.remove();
+        }
+        if (firstReadableBytes > length) {
+            return firstBuf.readRetainedSlice(length);
+        }
+
+        // Specify the maximum number of components explicitly so that the buffers are never consolidated.
+        final CompositeByteBuf composite = alloc.compositeBuffer(unprocessed.size());
+        int remaining = length;
+        while (remaining > 0) {
+            final ByteBuf buf = unprocessed.element();
+            final int readableBytes = buf.readableBytes();
+            if (readableBytes <= remaining) {
+                composite.addComponent(true, unprocessed.remove());
+                remaining -= readableBytes;
             } else {
-                return firstFrame.retainedSlice(firstFrame.readerIndex(), length);
+                composite.addComponent(true, buf.readRetainedSlice(remaining));
+                remaining = 0;
             }
-        } else {
-            assert unprocessed != null;
-            ByteBuf buf = unprocessed.readBytes(length);
-            unprocessed.discardReadComponents();
-            return buf;
         }
+        return composite;
     }
 
     private ByteBufOrStream getUncompressedBody(ByteBuf buf) {
@@ -443,15 +490,24 @@ public class ArmeriaMessageDeframer implements AutoCloseable {
                                  .asRuntimeException();
         }
 
-        try {
-            // Enforce the maxMessageSizeBytes limit on the returned stream.
-            final InputStream unlimitedStream =
-                    decompressor.decompress(new ByteBufInputStream(buf, true));
-            return new ByteBufOrStream(
-                    new SizeEnforcingInputStream(unlimitedStream, maxMessageSizeBytes, DEBUG_STRING));
+        final ByteBuf decompressed = alloc.buffer();
+        boolean success = false;
+        // Enforce the maxMessageSizeBytes limit on the decompressed stream.
+        try (InputStream stream = new SizeEnforcingInputStream(
+                decompressor.decompress(new ByteBufInputStream(buf, true)),
+                maxMessageSizeBytes, DEBUG_STRING)) {
+            while (decompressed.writeBytes(stream, DECOMPRESSION_CHUNK_SIZE) >= 0) {
+                continue;
+            }
+            success = true;
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            if (!success) {
+                decompressed.release();
+            }
         }
+        return new ByteBufOrStream(decompressed);
     }
 
     /**
@@ -86,6 +86,7 @@ public class ArmeriaMessageFramer implements AutoCloseable {
     private final int maxOutboundMessageSize;
 
     private boolean messageCompression;
+    private int minCompressionSizeBytes;
     @Nullable
     private Compressor compressor;
     private boolean closed;
@@ -108,7 +109,7 @@ public class ArmeriaMessageFramer implements AutoCloseable {
         final int messageLength = message.readableBytes();
         try {
             final ByteBuf buf;
-            if (messageLength != 0 && compressed) {
+            if (messageLength != 0 && messageLength >= minCompressionSizeBytes && compressed) {
                 buf = writeCompressed(message);
             } else {
                 buf = writeUncompressed(message);
@@ -123,15 +124,48 @@ public class ArmeriaMessageFramer implements AutoCloseable {
         }
     }
 
+    /**
+     * Writes out a payload message which has been compressed already, e.g. the content of a non-framed
+     * request whose {@code grpc-encoding} is not {@code identity}.
+     *
+     * @param compressedMessage the compressed message to be written out. Ownership is taken by
+     *                          {@link ArmeriaMessageFramer}.
+     *
+     * @return a {@link ByteBufHttpData} with the framed payload. Ownership is passed to caller.
+     */
+    public ByteBufHttpData writeCompressedPayload(ByteBuf compressedMessage) {
+        verifyNotClosed();
+        try {
+            return new ByteBufHttpData(write(compressedMessage, true), false);
+        } catch (RuntimeException e) {
+            throw Status.INTERNAL
+                    .withDescription("Failed to frame message")
+                    .withCause(e)
+                    .asRuntimeException();
+        }
+    }
+
     public void setMessageCompression(boolean messageCompression) {
         this.messageCompression = messageCompression;
     }
 
+    /**
+     * Sets the minimum size of a message to be compressed. A message smaller than this is sent uncompressed
+     * even if message compression is enabled, because compressing it is unlikely to pay off.
+     */
+    public void setMinCompressionSizeBytes(int minCompressionSizeBytes) {
+        this.minCompressionSizeBytes = minCompressionSizeBytes;
+    }
+
     public void setCompressor(Compressor compressor) {
         this.compressor = compressor;
     }
 
     private ByteBuf writeCompressed(ByteBuf message) throws IOException {
+        if (compressor instanceof Codec.Gzip) {
+            return writeGzipCompressed(message);
+        }
+
         final CompositeByteBuf compressed = alloc.compositeBuffer();
         try (OutputStream compressingStream = compressor.compress(new ByteBufOutputStream(compressed))) {
             compressingStream.write(ByteBufUtil.getBytes(message));
@@ -142,6 +176,28 @@ public class ArmeriaMessageFramer implements AutoCloseable {
         return write(compressed, true);
     }
 
+    private ByteBuf writeGzipCompressed(ByteBuf message) {
+        // Compress directly after the header rather than copying the compressed message again, using
+        // the Deflater of the current thread rather than creating a new one for each message.
+        final ByteBuf buf = alloc.buffer(HEADER_LENGTH + message.readableBytes());
+        boolean success = false;
+        try {
+            buf.writerIndex(HEADER_LENGTH);
+            GzipMessageCompressor.get().compress(message, buf);
+            final int messageLength = buf.writerIndex() - HEADER_LENGTH;
+            checkMessageSize(messageLength);
+            buf.setByte(0, COMPRESSED);
+            buf.setInt(1, messageLength);
+            success = true;
+            return buf;
+        } finally {
+            message.release();
+            if (!success) {
+                buf.release();
+            }
+        }
+    }
+
     private ByteBuf writeUncompressed(ByteBuf message) {
         return write(message, false);
     }
@@ -149,13 +205,7 @@ public class ArmeriaMessageFramer implements AutoCloseable {
     private ByteBuf write(ByteBuf message, boolean compressed) {
         try {
             final int messageLength = message.readableBytes();
-            if (maxOutboundMessageSize >= 0 && messageLength > maxOutboundMessageSize) {
-                throw Status.RESOURCE_EXHAUSTED
-                        .withDescription(
-                                String.format("message too large %d > %d", messageLength,
-                                              maxOutboundMessageSize))
-                        .asRuntimeException();
-            }
+            checkMessageSize(messageLength);
             final ByteBuf buf = alloc.buffer(HEADER_LENGTH + messageLength);
             buf.writeByte(compressed ? COMPRESSED : UNCOMPRESSED);
             buf.writeInt(messageLength);
@@ -166,6 +216,16 @@ public class ArmeriaMessageFramer implements AutoCloseable {
         }
     }
 
+    private void checkMessageSize(int messageLength) {
+        if (maxOutboundMessageSize >= 0 && messageLength > maxOutboundMessageSize) {
+            throw Status.RESOURCE_EXHAUSTED
+                    .withDescription(
+                            String.format("message too large %d > %d", messageLength,
+                                          maxOutboundMessageSize))
+                    .asRuntimeException();
+        }
+    }
+
     private void verifyNotClosed() {
         checkState(!isClosed(), "Framer already closed");
     }
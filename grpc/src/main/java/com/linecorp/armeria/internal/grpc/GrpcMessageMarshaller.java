@@ -21,6 +21,7 @@ import static java.util.Objects.requireNonNull;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import javax.annotation.Nullable;
 
@@ -202,7 +203,12 @@ public class GrpcMessageMarshaller<I, O> {
     private Message deserializeProto(ByteBuf buf, Message prototype) throws IOException {
         if (GrpcSerializationFormats.isProto(serializationFormat)) {
             final CodedInputStream stream;
-            if (unsafeWrapDeserializedBuffer) {
+            if (buf.nioBufferCount() > 1) {
+                // A message split across more than one buffer. Parse directly from the buffers
+                // rather than merging them into a new buffer with nioBuffer().
+                stream = CodedInputStream.newInstance(Arrays.asList(buf.nioBuffers()));
+                stream.enableAliasing(unsafeWrapDeserializedBuffer);
+            } else if (unsafeWrapDeserializedBuffer) {
                 stream = UnsafeByteOperations.unsafeWrap(buf.nioBuffer()).newCodedInput();
                 stream.enableAliasing(true);
             } else {
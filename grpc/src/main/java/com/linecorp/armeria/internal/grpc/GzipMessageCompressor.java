@@ -0,0 +1,123 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.internal.grpc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import io.grpc.Codec;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.concurrent.FastThreadLocal;
+
+/**
+ * Compresses a message into the gzip format, producing the same output as {@link Codec.Gzip}. Unlike
+ * {@link Codec.Gzip}, which creates a new {@link Deflater} for every message, a {@link Deflater} and its
+ * buffers are created only once per thread, i.e. once per event loop, and reused for all messages.
+ */
+final class GzipMessageCompressor {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final int GZIP_HEADER_LENGTH = 10;
+
+    // The same header as what GZIPOutputStream writes, whose OS field differs between JDK versions.
+    private static final byte[] GZIP_HEADER = gzipHeader();
+
+    private static final FastThreadLocal<GzipMessageCompressor> compressors =
+            new FastThreadLocal<GzipMessageCompressor>() {
+                @Override
+                protected GzipMessageCompressor initialValue() {
+                    return new GzipMessageCompressor();
+                }
+
+                @Override
+                protected void onRemoval(GzipMessageCompressor compressor) {
+                    compressor.deflater.end();
+                }
+            };
+
+    /**
+     * Returns the {@link GzipMessageCompressor} of the current thread.
+     */
+    static GzipMessageCompressor get() {
+        return compressors.get();
+    }
+
+    private static byte[] gzipHeader() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream ignored = new GZIPOutputStream(out)) {
+            // Write nothing.
+        } catch (IOException e) {
+            // Never happens with ByteArrayOutputStream.
+            throw new Error(e);
+        }
+        return Arrays.copyOf(out.toByteArray(), GZIP_HEADER_LENGTH);
+    }
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final CRC32 crc = new CRC32();
+    private final byte[] inputBuffer = new byte[BUFFER_SIZE];
+    private final byte[] outputBuffer = new byte[BUFFER_SIZE];
+
+    private GzipMessageCompressor() {}
+
+    /**
+     * Compresses the readable bytes of {@code in} and writes the result into {@code out}.
+     * The reader index of {@code in} is not modified.
+     */
+    void compress(ByteBuf in, ByteBuf out) {
+        deflater.reset();
+        crc.reset();
+        out.writeBytes(GZIP_HEADER);
+
+        final int length = in.readableBytes();
+        if (in.hasArray()) {
+            final int offset = in.arrayOffset() + in.readerIndex();
+            crc.update(in.array(), offset, length);
+            deflater.setInput(in.array(), offset, length);
+            drain(out);
+        } else {
+            // Copy a chunk at a time so that a large direct buffer is not copied into a large heap array.
+            for (int i = 0; i < length;) {
+                final int chunkLength = Math.min(length - i, BUFFER_SIZE);
+                in.getBytes(in.readerIndex() + i, inputBuffer, 0, chunkLength);
+                crc.update(inputBuffer, 0, chunkLength);
+                deflater.setInput(inputBuffer, 0, chunkLength);
+                drain(out);
+                i += chunkLength;
+            }
+        }
+
+        deflater.finish();
+        while (!deflater.finished()) {
+            out.writeBytes(outputBuffer, 0, deflater.deflate(outputBuffer));
+        }
+
+        out.writeIntLE((int) crc.getValue());
+        out.writeIntLE(length);
+    }
+
+    private void drain(ByteBuf out) {
+        while (!deflater.needsInput()) {
+            out.writeBytes(outputBuffer, 0, deflater.deflate(outputBuffer));
+        }
+    }
+}
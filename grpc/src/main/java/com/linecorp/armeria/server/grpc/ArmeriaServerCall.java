@@ -97,6 +97,14 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
 
     private static final Metadata EMPTY_METADATA = new Metadata();
 
+    /**
+     * The number of bytes of the outbound messages which have not been written to the transport yet, at or
+     * above which {@link #isReady()} returns {@code false}. The same as the default of the upstream gRPC
+     * transports.
+     */
+    @VisibleForTesting
+    static final int ON_READY_THRESHOLD = 32 * 1024;
+
     private static final Splitter ACCEPT_ENCODING_SPLITTER = Splitter.on(',').trimResults();
 
     private final MethodDescriptor<I, O> method;
@@ -107,6 +115,7 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
     private final HttpResponseWriter res;
     private final CompressorRegistry compressorRegistry;
     private final DecompressorRegistry decompressorRegistry;
+    private final GrpcCompressionPolicy compressionPolicy;
     private final ServiceRequestContext ctx;
     private final SerializationFormat serializationFormat;
     private final GrpcMessageMarshaller<I, O> marshaller;
@@ -122,6 +131,7 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
     @Nullable
     private Compressor compressor;
     private boolean messageCompression;
+    private boolean messageCompressionSet;
     private boolean messageReceived;
 
     // state
@@ -131,12 +141,20 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
     private boolean sendHeadersCalled;
     private boolean closeCalled;
 
+    // The number of messages passed to sendMessage() but not framed yet, whose size is unknown.
     private volatile int pendingMessages;
+    // The number of bytes of the framed messages which have not been written to the transport yet.
+    // Updated only by the event loop.
+    private volatile long pendingBytes;
+    // Whether this call has not been ready since the last onReady() notification.
+    // Updated only by the event loop.
+    private boolean notReady;
 
     ArmeriaServerCall(HttpHeaders clientHeaders,
                       MethodDescriptor<I, O> method,
                       CompressorRegistry compressorRegistry,
                       DecompressorRegistry decompressorRegistry,
+                      GrpcCompressionPolicy compressionPolicy,
                       HttpResponseWriter res,
                       int maxInboundMessageSizeBytes,
                       int maxOutboundMessageSizeBytes,
@@ -162,6 +180,7 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
         clientAcceptEncoding =
                 Strings.emptyToNull(clientHeaders.get(GrpcHeaderNames.GRPC_ACCEPT_ENCODING));
         this.decompressorRegistry = requireNonNull(decompressorRegistry, "decompressorRegistry");
+        this.compressionPolicy = requireNonNull(compressionPolicy, "compressionPolicy");
         marshaller = new GrpcMessageMarshaller<>(ctx.alloc(), serializationFormat, method, jsonMarshaller,
                                                  unsafeWrapRequestBuffers);
         this.unsafeWrapRequestBuffers = unsafeWrapRequestBuffers;
@@ -201,6 +220,14 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
 
         headers.contentType(serializationFormat.mediaType());
 
+        if (compressor == null && !messageCompressionSet && compressionPolicy.isEnabled()) {
+            // The service did not choose how to compress messages, so follow the policy.
+            compressor = compressorRegistry.lookupCompressor(compressionPolicy.encoding());
+            messageCompression = true;
+            messageFramer.setMessageCompression(true);
+            messageFramer.setMinCompressionSizeBytes(compressionPolicy.minMessageSizeBytes());
+        }
+
         if (compressor == null || !messageCompression || clientAcceptEncoding == null) {
             compressor = Codec.Identity.NONE;
         } else {
@@ -232,7 +259,11 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
         if (ctx.eventLoop().inEventLoop()) {
             doSendMessage(message);
         } else {
-            ctx.eventLoop().submit(() -> doSendMessage(message));
+            ctx.eventLoop().submit(() -> {
+                // isReady() returned false while the message was pending.
+                notReady = true;
+                doSendMessage(message);
+            });
         }
     }
 
@@ -241,16 +272,22 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
         checkState(!closeCalled, "call is closed");
 
         try {
-            res.write(messageFramer.writePayload(marshaller.serializeResponse(message)));
+            final HttpData frame = messageFramer.writePayload(marshaller.serializeResponse(message));
+            final int frameLength = frame.length();
+            pendingBytes += frameLength;
+            pendingMessagesUpdater.decrementAndGet(this);
+            if (!isReady()) {
+                notReady = true;
+            }
+            res.write(frame);
+            // The demand is signalled only after the preceding objects have been written to the transport,
+            // which happens only when the client has enough flow-control window and the channel accepts
+            // more data. Therefore, a slow client keeps pendingBytes high and isReady() false.
             res.onDemand(() -> {
-                if (pendingMessagesUpdater.decrementAndGet(this) == 0) {
-                    try {
-                        listener.onReady();
-                    } catch (Throwable t) {
-                        close(Status.fromThrowable(t), EMPTY_METADATA);
-                    }
-                }
+                pendingBytes -= frameLength;
+                scheduleOnReadyIfReady();
             });
+            scheduleOnReadyIfReady();
         } catch (RuntimeException e) {
             close(Status.fromThrowable(e), EMPTY_METADATA);
             throw e;
@@ -260,9 +297,34 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
         }
     }
 
+    /**
+     * Notifies the listener with {@link ServerCall.Listener#onReady()} if this call became ready after
+     * it was not ready. The notification is always delivered later by the event loop rather than from
+     * the current call stack, because a listener usually sends messages while {@link #isReady()} returns
+     * {@code true} in {@link ServerCall.Listener#onReady()}.
+     */
+    private void scheduleOnReadyIfReady() {
+        assert ctx.eventLoop().inEventLoop();
+        if (notReady && isReady()) {
+            notReady = false;
+            ctx.eventLoop().execute(this::invokeOnReady);
+        }
+    }
+
+    private void invokeOnReady() {
+        if (closeCalled || listenerClosed) {
+            return;
+        }
+        try (SafeCloseable ignored = RequestContext.push(ctx)) {
+            listener.onReady();
+        } catch (Throwable t) {
+            close(Status.fromThrowable(t), EMPTY_METADATA);
+        }
+    }
+
     @Override
     public boolean isReady() {
-        return !closeCalled && pendingMessages == 0;
+        return !closeCalled && pendingMessages == 0 && pendingBytes < ON_READY_THRESHOLD;
     }
 
     @Override
@@ -288,8 +350,7 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
         final HttpObject trailersObj;
         if (sendHeadersCalled && GrpcSerializationFormats.isGrpcWeb(serializationFormat)) {
             // Normal trailers are not supported in grpc-web and must be encoded as a message.
-            // Message compression is not supported in grpc-web, so we don't bother using the normal
-            // ArmeriaMessageFramer.
+            // The trailers are never compressed, so we don't bother using the normal ArmeriaMessageFramer.
             trailersObj = serializeTrailersAsMessage(trailers);
         } else {
             trailersObj = trailers;
@@ -311,6 +372,7 @@ class ArmeriaServerCall<I, O> extends ServerCall<I, O>
     public synchronized void setMessageCompression(boolean messageCompression) {
         messageFramer.setMessageCompression(messageCompression);
         this.messageCompression = messageCompression;
+        messageCompressionSet = true;
     }
 
     @Override
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.server.grpc;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.MoreObjects;
+
+import io.grpc.ServerCall;
+
+/**
+ * Determines whether and how the response messages of a gRPC method are compressed when the service
+ * implementation does not choose a compressor by itself using {@link ServerCall#setCompression(String)}.
+ * A message is compressed only when the client accepts the encoding of the policy and the message is not
+ * smaller than {@link #minMessageSizeBytes()}. Compression is also applied to gRPC-Web responses,
+ * except for the trailers.
+ *
+ * @see GrpcServiceBuilder#compressionPolicy(GrpcCompressionPolicy)
+ * @see GrpcServiceBuilder#compressionPolicy(String, GrpcCompressionPolicy)
+ */
+public final class GrpcCompressionPolicy {
+
+    private static final GrpcCompressionPolicy DISABLED = new GrpcCompressionPolicy(null, 0);
+
+    /**
+     * Returns the {@link GrpcCompressionPolicy} which never compresses a message. Use this for the methods
+     * whose messages are mostly already-compressed data such as images, so that CPU is not wasted for
+     * compressing them again.
+     */
+    public static GrpcCompressionPolicy disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Returns a new {@link GrpcCompressionPolicy} which compresses all messages with the specified encoding,
+     * e.g. {@code "gzip"}.
+     */
+    public static GrpcCompressionPolicy of(String encoding) {
+        return of(encoding, 0);
+    }
+
+    /**
+     * Returns a new {@link GrpcCompressionPolicy} which compresses the messages whose size is equal to
+     * or greater than {@code minMessageSizeBytes} with the specified encoding, e.g. {@code "gzip"}.
+     */
+    public static GrpcCompressionPolicy of(String encoding, int minMessageSizeBytes) {
+        requireNonNull(encoding, "encoding");
+        checkArgument(!encoding.isEmpty(), "encoding is empty.");
+        checkArgument(minMessageSizeBytes >= 0,
+                      "minMessageSizeBytes: %s (expected: >= 0)", minMessageSizeBytes);
+        return new GrpcCompressionPolicy(encoding, minMessageSizeBytes);
+    }
+
+    @Nullable
+    private final String encoding;
+    private final int minMessageSizeBytes;
+
+    private GrpcCompressionPolicy(@Nullable String encoding, int minMessageSizeBytes) {
+        this.encoding = encoding;
+        this.minMessageSizeBytes = minMessageSizeBytes;
+    }
+
+    /**
+     * Returns whether this policy compresses messages.
+     */
+    public boolean isEnabled() {
+        return encoding != null;
+    }
+
+    /**
+     * Returns the message encoding used for compression, or {@code null} if this policy is disabled.
+     */
+    @Nullable
+    public String encoding() {
+        return encoding;
+    }
+
+    /**
+     * Returns the minimum size of a message to be compressed, in bytes.
+     */
+    public int minMessageSizeBytes() {
+        return minMessageSizeBytes;
+    }
+
+    @Override
+    public String toString() {
+        if (!isEnabled()) {
+            return MoreObjects.toStringHelper(this).addValue("disabled").toString();
+        }
+        return MoreObjects.toStringHelper(this)
+                          .add("encoding", encoding)
+                          .add("minMessageSizeBytes", minMessageSizeBytes)
+                          .toString();
+    }
+}
@@ -21,6 +21,7 @@ import static java.util.Objects.requireNonNull;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Nullable;
@@ -87,6 +88,8 @@ public final class GrpcService extends AbstractHttpService
     private final Set<PathMapping> pathMappings;
     private final DecompressorRegistry decompressorRegistry;
     private final CompressorRegistry compressorRegistry;
+    private final GrpcCompressionPolicy compressionPolicy;
+    private final Map<String, GrpcCompressionPolicy> methodCompressionPolicies;
     private final Set<SerializationFormat> supportedSerializationFormats;
     private final MessageMarshaller jsonMarshaller;
     private final int maxOutboundMessageSizeBytes;
@@ -98,6 +101,8 @@ public final class GrpcService extends AbstractHttpService
                 Set<PathMapping> pathMappings,
                 DecompressorRegistry decompressorRegistry,
                 CompressorRegistry compressorRegistry,
+                GrpcCompressionPolicy compressionPolicy,
+                Map<String, GrpcCompressionPolicy> methodCompressionPolicies,
                 Set<SerializationFormat> supportedSerializationFormats,
                 int maxOutboundMessageSizeBytes,
                 boolean unsafeWrapRequestBuffers,
@@ -106,6 +111,9 @@ public final class GrpcService extends AbstractHttpService
         this.pathMappings = requireNonNull(pathMappings, "pathMappings");
         this.decompressorRegistry = requireNonNull(decompressorRegistry, "decompressorRegistry");
         this.compressorRegistry = requireNonNull(compressorRegistry, "compressorRegistry");
+        this.compressionPolicy = requireNonNull(compressionPolicy, "compressionPolicy");
+        this.methodCompressionPolicies =
+                requireNonNull(methodCompressionPolicies, "methodCompressionPolicies");
         this.supportedSerializationFormats = supportedSerializationFormats;
         jsonMarshaller = jsonMarshaller(registry);
         this.maxOutboundMessageSizeBytes = maxOutboundMessageSizeBytes;
@@ -177,6 +185,7 @@ public final class GrpcService extends AbstractHttpService
                 methodDef.getMethodDescriptor(),
                 compressorRegistry,
                 decompressorRegistry,
+                methodCompressionPolicies.getOrDefault(fullMethodName, compressionPolicy),
                 res,
                 maxInboundMessageSizeBytes,
                 maxOutboundMessageSizeBytes,
@@ -222,6 +231,10 @@ public final class GrpcService extends AbstractHttpService
         return registry.services();
     }
 
+    DecompressorRegistry decompressorRegistry() {
+        return decompressorRegistry;
+    }
+
     Set<SerializationFormat> supportedSerializationFormats() {
         return supportedSerializationFormats;
     }
@@ -20,10 +20,13 @@ import static com.google.common.base.MoreObjects.firstNonNull;
 import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Objects.requireNonNull;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.Nullable;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 
 import com.linecorp.armeria.common.HttpRequest;
@@ -41,6 +44,7 @@ import com.linecorp.armeria.unsafe.grpc.GrpcUnsafeBufferUtil;
 import io.grpc.BindableService;
 import io.grpc.CompressorRegistry;
 import io.grpc.DecompressorRegistry;
+import io.grpc.MethodDescriptor;
 import io.grpc.ServerServiceDefinition;
 
 /**
@@ -59,6 +63,10 @@ public final class GrpcServiceBuilder {
     @Nullable
     private CompressorRegistry compressorRegistry;
 
+    private GrpcCompressionPolicy compressionPolicy = GrpcCompressionPolicy.disabled();
+
+    private final Map<String, GrpcCompressionPolicy> methodCompressionPolicies = new HashMap<>();
+
     private Set<SerializationFormat> supportedSerializationFormats = DEFAULT_SUPPORTED_SERIALIZATION_FORMATS;
 
     private int maxInboundMessageSizeBytes = GrpcService.NO_MAX_INBOUND_MESSAGE_SIZE;
@@ -104,6 +112,38 @@ public final class GrpcServiceBuilder {
         return this;
     }
 
+    /**
+     * Sets the default {@link GrpcCompressionPolicy} which determines how the response messages are
+     * compressed when a service does not choose a compressor by itself. If not set, messages are not
+     * compressed unless a service enables compression. The encoding of the policy must be registered in
+     * the {@link CompressorRegistry}.
+     */
+    public GrpcServiceBuilder compressionPolicy(GrpcCompressionPolicy compressionPolicy) {
+        this.compressionPolicy = requireNonNull(compressionPolicy, "compressionPolicy");
+        return this;
+    }
+
+    /**
+     * Sets the {@link GrpcCompressionPolicy} of the method with the specified full name,
+     * e.g. {@code "armeria.grpc.testing.TestService/UnaryCall"}, which overrides the default policy set by
+     * {@link #compressionPolicy(GrpcCompressionPolicy)}.
+     */
+    public GrpcServiceBuilder compressionPolicy(String fullMethodName,
+                                                GrpcCompressionPolicy compressionPolicy) {
+        methodCompressionPolicies.put(requireNonNull(fullMethodName, "fullMethodName"),
+                                      requireNonNull(compressionPolicy, "compressionPolicy"));
+        return this;
+    }
+
+    /**
+     * Sets the {@link GrpcCompressionPolicy} of the specified method, which overrides the default policy set
+     * by {@link #compressionPolicy(GrpcCompressionPolicy)}.
+     */
+    public GrpcServiceBuilder compressionPolicy(MethodDescriptor<?, ?> method,
+                                                GrpcCompressionPolicy compressionPolicy) {
+        return compressionPolicy(requireNonNull(method, "method").getFullMethodName(), compressionPolicy);
+    }
+
     /**
      * Sets the {@link SerializationFormat}s supported by this server. If not set, defaults to supporting binary
      * protobuf formats. Enabling JSON can be useful, e.g., when migrating existing JSON services to gRPC.
@@ -162,9 +202,10 @@ public final class GrpcServiceBuilder {
      *
      * <p>Limitations:
      * <ul>
-     *     <li>Only unary methods (single request, single response) are supported.</li>
+     *     <li>Only unary and server-streaming methods (single request, one or more responses) are
+     *         supported.</li>
      *     <li>
-     *         Message compression is not supported.
+     *         A non-framed response is never compressed by gRPC.
      *         {@link HttpEncodingService} should be used instead for
      *         transport level encoding.
      *     </li>
@@ -206,6 +247,14 @@ public final class GrpcServiceBuilder {
      */
     public ServiceWithPathMappings<HttpRequest, HttpResponse> build() {
         HandlerRegistry handlerRegistry = registryBuilder.build();
+        CompressorRegistry actualCompressorRegistry =
+                firstNonNull(compressorRegistry, CompressorRegistry.getDefaultInstance());
+        validateCompressionPolicy(compressionPolicy, actualCompressorRegistry);
+        methodCompressionPolicies.forEach((methodName, policy) -> {
+            checkArgument(handlerRegistry.lookupMethod(methodName) != null,
+                          "compression policy specified for an unknown method: %s", methodName);
+            validateCompressionPolicy(policy, actualCompressorRegistry);
+        });
         GrpcService grpcService = new GrpcService(
                 handlerRegistry,
                 handlerRegistry
@@ -215,11 +264,20 @@ public final class GrpcServiceBuilder {
                       .map(path -> PathMapping.ofExact("/" + path))
                       .collect(ImmutableSet.toImmutableSet()),
                 firstNonNull(decompressorRegistry, DecompressorRegistry.getDefaultInstance()),
-                firstNonNull(compressorRegistry, CompressorRegistry.getDefaultInstance()),
+                actualCompressorRegistry,
+                compressionPolicy,
+                ImmutableMap.copyOf(methodCompressionPolicies),
                 supportedSerializationFormats,
                 maxOutboundMessageSizeBytes,
                 unsafeRetainRequestBuffers,
                 maxInboundMessageSizeBytes);
         return enableUnframedRequests ? grpcService.decorate(UnframedGrpcService::new) : grpcService;
     }
+
+    private static void validateCompressionPolicy(GrpcCompressionPolicy policy,
+                                                  CompressorRegistry compressorRegistry) {
+        final String encoding = policy.encoding();
+        checkArgument(encoding == null || compressorRegistry.lookupCompressor(encoding) != null,
+                      "no compressor registered for the encoding of %s", policy);
+    }
 }
@@ -16,20 +16,26 @@
 
 package com.linecorp.armeria.server.grpc;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
+import javax.annotation.Nullable;
+
 import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.CodedOutputStream;
 
 import com.linecorp.armeria.common.AggregatedHttpMessage;
 import com.linecorp.armeria.common.HttpData;
 import com.linecorp.armeria.common.HttpHeaderNames;
 import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpObject;
 import com.linecorp.armeria.common.HttpRequest;
 import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpResponseWriter;
 import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.HttpStatusClass;
 import com.linecorp.armeria.common.MediaType;
 import com.linecorp.armeria.common.SerializationFormat;
 import com.linecorp.armeria.common.grpc.GrpcSerializationFormats;
@@ -39,6 +45,8 @@ import com.linecorp.armeria.internal.grpc.ArmeriaMessageDeframer.Listener;
 import com.linecorp.armeria.internal.grpc.ArmeriaMessageFramer;
 import com.linecorp.armeria.internal.grpc.GrpcHeaderNames;
 import com.linecorp.armeria.internal.grpc.GrpcLogUtil;
+import com.linecorp.armeria.internal.grpc.HttpStreamReader;
+import com.linecorp.armeria.internal.grpc.TransportStatusListener;
 import com.linecorp.armeria.server.PathMapping;
 import com.linecorp.armeria.server.Service;
 import com.linecorp.armeria.server.ServiceRequestContext;
@@ -47,8 +55,8 @@ import com.linecorp.armeria.server.SimpleDecoratingService;
 import com.linecorp.armeria.server.encoding.HttpEncodingService;
 import com.linecorp.armeria.unsafe.ByteBufHttpData;
 
+import io.grpc.Codec;
 import io.grpc.MethodDescriptor;
-import io.grpc.MethodDescriptor.MethodType;
 import io.grpc.ServerMethodDefinition;
 import io.grpc.Status;
 import io.netty.buffer.ByteBuf;
@@ -59,11 +67,27 @@ import io.netty.buffer.ByteBufHolder;
  * specified by the gRPC wire protocol. This can be useful for serving both legacy systems and gRPC clients with
  * the same business logic.
  *
+ * <p>The content of a non-framed request is a single serialized message. If the request has
+ * the {@code grpc-encoding} header, its content is considered to be compressed with the specified encoding.
+ * The content of a non-framed response is:
+ * <ul>
+ *     <li>a single serialized message for a unary method.</li>
+ *     <li>for a server-streaming method,
+ *         <ul>
+ *             <li>a sequence of JSON messages, each of which is followed by a newline character
+ *                 ({@code application/x-ndjson}) if the request content is JSON.</li>
+ *             <li>a sequence of protobuf messages, each of which is prefixed with its length encoded as
+ *                 a varint ({@code application/protobuf; delimited=true}) if the request content is
+ *                 protobuf.</li>
+ *         </ul>
+ *     </li>
+ * </ul>
+ *
  * <p>Limitations:
  * <ul>
- *     <li>Only unary methods (single request, single response) are supported.</li>
+ *     <li>Only unary and server-streaming methods (single request, one or more responses) are supported.</li>
  *     <li>
- *         Message compression is not supported.
+ *         A non-framed response is never compressed by gRPC.
  *         {@link HttpEncodingService} should be used instead for
  *         transport level encoding.
  *     </li>
@@ -72,6 +96,13 @@ import io.netty.buffer.ByteBufHolder;
 class UnframedGrpcService extends SimpleDecoratingService<HttpRequest, HttpResponse>
         implements ServiceWithPathMappings<HttpRequest, HttpResponse> {
 
+    private static final MediaType NDJSON_UTF_8 =
+            MediaType.create("application", "x-ndjson").withCharset(StandardCharsets.UTF_8);
+
+    private static final MediaType DELIMITED_PROTOBUF = MediaType.PROTOBUF.withParameter("delimited", "true");
+
+    private static final HttpData NEWLINE = HttpData.of(new byte[] { '\n' });
+
     private final Map<String, MethodDescriptor<?, ?>> methodsByName;
     private final GrpcService delegateGrpcService;
 
@@ -116,19 +147,31 @@ class UnframedGrpcService extends SimpleDecoratingService<HttpRequest, HttpRespo
             return delegate().serve(ctx, req);
         }
 
-        if (method.getType() != MethodType.UNARY) {
-            return HttpResponse.of(HttpStatus.BAD_REQUEST,
-                                   MediaType.PLAIN_TEXT_UTF_8,
-                                   "Only unary methods can be used with non-framed requests.");
+        final boolean streaming;
+        switch (method.getType()) {
+            case UNARY:
+                streaming = false;
+                break;
+            case SERVER_STREAMING:
+                streaming = true;
+                break;
+            default:
+                return HttpResponse.of(HttpStatus.BAD_REQUEST,
+                                       MediaType.PLAIN_TEXT_UTF_8,
+                                       "Only unary and server-streaming methods can be used with " +
+                                       "non-framed requests.");
         }
 
         final HttpHeaders grpcHeaders = HttpHeaders.copyOf(clientHeaders);
 
         final MediaType framedContentType;
+        final MediaType streamingContentType;
         if (contentType.is(MediaType.PROTOBUF)) {
             framedContentType = GrpcSerializationFormats.PROTO.mediaType();
+            streamingContentType = DELIMITED_PROTOBUF;
         } else if (contentType.is(MediaType.JSON_UTF_8)) {
             framedContentType = GrpcSerializationFormats.JSON.mediaType();
+            streamingContentType = NDJSON_UTF_8;
         } else {
             return HttpResponse.of(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
                                    MediaType.PLAIN_TEXT_UTF_8,
@@ -136,14 +179,22 @@ class UnframedGrpcService extends SimpleDecoratingService<HttpRequest, HttpRespo
         }
         grpcHeaders.contentType(framedContentType);
 
-        if (grpcHeaders.get(GrpcHeaderNames.GRPC_ENCODING) != null) {
+        final String grpcEncoding = grpcHeaders.get(GrpcHeaderNames.GRPC_ENCODING);
+        final boolean compressed;
+        if (grpcEncoding == null || Codec.Identity.NONE.getMessageEncoding().equals(grpcEncoding)) {
+            compressed = false;
+        } else if (delegateGrpcService.decompressorRegistry().lookupDecompressor(grpcEncoding) != null) {
+            // The content is framed as is with the compressed flag set, so that it is decompressed by
+            // the GrpcService just like a framed request.
+            compressed = true;
+        } else {
             return HttpResponse.of(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
                                    MediaType.PLAIN_TEXT_UTF_8,
-                                   "gRPC encoding is not supported for non-framed requests.");
+                                   "Unsupported gRPC encoding: " + grpcEncoding);
         }
 
-        // All clients support no encoding, and we don't support gRPC encoding for non-framed requests, so just
-        // clear the header if it's present.
+        // All clients support no encoding, and we always send a non-framed response without gRPC encoding,
+        // so just clear the header if it's present.
         grpcHeaders.remove(GrpcHeaderNames.GRPC_ACCEPT_ENCODING);
 
         // Because we must aggregate the request before passing on to GrpcService, metrics would already be
@@ -151,23 +202,26 @@ class UnframedGrpcService extends SimpleDecoratingService<HttpRequest, HttpRespo
         // this, we set the RPC information in advance here, preventing the HTTP information from overriding it.
         ctx.logBuilder().requestContent(GrpcLogUtil.rpcRequest(method), null);
 
-        final CompletableFuture<HttpResponse> responseFuture = new CompletableFuture<>();
+        final HttpResponseWriter res = HttpResponse.streaming();
         req.aggregateWithPooledObjects(ctx.eventLoop(), ctx.alloc()).whenComplete(
                 (clientRequest, t) -> {
                     if (t != null) {
-                        responseFuture.completeExceptionally(t);
+                        res.close(t);
                     } else {
-                        frameAndServe(ctx, grpcHeaders, clientRequest, responseFuture);
+                        frameAndServe(ctx, grpcHeaders, clientRequest, compressed,
+                                      streaming ? streamingContentType : null, res);
                     }
                 });
-        return HttpResponse.from(responseFuture);
+        return res;
     }
 
     private void frameAndServe(
             ServiceRequestContext ctx,
             HttpHeaders grpcHeaders,
             AggregatedHttpMessage clientRequest,
-            CompletableFuture<HttpResponse> res) {
+            boolean compressed,
+            @Nullable MediaType streamingContentType,
+            HttpResponseWriter res) {
         final HttpRequest grpcRequest;
         try (ArmeriaMessageFramer framer = new ArmeriaMessageFramer(
                 ctx.alloc(), ArmeriaMessageFramer.NO_MAX_OUTBOUND_MESSAGE_SIZE)) {
@@ -182,7 +236,7 @@ class UnframedGrpcService extends SimpleDecoratingService<HttpRequest, HttpRespo
             final HttpData frame;
             boolean success = false;
             try {
-                frame = framer.writePayload(message);
+                frame = compressed ? framer.writeCompressedPayload(message) : framer.writePayload(message);
                 success = true;
             } finally {
                 if (!success) {
@@ -196,72 +250,213 @@ class UnframedGrpcService extends SimpleDecoratingService<HttpRequest, HttpRespo
         try {
             grpcResponse = delegate().serve(ctx, grpcRequest);
         } catch (Exception e) {
-            res.completeExceptionally(e);
+            res.close(e);
             return;
         }
 
-        grpcResponse.aggregate().whenCompleteAsync(
-                (framedResponse, t) -> {
-                    if (t != null) {
-                        res.completeExceptionally(t);
-                    } else {
-                        deframeAndRespond(ctx, framedResponse, res);
-                    }
-                },
-                ctx.eventLoop());
+        // Unframe the messages as they arrive rather than aggregating the whole gRPC response,
+        // so that the messages of a server-streaming method are sent to the client as soon as possible.
+        final ResponseUnframer unframer = new ResponseUnframer(ctx, res, streamingContentType);
+        final ArmeriaMessageDeframer deframer = new ArmeriaMessageDeframer(
+                unframer,
+                // Max outbound message size is handled by the GrpcService, so we don't need to set it here.
+                Integer.MAX_VALUE,
+                ctx.alloc());
+        final HttpStreamReader reader = new HttpStreamReader(
+                delegateGrpcService.decompressorRegistry(), deframer, unframer) {
+            @Override
+            public void onNext(HttpObject obj) {
+                if (obj instanceof HttpHeaders) {
+                    unframer.onHeaders((HttpHeaders) obj);
+                }
+                super.onNext(obj);
+            }
+
+            @Override
+            public void onComplete() {
+                super.onComplete();
+                // A gRPC response always ends with grpc-status, but a decorator or an error path may respond
+                // with a plain HTTP response. Don't leave the response open until the request times out.
+                unframer.transportReportStatus(Status.INTERNAL.withDescription("missing grpc-status"));
+            }
+        };
+        res.completionFuture().whenCompleteAsync((unused, cause) -> {
+            if (cause != null) {
+                // The client went away, so there's no point of receiving the remaining messages.
+                reader.cancel();
+            }
+        }, ctx.eventLoop());
+        unframer.reader = reader;
+        // Request only one message at first. ResponseUnframer requests the next one when the client is ready.
+        reader.request(1);
+        grpcResponse.subscribe(reader, ctx.eventLoop(), true);
     }
 
-    private static void deframeAndRespond(
-            ServiceRequestContext ctx,
-            AggregatedHttpMessage grpcResponse,
-            CompletableFuture<HttpResponse> res) {
-        final HttpHeaders trailers = !grpcResponse.trailingHeaders().isEmpty() ?
-                                     grpcResponse.trailingHeaders() : grpcResponse.headers();
-        final String grpcStatusCode = trailers.get(GrpcHeaderNames.GRPC_STATUS);
-        final Status grpcStatus = Status.fromCodeValue(Integer.parseInt(grpcStatusCode));
-
-        if (grpcStatus.getCode() != Status.OK.getCode()) {
-            final StringBuilder message = new StringBuilder("grpc-status: " + grpcStatusCode);
-            final String grpcMessage = trailers.get(GrpcHeaderNames.GRPC_MESSAGE);
-            if (grpcMessage != null) {
-                message.append(", ").append(grpcMessage);
+    /**
+     * Writes the messages deframed from a gRPC response to the non-framed response.
+     */
+    private static final class ResponseUnframer implements Listener, TransportStatusListener {
+
+        private final ServiceRequestContext ctx;
+        private final HttpResponseWriter res;
+        @Nullable
+        private final MediaType streamingContentType;
+
+        @Nullable
+        private HttpStreamReader reader;
+        @Nullable
+        private HttpHeaders grpcHeaders;
+        private boolean headersSent;
+        private boolean closed;
+
+        ResponseUnframer(ServiceRequestContext ctx, HttpResponseWriter res,
+                         @Nullable MediaType streamingContentType) {
+            this.ctx = ctx;
+            this.res = res;
+            this.streamingContentType = streamingContentType;
+        }
+
+        void onHeaders(HttpHeaders headers) {
+            if (grpcHeaders == null && headers.status() != null &&
+                headers.status().codeClass() != HttpStatusClass.INFORMATIONAL) {
+                grpcHeaders = headers;
+            }
+        }
+
+        @Override
+        public void messageRead(ByteBufOrStream message) {
+            // ArmeriaMessageDeframer decompresses a message eagerly, so this is always a ByteBuf.
+            final ByteBuf buf = message.buf();
+            if (closed) {
+                buf.release();
+                return;
+            }
+
+            // Note that tryWrite() releases the specified object by itself when it returns false, so we only
+            // need to release what has not been passed to tryWrite() yet.
+            if (streamingContentType == null) {
+                // We know there is only one message in total, so don't bother with checking endOfStream.
+                final HttpData unframedContent = new ByteBufHttpData(buf, true);
+                final HttpHeaders unframedHeaders = unframedHeaders();
+                unframedHeaders.setInt(HttpHeaderNames.CONTENT_LENGTH, unframedContent.length());
+                headersSent = true;
+                if (!tryWrite(unframedHeaders)) {
+                    unframedContent.release();
+                    return;
+                }
+                tryWrite(unframedContent);
+                return;
+            }
+
+            if (!headersSent) {
+                headersSent = true;
+                if (!tryWrite(unframedHeaders())) {
+                    buf.release();
+                    return;
+                }
+            }
+
+            final boolean written;
+            if (streamingContentType == DELIMITED_PROTOBUF) {
+                final int length = buf.readableBytes();
+                final ByteBuf prefix = ctx.alloc().buffer(CodedOutputStream.computeUInt32SizeNoTag(length));
+                writeVarint32(prefix, length);
+                written = tryWrite(new ByteBufHttpData(
+                        ctx.alloc().compositeBuffer(2).addComponents(true, prefix, buf), false));
+            } else {
+                written = tryWrite(new ByteBufHttpData(buf, false)) && tryWrite(NEWLINE);
+            }
+
+            if (written) {
+                // Request the next message only when the client is ready to receive it, so that a slow client
+                // does not make us buffer the whole stream.
+                res.onDemand(() -> ctx.eventLoop().execute(() -> {
+                    assert reader != null;
+                    reader.request(1);
+                }));
             }
-            res.complete(HttpResponse.of(
-                    HttpStatus.INTERNAL_SERVER_ERROR,
-                    MediaType.PLAIN_TEXT_UTF_8,
-                    message.toString()));
-            return;
         }
 
-        final MediaType grpcMediaType = grpcResponse.headers().contentType();
-        final HttpHeaders unframedHeaders = HttpHeaders.copyOf(grpcResponse.headers());
-        if (grpcMediaType != null) {
-            if (grpcMediaType.is(GrpcSerializationFormats.PROTO.mediaType())) {
-                unframedHeaders.contentType(MediaType.PROTOBUF);
-            } else if (grpcMediaType.is(GrpcSerializationFormats.JSON.mediaType())) {
-                unframedHeaders.contentType(MediaType.JSON_UTF_8);
+        private boolean tryWrite(HttpObject obj) {
+            if (res.tryWrite(obj)) {
+                return true;
             }
+            // The client went away. The remaining messages are released by the reader when it's cancelled.
+            closed = true;
+            return false;
+        }
+
+        @Override
+        public void endOfStream() {
+            // The response is closed by transportReportStatus(), which is always invoked after the stream
+            // ends, with Status.INTERNAL if the gRPC response did not have grpc-status.
         }
 
-        try (ArmeriaMessageDeframer deframer = new ArmeriaMessageDeframer(
-                new Listener() {
-                    @Override
-                    public void messageRead(ByteBufOrStream message) {
-                        // We know there is only one message in total, so don't bother with checking endOfStream
-                        // We also know that we don't support compression, so this is always a ByteBuffer.
-                        final HttpData unframedContent = new ByteBufHttpData(message.buf(), true);
-                        unframedHeaders.setInt(HttpHeaderNames.CONTENT_LENGTH, unframedContent.length());
-                        res.complete(HttpResponse.of(unframedHeaders, unframedContent));
+        @Override
+        public void transportReportStatus(Status status) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!res.isOpen()) {
+                // Cancelled by the client.
+                return;
+            }
+
+            if (status.getCode() == Status.OK.getCode()) {
+                if (!headersSent) {
+                    // No message has been sent.
+                    headersSent = true;
+                    final HttpHeaders unframedHeaders = unframedHeaders();
+                    if (streamingContentType == null) {
+                        unframedHeaders.setInt(HttpHeaderNames.CONTENT_LENGTH, 0);
                     }
+                    res.tryWrite(unframedHeaders);
+                }
+                res.close();
+                return;
+            }
 
-                    @Override
-                    public void endOfStream() {}
-                },
-                // Max outbound message size is handled by the GrpcService, so we don't need to set it here.
-                Integer.MAX_VALUE,
-                ctx.alloc())) {
-            deframer.request(1);
-            deframer.deframe(grpcResponse.content(), true);
+            final StringBuilder message = new StringBuilder("grpc-status: " + status.getCode().value());
+            if (status.getDescription() != null) {
+                message.append(", ").append(status.getDescription());
+            }
+            if (!headersSent) {
+                headersSent = true;
+                res.respond(HttpStatus.INTERNAL_SERVER_ERROR, MediaType.PLAIN_TEXT_UTF_8, message.toString());
+            } else {
+                // Can't change the status of the response anymore, so just abort the stream.
+                res.close(status.withDescription(message.toString()).asRuntimeException());
+            }
+        }
+
+        private HttpHeaders unframedHeaders() {
+            final HttpHeaders unframedHeaders =
+                    grpcHeaders != null ? HttpHeaders.copyOf(grpcHeaders) : HttpHeaders.of(HttpStatus.OK);
+            // The messages have been decompressed already.
+            unframedHeaders.remove(GrpcHeaderNames.GRPC_ENCODING);
+            if (streamingContentType != null) {
+                unframedHeaders.contentType(streamingContentType);
+                return unframedHeaders;
+            }
+
+            final MediaType grpcMediaType = unframedHeaders.contentType();
+            if (grpcMediaType != null) {
+                if (grpcMediaType.is(GrpcSerializationFormats.PROTO.mediaType())) {
+                    unframedHeaders.contentType(MediaType.PROTOBUF);
+                } else if (grpcMediaType.is(GrpcSerializationFormats.JSON.mediaType())) {
+                    unframedHeaders.contentType(MediaType.JSON_UTF_8);
+                }
+            }
+            return unframedHeaders;
+        }
+
+        private static void writeVarint32(ByteBuf buf, int value) {
+            while ((value & ~0x7F) != 0) {
+                buf.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf.writeByte(value);
         }
     }
 
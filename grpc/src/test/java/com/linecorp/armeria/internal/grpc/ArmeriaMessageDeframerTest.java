@@ -24,7 +24,6 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
-import java.io.InputStream;
 import java.util.Arrays;
 
 import org.junit.After;
@@ -37,7 +36,6 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
 import com.google.common.base.Strings;
-import com.google.common.io.ByteStreams;
 import com.google.protobuf.ByteString;
 
 import com.linecorp.armeria.common.HttpData;
@@ -47,6 +45,7 @@ import com.linecorp.armeria.internal.grpc.ArmeriaMessageDeframer.ByteBufOrStream
 
 import io.grpc.Codec.Gzip;
 import io.grpc.StatusRuntimeException;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
 
@@ -163,14 +162,27 @@ public class ArmeriaMessageDeframerTest {
         verify(listener).messageRead(messageCaptor.capture());
         verifyNoMoreInteractions(listener);
         ByteBufOrStream message = messageCaptor.getValue();
-        assertThat(message.stream()).isNotNull();
-        final byte[] messageBytes;
-        try (InputStream stream = message.stream()) {
-            messageBytes = ByteStreams.toByteArray(stream);
-        }
+        assertThat(message.buf()).isNotNull();
+        final byte[] messageBytes = ByteBufUtil.getBytes(message.buf());
+        message.buf().release();
         assertThat(messageBytes).isEqualTo(GrpcTestUtil.REQUEST_MESSAGE.toByteArray());
     }
 
+    @Test
+    public void deframe_splitAcrossManyFrames() throws Exception {
+        byte[] frameBytes = GrpcTestUtil.uncompressedFrame(GrpcTestUtil.requestByteBuf());
+        deframer.request(1);
+        // Split the header as well as the body.
+        deframer.deframe(HttpData.of(Arrays.copyOfRange(frameBytes, 0, 3)), false);
+        deframer.deframe(HttpData.of(Arrays.copyOfRange(frameBytes, 3, 7)), false);
+        deframer.deframe(HttpData.of(Arrays.copyOfRange(frameBytes, 7, 9)), false);
+        verifyZeroInteractions(listener);
+        deframer.deframe(HttpData.of(Arrays.copyOfRange(frameBytes, 9, frameBytes.length)), false);
+        verifyAndReleaseMessage(new ByteBufOrStream(GrpcTestUtil.requestByteBuf()));
+        verifyNoMoreInteractions(listener);
+        assertThat(deframer.isStalled()).isTrue();
+    }
+
     @Test
     public void deframe_tooLargeUncompressed() throws Exception {
         SimpleRequest request = SimpleRequest.newBuilder()
@@ -197,14 +209,8 @@ public class ArmeriaMessageDeframerTest {
         byte[] frame = GrpcTestUtil.compressedFrame(Unpooled.wrappedBuffer(request.toByteArray()));
         assertThat(frame.length).isLessThan(1024);
         deframer.request(1);
-        deframer.deframe(HttpData.of(frame), false);
-        ArgumentCaptor<ByteBufOrStream> messageCaptor = ArgumentCaptor.forClass(ByteBufOrStream.class);
-        verify(listener).messageRead(messageCaptor.capture());
-        verifyNoMoreInteractions(listener);
-        try (InputStream stream = messageCaptor.getValue().stream()) {
-            assertThatThrownBy(() -> ByteStreams.toByteArray(stream))
-                    .isInstanceOf(StatusRuntimeException.class);
-        }
+        assertThatThrownBy(() -> deframer.deframe(HttpData.of(frame), false))
+                .isInstanceOf(StatusRuntimeException.class);
     }
 
     private void verifyAndReleaseMessage(ByteBufOrStream message) {
@@ -35,6 +35,7 @@ import com.linecorp.armeria.unsafe.ByteBufHttpData;
 import io.grpc.Codec.Gzip;
 import io.grpc.StatusRuntimeException;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.buffer.UnpooledByteBufAllocator;
 
 public class ArmeriaMessageFramerTest {
@@ -71,6 +72,39 @@ public class ArmeriaMessageFramerTest {
         framed.release();
     }
 
+    @Test
+    public void compressed_directBuffer() throws Exception {
+        framer.close();
+        framer = new ArmeriaMessageFramer(UnpooledByteBufAllocator.DEFAULT,
+                                          ArmeriaMessageFramer.NO_MAX_OUTBOUND_MESSAGE_SIZE);
+        framer.setCompressor(new Gzip());
+        framer.setMessageCompression(true);
+        SimpleRequest request =
+                SimpleRequest.newBuilder()
+                             .setPayload(Payload.newBuilder()
+                                                .setBody(ByteString.copyFromUtf8(
+                                                        Strings.repeat("abcdefgh", 4096))))
+                             .build();
+        ByteBuf buf = Unpooled.directBuffer();
+        buf.writeBytes(request.toByteArray());
+        ByteBufHttpData framed = framer.writePayload(buf);
+        assertThat(framed.array()).isEqualTo(GrpcTestUtil.compressedFrame(GrpcTestUtil.protoByteBuf(request)));
+        assertThat(buf.refCnt()).isEqualTo(0);
+        framed.release();
+    }
+
+    @Test
+    public void smallerThanMinCompressionSizeNotCompressed() throws Exception {
+        framer.setCompressor(new Gzip());
+        framer.setMessageCompression(true);
+        framer.setMinCompressionSizeBytes(1000);
+        ByteBuf buf = GrpcTestUtil.requestByteBuf();
+        ByteBufHttpData framed = framer.writePayload(buf);
+        assertThat(framed.array()).isEqualTo(GrpcTestUtil.uncompressedFrame(GrpcTestUtil.requestByteBuf()));
+        assertThat(buf.refCnt()).isEqualTo(0);
+        framed.release();
+    }
+
     @Test
     public void emptyNotCompressed() throws Exception {
         framer.setCompressor(new Gzip());
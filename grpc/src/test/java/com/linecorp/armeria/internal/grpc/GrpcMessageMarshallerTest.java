@@ -33,6 +33,7 @@ import com.linecorp.armeria.internal.grpc.ArmeriaMessageDeframer.ByteBufOrStream
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
 
 public class GrpcMessageMarshallerTest {
 
@@ -89,6 +90,20 @@ public class GrpcMessageMarshallerTest {
         buf.release();
     }
 
+    @Test
+    public void deserializeRequest_compositeByteBuf() throws Exception {
+        final byte[] bytes = GrpcTestUtil.REQUEST_MESSAGE.toByteArray();
+        final int half = bytes.length / 2;
+        final CompositeByteBuf buf = ByteBufAllocator.DEFAULT.compositeBuffer();
+        buf.addComponent(true, ByteBufAllocator.DEFAULT.directBuffer().writeBytes(bytes, 0, half));
+        buf.addComponent(true, ByteBufAllocator.DEFAULT.directBuffer()
+                                                   .writeBytes(bytes, half, bytes.length - half));
+        assertThat(buf.nioBufferCount()).isEqualTo(2);
+        SimpleRequest request = marshaller.deserializeRequest(new ByteBufOrStream(buf));
+        assertThat(request).isEqualTo(GrpcTestUtil.REQUEST_MESSAGE);
+        assertThat(buf.refCnt()).isEqualTo(0);
+    }
+
     @Test
     public void deserializeRequest_stream() throws Exception {
         SimpleRequest request = marshaller.deserializeRequest(
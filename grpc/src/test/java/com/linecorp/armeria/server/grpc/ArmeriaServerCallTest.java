@@ -35,20 +35,26 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.reactivestreams.Subscription;
 
+import com.google.protobuf.ByteString;
+
 import com.linecorp.armeria.common.ClosedSessionException;
 import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpObject;
 import com.linecorp.armeria.common.HttpResponseWriter;
 import com.linecorp.armeria.common.grpc.GrpcSerializationFormats;
 import com.linecorp.armeria.common.logging.DefaultRequestLog;
+import com.linecorp.armeria.grpc.testing.Messages.Payload;
 import com.linecorp.armeria.grpc.testing.Messages.SimpleRequest;
 import com.linecorp.armeria.grpc.testing.Messages.SimpleResponse;
 import com.linecorp.armeria.grpc.testing.TestServiceGrpc;
 import com.linecorp.armeria.internal.grpc.ArmeriaMessageDeframer.ByteBufOrStream;
+import com.linecorp.armeria.internal.grpc.GrpcHeaderNames;
 import com.linecorp.armeria.internal.grpc.GrpcTestUtil;
 import com.linecorp.armeria.server.ServiceRequestContext;
 import com.linecorp.armeria.unsafe.grpc.GrpcUnsafeBufferUtil;
@@ -119,6 +125,7 @@ public class ArmeriaServerCallTest {
                 TestServiceGrpc.getUnaryCallMethod(),
                 CompressorRegistry.getDefaultInstance(),
                 DecompressorRegistry.getDefaultInstance(),
+                GrpcCompressionPolicy.disabled(),
                 res,
                 MAX_MESSAGE_BYTES,
                 MAX_MESSAGE_BYTES,
@@ -160,6 +167,7 @@ public class ArmeriaServerCallTest {
                 TestServiceGrpc.getUnaryCallMethod(),
                 CompressorRegistry.getDefaultInstance(),
                 DecompressorRegistry.getDefaultInstance(),
+                GrpcCompressionPolicy.disabled(),
                 res,
                 MAX_MESSAGE_BYTES,
                 MAX_MESSAGE_BYTES,
@@ -199,10 +207,116 @@ public class ArmeriaServerCallTest {
         await().untilAsserted(() -> assertThat(call.isReady()).isFalse());
     }
 
+    @Test
+    public void notReadyUntilWrittenToTransport() {
+        call = new ArmeriaServerCall<>(
+                HttpHeaders.of(),
+                TestServiceGrpc.getUnaryCallMethod(),
+                CompressorRegistry.getDefaultInstance(),
+                DecompressorRegistry.getDefaultInstance(),
+                GrpcCompressionPolicy.disabled(),
+                res,
+                MAX_MESSAGE_BYTES,
+                ArmeriaServerCall.ON_READY_THRESHOLD * 2,
+                ctx,
+                GrpcSerializationFormats.PROTO,
+                MessageMarshaller.builder().build(),
+                false);
+        call.setListener(listener);
+        final SimpleResponse largeResponse =
+                SimpleResponse.newBuilder()
+                              .setPayload(Payload.newBuilder().setBody(
+                                      ByteString.copyFrom(new byte[ArmeriaServerCall.ON_READY_THRESHOLD])))
+                              .build();
+
+        // Send from the event loop so that the message is framed synchronously.
+        final ArgumentCaptor<Runnable> onDemand = ArgumentCaptor.forClass(Runnable.class);
+        eventLoop.submit(() -> {
+            call.sendHeaders(new Metadata());
+            call.sendMessage(largeResponse);
+            assertThat(call.isReady()).isFalse();
+            verify(listener, never()).onReady();
+            verify(res).onDemand(onDemand.capture());
+
+            // Written to the transport.
+            onDemand.getValue().run();
+            assertThat(call.isReady()).isTrue();
+            // onReady() is never invoked from the current call stack.
+            verify(listener, never()).onReady();
+        }).syncUninterruptibly();
+        await().untilAsserted(() -> verify(listener).onReady());
+    }
+
+    @Test
+    public void noOnReadyWhileReady() {
+        call.sendHeaders(new Metadata());
+        // Send from the event loop so that the messages are framed synchronously.
+        eventLoop.submit(() -> {
+            for (int i = 0; i < 3; i++) {
+                assertThat(call.isReady()).isTrue();
+                call.sendMessage(SimpleResponse.getDefaultInstance());
+            }
+        }).syncUninterruptibly();
+        // Wait until the tasks scheduled by the event loop are done.
+        eventLoop.submit(() -> {}).syncUninterruptibly();
+
+        assertThat(call.isReady()).isTrue();
+        verify(listener, never()).onReady();
+    }
+
     @Test
     public void closedIfCancelled() {
         assertThat(call.isCancelled()).isFalse();
         completionFuture.completeExceptionally(ClosedSessionException.get());
         await().untilAsserted(() -> assertThat(call.isCancelled()).isTrue());
     }
+
+    @Test
+    public void compressionPolicy() {
+        call = newCallWithCompressionPolicy("gzip", GrpcCompressionPolicy.of("gzip"));
+        call.sendHeaders(new Metadata());
+        await().untilAsserted(() -> verify(res).write(
+                argThat((HttpObject obj) -> hasGrpcEncoding(obj, "gzip"))));
+    }
+
+    @Test
+    public void compressionPolicy_notAcceptedByClient() {
+        call = newCallWithCompressionPolicy("deflate", GrpcCompressionPolicy.of("gzip"));
+        call.sendHeaders(new Metadata());
+        await().untilAsserted(() -> verify(res).write(
+                argThat((HttpObject obj) -> hasGrpcEncoding(obj, "identity"))));
+    }
+
+    @Test
+    public void compressionPolicy_disabledByService() {
+        call = newCallWithCompressionPolicy("gzip", GrpcCompressionPolicy.of("gzip"));
+        call.setMessageCompression(false);
+        call.sendHeaders(new Metadata());
+        await().untilAsserted(() -> verify(res).write(
+                argThat((HttpObject obj) -> hasGrpcEncoding(obj, "identity"))));
+    }
+
+    private ArmeriaServerCall<SimpleRequest, SimpleResponse> newCallWithCompressionPolicy(
+            String acceptEncoding, GrpcCompressionPolicy compressionPolicy) {
+        final ArmeriaServerCall<SimpleRequest, SimpleResponse> call = new ArmeriaServerCall<>(
+                HttpHeaders.of().set(GrpcHeaderNames.GRPC_ACCEPT_ENCODING, acceptEncoding),
+                TestServiceGrpc.getUnaryCallMethod(),
+                CompressorRegistry.getDefaultInstance(),
+                DecompressorRegistry.getDefaultInstance(),
+                compressionPolicy,
+                res,
+                MAX_MESSAGE_BYTES,
+                MAX_MESSAGE_BYTES,
+                ctx,
+                GrpcSerializationFormats.PROTO,
+                MessageMarshaller.builder().build(),
+                false);
+        call.setListener(listener);
+        return call;
+    }
+
+    private static boolean hasGrpcEncoding(HttpObject obj, String encoding) {
+        return obj instanceof HttpHeaders &&
+               encoding.equals(((HttpHeaders) obj).get(GrpcHeaderNames.GRPC_ENCODING));
+    }
 }
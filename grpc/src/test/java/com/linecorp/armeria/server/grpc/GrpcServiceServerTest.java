@@ -22,6 +22,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.awaitility.Awaitility.await;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -54,6 +58,7 @@ import com.linecorp.armeria.common.HttpMethod;
 import com.linecorp.armeria.common.HttpRequest;
 import com.linecorp.armeria.common.HttpResponse;
 import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.MediaType;
 import com.linecorp.armeria.common.RequestContext;
 import com.linecorp.armeria.common.SessionProtocol;
 import com.linecorp.armeria.common.grpc.GrpcSerializationFormats;
@@ -62,7 +67,6 @@ import com.linecorp.armeria.grpc.testing.Messages.EchoStatus;
 import com.linecorp.armeria.grpc.testing.Messages.Payload;
 import com.linecorp.armeria.grpc.testing.Messages.SimpleRequest;
 import com.linecorp.armeria.grpc.testing.Messages.SimpleResponse;
-import com.linecorp.armeria.grpc.testing.Messages.StreamingOutputCallRequest;
 import com.linecorp.armeria.grpc.testing.UnitTestServiceGrpc;
 import com.linecorp.armeria.grpc.testing.UnitTestServiceGrpc.UnitTestServiceBlockingStub;
 import com.linecorp.armeria.grpc.testing.UnitTestServiceGrpc.UnitTestServiceImplBase;
@@ -543,7 +547,24 @@ public class GrpcServiceServerTest {
                 HttpHeaders.of(HttpMethod.POST,
                                UnitTestServiceGrpc.getStaticStreamedOutputCallMethod().getFullMethodName())
                            .set(HttpHeaderNames.CONTENT_TYPE, "application/protobuf"),
-                StreamingOutputCallRequest.getDefaultInstance().toByteArray()).aggregate().get();
+                REQUEST_MESSAGE.toByteArray()).aggregate().get();
+        assertThat(response.status()).isEqualTo(HttpStatus.OK);
+        assertThat(response.headers().contentType())
+                .isEqualTo(MediaType.PROTOBUF.withParameter("delimited", "true"));
+        InputStream content = new ByteArrayInputStream(response.content().array());
+        assertThat(SimpleResponse.parseDelimitedFrom(content)).isEqualTo(RESPONSE_MESSAGE);
+        assertThat(SimpleResponse.parseDelimitedFrom(content)).isEqualTo(RESPONSE_MESSAGE);
+        assertThat(content.read()).isEqualTo(-1);
+    }
+
+    @Test
+    public void unframed_clientStreamingApi() throws Exception {
+        HttpClient client = HttpClient.of(server.httpUri("/"));
+        AggregatedHttpMessage response = client.execute(
+                HttpHeaders.of(HttpMethod.POST,
+                               UnitTestServiceGrpc.getStreamThrowsErrorMethod().getFullMethodName())
+                           .set(HttpHeaderNames.CONTENT_TYPE, "application/protobuf"),
+                REQUEST_MESSAGE.toByteArray()).aggregate().get();
         assertThat(response.status()).isEqualTo(HttpStatus.BAD_REQUEST);
     }
 
@@ -560,11 +581,29 @@ public class GrpcServiceServerTest {
     @Test
     public void unframed_grpcEncoding() throws Exception {
         HttpClient client = HttpClient.of(server.httpUri("/"));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream os = new Codec.Gzip().compress(compressed)) {
+            REQUEST_MESSAGE.writeTo(os);
+        }
         AggregatedHttpMessage response = client.execute(
                 HttpHeaders.of(HttpMethod.POST,
                                UnitTestServiceGrpc.getStaticUnaryCallMethod().getFullMethodName())
                            .set(HttpHeaderNames.CONTENT_TYPE, "application/protobuf")
                            .set(GrpcHeaderNames.GRPC_ENCODING, "gzip"),
+                compressed.toByteArray()).aggregate().get();
+        SimpleResponse message = SimpleResponse.parseFrom(response.content().array());
+        assertThat(message).isEqualTo(RESPONSE_MESSAGE);
+        assertThat(response.headers().get(GrpcHeaderNames.GRPC_ENCODING)).isNull();
+    }
+
+    @Test
+    public void unframed_unknownGrpcEncoding() throws Exception {
+        HttpClient client = HttpClient.of(server.httpUri("/"));
+        AggregatedHttpMessage response = client.execute(
+                HttpHeaders.of(HttpMethod.POST,
+                               UnitTestServiceGrpc.getStaticUnaryCallMethod().getFullMethodName())
+                           .set(HttpHeaderNames.CONTENT_TYPE, "application/protobuf")
+                           .set(GrpcHeaderNames.GRPC_ENCODING, "unknown"),
                 REQUEST_MESSAGE.toByteArray()).aggregate().get();
         assertThat(response.status()).isEqualTo(HttpStatus.UNSUPPORTED_MEDIA_TYPE);
     }
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.server.grpc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.common.AggregatedHttpMessage;
+import com.linecorp.armeria.common.HttpHeaderNames;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.grpc.testing.Messages.SimpleRequest;
+import com.linecorp.armeria.grpc.testing.UnitTestServiceGrpc;
+import com.linecorp.armeria.grpc.testing.UnitTestServiceGrpc.UnitTestServiceImplBase;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.server.Service;
+import com.linecorp.armeria.testing.server.ServerRule;
+
+public class UnframedGrpcServiceTest {
+
+    @ClassRule
+    public static final ServerRule server = new ServerRule() {
+        @Override
+        protected void configure(ServerBuilder sb) throws Exception {
+            // Disable the request timeout so that a response which is never closed makes the test time out.
+            sb.defaultRequestTimeoutMillis(0);
+
+            final Service<HttpRequest, HttpResponse> grpcService =
+                    new GrpcServiceBuilder().addService(new UnitTestServiceImplBase() {})
+                                            .build();
+            // A decorator which responds with a plain HTTP response without grpc-status.
+            sb.serviceUnder("/", new UnframedGrpcService(grpcService.decorate(
+                    (delegate, ctx, req) -> HttpResponse.of(HttpStatus.OK))));
+        }
+    };
+
+    @Test(timeout = 10000)
+    public void missingGrpcStatus() throws Exception {
+        final HttpClient client = HttpClient.of(server.httpUri("/"));
+        final AggregatedHttpMessage res = client.execute(
+                HttpHeaders.of(HttpMethod.POST,
+                               UnitTestServiceGrpc.getStaticUnaryCallMethod().getFullMethodName())
+                           .set(HttpHeaderNames.CONTENT_TYPE, "application/protobuf"),
+                SimpleRequest.getDefaultInstance().toByteArray()).aggregate().join();
+
+        assertThat(res.status()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        assertThat(res.content().toStringUtf8()).contains("missing grpc-status");
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.thrift;
+
+import static com.linecorp.armeria.client.ClientRequestContext.HTTP_HEADERS;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.linecorp.armeria.client.ClientRequestContext;
+import com.linecorp.armeria.client.Endpoint;
+import com.linecorp.armeria.client.thrift.THttpClientDelegate.PendingCall;
+import com.linecorp.armeria.common.HttpHeaders;
+
+import io.netty.util.concurrent.ScheduledFuture;
+
+/**
+ * Coalesces the concurrent {@link PendingCall}s to the same path into a batch, which is sent when
+ * it becomes full or the batch window elapses.
+ */
+final class THttpClientBatcher {
+
+    private final THttpClientDelegate delegate;
+    private final int maxBatchSize;
+    private final long batchWindowMillis;
+
+    // Guarded by itself.
+    private final Map<BatchKey, Batch> batches = new HashMap<>();
+
+    THttpClientBatcher(THttpClientDelegate delegate, int maxBatchSize, long batchWindowMillis) {
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.batchWindowMillis = batchWindowMillis;
+    }
+
+    void add(PendingCall call) {
+        final ClientRequestContext ctx = call.ctx;
+        // Calls to different endpoints or with different HTTP headers are never coalesced because a batch is
+        // sent to the endpoint and with the headers of its first call.
+        final BatchKey key = new BatchKey(ctx.endpoint(), ctx.path(),
+                                          ctx.hasAttr(HTTP_HEADERS) ? ctx.attr(HTTP_HEADERS).get() : null);
+        final Batch fullBatch;
+        synchronized (batches) {
+            Batch batch = batches.get(key);
+            if (batch == null) {
+                final Batch newBatch = new Batch(maxBatchSize);
+                newBatch.timeoutFuture = ctx.eventLoop().schedule(() -> onTimeout(key, newBatch),
+                                                                  batchWindowMillis, TimeUnit.MILLISECONDS);
+                batches.put(key, newBatch);
+                batch = newBatch;
+            }
+
+            batch.calls.add(call);
+            if (batch.calls.size() < maxBatchSize) {
+                return;
+            }
+
+            batches.remove(key);
+            fullBatch = batch;
+        }
+
+        if (fullBatch.timeoutFuture != null) {
+            fullBatch.timeoutFuture.cancel(false);
+        }
+        send(fullBatch.calls);
+    }
+
+    private void onTimeout(BatchKey key, Batch batch) {
+        synchronized (batches) {
+            if (!batches.remove(key, batch)) {
+                // Sent already because the batch became full.
+                return;
+            }
+        }
+        send(batch.calls);
+    }
+
+    private void send(List<PendingCall> calls) {
+        if (calls.size() == 1) {
+            // No need to use the batch format for a single call.
+            delegate.send(calls.get(0));
+        } else {
+            delegate.sendBatch(calls);
+        }
+    }
+
+    private static final class Batch {
+        final List<PendingCall> calls;
+        @Nullable
+        ScheduledFuture<?> timeoutFuture;
+
+        Batch(int maxBatchSize) {
+            calls = new ArrayList<>(maxBatchSize);
+        }
+    }
+
+    private static final class BatchKey {
+        private final Endpoint endpoint;
+        private final String path;
+        @Nullable
+        private final HttpHeaders headers;
+
+        BatchKey(Endpoint endpoint, String path, @Nullable HttpHeaders headers) {
+            this.endpoint = endpoint;
+            this.path = path;
+            this.headers = headers;
+        }
+
+        @Override
+        public int hashCode() {
+            return (endpoint.hashCode() * 31 + path.hashCode()) * 31 + Objects.hashCode(headers);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+
+            if (!(obj instanceof BatchKey)) {
+                return false;
+            }
+
+            final BatchKey that = (BatchKey) obj;
+            return endpoint.equals(that.endpoint) && path.equals(that.path) &&
+                   Objects.equals(headers, that.headers);
+        }
+    }
+}
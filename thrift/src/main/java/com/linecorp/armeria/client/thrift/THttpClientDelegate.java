@@ -16,14 +16,18 @@
 
 package com.linecorp.armeria.client.thrift;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.linecorp.armeria.common.util.Functions.voidFunction;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 import javax.annotation.Nullable;
 
@@ -38,6 +42,8 @@ import org.apache.thrift.protocol.TProtocolFactory;
 import org.apache.thrift.transport.TMemoryBuffer;
 import org.apache.thrift.transport.TMemoryInputTransport;
 import org.apache.thrift.transport.TTransportException;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
 
 import com.google.common.base.Strings;
 
@@ -49,23 +55,34 @@ import com.linecorp.armeria.common.DefaultRpcResponse;
 import com.linecorp.armeria.common.HttpData;
 import com.linecorp.armeria.common.HttpHeaders;
 import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpObject;
 import com.linecorp.armeria.common.HttpRequest;
 import com.linecorp.armeria.common.HttpResponse;
 import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.HttpStatusClass;
 import com.linecorp.armeria.common.MediaType;
+import com.linecorp.armeria.common.RequestContext;
 import com.linecorp.armeria.common.RpcRequest;
 import com.linecorp.armeria.common.RpcResponse;
 import com.linecorp.armeria.common.SerializationFormat;
+import com.linecorp.armeria.common.logging.RequestLog;
 import com.linecorp.armeria.common.thrift.ThriftCall;
 import com.linecorp.armeria.common.thrift.ThriftProtocolFactories;
 import com.linecorp.armeria.common.thrift.ThriftReply;
 import com.linecorp.armeria.common.util.CompletionActions;
 import com.linecorp.armeria.common.util.Exceptions;
+import com.linecorp.armeria.common.util.SafeCloseable;
 import com.linecorp.armeria.internal.thrift.TApplicationExceptions;
+import com.linecorp.armeria.internal.thrift.ThriftBatchFraming;
 import com.linecorp.armeria.internal.thrift.ThriftFieldAccess;
 import com.linecorp.armeria.internal.thrift.ThriftFunction;
 import com.linecorp.armeria.internal.thrift.ThriftServiceMetadata;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+
 final class THttpClientDelegate implements Client<RpcRequest, RpcResponse> {
 
     private final AtomicInteger nextSeqId = new AtomicInteger();
@@ -75,13 +92,17 @@ final class THttpClientDelegate implements Client<RpcRequest, RpcResponse> {
     private final TProtocolFactory protocolFactory;
     private final MediaType mediaType;
     private final Map<Class<?>, ThriftServiceMetadata> metadataMap = new ConcurrentHashMap<>();
+    @Nullable
+    private final THttpClientBatcher batcher;
 
     THttpClientDelegate(Client<HttpRequest, HttpResponse> httpClient,
-                        SerializationFormat serializationFormat) {
+                        SerializationFormat serializationFormat,
+                        int maxBatchSize, long batchWindowMillis) {
         this.httpClient = httpClient;
         this.serializationFormat = serializationFormat;
         protocolFactory = ThriftProtocolFactories.get(serializationFormat);
         mediaType = serializationFormat.mediaType();
+        batcher = maxBatchSize > 1 ? new THttpClientBatcher(this, maxBatchSize, batchWindowMillis) : null;
     }
 
     @Override
@@ -116,13 +137,35 @@ final class THttpClientDelegate implements Client<RpcRequest, RpcResponse> {
             tProtocol.writeMessageEnd();
 
             ctx.logBuilder().requestContent(call, new ThriftCall(header, tArgs));
+            ctx.logBuilder().deferResponseContent();
+
+            final PendingCall pendingCall = new PendingCall(
+                    ctx, seqId, func, reply, HttpData.of(outTransport.getArray(), 0, outTransport.length()));
+
+            if (batcher != null) {
+                batcher.add(pendingCall);
+            } else {
+                send(pendingCall);
+            }
+        } catch (Throwable cause) {
+            handlePreDecodeException(ctx, reply, func, cause);
+        }
+
+        return reply;
+    }
 
+    /**
+     * Sends the specified {@link PendingCall} in its own HTTP request.
+     */
+    void send(PendingCall call) {
+        final ClientRequestContext ctx = call.ctx;
+        final ThriftFunction func = call.func;
+        final DefaultRpcResponse reply = call.reply;
+        try {
             final HttpRequest httpReq = HttpRequest.of(
                     HttpHeaders.of(HttpMethod.POST, ctx.path())
                                .contentType(mediaType),
-                    HttpData.of(outTransport.getArray(), 0, outTransport.length()));
-
-            ctx.logBuilder().deferResponseContent();
+                    call.content);
 
             final CompletableFuture<AggregatedHttpMessage> future =
                     httpClient.execute(ctx, httpReq).aggregate();
@@ -140,7 +183,7 @@ final class THttpClientDelegate implements Client<RpcRequest, RpcResponse> {
                 }
 
                 try {
-                    handle(ctx, seqId, reply, func, res.content());
+                    handle(ctx, call.seqId, reply, func, res.content());
                 } catch (Throwable t) {
                     handlePreDecodeException(ctx, reply, func, t);
                 }
@@ -148,8 +191,85 @@ final class THttpClientDelegate implements Client<RpcRequest, RpcResponse> {
         } catch (Throwable cause) {
             handlePreDecodeException(ctx, reply, func, cause);
         }
+    }
 
-        return reply;
+    /**
+     * Sends the specified {@link PendingCall}s to the same path in a single HTTP request. The request is
+     * sent with a new {@link ClientRequestContext} derived from the context of the first call, and
+     * its {@link RequestLog} is added as a child of the {@link RequestLog} of every call. The response
+     * timeout of the batch is the earliest deadline of the calls.
+     */
+    void sendBatch(List<PendingCall> calls) {
+        assert !calls.isEmpty();
+        final ClientRequestContext firstCtx = calls.get(0).ctx;
+
+        int contentLength = 0;
+        for (PendingCall c : calls) {
+            contentLength += ThriftBatchFraming.LENGTH_FIELD_SIZE + c.content.length();
+        }
+        final ByteBuffer content = ByteBuffer.allocate(contentLength);
+        for (PendingCall c : calls) {
+            content.putInt(c.content.length());
+            content.put(c.content.array(), c.content.offset(), c.content.length());
+        }
+
+        final HttpRequest httpReq = HttpRequest.of(
+                HttpHeaders.of(HttpMethod.POST, firstCtx.path())
+                           .contentType(mediaType)
+                           .setInt(ThriftBatchFraming.BATCH_HEADER, calls.size()),
+                HttpData.of(content.array()));
+
+        final ClientRequestContext batchCtx = firstCtx.newDerivedContext(httpReq);
+        batchCtx.setResponseTimeoutMillis(batchResponseTimeoutMillis(calls));
+        // Defer the response content of the batch so that it does not override the content of each call.
+        batchCtx.logBuilder().deferResponseContent();
+        for (PendingCall c : calls) {
+            c.ctx.logBuilder().addChild(batchCtx.log());
+            c.ctx.logBuilder().endResponseWithLastChild();
+        }
+
+        final HttpResponse res;
+        try (SafeCloseable ignored = RequestContext.push(batchCtx, false)) {
+            res = httpClient.execute(batchCtx, httpReq);
+        } catch (Throwable cause) {
+            batchCtx.logBuilder().endRequest(cause);
+            batchCtx.logBuilder().endResponse(cause);
+            failAll(calls, cause);
+            return;
+        }
+
+        // Complete each call as soon as its reply arrives rather than waiting for the slowest one.
+        final BatchResponseSubscriber subscriber = new BatchResponseSubscriber(batchCtx, calls);
+        res.completionFuture().whenComplete(subscriber);
+        res.subscribe(subscriber);
+    }
+
+    /**
+     * Returns the response timeout of a batch, which is the remaining time until the earliest deadline of
+     * the calls in the batch, or {@code 0} if none of the calls has a deadline.
+     */
+    private static long batchResponseTimeoutMillis(List<PendingCall> calls) {
+        final long currentTimeNanos = System.nanoTime();
+        long timeoutMillis = 0;
+        for (PendingCall c : calls) {
+            final long callTimeoutMillis = c.ctx.responseTimeoutMillis();
+            if (callTimeoutMillis <= 0) {
+                continue;
+            }
+
+            final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(currentTimeNanos - c.createdTimeNanos);
+            final long remainingMillis = Math.max(1, callTimeoutMillis - elapsedMillis);
+            if (timeoutMillis == 0 || remainingMillis < timeoutMillis) {
+                timeoutMillis = remainingMillis;
+            }
+        }
+        return timeoutMillis;
+    }
+
+    private static void failAll(List<PendingCall> calls, Throwable cause) {
+        for (PendingCall c : calls) {
+            handlePreDecodeException(c.ctx, c.reply, c.func, cause);
+        }
     }
 
     private static String fullMethod(ClientRequestContext ctx, String method) {
@@ -187,6 +307,13 @@ final class THttpClientDelegate implements Client<RpcRequest, RpcResponse> {
         final TProtocol inputProtocol = protocolFactory.getProtocol(inputTransport);
 
         final TMessage header = inputProtocol.readMessageBegin();
+        handle(ctx, seqId, reply, func, inputProtocol, header);
+    }
+
+    private static void handle(ClientRequestContext ctx, int seqId, DefaultRpcResponse reply,
+                               ThriftFunction func, TProtocol inputProtocol,
+                               TMessage header) throws TException {
+
         final TApplicationException appEx = readApplicationException(seqId, func, inputProtocol, header);
         if (appEx != null) {
             handleException(ctx, reply, new ThriftReply(header, appEx), appEx);
@@ -284,4 +411,188 @@ final class THttpClientDelegate implements Client<RpcRequest, RpcResponse> {
             return new TTransportException(cause);
         }
     }
+
+    /**
+     * An encoded Thrift call which is about to be sent.
+     */
+    static final class PendingCall {
+        final ClientRequestContext ctx;
+        final int seqId;
+        final ThriftFunction func;
+        final DefaultRpcResponse reply;
+        final HttpData content;
+        final long createdTimeNanos = System.nanoTime();
+
+        PendingCall(ClientRequestContext ctx, int seqId, ThriftFunction func,
+                    DefaultRpcResponse reply, HttpData content) {
+            this.ctx = ctx;
+            this.seqId = seqId;
+            this.func = func;
+            this.reply = reply;
+            this.content = content;
+        }
+    }
+
+    /**
+     * Decodes the replies of a batch as they arrive and completes the matching {@link PendingCall}s.
+     * The replies can be in any order, so they are matched by their seqid.
+     */
+    private final class BatchResponseSubscriber implements Subscriber<HttpObject>, BiConsumer<Void, Throwable> {
+
+        private final ClientRequestContext batchCtx;
+        private final IntObjectMap<PendingCall> pendingCalls;
+        private final ByteBuf buf = Unpooled.buffer();
+        @Nullable
+        private Subscription subscription;
+        private boolean receivedHeaders;
+
+        BatchResponseSubscriber(ClientRequestContext batchCtx, List<PendingCall> calls) {
+            this.batchCtx = batchCtx;
+            pendingCalls = new IntObjectHashMap<>(calls.size());
+            for (PendingCall c : calls) {
+                pendingCalls.put(c.seqId, c);
+            }
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            subscription = s;
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(HttpObject obj) {
+            if (pendingCalls.isEmpty()) {
+                return;
+            }
+
+            if (obj instanceof HttpHeaders) {
+                if (!receivedHeaders) {
+                    onHeaders((HttpHeaders) obj);
+                }
+                // Ignore the trailing headers.
+                return;
+            }
+
+            final HttpData data = (HttpData) obj;
+            buf.writeBytes(data.array(), data.offset(), data.length());
+            while (buf.readableBytes() >= ThriftBatchFraming.LENGTH_FIELD_SIZE) {
+                final int length = buf.getInt(buf.readerIndex());
+                if (length < 0) {
+                    cancelAndFail(new InvalidResponseException("invalid Thrift batch frame length: " + length));
+                    return;
+                }
+                if (buf.readableBytes() < ThriftBatchFraming.LENGTH_FIELD_SIZE + length) {
+                    break;
+                }
+
+                buf.skipBytes(ThriftBatchFraming.LENGTH_FIELD_SIZE);
+                if (!onFrame(buf.array(), buf.arrayOffset() + buf.readerIndex(), length)) {
+                    // The batch has been cancelled and 'buf' may have been released already.
+                    return;
+                }
+                buf.skipBytes(length);
+            }
+            buf.discardReadBytes();
+        }
+
+        private void onHeaders(HttpHeaders headers) {
+            final HttpStatus status = headers.status();
+            if (status != null && status.codeClass() == HttpStatusClass.INFORMATIONAL) {
+                return;
+            }
+
+            receivedHeaders = true;
+            if (status == null || status.code() != HttpStatus.OK.code()) {
+                cancelAndFail(new InvalidResponseException(String.valueOf(status)));
+                return;
+            }
+
+            if (!headers.contains(ThriftBatchFraming.BATCH_HEADER)) {
+                cancelAndFail(new InvalidResponseException(
+                        "server does not support batched Thrift calls: " + headers));
+                return;
+            }
+
+            // No reply is sent for a ONEWAY call.
+            final List<PendingCall> oneWayCalls = pendingCalls.values().stream()
+                                                              .filter(c -> c.func.isOneWay())
+                                                              .collect(toImmutableList());
+            for (PendingCall c : oneWayCalls) {
+                pendingCalls.remove(c.seqId);
+                handleSuccess(c.ctx, c.reply, null, null);
+            }
+        }
+
+        /**
+         * Handles a reply frame.
+         *
+         * @return {@code false} if the batch has been cancelled and no more frames must be handled.
+         */
+        private boolean onFrame(byte[] array, int offset, int length) {
+            final TProtocol inputProtocol =
+                    protocolFactory.getProtocol(new TMemoryInputTransport(array, offset, length));
+            final TMessage header;
+            try {
+                header = inputProtocol.readMessageBegin();
+            } catch (Throwable t) {
+                cancelAndFail(t);
+                return false;
+            }
+
+            final PendingCall c = pendingCalls.remove(header.seqid);
+            if (c == null) {
+                return true;
+            }
+
+            try {
+                handle(c.ctx, c.seqId, c.reply, c.func, inputProtocol, header);
+            } catch (Throwable t) {
+                handlePreDecodeException(c.ctx, c.reply, c.func, t);
+            }
+            return true;
+        }
+
+        private void cancelAndFail(Throwable cause) {
+            assert subscription != null;
+            subscription.cancel();
+            fail(cause);
+        }
+
+        private void fail(Throwable cause) {
+            for (PendingCall c : pendingCalls.values()) {
+                handlePreDecodeException(c.ctx, c.reply, c.func, cause);
+            }
+            pendingCalls.clear();
+        }
+
+        /**
+         * Handled by {@link #accept(Void, Throwable)} instead,
+         * because this method is not invoked on cancellation and timeout.
+         */
+        @Override
+        public void onError(Throwable cause) {}
+
+        /**
+         * Handled by {@link #accept(Void, Throwable)} instead,
+         * because this method is not invoked on cancellation and timeout.
+         */
+        @Override
+        public void onComplete() {}
+
+        @Override
+        public void accept(Void unused, @Nullable Throwable cause) {
+            try {
+                if (cause != null) {
+                    fail(Exceptions.peel(cause));
+                } else {
+                    // Fail the calls whose replies were not found.
+                    fail(new TApplicationException(TApplicationException.MISSING_RESULT));
+                }
+            } finally {
+                buf.release();
+                batchCtx.logBuilder().responseContent(null, null);
+            }
+        }
+    }
 }
@@ -78,7 +78,9 @@ final class THttpClientFactory extends DecoratingClientFactory {
         final Client<RpcRequest, RpcResponse> delegate = options.decoration().decorate(
                 RpcRequest.class, RpcResponse.class,
                 new THttpClientDelegate(newHttpClient(uri, scheme, options),
-                                        serializationFormat));
+                                        serializationFormat,
+                                        options.getOrElse(ThriftClientOptions.MAX_BATCH_SIZE, 0),
+                                        options.getOrElse(ThriftClientOptions.BATCH_WINDOW_MILLIS, 1L)));
 
         if (clientType == THttpClient.class) {
             // Create a THttpClient with path.
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.thrift;
+
+import com.linecorp.armeria.client.ClientOption;
+import com.linecorp.armeria.client.InvalidResponseException;
+
+/**
+ * {@link ClientOption}s to control Thrift-specific behavior.
+ */
+public final class ThriftClientOptions {
+
+    /**
+     * The maximum number of concurrent Thrift calls to the same path which are coalesced into a single
+     * HTTP request. Batching is disabled when this option is not set or less than {@code 2}.
+     * Note that the server must be an Armeria {@code THttpService} with batching enabled by
+     * {@code THttpServiceBuilder.maxBatchSize()} equal to or greater than this value. Otherwise, the batched
+     * calls fail with an {@link InvalidResponseException}.
+     */
+    public static final ClientOption<Integer> MAX_BATCH_SIZE = ClientOption.valueOf("MAX_BATCH_SIZE");
+
+    /**
+     * The maximum amount of time, in milliseconds, a Thrift call waits for other calls to be coalesced with.
+     * Used only when {@link #MAX_BATCH_SIZE} is {@code 2} or greater. The default value is {@code 1}.
+     */
+    public static final ClientOption<Long> BATCH_WINDOW_MILLIS = ClientOption.valueOf("BATCH_WINDOW_MILLIS");
+
+    private ThriftClientOptions() {}
+}
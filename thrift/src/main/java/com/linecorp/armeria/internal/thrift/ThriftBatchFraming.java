@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.internal.thrift;
+
+import com.linecorp.armeria.common.HttpHeaderNames;
+
+import io.netty.util.AsciiString;
+
+/**
+ * Constants used for sending more than one Thrift message in a single HTTP request or response.
+ *
+ * <p>A batched HTTP message has the {@link #BATCH_HEADER} header whose value is the number of Thrift
+ * messages in the request. Its content is a sequence of Thrift messages, each of which is prefixed with
+ * its length in bytes, encoded as a 32-bit big-endian integer. The replies of a batched request may appear
+ * in an arbitrary order and thus must be matched by their {@code seqid}s. No reply is sent for a
+ * {@code ONEWAY} message.
+ */
+public final class ThriftBatchFraming {
+
+    /**
+     * The name of the HTTP header which signifies that the content is a batch of Thrift messages.
+     */
+    public static final AsciiString BATCH_HEADER = HttpHeaderNames.of("armeria-thrift-batch");
+
+    /**
+     * The length of the prefix that precedes each Thrift message in a batch.
+     */
+    public static final int LENGTH_FIELD_SIZE = 4;
+
+    private ThriftBatchFraming() {}
+}
@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 import javax.annotation.Nullable;
@@ -38,6 +39,7 @@ import org.apache.thrift.meta_data.FieldMetaData;
 import org.apache.thrift.protocol.TMessage;
 import org.apache.thrift.protocol.TMessageType;
 import org.apache.thrift.protocol.TProtocol;
+import org.apache.thrift.protocol.TProtocolFactory;
 import org.apache.thrift.transport.TTransport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,18 +55,22 @@ import com.linecorp.armeria.common.HttpHeaderNames;
 import com.linecorp.armeria.common.HttpHeaders;
 import com.linecorp.armeria.common.HttpRequest;
 import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpResponseWriter;
 import com.linecorp.armeria.common.HttpStatus;
 import com.linecorp.armeria.common.MediaType;
 import com.linecorp.armeria.common.RequestContext;
 import com.linecorp.armeria.common.RpcRequest;
 import com.linecorp.armeria.common.RpcResponse;
 import com.linecorp.armeria.common.SerializationFormat;
+import com.linecorp.armeria.common.logging.RequestLog;
+import com.linecorp.armeria.common.logging.RequestLogBuilder;
 import com.linecorp.armeria.common.thrift.ThriftCall;
 import com.linecorp.armeria.common.thrift.ThriftProtocolFactories;
 import com.linecorp.armeria.common.thrift.ThriftReply;
 import com.linecorp.armeria.common.thrift.ThriftSerializationFormats;
 import com.linecorp.armeria.common.util.CompletionActions;
 import com.linecorp.armeria.common.util.SafeCloseable;
+import com.linecorp.armeria.internal.thrift.ThriftBatchFraming;
 import com.linecorp.armeria.internal.thrift.ThriftFieldAccess;
 import com.linecorp.armeria.internal.thrift.ThriftFunction;
 import com.linecorp.armeria.server.AbstractHttpService;
@@ -78,6 +84,11 @@ import io.netty.buffer.ByteBufHolder;
 /**
  * A {@link Service} that handles a Thrift call.
  *
+ * <p>A request may also carry more than one Thrift call when it has been sent by a Thrift client with
+ * {@code ThriftClientOptions.MAX_BATCH_SIZE} set and this service has been built with
+ * {@link THttpServiceBuilder#maxBatchSize(int)}. The calls in such a request are invoked concurrently and
+ * their replies are streamed back in the order of completion.
+ *
  * @see ThriftProtocolFactories
  */
 public final class THttpService extends AbstractHttpService {
@@ -90,6 +101,10 @@ public final class THttpService extends AbstractHttpService {
             "Thrift protocol specified in Accept header must match " +
             "the one specified in the content-type header";
 
+    private static final String MALFORMED_BATCH = "Malformed Thrift message batch";
+
+    private static final String BATCH_NOT_SUPPORTED = "Thrift message batching is not enabled";
+
     /**
      * Creates a new {@link THttpService} with the specified service implementation, supporting all thrift
      * protocols and defaulting to {@link ThriftSerializationFormats#BINARY TBinary} protocol when the client
@@ -140,7 +155,8 @@ public final class THttpService extends AbstractHttpService {
 
         return new THttpService(ThriftCallService.of(implementation),
                                 newAllowedSerializationFormats(defaultSerializationFormat,
-                                                               ThriftSerializationFormats.values()));
+                                                               ThriftSerializationFormats.values()),
+                                0);
     }
 
     /**
@@ -162,7 +178,8 @@ public final class THttpService extends AbstractHttpService {
                                   SerializationFormat defaultSerializationFormat) {
         return new THttpService(ThriftCallService.of(implementations),
                                 newAllowedSerializationFormats(defaultSerializationFormat,
-                                                               ThriftSerializationFormats.values()));
+                                                               ThriftSerializationFormats.values()),
+                                0);
     }
 
     /**
@@ -240,7 +257,8 @@ public final class THttpService extends AbstractHttpService {
 
         return new THttpService(ThriftCallService.of(implementation),
                                 newAllowedSerializationFormats(defaultSerializationFormat,
-                                                               otherAllowedSerializationFormats));
+                                                               otherAllowedSerializationFormats),
+                                0);
     }
 
     /**
@@ -266,7 +284,8 @@ public final class THttpService extends AbstractHttpService {
 
         return new THttpService(ThriftCallService.of(implementations),
                                 newAllowedSerializationFormats(defaultSerializationFormat,
-                                                               otherAllowedSerializationFormats));
+                                                               otherAllowedSerializationFormats),
+                                0);
     }
 
     /**
@@ -296,7 +315,7 @@ public final class THttpService extends AbstractHttpService {
                 defaultSerializationFormat,
                 ThriftSerializationFormats.values());
 
-        return delegate -> new THttpService(delegate, allowedSerializationFormatArray);
+        return delegate -> new THttpService(delegate, allowedSerializationFormatArray, 0);
     }
 
     /**
@@ -336,10 +355,10 @@ public final class THttpService extends AbstractHttpService {
         final SerializationFormat[] allowedSerializationFormatArray = newAllowedSerializationFormats(
                 defaultSerializationFormat, otherAllowedSerializationFormats);
 
-        return delegate -> new THttpService(delegate, allowedSerializationFormatArray);
+        return delegate -> new THttpService(delegate, allowedSerializationFormatArray, 0);
     }
 
-    private static SerializationFormat[] newAllowedSerializationFormats(
+    static SerializationFormat[] newAllowedSerializationFormats(
             SerializationFormat defaultSerializationFormat,
             Iterable<SerializationFormat> otherAllowedSerializationFormats) {
 
@@ -356,9 +375,10 @@ public final class THttpService extends AbstractHttpService {
     private final SerializationFormat[] allowedSerializationFormatArray;
     private final Set<SerializationFormat> allowedSerializationFormats;
     private final ThriftCallService thriftService;
+    private final int maxBatchSize;
 
-    private THttpService(Service<RpcRequest, RpcResponse> delegate,
-                         SerializationFormat[] allowedSerializationFormatArray) {
+    THttpService(Service<RpcRequest, RpcResponse> delegate,
+                 SerializationFormat[] allowedSerializationFormatArray, int maxBatchSize) {
 
         requireNonNull(delegate, "delegate");
 
@@ -367,6 +387,7 @@ public final class THttpService extends AbstractHttpService {
 
         this.allowedSerializationFormatArray = allowedSerializationFormatArray;
         allowedSerializationFormats = ImmutableSet.copyOf(allowedSerializationFormatArray);
+        this.maxBatchSize = maxBatchSize;
     }
 
     private static ThriftCallService findThriftService(Service<?, ?> delegate) {
@@ -399,6 +420,15 @@ public final class THttpService extends AbstractHttpService {
         return allowedSerializationFormatArray[0];
     }
 
+    /**
+     * Returns the maximum number of Thrift calls in a batched request, or {@code 0} if batching is disabled.
+     *
+     * @see THttpServiceBuilder#maxBatchSize(int)
+     */
+    public int maxBatchSize() {
+        return maxBatchSize;
+    }
+
     @Override
     protected HttpResponse doPost(ServiceRequestContext ctx, HttpRequest req) {
 
@@ -415,6 +445,11 @@ public final class THttpService extends AbstractHttpService {
 
         final CompletableFuture<HttpResponse> responseFuture = new CompletableFuture<>();
         final HttpResponse res = HttpResponse.from(responseFuture);
+        final boolean batched = req.headers().contains(ThriftBatchFraming.BATCH_HEADER);
+        if (batched && maxBatchSize == 0) {
+            return HttpResponse.of(HttpStatus.BAD_REQUEST, MediaType.PLAIN_TEXT_UTF_8, BATCH_NOT_SUPPORTED);
+        }
+
         ctx.logBuilder().serializationFormat(serializationFormat);
         ctx.logBuilder().deferRequestContent();
         req.aggregateWithPooledObjects(ctx.eventLoop(), ctx.alloc()).handle(voidFunction((aReq, cause) -> {
@@ -426,7 +461,11 @@ public final class THttpService extends AbstractHttpService {
                 return;
             }
 
-            decodeAndInvoke(ctx, aReq, serializationFormat, responseFuture);
+            if (batched) {
+                responseFuture.complete(decodeAndInvokeBatch(ctx, aReq, serializationFormat));
+            } else {
+                decodeAndInvoke(ctx, aReq, serializationFormat, responseFuture);
+            }
         })).exceptionally(CompletionActions::log);
         return res;
     }
@@ -474,15 +513,176 @@ public final class THttpService extends AbstractHttpService {
     private void decodeAndInvoke(
             ServiceRequestContext ctx, AggregatedHttpMessage req,
             SerializationFormat serializationFormat, CompletableFuture<HttpResponse> httpRes) {
-        final HttpData content = req.content();
-        final ByteBuf buf;
+
+        final CompletableFuture<HttpData> replyFuture = new CompletableFuture<>();
+        replyFuture.handle(voidFunction((content, cause) -> {
+            if (cause != null) {
+                httpRes.complete(
+                        HttpResponse.of(
+                                HttpStatus.BAD_REQUEST,
+                                MediaType.PLAIN_TEXT_UTF_8,
+                                "Failed to decode Thrift header: " + Throwables.getStackTraceAsString(cause)));
+            } else {
+                httpRes.complete(HttpResponse.of(HttpStatus.OK, serializationFormat.mediaType(), content));
+            }
+        })).exceptionally(CompletionActions::log);
+
+        decodeAndInvoke(ctx, toByteBuf(ctx, req.content()), serializationFormat, replyFuture);
+    }
+
+    private HttpResponse decodeAndInvokeBatch(
+            ServiceRequestContext ctx, AggregatedHttpMessage req, SerializationFormat serializationFormat) {
+
+        // Each call in a batch is logged by its own context. See newBatchedCallContext().
+        ctx.logBuilder().requestContent(null, null);
+
+        final List<ByteBuf> messages;
+        final ByteBuf buf = toByteBuf(ctx, req.content());
+        try {
+            messages = splitBatch(buf);
+        } finally {
+            buf.release();
+        }
+
+        if (messages == null) {
+            return HttpResponse.of(HttpStatus.BAD_REQUEST, MediaType.PLAIN_TEXT_UTF_8, MALFORMED_BATCH);
+        }
+
+        if (messages.size() > maxBatchSize) {
+            messages.forEach(ByteBuf::release);
+            return HttpResponse.of(HttpStatus.BAD_REQUEST, MediaType.PLAIN_TEXT_UTF_8,
+                                   "Too many Thrift calls in a batch: " + messages.size() +
+                                   " (expected: <= " + maxBatchSize + ')');
+        }
+
+        // Fail the whole batch if any call cannot be replied to, because the client matches the replies
+        // by their seqid.
+        if (!canDecodeHeaders(messages, serializationFormat)) {
+            messages.forEach(ByteBuf::release);
+            return HttpResponse.of(HttpStatus.BAD_REQUEST, MediaType.PLAIN_TEXT_UTF_8,
+                                   "Failed to decode the Thrift header of a batched message");
+        }
+
+        final HttpHeaders resHeaders = HttpHeaders.of(HttpStatus.OK)
+                                                  .contentType(serializationFormat.mediaType())
+                                                  .setInt(ThriftBatchFraming.BATCH_HEADER, messages.size());
+        final HttpResponseWriter res = HttpResponse.streaming();
+        res.write(resHeaders);
+
+        if (messages.isEmpty()) {
+            res.close();
+            return res;
+        }
+
+        // Invoke all calls without waiting for the previous one to complete, and write each reply
+        // as soon as it is ready. The client matches the replies by their seqid.
+        final AtomicInteger remaining = new AtomicInteger(messages.size());
+        for (ByteBuf m : messages) {
+            final ServiceRequestContext callCtx =
+                    newBatchedCallContext(ctx, req.headers(), serializationFormat);
+            final CompletableFuture<HttpData> replyFuture = new CompletableFuture<>();
+            replyFuture.handle(voidFunction((content, cause) -> {
+                final RequestLogBuilder logBuilder = callCtx.logBuilder();
+                logBuilder.startResponse();
+                logBuilder.responseHeaders(resHeaders);
+                if (cause != null) {
+                    // Never happens because the headers have been decoded already.
+                    logBuilder.endResponse(cause);
+                } else {
+                    // A ONEWAY call has no reply.
+                    if (!content.isEmpty()) {
+                        logBuilder.responseLength(content.length());
+                        writeFrame(ctx, res, content);
+                    }
+                    logBuilder.endResponse();
+                }
+
+                if (remaining.decrementAndGet() == 0) {
+                    res.close();
+                }
+            })).exceptionally(CompletionActions::log);
+
+            decodeAndInvoke(callCtx, m, serializationFormat, replyFuture);
+        }
+
+        return res;
+    }
+
+    private static boolean canDecodeHeaders(List<ByteBuf> messages, SerializationFormat serializationFormat) {
+        final TProtocolFactory protocolFactory = ThriftProtocolFactories.get(serializationFormat);
+        for (ByteBuf m : messages) {
+            try {
+                // Decode a duplicate so that the message can be decoded again from the beginning.
+                protocolFactory.getProtocol(new TByteBufTransport(m.duplicate())).readMessageBegin();
+            } catch (Exception e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a new {@link ServiceRequestContext} for a call in a batch, so that the RPC-level decorators
+     * and {@link RequestLog} listeners see each call separately rather than the whole batch as a single
+     * call. The {@link RequestLog} of the HTTP request, which is used for access logging, has no RPC request
+     * and response content. The {@link RequestLog} of a call has the HTTP request and response headers
+     * of the batch and the length of the call's reply.
+     */
+    private static ServiceRequestContext newBatchedCallContext(
+            ServiceRequestContext ctx, HttpHeaders reqHeaders, SerializationFormat serializationFormat) {
+
+        final ServiceRequestContext callCtx = ctx.newDerivedContext();
+        final RequestLogBuilder logBuilder = callCtx.logBuilder();
+        logBuilder.serializationFormat(serializationFormat);
+        logBuilder.requestHeaders(reqHeaders);
+        logBuilder.deferRequestContent();
+        logBuilder.endRequest();
+        return callCtx;
+    }
+
+    @Nullable
+    private static List<ByteBuf> splitBatch(ByteBuf buf) {
+        final List<ByteBuf> messages = new ArrayList<>();
+        while (buf.isReadable()) {
+            if (buf.readableBytes() < ThriftBatchFraming.LENGTH_FIELD_SIZE) {
+                messages.forEach(ByteBuf::release);
+                return null;
+            }
+
+            final int length = buf.readInt();
+            if (length < 0 || length > buf.readableBytes()) {
+                messages.forEach(ByteBuf::release);
+                return null;
+            }
+            messages.add(buf.readRetainedSlice(length));
+        }
+        return messages;
+    }
+
+    private static void writeFrame(ServiceRequestContext ctx, HttpResponseWriter res, HttpData content) {
+        final ByteBuf payload = toByteBuf(ctx, content);
+        final ByteBuf length = ctx.alloc().buffer(ThriftBatchFraming.LENGTH_FIELD_SIZE)
+                                  .writeInt(payload.readableBytes());
+        final ByteBuf frame = ctx.alloc().compositeBuffer(2).addComponents(true, length, payload);
+        if (!res.tryWrite(new ByteBufHttpData(frame, false))) {
+            frame.release();
+        }
+    }
+
+    private static ByteBuf toByteBuf(ServiceRequestContext ctx, HttpData content) {
         if (content instanceof ByteBufHolder) {
-            buf = ((ByteBufHolder) content).content();
-        } else {
-            buf = ctx.alloc().buffer(content.length());
-            buf.writeBytes(content.array(), content.offset(), content.length());
+            return ((ByteBufHolder) content).content();
         }
 
+        final ByteBuf buf = ctx.alloc().buffer(content.length());
+        buf.writeBytes(content.array(), content.offset(), content.length());
+        return buf;
+    }
+
+    private void decodeAndInvoke(
+            ServiceRequestContext ctx, ByteBuf buf,
+            SerializationFormat serializationFormat, CompletableFuture<HttpData> httpRes) {
+
         final TByteBufTransport inTransport = new TByteBufTransport(buf);
         final TProtocol inProto = ThriftProtocolFactories.get(serializationFormat).getProtocol(inTransport);
 
@@ -498,11 +698,7 @@ public final class THttpService extends AbstractHttpService {
                 header = inProto.readMessageBegin();
             } catch (Exception e) {
                 logger.debug("{} Failed to decode Thrift header:", ctx, e);
-                httpRes.complete(
-                        HttpResponse.of(
-                                HttpStatus.BAD_REQUEST,
-                                MediaType.PLAIN_TEXT_UTF_8,
-                                "Failed to decode Thrift header: " + Throwables.getStackTraceAsString(e)));
+                httpRes.completeExceptionally(e);
                 return;
             }
 
@@ -584,7 +780,7 @@ public final class THttpService extends AbstractHttpService {
 
     private void invoke(
             ServiceRequestContext ctx, SerializationFormat serializationFormat, int seqId,
-            ThriftFunction func, RpcRequest call, CompletableFuture<HttpResponse> res) {
+            ThriftFunction func, RpcRequest call, CompletableFuture<HttpData> res) {
 
         final RpcResponse reply;
 
@@ -597,7 +793,7 @@ public final class THttpService extends AbstractHttpService {
 
         reply.handle(voidFunction((result, cause) -> {
             if (func.isOneWay()) {
-                handleOneWaySuccess(ctx, reply, res, serializationFormat);
+                handleOneWaySuccess(ctx, reply, res);
                 return;
             }
 
@@ -642,25 +838,22 @@ public final class THttpService extends AbstractHttpService {
     }
 
     private static void handleSuccess(
-            ServiceRequestContext ctx, RpcResponse rpcRes, CompletableFuture<HttpResponse> httpRes,
+            ServiceRequestContext ctx, RpcResponse rpcRes, CompletableFuture<HttpData> httpRes,
             SerializationFormat serializationFormat, int seqId, ThriftFunction func, Object returnValue) {
 
         final TBase<?, ?> wrappedResult = func.newResult();
         func.setSuccess(wrappedResult, returnValue);
-        respond(serializationFormat,
-                encodeSuccess(ctx, rpcRes, serializationFormat, func.name(), seqId, wrappedResult),
-                httpRes);
+        httpRes.complete(encodeSuccess(ctx, rpcRes, serializationFormat, func.name(), seqId, wrappedResult));
     }
 
     private static void handleOneWaySuccess(
-            ServiceRequestContext ctx, RpcResponse rpcRes, CompletableFuture<HttpResponse> httpRes,
-            SerializationFormat serializationFormat) {
+            ServiceRequestContext ctx, RpcResponse rpcRes, CompletableFuture<HttpData> httpRes) {
         ctx.logBuilder().responseContent(rpcRes, null);
-        respond(serializationFormat, HttpData.EMPTY_DATA, httpRes);
+        httpRes.complete(HttpData.EMPTY_DATA);
     }
 
     private static void handleException(
-            ServiceRequestContext ctx, RpcResponse rpcRes, CompletableFuture<HttpResponse> httpRes,
+            ServiceRequestContext ctx, RpcResponse rpcRes, CompletableFuture<HttpData> httpRes,
             SerializationFormat serializationFormat, int seqId, ThriftFunction func, Throwable cause) {
 
         final TBase<?, ?> result = func.newResult();
@@ -671,21 +864,16 @@ public final class THttpService extends AbstractHttpService {
             content = encodeException(ctx, rpcRes, serializationFormat, seqId, func.name(), cause);
         }
 
-        respond(serializationFormat, content, httpRes);
+        httpRes.complete(content);
     }
 
     private static void handlePreDecodeException(
-            ServiceRequestContext ctx, CompletableFuture<HttpResponse> httpRes, Throwable cause,
+            ServiceRequestContext ctx, CompletableFuture<HttpData> httpRes, Throwable cause,
             SerializationFormat serializationFormat, int seqId, String methodName) {
 
         final HttpData content = encodeException(
                 ctx, new DefaultRpcResponse(cause), serializationFormat, seqId, methodName, cause);
-        respond(serializationFormat, content, httpRes);
-    }
-
-    private static void respond(SerializationFormat serializationFormat,
-                                HttpData content, CompletableFuture<HttpResponse> res) {
-        res.complete(HttpResponse.of(HttpStatus.OK, serializationFormat.mediaType(), content));
+        httpRes.complete(content);
     }
 
     private static HttpData encodeSuccess(ServiceRequestContext ctx,
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package com.linecorp.armeria.server.thrift;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableList;
+
+import com.linecorp.armeria.common.RpcRequest;
+import com.linecorp.armeria.common.RpcResponse;
+import com.linecorp.armeria.common.SerializationFormat;
+import com.linecorp.armeria.common.thrift.ThriftSerializationFormats;
+import com.linecorp.armeria.server.Service;
+
+/**
+ * Constructs a {@link THttpService} to serve Thrift services.
+ *
+ * <pre>{@code
+ * THttpService service = new THttpServiceBuilder()
+ *         .addService(new MyHelloService())
+ *         .addService("foo", new MyFooService())
+ *         .defaultSerializationFormat(ThriftSerializationFormats.COMPACT)
+ *         .maxBatchSize(16)
+ *         .build();
+ * }</pre>
+ */
+public final class THttpServiceBuilder {
+
+    private final Map<String, Object> implementations = new LinkedHashMap<>();
+
+    private SerializationFormat defaultSerializationFormat = ThriftSerializationFormats.BINARY;
+
+    private Iterable<SerializationFormat> otherSerializationFormats =
+            ImmutableList.copyOf(ThriftSerializationFormats.values());
+
+    private int maxBatchSize;
+
+    /**
+     * Adds a Thrift service implementation which is served without a service name.
+     *
+     * @param implementation an implementation of {@code *.Iface} or {@code *.AsyncIface} service interface
+     *                       generated by the Apache Thrift compiler
+     */
+    public THttpServiceBuilder addService(Object implementation) {
+        return addService("", implementation);
+    }
+
+    /**
+     * Adds a Thrift service implementation which is served with the specified service name, so that
+     * the clients can invoke its methods via {@code TMultiplexedProtocol}.
+     *
+     * @param implementation an implementation of {@code *.Iface} or {@code *.AsyncIface} service interface
+     *                       generated by the Apache Thrift compiler
+     */
+    public THttpServiceBuilder addService(String name, Object implementation) {
+        requireNonNull(name, "name");
+        requireNonNull(implementation, "implementation");
+        checkArgument(!implementations.containsKey(name), "duplicate service name: %s", name);
+        implementations.put(name, implementation);
+        return this;
+    }
+
+    /**
+     * Sets the {@link SerializationFormat} which is used when the client does not specify one.
+     * If not set, {@link ThriftSerializationFormats#BINARY} is used.
+     */
+    public THttpServiceBuilder defaultSerializationFormat(SerializationFormat defaultSerializationFormat) {
+        this.defaultSerializationFormat = requireNonNull(defaultSerializationFormat,
+                                                         "defaultSerializationFormat");
+        return this;
+    }
+
+    /**
+     * Sets the {@link SerializationFormat}s which are supported in addition to the default one.
+     * If not set, all {@link ThriftSerializationFormats} are supported.
+     */
+    public THttpServiceBuilder otherSerializationFormats(SerializationFormat... otherSerializationFormats) {
+        requireNonNull(otherSerializationFormats, "otherSerializationFormats");
+        return otherSerializationFormats(Arrays.asList(otherSerializationFormats));
+    }
+
+    /**
+     * Sets the {@link SerializationFormat}s which are supported in addition to the default one.
+     * If not set, all {@link ThriftSerializationFormats} are supported.
+     */
+    public THttpServiceBuilder otherSerializationFormats(
+            Iterable<SerializationFormat> otherSerializationFormats) {
+        this.otherSerializationFormats = ImmutableList.copyOf(
+                requireNonNull(otherSerializationFormats, "otherSerializationFormats"));
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of Thrift calls in a request sent by a Thrift client with
+     * {@code ThriftClientOptions.MAX_BATCH_SIZE}. A batched request with more calls is rejected with
+     * {@code 400 Bad Request}. If not set or {@code 0}, batching is disabled and all batched requests are
+     * rejected.
+     */
+    public THttpServiceBuilder maxBatchSize(int maxBatchSize) {
+        checkArgument(maxBatchSize >= 0, "maxBatchSize: %s (expected: >= 0)", maxBatchSize);
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * Returns a newly-created {@link THttpService} which serves the added service implementations.
+     */
+    public THttpService build() {
+        checkState(!implementations.isEmpty(), "no service implementations added");
+        return newDecorator().apply(ThriftCallService.of(new LinkedHashMap<>(implementations)));
+    }
+
+    /**
+     * Returns a new decorator which creates a {@link THttpService} with the settings of this builder,
+     * decorating a {@link ThriftCallService}. The service implementations added to this builder are ignored.
+     * Use this method when the {@link ThriftCallService} needs to be decorated with RPC-level decorators.
+     */
+    public Function<Service<RpcRequest, RpcResponse>, THttpService> newDecorator() {
+        final SerializationFormat[] allowedSerializationFormats =
+                THttpService.newAllowedSerializationFormats(defaultSerializationFormat,
+                                                            otherSerializationFormats);
+        final int maxBatchSize = this.maxBatchSize;
+        return delegate -> new THttpService(delegate, allowedSerializationFormats, maxBatchSize);
+    }
+}
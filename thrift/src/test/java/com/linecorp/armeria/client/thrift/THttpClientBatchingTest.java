@@ -0,0 +1,241 @@
+/*
+ * Copyright 2018 LINE Corporation
+ *
+ * LINE Corporation licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.linecorp.armeria.client.thrift;
+
+import static com.linecorp.armeria.common.thrift.ThriftSerializationFormats.BINARY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import com.linecorp.armeria.client.ClientOption;
+import com.linecorp.armeria.client.Clients;
+import com.linecorp.armeria.client.HttpClient;
+import com.linecorp.armeria.client.InvalidResponseException;
+import com.linecorp.armeria.client.ResponseTimeoutException;
+import com.linecorp.armeria.common.AggregatedHttpMessage;
+import com.linecorp.armeria.common.HttpHeaders;
+import com.linecorp.armeria.common.HttpMethod;
+import com.linecorp.armeria.common.HttpRequest;
+import com.linecorp.armeria.common.HttpResponse;
+import com.linecorp.armeria.common.HttpStatus;
+import com.linecorp.armeria.common.RequestContext;
+import com.linecorp.armeria.common.RpcRequest;
+import com.linecorp.armeria.common.RpcResponse;
+import com.linecorp.armeria.common.logging.RequestLogAvailability;
+import com.linecorp.armeria.common.thrift.ThriftCompletableFuture;
+import com.linecorp.armeria.internal.thrift.ThriftBatchFraming;
+import com.linecorp.armeria.server.ServerBuilder;
+import com.linecorp.armeria.server.Service;
+import com.linecorp.armeria.server.thrift.THttpServiceBuilder;
+import com.linecorp.armeria.server.thrift.ThriftCallService;
+import com.linecorp.armeria.service.test.thrift.main.HelloService;
+import com.linecorp.armeria.testing.server.ServerRule;
+
+public class THttpClientBatchingTest {
+
+    private static final AtomicInteger numHttpRequests = new AtomicInteger();
+    private static final Queue<RpcRequest> loggedCalls = new ConcurrentLinkedQueue<>();
+
+    @ClassRule
+    public static final ServerRule server = new ServerRule() {
+        @Override
+        protected void configure(ServerBuilder sb) throws Exception {
+            final HelloService.AsyncIface helloService = (name, resultHandler) -> {
+                if ("bad".equals(name)) {
+                    resultHandler.onError(new IllegalArgumentException(name));
+                } else if ("slow".equals(name)) {
+                    RequestContext.current().eventLoop().schedule(
+                            () -> resultHandler.onComplete("Hello, " + name + '!'), 2, TimeUnit.SECONDS);
+                } else {
+                    resultHandler.onComplete("Hello, " + name + '!');
+                }
+            };
+            // Records the calls logged by the RPC-level decorators.
+            final Service<RpcRequest, RpcResponse> rpcService =
+                    ThriftCallService.of(helloService).decorate((delegate, ctx, req) -> {
+                        ctx.log().addListener(log -> loggedCalls.add((RpcRequest) log.requestContent()),
+                                              RequestLogAvailability.COMPLETE);
+                        return delegate.serve(ctx, req);
+                    });
+            sb.service("/hello", rpcService.decorate(new THttpServiceBuilder().maxBatchSize(3)
+                                                                              .newDecorator()));
+            sb.service("/unbatched", new THttpServiceBuilder().addService(helloService).build());
+            final Function<Service<HttpRequest, HttpResponse>,
+                    Service<HttpRequest, HttpResponse>> requestCounter =
+                    delegate -> (ctx, req) -> {
+                        numHttpRequests.incrementAndGet();
+                        return delegate.serve(ctx, req);
+                    };
+            sb.decorator(requestCounter);
+        }
+    };
+
+    @Before
+    public void resetCounter() {
+        numHttpRequests.set(0);
+        loggedCalls.clear();
+    }
+
+    @Test(timeout = 10000)
+    public void fullBatch() throws Exception {
+        final HelloService.AsyncIface client = Clients.newClient(
+                server.uri(BINARY, "/hello"), HelloService.AsyncIface.class,
+                ThriftClientOptions.MAX_BATCH_SIZE.newValue(3),
+                ThriftClientOptions.BATCH_WINDOW_MILLIS.newValue(60000L));
+
+        final ThriftCompletableFuture<String> a = new ThriftCompletableFuture<>();
+        final ThriftCompletableFuture<String> b = new ThriftCompletableFuture<>();
+        final ThriftCompletableFuture<String> c = new ThriftCompletableFuture<>();
+        client.hello("a", a);
+        client.hello("b", b);
+        client.hello("c", c);
+
+        assertThat(a.join()).isEqualTo("Hello, a!");
+        assertThat(b.join()).isEqualTo("Hello, b!");
+        assertThat(c.join()).isEqualTo("Hello, c!");
+        assertThat(numHttpRequests).hasValue(1);
+
+        // Each call is logged separately.
+        await().untilAsserted(() -> assertThat(loggedCalls).hasSize(3));
+        assertThat(loggedCalls).extracting(call -> call.params().get(0))
+                               .containsExactlyInAnyOrder("a", "b", "c");
+    }
+
+    @Test(timeout = 10000)
+    public void partialBatchAfterWindow() throws Exception {
+        final HelloService.AsyncIface client = Clients.newClient(
+                server.uri(BINARY, "/hello"), HelloService.AsyncIface.class,
+                ThriftClientOptions.MAX_BATCH_SIZE.newValue(100),
+                ThriftClientOptions.BATCH_WINDOW_MILLIS.newValue(100L));
+
+        final ThriftCompletableFuture<String> good = new ThriftCompletableFuture<>();
+        final ThriftCompletableFuture<String> bad = new ThriftCompletableFuture<>();
+        client.hello("good", good);
+        client.hello("bad", bad);
+
+        assertThat(good.join()).isEqualTo("Hello, good!");
+        assertThatThrownBy(bad::join).isInstanceOf(CompletionException.class);
+        assertThat(numHttpRequests).hasValue(1);
+    }
+
+    @Test(timeout = 10000)
+    public void repliesAreNotDelayedBySlowCall() throws Exception {
+        final HelloService.AsyncIface client = Clients.newClient(
+                server.uri(BINARY, "/hello"), HelloService.AsyncIface.class,
+                ThriftClientOptions.MAX_BATCH_SIZE.newValue(2),
+                ThriftClientOptions.BATCH_WINDOW_MILLIS.newValue(60000L));
+
+        final ThriftCompletableFuture<String> slow = new ThriftCompletableFuture<>();
+        final ThriftCompletableFuture<String> fast = new ThriftCompletableFuture<>();
+        client.hello("slow", slow);
+        client.hello("fast", fast);
+
+        assertThat(fast.join()).isEqualTo("Hello, fast!");
+        assertThat(slow).isNotDone();
+        assertThat(slow.join()).isEqualTo("Hello, slow!");
+        assertThat(numHttpRequests).hasValue(1);
+    }
+
+    @Test(timeout = 10000)
+    public void responseTimeout() throws Exception {
+        final HelloService.AsyncIface client = Clients.newClient(
+                server.uri(BINARY, "/hello"), HelloService.AsyncIface.class,
+                ClientOption.DEFAULT_RESPONSE_TIMEOUT_MILLIS.newValue(500L),
+                ThriftClientOptions.MAX_BATCH_SIZE.newValue(2),
+                ThriftClientOptions.BATCH_WINDOW_MILLIS.newValue(60000L));
+
+        final ThriftCompletableFuture<String> slow = new ThriftCompletableFuture<>();
+        final ThriftCompletableFuture<String> fast = new ThriftCompletableFuture<>();
+        client.hello("slow", slow);
+        client.hello("fast", fast);
+
+        assertThat(fast.join()).isEqualTo("Hello, fast!");
+        assertThatThrownBy(slow::join).hasCauseInstanceOf(ResponseTimeoutException.class);
+    }
+
+    @Test(timeout = 10000)
+    public void singleCallIsNotFramed() throws Exception {
+        final HelloService.Iface client = Clients.newClient(
+                server.uri(BINARY, "/hello"), HelloService.Iface.class,
+                ThriftClientOptions.MAX_BATCH_SIZE.newValue(2),
+                ThriftClientOptions.BATCH_WINDOW_MILLIS.newValue(10L));
+
+        assertThat(client.hello("solo")).isEqualTo("Hello, solo!");
+        assertThat(numHttpRequests).hasValue(1);
+    }
+
+    @Test(timeout = 10000)
+    public void tooManyCalls() throws Exception {
+        final HelloService.AsyncIface client = Clients.newClient(
+                server.uri(BINARY, "/hello"), HelloService.AsyncIface.class,
+                ThriftClientOptions.MAX_BATCH_SIZE.newValue(4),
+                ThriftClientOptions.BATCH_WINDOW_MILLIS.newValue(60000L));
+
+        final List<ThriftCompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final ThriftCompletableFuture<String> future = new ThriftCompletableFuture<>();
+            client.hello(String.valueOf(i), future);
+            futures.add(future);
+        }
+
+        for (ThriftCompletableFuture<String> f : futures) {
+            assertThatThrownBy(f::join).hasCauseInstanceOf(InvalidResponseException.class);
+        }
+        assertThat(numHttpRequests).hasValue(1);
+    }
+
+    @Test(timeout = 10000)
+    public void batchingDisabled() throws Exception {
+        final HelloService.AsyncIface client = Clients.newClient(
+                server.uri(BINARY, "/unbatched"), HelloService.AsyncIface.class,
+                ThriftClientOptions.MAX_BATCH_SIZE.newValue(2),
+                ThriftClientOptions.BATCH_WINDOW_MILLIS.newValue(60000L));
+
+        final ThriftCompletableFuture<String> a = new ThriftCompletableFuture<>();
+        final ThriftCompletableFuture<String> b = new ThriftCompletableFuture<>();
+        client.hello("a", a);
+        client.hello("b", b);
+
+        assertThatThrownBy(a::join).hasCauseInstanceOf(InvalidResponseException.class);
+        assertThatThrownBy(b::join).hasCauseInstanceOf(InvalidResponseException.class);
+    }
+
+    @Test(timeout = 10000)
+    public void undecodableHeader() throws Exception {
+        final HttpClient client = HttpClient.of(server.uri("/"));
+        // A batch with a valid-length frame whose content is not a Thrift message.
+        final AggregatedHttpMessage res = client.execute(
+                HttpHeaders.of(HttpMethod.POST, "/hello")
+                           .contentType(BINARY.mediaType())
+                           .setInt(ThriftBatchFraming.BATCH_HEADER, 1),
+                new byte[] { 0, 0, 0, 3, 1, 2, 3 }).aggregate().join();
+        assertThat(res.status()).isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+}